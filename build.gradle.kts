@@ -1,9 +1,11 @@
 plugins {
     id("java")
     id("java-library")
+    id("java-test-fixtures")
     id("maven-publish")
     id("signing")
     id("io.github.jeadyx.sonatype-uploader") version "2.8"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "net.ximatai"
@@ -17,6 +19,11 @@ java {
     withSourcesJar()
 }
 
+// 模拟服务和压测工具只用于测试，不随库发布
+val javaComponent = components["java"] as AdhocComponentWithVariants
+javaComponent.withVariantsFromConfiguration(configurations["testFixturesApiElements"]) { skip() }
+javaComponent.withVariantsFromConfiguration(configurations["testFixturesRuntimeElements"]) { skip() }
+
 publishing {
     publications {
         create<MavenPublication>("mavenJava") {
@@ -76,8 +83,11 @@ repositories {
 dependencies {
     api(libs.vertx.web.client)
     api(libs.slf4j)
+    // 使用 MicrometerChatMetrics 时需要自行引入
+    compileOnly(libs.micrometer.core)
 
     testImplementation(libs.vertx.junit5)
+    testImplementation(libs.micrometer.core)
     testImplementation(platform("org.junit:junit-bom:5.10.0"))
     testImplementation("org.junit.jupiter:junit-jupiter")
     testImplementation("ch.qos.logback:logback-classic:1.5.16")
@@ -86,3 +96,18 @@ dependencies {
 tasks.test {
     useJUnitPlatform()
 }
+
+// 对本地模拟服务（或 --url 指定的接口）压测，例如 ./gradlew loadTest -PloadArgs="--sessions 500 --requests 20"
+tasks.register<JavaExec>("loadTest") {
+    group = "verification"
+    description = "Runs the concurrent streaming load harness"
+    classpath = sourceSets["testFixtures"].runtimeClasspath
+    mainClass = "net.ximatai.vertxopenai.mock.LoadHarness"
+    findProperty("loadArgs")?.let { args(it.toString().trim().split(Regex("\\s+"))) }
+}
+
+jmh {
+    jmhVersion = "1.37"
+    // 可通过 -PjmhInclude=SSEParser 只运行部分基准测试
+    findProperty("jmhInclude")?.let { includes = listOf(it.toString()) }
+}
@@ -0,0 +1,84 @@
+package net.ximatai.vertxopenai.benchmark;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import net.ximatai.vertxopenai.message.AssistantMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对比流式解析 {@link AssistantMessage#parse(Buffer)} 与先构建 json 树再读取字段的开销，
+ * 分别测量单个流式片段和一次完整响应
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AssistantMessageBenchmark {
+
+    /**
+     * 完整响应的内容长度（字符）
+     */
+    @Param({"200", "4000"})
+    public int contentLength;
+
+    private Buffer chunk;
+    private Buffer response;
+
+    @Setup
+    public void setup() {
+        chunk = Buffer.buffer("{\"id\":\"chatcmpl-bench\",\"object\":\"chat.completion.chunk\",\"created\":1700000000,"
+                + "\"model\":\"deepseek-chat\",\"choices\":[{\"index\":0,\"delta\":{\"content\":\"token 你好\"},"
+                + "\"logprobs\":null,\"finish_reason\":null}]}");
+        response = new JsonObject()
+                .put("id", "chatcmpl-bench")
+                .put("object", "chat.completion")
+                .put("created", 1700000000)
+                .put("model", "deepseek-chat")
+                .put("choices", new JsonArray().add(new JsonObject()
+                        .put("index", 0)
+                        .put("message", new JsonObject()
+                                .put("role", "assistant")
+                                .put("content", "你好，world ".repeat(contentLength / 10)))
+                        .put("finish_reason", "stop")))
+                .put("usage", new JsonObject()
+                        .put("prompt_tokens", 20)
+                        .put("completion_tokens", contentLength / 2)
+                        .put("total_tokens", 20 + contentLength / 2))
+                .toBuffer();
+    }
+
+    @Benchmark
+    public String parseChunk() {
+        return AssistantMessage.parse(chunk).content();
+    }
+
+    @Benchmark
+    public String jsonTreeChunk() {
+        return new AssistantMessage(chunk.toJsonObject()).content();
+    }
+
+    @Benchmark
+    public String parseResponse() {
+        return AssistantMessage.parse(response).content();
+    }
+
+    @Benchmark
+    public String jsonTreeResponse() {
+        return new AssistantMessage(response.toJsonObject()).content();
+    }
+}
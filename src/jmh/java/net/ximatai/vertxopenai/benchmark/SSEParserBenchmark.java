@@ -0,0 +1,85 @@
+package net.ximatai.vertxopenai.benchmark;
+
+import io.vertx.core.buffer.Buffer;
+import net.ximatai.vertxopenai.message.SSEParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对比字节级 SSEParser 与旧版 LegacySSEParser 解析一次完整流式响应的开销，
+ * 建议配合 -prof gc 观察每次解析的内存分配
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SSEParserBenchmark {
+
+    /**
+     * 每个网络数据块的大小
+     */
+    @Param({"64", "1024", "16384"})
+    public int chunkSize;
+
+    /**
+     * 一次响应包含的事件数量
+     */
+    @Param({"500"})
+    public int events;
+
+    private List<Buffer> chunks;
+
+    @Setup
+    public void setup() {
+        StringBuilder stream = new StringBuilder();
+        for (int i = 0; i < events; i++) {
+            stream.append("data: {\"id\":\"chatcmpl-bench\",\"object\":\"chat.completion.chunk\",\"created\":1700000000,")
+                    .append("\"model\":\"deepseek-chat\",\"choices\":[{\"index\":0,\"delta\":{\"content\":\"token")
+                    .append(i)
+                    .append(" 你好\"},\"finish_reason\":null}]}\n\n");
+        }
+        stream.append("data: [DONE]\n\n");
+
+        Buffer whole = Buffer.buffer(stream.toString());
+        chunks = new ArrayList<>();
+        for (int start = 0; start < whole.length(); start += chunkSize) {
+            chunks.add(whole.getBuffer(start, Math.min(start + chunkSize, whole.length())));
+        }
+    }
+
+    @Benchmark
+    public void byteLevelParser(Blackhole blackhole) {
+        SSEParser parser = new SSEParser()
+                .handler(event -> blackhole.consume(event.data()))
+                .endHandler(blackhole::consume);
+        for (Buffer chunk : chunks) {
+            parser.write(chunk);
+        }
+        parser.end();
+    }
+
+    @Benchmark
+    public void legacyParser(Blackhole blackhole) {
+        LegacySSEParser parser = new LegacySSEParser(blackhole::consume, blackhole::consume);
+        for (Buffer chunk : chunks) {
+            parser.write(chunk);
+        }
+        parser.end();
+    }
+}
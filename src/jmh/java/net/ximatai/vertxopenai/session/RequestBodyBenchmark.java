@@ -0,0 +1,82 @@
+package net.ximatai.vertxopenai.session;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import net.ximatai.vertxopenai.message.IMessage;
+import net.ximatai.vertxopenai.message.MessageRole;
+import net.ximatai.vertxopenai.message.SimpleMessage;
+import net.ximatai.vertxopenai.message.UserMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对比拼接已序列化历史的 {@link RequestBody#encode} 与每轮重新构建整个 json 的开销；
+ * RequestBody 是包内可见的，所以基准测试放在同一个包下
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestBodyBenchmark {
+
+    /**
+     * 历史消息条数
+     */
+    @Param({"10", "100"})
+    public int historySize;
+
+    private JsonObject config;
+    private List<EncodedMessage> pinned;
+    private List<EncodedMessage> history;
+    private List<EncodedMessage> messages;
+    private List<IMessage> all;
+
+    @Setup
+    public void setup() {
+        config = new JsonObject().put("model", "deepseek-chat").put("temperature", 0.7);
+        pinned = List.of(EncodedMessage.of(new SimpleMessage("你是一个翻译器，我说中文你返回英文", MessageRole.SYSTEM)));
+        List<IMessage> historyMessages = new ArrayList<>();
+        for (int i = 0; i < historySize; i++) {
+            historyMessages.add(i % 2 == 0
+                    ? new UserMessage("第 " + i + " 个问题：今天天气怎么样？")
+                    : new SimpleMessage("Answer " + i + ": it's sunny today, 你好", MessageRole.ASSISTANT));
+        }
+        history = EncodedMessage.of(historyMessages);
+        messages = List.of(EncodedMessage.of(new UserMessage("最后一个问题")));
+
+        all = new ArrayList<>();
+        all.add(pinned.get(0).message());
+        all.addAll(historyMessages);
+        all.add(messages.get(0).message());
+    }
+
+    @Benchmark
+    public Buffer encode() {
+        return RequestBody.encode(config, true, pinned, history, messages);
+    }
+
+    @Benchmark
+    public Buffer jsonTree() {
+        JsonArray array = new JsonArray();
+        for (IMessage message : all) {
+            array.add(message.toJson());
+        }
+        return config.copy().put("stream", true).put("messages", array).toBuffer();
+    }
+}
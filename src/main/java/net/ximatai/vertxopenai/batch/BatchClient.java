@@ -0,0 +1,442 @@
+package net.ximatai.vertxopenai.batch;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.file.AsyncFile;
+import io.vertx.core.file.FileSystem;
+import io.vertx.core.file.OpenOptions;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.RequestOptions;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.parsetools.RecordParser;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.ext.web.client.HttpRequest;
+import io.vertx.ext.web.client.HttpResponse;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.multipart.MultipartForm;
+import net.ximatai.vertxopenai.service.ChatCall;
+import net.ximatai.vertxopenai.service.ChatTransport;
+import net.ximatai.vertxopenai.service.Endpoint;
+import net.ximatai.vertxopenai.service.OpenAIException;
+import net.ximatai.vertxopenai.session.TokenEstimator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 批量任务：把请求逐个写入 JSONL 文件，通过 Batch API（/files + /batches）提交，轮询直到完成，再逐行读取结果
+ * <p>
+ * 请求和结果都经过磁盘上的临时文件，几十万个请求也只占用固定的内存。上游不支持 Batch API 时可以开启
+ * {@link BatchOptions#setFallback(boolean) 降级模式}，以有限的并发把同一个 JSONL 文件逐个发送到 chat completions，
+ * 结果以相同的格式返回。
+ * <pre>{@code
+ * BatchClient batch = service.batch(new BatchOptions());
+ * batch.run(requests).onSuccess(results -> results.handler(result -> ...));
+ * }</pre>
+ */
+public class BatchClient {
+
+    private static final Set<String> TERMINAL_STATUSES = Set.of("completed", "failed", "expired", "cancelled");
+    private static final Buffer RESULT_START = Buffer.buffer("{\"custom_id\":");
+    private static final Buffer RESULT_BODY = Buffer.buffer(",\"response\":{\"status_code\":200,\"body\":");
+    private static final Buffer RESULT_END = Buffer.buffer("},\"error\":null}\n");
+
+    private final Logger logger = LoggerFactory.getLogger(BatchClient.class);
+
+    private final Vertx vertx;
+    private final HttpClient httpClient;
+    private final WebClient client;
+    private final ChatTransport transport;
+    private final BatchOptions options;
+    private final String apiKey;
+    private final String host;
+    private final int port;
+    private final boolean ssl;
+    private final String chatPath;
+    private final String apiRoot;
+
+    /**
+     * 创建批量任务客户端，通常通过 {@link net.ximatai.vertxopenai.service.IOpenService#batch(BatchOptions)} 创建
+     *
+     * @param vertx      vertx
+     * @param httpClient 共享的 HttpClient
+     * @param endpoint   Batch API 所在的上游接口
+     * @param transport  降级模式使用的传输层
+     * @param options    配置
+     */
+    public BatchClient(Vertx vertx, HttpClient httpClient, Endpoint endpoint, ChatTransport transport, BatchOptions options) {
+        this.vertx = vertx;
+        this.httpClient = httpClient;
+        this.client = WebClient.wrap(httpClient);
+        this.transport = transport;
+        this.options = options;
+        this.apiKey = endpoint.apiKey();
+
+        URI uri = URI.create(endpoint.baseUrl());
+        this.ssl = "https".equals(uri.getScheme());
+        this.host = uri.getHost();
+        this.port = uri.getPort() == -1 ? (ssl ? 443 : 80) : uri.getPort();
+        this.chatPath = uri.getPath();
+        // https://api.openai.com/v1/chat/completions -> /v1
+        this.apiRoot = chatPath.endsWith("/chat/completions")
+                ? chatPath.substring(0, chatPath.length() - "/chat/completions".length())
+                : chatPath.substring(0, Math.max(0, chatPath.lastIndexOf('/')));
+    }
+
+    /**
+     * 执行批量任务：写入 JSONL、提交、等待完成并读取结果（降级模式下直接逐个发送），中间文件用完即删除
+     *
+     * @param requests 请求，按写入速度读取
+     * @return 结果流（异步），任务完成后返回
+     */
+    public Future<ReadStream<BatchResult>> run(ReadStream<BatchRequest> requests) {
+        return writeJsonl(requests).compose(path -> {
+            if (options.isFallback()) {
+                return runLocally(path).eventually(v -> delete(path));
+            }
+            return submit(path)
+                    .eventually(v -> delete(path))
+                    .compose(this::await)
+                    .compose(this::results);
+        });
+    }
+
+    /**
+     * 把请求逐个写入临时的 JSONL 文件，写入跟不上时暂停读取请求
+     *
+     * @param requests 请求
+     * @return 文件路径（异步）
+     */
+    public Future<String> writeJsonl(ReadStream<BatchRequest> requests) {
+        FileSystem fs = vertx.fileSystem();
+        return fs.createTempFile("batch-", ".jsonl").compose(path -> fs
+                .open(path, new OpenOptions().setWrite(true).setTruncateExisting(true))
+                .compose(file -> {
+                    Promise<Void> written = Promise.promise();
+                    file.exceptionHandler(written::tryFail);
+                    requests.exceptionHandler(written::tryFail);
+                    requests.endHandler(v -> written.tryComplete());
+                    requests.handler(request -> {
+                        file.write(request.toJsonl(chatPath));
+                        if (file.writeQueueFull()) {
+                            requests.pause();
+                            file.drainHandler(v -> requests.resume());
+                        }
+                    });
+                    return written.future().eventually(v -> file.close());
+                })
+                .map(path)
+                .onFailure(err -> delete(path)));
+    }
+
+    /**
+     * 上传 JSONL 文件并创建批量任务
+     *
+     * @param path JSONL 文件路径
+     * @return 批量任务 id（异步）
+     */
+    public Future<String> submit(String path) {
+        MultipartForm form = MultipartForm.create()
+                .attribute("purpose", "batch")
+                .binaryFileUpload("file", Paths.get(path).getFileName().toString(), path, "application/jsonl");
+        return request(client.post(port, host, apiRoot + "/files"))
+                .sendMultipartForm(form)
+                .compose(BatchClient::json)
+                .compose(file -> request(client.post(port, host, apiRoot + "/batches"))
+                        .sendJsonObject(new JsonObject()
+                                .put("input_file_id", file.getString("id"))
+                                .put("endpoint", chatPath)
+                                .put("completion_window", options.getCompletionWindow())))
+                .compose(BatchClient::json)
+                .map(batch -> {
+                    logger.info("Batch {} created", batch.getString("id"));
+                    return batch.getString("id");
+                });
+    }
+
+    /**
+     * 查询批量任务
+     *
+     * @param batchId 批量任务 id
+     * @return 批量任务信息（异步）
+     */
+    public Future<JsonObject> retrieve(String batchId) {
+        return request(client.get(port, host, apiRoot + "/batches/" + batchId))
+                .send()
+                .compose(BatchClient::json);
+    }
+
+    /**
+     * 取消批量任务，已经完成的请求的结果仍然可以读取
+     *
+     * @param batchId 批量任务 id
+     * @return 批量任务信息（异步）
+     */
+    public Future<JsonObject> cancel(String batchId) {
+        return request(client.post(port, host, apiRoot + "/batches/" + batchId + "/cancel"))
+                .send()
+                .compose(BatchClient::json);
+    }
+
+    /**
+     * 轮询直到批量任务结束（completed、failed、expired 或 cancelled），查询间隔逐渐增加到最大查询间隔；
+     * 查询时的网络错误和 429、5xx 会在下次查询时重试
+     *
+     * @param batchId 批量任务 id
+     * @return 结束时的批量任务信息（异步）
+     */
+    public Future<JsonObject> await(String batchId) {
+        Promise<JsonObject> promise = Promise.promise();
+        vertx.setTimer(options.getPollInterval(), id -> poll(batchId, options.getPollInterval(), promise));
+        return promise.future();
+    }
+
+    private void poll(String batchId, long interval, Promise<JsonObject> promise) {
+        retrieve(batchId).onComplete(ar -> {
+            if (ar.succeeded()) {
+                JsonObject batch = ar.result();
+                String status = batch.getString("status");
+                if (TERMINAL_STATUSES.contains(status)) {
+                    logger.info("Batch {} {}", batchId, status);
+                    promise.complete(batch);
+                    return;
+                }
+                logger.debug("Batch {} {}: {}", batchId, status, batch.getJsonObject("request_counts"));
+            } else if (ar.cause() instanceof OpenAIException e && e.statusCode() < 500 && e.statusCode() != 429) {
+                promise.fail(e);
+                return;
+            } else {
+                logger.warn("Failed to poll batch {}: {}", batchId, ar.cause().getMessage());
+            }
+            long next = Math.min(options.getMaxPollInterval(), interval + interval / 2);
+            vertx.setTimer(interval, id -> poll(batchId, next, promise));
+        });
+    }
+
+    /**
+     * 下载批量任务的输出文件和错误文件，逐行读取结果；过期或取消的任务会返回已经完成的部分
+     *
+     * @param batch 结束时的批量任务信息
+     * @return 结果流（异步）
+     */
+    public Future<ReadStream<BatchResult>> results(JsonObject batch) {
+        List<String> fileIds = new ArrayList<>(2);
+        for (String field : List.of("output_file_id", "error_file_id")) {
+            String fileId = batch.getString(field);
+            if (fileId != null) {
+                fileIds.add(fileId);
+            }
+        }
+        if (fileIds.isEmpty()) {
+            return Future.failedFuture(new BatchException("Batch " + batch.getString("id") + " " + batch.getString("status") + " without results", batch));
+        }
+
+        FileSystem fs = vertx.fileSystem();
+        return fs.createTempFile("batch-", ".out.jsonl").compose(path -> fs
+                .open(path, new OpenOptions().setWrite(true).setTruncateExisting(true))
+                .compose(file -> download(fileIds, 0, file).eventually(v -> file.close()))
+                .compose(v -> readResults(path, true))
+                .onFailure(err -> delete(path)));
+    }
+
+    /**
+     * 依次下载文件追加到结果文件；先检查状态码，非 2xx 时读取响应体后以 {@link OpenAIException} 失败，不写入结果文件
+     */
+    private Future<Void> download(List<String> fileIds, int index, AsyncFile file) {
+        if (index == fileIds.size()) {
+            return Future.succeededFuture();
+        }
+        return httpClient.request(new RequestOptions()
+                        .setMethod(HttpMethod.GET)
+                        .setHost(host)
+                        .setPort(port)
+                        .setSsl(ssl)
+                        .setURI(apiRoot + "/files/" + fileIds.get(index) + "/content")
+                        .putHeader("Authorization", "Bearer " + apiKey))
+                .compose(HttpClientRequest::send)
+                .compose(response -> {
+                    int statusCode = response.statusCode();
+                    if (statusCode < 200 || statusCode >= 300) {
+                        return response.body().transform(ar -> Future.failedFuture(
+                                new OpenAIException(statusCode, ar.succeeded() ? ar.result().toString() : null, -1)));
+                    }
+                    return response.pipe().endOnComplete(false).to(file);
+                })
+                .compose(v -> download(fileIds, index + 1, file));
+    }
+
+    /**
+     * 降级模式：以有限的并发把 JSONL 文件中的请求逐个发送到 chat completions，结果按 Batch API 输出文件的格式写入临时文件
+     *
+     * @param path JSONL 文件路径
+     * @return 结果流（异步），全部请求完成后返回
+     */
+    public Future<ReadStream<BatchResult>> runLocally(String path) {
+        FileSystem fs = vertx.fileSystem();
+        return fs.createTempFile("batch-", ".out.jsonl").compose(outputPath -> fs
+                .open(outputPath, new OpenOptions().setWrite(true).setTruncateExisting(true))
+                .compose(output -> fs.open(path, new OpenOptions().setRead(true))
+                        .compose(input -> new LocalRun(RecordParser.newDelimited("\n", input), output).start()
+                                .eventually(v -> input.close()))
+                        .eventually(v -> output.close()))
+                .compose(v -> readResults(outputPath, true))
+                .onFailure(err -> delete(outputPath)));
+    }
+
+    /**
+     * 逐行读取结果文件
+     *
+     * @param path   结果文件路径
+     * @param delete 读完后是否删除文件
+     * @return 结果流（异步）
+     */
+    Future<ReadStream<BatchResult>> readResults(String path, boolean delete) {
+        return vertx.fileSystem()
+                .open(path, new OpenOptions().setRead(true))
+                .map(file -> new BatchResultStream(RecordParser.newDelimited("\n", file), v -> file.close()
+                        .onComplete(ar -> {
+                            if (delete) {
+                                delete(path);
+                            }
+                        })));
+    }
+
+    private HttpRequest<Buffer> request(HttpRequest<Buffer> request) {
+        return request.ssl(ssl).bearerTokenAuthentication(apiKey);
+    }
+
+    private static Future<JsonObject> json(HttpResponse<Buffer> response) {
+        int statusCode = response.statusCode();
+        if (statusCode >= 200 && statusCode < 300) {
+            return Future.succeededFuture(response.bodyAsJsonObject());
+        }
+        return Future.failedFuture(new OpenAIException(statusCode, response.bodyAsString(), -1));
+    }
+
+    private Future<Void> delete(String path) {
+        return vertx.fileSystem().delete(path).otherwiseEmpty();
+    }
+
+    /**
+     * 降级模式的一次执行：进行中的请求达到并发数或结果文件写不过来时暂停读取输入
+     */
+    private class LocalRun {
+        private final ReadStream<Buffer> lines;
+        private final AsyncFile output;
+        private final Promise<Void> done = Promise.promise();
+
+        private int inFlight;
+        private boolean paused;
+        private boolean ended;
+
+        LocalRun(ReadStream<Buffer> lines, AsyncFile output) {
+            this.lines = lines;
+            this.output = output;
+        }
+
+        Future<Void> start() {
+            output.exceptionHandler(done::tryFail);
+            lines.exceptionHandler(done::tryFail);
+            lines.endHandler(v -> {
+                synchronized (this) {
+                    ended = true;
+                    if (inFlight > 0) {
+                        return;
+                    }
+                }
+                done.tryComplete();
+            });
+            lines.handler(this::send);
+            return done.future();
+        }
+
+        private void send(Buffer line) {
+            if (line.length() == 0) {
+                return;
+            }
+            synchronized (this) {
+                inFlight++;
+                if (inFlight >= options.getConcurrency()) {
+                    paused = true;
+                    lines.pause();
+                }
+            }
+
+            String customId = null;
+            ChatCall call;
+            try {
+                JsonObject json = new JsonObject(line);
+                customId = json.getString("custom_id");
+                JsonObject body = json.getJsonObject("body");
+                Buffer encoded = body.toBuffer();
+                int tokens = TokenEstimator.estimate(encoded.toString())
+                        + body.getInteger("max_completion_tokens", body.getInteger("max_tokens", 0));
+                call = new ChatCall(body.getString("model"), encoded, tokens);
+            } catch (RuntimeException e) {
+                complete(customId, Future.failedFuture(e));
+                return;
+            }
+            String id = customId;
+            transport.send(call).onComplete(ar -> complete(id, ar));
+        }
+
+        private void complete(String customId, AsyncResult<Buffer> ar) {
+            output.write(ar.succeeded() ? success(customId, ar.result()) : failure(customId, ar.cause()));
+            boolean finished;
+            boolean resume;
+            synchronized (this) {
+                inFlight--;
+                finished = ended && inFlight == 0;
+                resume = paused && !ended && inFlight < options.getConcurrency();
+                if (resume) {
+                    paused = false;
+                }
+            }
+            if (finished) {
+                done.tryComplete();
+            } else if (resume) {
+                if (output.writeQueueFull()) {
+                    output.drainHandler(v -> lines.resume());
+                } else {
+                    lines.resume();
+                }
+            }
+        }
+
+        private Buffer success(String customId, Buffer response) {
+            Buffer id = Json.encodeToBuffer(customId);
+            Buffer body = BatchRequest.singleLine(response);
+            return Buffer.buffer(RESULT_START.length() + id.length() + RESULT_BODY.length() + body.length() + RESULT_END.length())
+                    .appendBuffer(RESULT_START)
+                    .appendBuffer(id)
+                    .appendBuffer(RESULT_BODY)
+                    .appendBuffer(body)
+                    .appendBuffer(RESULT_END);
+        }
+
+        private Buffer failure(String customId, Throwable err) {
+            JsonObject result = new JsonObject().put("custom_id", customId);
+            String message = err.getMessage();
+            if (err instanceof OpenAIException e) {
+                result.put("response", new JsonObject().put("status_code", e.statusCode()));
+                if (e.body() != null) {
+                    message = e.body();
+                }
+            }
+            return result.put("error", new JsonObject().put("message", message))
+                    .toBuffer()
+                    .appendString("\n");
+        }
+    }
+}
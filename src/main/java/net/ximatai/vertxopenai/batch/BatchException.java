@@ -0,0 +1,31 @@
+package net.ximatai.vertxopenai.batch;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * 批量任务没有正常完成：上游返回 failed、expired、cancelled 等状态
+ */
+public class BatchException extends RuntimeException {
+
+    private final JsonObject batch;
+
+    /**
+     * 创建批量任务异常
+     *
+     * @param message 原因
+     * @param batch   上游返回的批量任务信息
+     */
+    public BatchException(String message, JsonObject batch) {
+        super(message, null, false, false);
+        this.batch = batch;
+    }
+
+    /**
+     * 上游返回的批量任务信息，包括 status、errors、request_counts 等
+     *
+     * @return 批量任务信息
+     */
+    public JsonObject batch() {
+        return batch;
+    }
+}
@@ -0,0 +1,148 @@
+package net.ximatai.vertxopenai.batch;
+
+import java.util.Objects;
+
+/**
+ * 批量任务配置
+ */
+public class BatchOptions {
+
+    /**
+     * 默认完成时限
+     */
+    public static final String DEFAULT_COMPLETION_WINDOW = "24h";
+    /**
+     * 默认首次查询间隔（毫秒）
+     */
+    public static final long DEFAULT_POLL_INTERVAL = 10_000;
+    /**
+     * 默认最大查询间隔（毫秒）
+     */
+    public static final long DEFAULT_MAX_POLL_INTERVAL = 300_000;
+    /**
+     * 默认降级模式的并发请求数
+     */
+    public static final int DEFAULT_CONCURRENCY = 8;
+
+    private String completionWindow = DEFAULT_COMPLETION_WINDOW;
+    private long pollInterval = DEFAULT_POLL_INTERVAL;
+    private long maxPollInterval = DEFAULT_MAX_POLL_INTERVAL;
+    private boolean fallback = false;
+    private int concurrency = DEFAULT_CONCURRENCY;
+
+    /**
+     * 使用默认值创建配置
+     */
+    public BatchOptions() {
+    }
+
+    /**
+     * 获取完成时限
+     *
+     * @return 完成时限
+     */
+    public String getCompletionWindow() {
+        return completionWindow;
+    }
+
+    /**
+     * 设置完成时限，即 Batch API 的 completion_window，默认 24h
+     *
+     * @param completionWindow 完成时限
+     * @return this
+     */
+    public BatchOptions setCompletionWindow(String completionWindow) {
+        this.completionWindow = Objects.requireNonNull(completionWindow, "Completion window cannot be null");
+        return this;
+    }
+
+    /**
+     * 获取首次查询间隔（毫秒）
+     *
+     * @return 查询间隔
+     */
+    public long getPollInterval() {
+        return pollInterval;
+    }
+
+    /**
+     * 设置首次查询间隔（毫秒），之后每次查询间隔增加一半，直到最大查询间隔
+     *
+     * @param pollInterval 查询间隔
+     * @return this
+     */
+    public BatchOptions setPollInterval(long pollInterval) {
+        if (pollInterval < 1) {
+            throw new IllegalArgumentException("pollInterval must be > 0");
+        }
+        this.pollInterval = pollInterval;
+        return this;
+    }
+
+    /**
+     * 获取最大查询间隔（毫秒）
+     *
+     * @return 最大查询间隔
+     */
+    public long getMaxPollInterval() {
+        return maxPollInterval;
+    }
+
+    /**
+     * 设置最大查询间隔（毫秒）
+     *
+     * @param maxPollInterval 最大查询间隔
+     * @return this
+     */
+    public BatchOptions setMaxPollInterval(long maxPollInterval) {
+        if (maxPollInterval < 1) {
+            throw new IllegalArgumentException("maxPollInterval must be > 0");
+        }
+        this.maxPollInterval = maxPollInterval;
+        return this;
+    }
+
+    /**
+     * 是否使用降级模式
+     *
+     * @return 是否降级
+     */
+    public boolean isFallback() {
+        return fallback;
+    }
+
+    /**
+     * 设置是否使用降级模式：不使用 Batch API，而是以有限的并发把同样的 JSONL 逐个发送到 chat completions，
+     * 适合不支持 Batch API 的上游（比如 vLLM）；请求会经过服务配置的限流、重试等
+     *
+     * @param fallback 是否降级
+     * @return this
+     */
+    public BatchOptions setFallback(boolean fallback) {
+        this.fallback = fallback;
+        return this;
+    }
+
+    /**
+     * 获取降级模式的并发请求数
+     *
+     * @return 并发请求数
+     */
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * 设置降级模式的并发请求数
+     *
+     * @param concurrency 并发请求数
+     * @return this
+     */
+    public BatchOptions setConcurrency(int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be > 0");
+        }
+        this.concurrency = concurrency;
+        return this;
+    }
+}
@@ -0,0 +1,102 @@
+package net.ximatai.vertxopenai.batch;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import net.ximatai.vertxopenai.message.IMessage;
+import net.ximatai.vertxopenai.message.UserMessage;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 批量任务中的一个请求
+ *
+ * @param customId 请求标识，结果中原样返回，同一批次内不能重复
+ * @param body     chat completions 请求体
+ */
+public record BatchRequest(String customId, Buffer body) {
+
+    private static final Buffer LINE_START = Buffer.buffer("{\"custom_id\":");
+    private static final Buffer METHOD = Buffer.buffer(",\"method\":\"POST\",\"url\":");
+    private static final Buffer BODY = Buffer.buffer(",\"body\":");
+    private static final Buffer LINE_END = Buffer.buffer("}\n");
+
+    /**
+     * 创建请求，请求体中字符串之外的换行会被替换为空格，保证每个请求在 JSONL 中只占一行
+     *
+     * @param customId 请求标识
+     * @param body     请求体
+     */
+    public BatchRequest {
+        Objects.requireNonNull(customId, "Custom id cannot be null");
+        Objects.requireNonNull(body, "Body cannot be null");
+        body = singleLine(body);
+    }
+
+    /**
+     * 合法的 json 字符串中不会出现原始换行，所以换行都可以直接替换为空格
+     */
+    static Buffer singleLine(Buffer body) {
+        Buffer result = body;
+        for (int i = 0; i < body.length(); i++) {
+            byte b = body.getByte(i);
+            if (b == '\n' || b == '\r') {
+                if (result == body) {
+                    result = body.copy();
+                }
+                result.setByte(i, (byte) ' ');
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 由模型配置和消息列表创建请求
+     *
+     * @param customId 请求标识
+     * @param config   模型配置，必须包含 model
+     * @param messages 消息列表
+     * @return 请求
+     */
+    public static BatchRequest of(String customId, JsonObject config, List<IMessage> messages) {
+        JsonArray array = new JsonArray();
+        for (IMessage message : messages) {
+            array.add(message.toJson());
+        }
+        JsonObject body = config.copy();
+        body.remove("stream");
+        body.remove("stream_options");
+        return new BatchRequest(customId, body.put("messages", array).toBuffer());
+    }
+
+    /**
+     * 由模型配置和一条用户消息创建请求
+     *
+     * @param customId 请求标识
+     * @param config   模型配置，必须包含 model
+     * @param prompt   用户消息
+     * @return 请求
+     */
+    public static BatchRequest of(String customId, JsonObject config, String prompt) {
+        return of(customId, config, List.of(new UserMessage(prompt)));
+    }
+
+    /**
+     * Batch API 输入文件中的一行，请求体直接拼接、不重新序列化
+     */
+    Buffer toJsonl(String url) {
+        Buffer id = Json.encodeToBuffer(customId);
+        Buffer path = Json.encodeToBuffer(url);
+        return Buffer.buffer(LINE_START.length() + id.length() + METHOD.length() + path.length()
+                        + BODY.length() + body.length() + LINE_END.length())
+                .appendBuffer(LINE_START)
+                .appendBuffer(id)
+                .appendBuffer(METHOD)
+                .appendBuffer(path)
+                .appendBuffer(BODY)
+                .appendBuffer(body)
+                .appendBuffer(LINE_END);
+    }
+}
@@ -0,0 +1,46 @@
+package net.ximatai.vertxopenai.batch;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import net.ximatai.vertxopenai.message.AssistantMessage;
+
+/**
+ * 批量任务中一个请求的结果
+ *
+ * @param customId   请求标识
+ * @param statusCode 上游返回的 HTTP 状态码，请求没有到达上游时为 0
+ * @param message    AI 返回消息，失败时为 null
+ * @param error      失败原因，成功时为 null
+ */
+public record BatchResult(String customId, int statusCode, AssistantMessage message, String error) {
+
+    /**
+     * 是否成功
+     *
+     * @return 是否成功
+     */
+    public boolean succeeded() {
+        return message != null;
+    }
+
+    /**
+     * 解析 Batch API 输出文件（或错误文件）中的一行
+     */
+    static BatchResult parse(Buffer line) {
+        JsonObject json = new JsonObject(line);
+        String customId = json.getString("custom_id");
+        JsonObject response = json.getJsonObject("response");
+        JsonObject error = json.getJsonObject("error");
+
+        int statusCode = response == null ? 0 : response.getInteger("status_code", 0);
+        JsonObject body = response == null ? null : response.getJsonObject("body");
+        if (error == null && body != null) {
+            error = body.getJsonObject("error");
+        }
+        if (error == null && statusCode >= 200 && statusCode < 300 && body != null) {
+            return new BatchResult(customId, statusCode, new AssistantMessage(body), null);
+        }
+        String reason = error == null ? "HTTP " + statusCode : error.getString("message", error.encode());
+        return new BatchResult(customId, statusCode, null, reason);
+    }
+}
@@ -0,0 +1,99 @@
+package net.ximatai.vertxopenai.batch;
+
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.ReadStream;
+
+/**
+ * 逐行读取结果文件的流，pause/fetch 直接传递到文件，任意大小的结果文件只占用固定的内存
+ */
+class BatchResultStream implements ReadStream<BatchResult> {
+
+    private final ReadStream<Buffer> lines;
+
+    private Handler<BatchResult> handler;
+    private Handler<Void> endHandler;
+    private Handler<Throwable> exceptionHandler;
+    private boolean paused;
+
+    /**
+     * @param lines 按行切分的结果文件
+     * @param onEnd 文件读完或读取失败后的清理
+     */
+    BatchResultStream(ReadStream<Buffer> lines, Handler<Void> onEnd) {
+        this.lines = lines;
+        lines.pause();
+        lines.handler(this::handleLine);
+        lines.endHandler(v -> {
+            onEnd.handle(null);
+            if (endHandler != null) {
+                endHandler.handle(null);
+            }
+        });
+        lines.exceptionHandler(err -> {
+            onEnd.handle(null);
+            if (exceptionHandler != null) {
+                exceptionHandler.handle(err);
+            }
+        });
+    }
+
+    @Override
+    public BatchResultStream exceptionHandler(Handler<Throwable> handler) {
+        this.exceptionHandler = handler;
+        return this;
+    }
+
+    @Override
+    public BatchResultStream handler(Handler<BatchResult> handler) {
+        this.handler = handler;
+        if (handler != null && !paused) {
+            lines.resume();
+        }
+        return this;
+    }
+
+    @Override
+    public BatchResultStream pause() {
+        paused = true;
+        lines.pause();
+        return this;
+    }
+
+    @Override
+    public BatchResultStream resume() {
+        paused = false;
+        lines.resume();
+        return this;
+    }
+
+    @Override
+    public BatchResultStream fetch(long amount) {
+        lines.fetch(amount);
+        return this;
+    }
+
+    @Override
+    public BatchResultStream endHandler(Handler<Void> endHandler) {
+        this.endHandler = endHandler;
+        return this;
+    }
+
+    private void handleLine(Buffer line) {
+        if (line.length() == 0) {
+            return;
+        }
+        BatchResult result;
+        try {
+            result = BatchResult.parse(line);
+        } catch (RuntimeException e) {
+            if (exceptionHandler != null) {
+                exceptionHandler.handle(e);
+            }
+            return;
+        }
+        if (handler != null) {
+            handler.handle(result);
+        }
+    }
+}
@@ -1,16 +1,26 @@
 package net.ximatai.vertxopenai.message;
 
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 /**
  * AI消息
  */
 public class AssistantMessage implements IAssistantMessage {
 
     /**
-     * 原始 json
+     * 原始 json，由 raw 构造的消息在第一次访问时才解析
+     */
+    private volatile JsonObject original;
+    /**
+     * 原始响应数据
      */
-    private final JsonObject original;
+    private final Buffer raw;
     /**
      * 消息内容
      */
@@ -23,15 +33,68 @@ public class AssistantMessage implements IAssistantMessage {
      * 是否推理消息
      */
     private final boolean isReasoning;
+    /**
+     * 结束原因
+     */
+    private final String finishReason;
+    /**
+     * token 用量
+     */
+    private final Usage usage;
+    /**
+     * 工具调用片段
+     */
+    private final List<ToolCallDelta> toolCallDeltas;
+    /**
+     * choice 序号（n > 1 时区分不同的候选），没有 choice 的片段（比如只带用量）为 -1
+     */
+    private final int index;
+    /**
+     * 输出 token 的对数概率，请求时没有设置 logprobs 时为 null
+     */
+    private final Logprobs logprobs;
+    /**
+     * 消息的来源，决定 {@link #original()} 如何生成
+     */
+    private final Origin origin;
+    /**
+     * 所有 choice，n &gt; 1 的响应、片段和 {@link StreamAccumulator} 组装的最终消息中不为 null，其他消息为 null
+     */
+    private final List<AssistantMessage> choices;
+
+    /**
+     * 消息的来源
+     */
+    enum Origin {
+        /**
+         * 直接解析自一个响应或流式片段，原始 json 就是原始数据
+         */
+        DECODED,
+        /**
+         * 由多个流式片段合并而成，原始 json 中的 choices 由合并后的所有 choice 生成
+         */
+        MERGED,
+        /**
+         * 由 {@link StreamAccumulator} 组装的最终消息，原始 json 中的 choices 由所有 choice 生成
+         */
+        ASSEMBLED
+    }
 
     /**
-     * 根据原始 json 构造AI消息
+     * 根据原始 json 构造AI消息，n &gt; 1 时返回第一个 choice，其他 choice 从 {@link #choices()} 读取
      *
      * @param original 原始 json
      */
     public AssistantMessage(JsonObject original) {
+        this(original, 0, null);
+    }
+
+    private AssistantMessage(JsonObject original, int position, List<AssistantMessage> choices) {
         this.original = original;
-        JsonObject object = original.getJsonArray("choices").getJsonObject(0);
+        this.raw = null;
+        JsonArray array = original.getJsonArray("choices");
+        JsonObject object = array.getJsonObject(position);
+        this.index = object.getInteger("index", position);
         JsonObject message;
         if (object.containsKey("message")) {
             message = object.getJsonObject("message");
@@ -41,21 +104,254 @@ public class AssistantMessage implements IAssistantMessage {
 
         this.content = message.getString("content");
         this.reasoning = message.getString("reasoning_content");
-        if (this.content == null) {
-            this.isReasoning = true;
-        } else {
-            this.isReasoning = false;
+        this.finishReason = object.getString("finish_reason");
+        this.usage = Usage.fromJson(original.getJsonObject("usage"));
+        this.toolCallDeltas = toolCallDeltas(message.getJsonArray("tool_calls"));
+        this.isReasoning = this.content == null && this.toolCallDeltas.isEmpty();
+        this.logprobs = Logprobs.fromJson(object.getJsonObject("logprobs"));
+        this.origin = Origin.DECODED;
+        if (choices == null && array.size() > 1) {
+            List<AssistantMessage> messages = new ArrayList<>(array.size());
+            choices = Collections.unmodifiableList(messages);
+            messages.add(this);
+            for (int i = 1; i < array.size(); i++) {
+                messages.add(new AssistantMessage(original, i, choices));
+            }
+        }
+        this.choices = choices;
+    }
+
+    /**
+     * 由解析出的字段构造AI消息，原始 json 按来源在第一次访问时生成
+     */
+    AssistantMessage(Buffer raw, int index, String content, String reasoning, String finishReason, Usage usage,
+                     List<ToolCallDelta> toolCallDeltas, Logprobs logprobs, List<AssistantMessage> choices, Origin origin) {
+        this.raw = raw;
+        this.index = index;
+        this.content = content;
+        this.reasoning = reasoning;
+        this.isReasoning = content == null && toolCallDeltas.isEmpty();
+        this.finishReason = finishReason;
+        this.usage = usage;
+        this.toolCallDeltas = toolCallDeltas;
+        this.logprobs = logprobs;
+        this.choices = choices;
+        this.origin = origin;
+    }
+
+    /**
+     * 直接从响应数据解析AI消息（完整响应或流式片段均可），只读取常用字段，
+     * 不构建 json 树，{@link #original()} 在第一次调用时才解析
+     *
+     * @param data 响应数据
+     * @return AI消息
+     */
+    public static AssistantMessage parse(Buffer data) {
+        return ChunkDecoder.decode(data);
+    }
+
+    /**
+     * 把连续的流式片段合并为一个片段：每个 choice 的内容、推理内容和对数概率按序号分别依次拼接，工具调用片段依次排列，
+     * 结束原因和用量取最后出现的值。一个片段可能带多个 choice（n &gt; 1），合并后返回序号最小的 choice，
+     * 其他 choice 从 {@link #choices()} 读取。合并后的 {@link #original()} 以最后一个片段的原始 json 为基础，
+     * choices 由合并后的所有 choice 生成
+     *
+     * @param chunks 流式片段，至少一个
+     * @return 合并后的片段
+     */
+    public static AssistantMessage merge(List<AssistantMessage> chunks) {
+        if (chunks.size() == 1) {
+            return chunks.get(0);
+        }
+        List<Merging> merging = new ArrayList<>(1);
+        Usage usage = null;
+        for (AssistantMessage chunk : chunks) {
+            for (AssistantMessage choice : chunk.choices()) {
+                if (choice.index >= 0) {
+                    merging(merging, choice.index).add(choice);
+                }
+            }
+            if (chunk.usage != null) {
+                usage = chunk.usage;
+            }
+        }
+        Buffer raw = chunks.get(chunks.size() - 1).raw();
+        if (merging.isEmpty()) {
+            return new AssistantMessage(raw, -1, null, null, null, usage, List.of(), null, null, Origin.MERGED);
+        }
+        if (merging.size() == 1) {
+            return merging.get(0).build(raw, usage, null);
+        }
+        List<AssistantMessage> messages = new ArrayList<>(merging.size());
+        List<AssistantMessage> view = Collections.unmodifiableList(messages);
+        for (Merging choice : merging) {
+            messages.add(choice.build(raw, usage, view));
+        }
+        return messages.get(0);
+    }
+
+    private static Merging merging(List<Merging> merging, int index) {
+        // 通常只有一个 choice，n > 1 时按序号排列
+        for (int i = 0; i < merging.size(); i++) {
+            Merging choice = merging.get(i);
+            if (choice.index == index) {
+                return choice;
+            }
+            if (choice.index > index) {
+                Merging created = new Merging(index);
+                merging.add(i, created);
+                return created;
+            }
+        }
+        Merging created = new Merging(index);
+        merging.add(created);
+        return created;
+    }
+
+    /**
+     * 合并中的一个 choice
+     */
+    private static final class Merging {
+        private final int index;
+        private StringBuilder content;
+        private StringBuilder reasoning;
+        private List<ToolCallDelta> toolCallDeltas = List.of();
+        private Logprobs.Builder logprobs;
+        private String finishReason;
+
+        private Merging(int index) {
+            this.index = index;
+        }
+
+        private void add(AssistantMessage chunk) {
+            if (chunk.content != null) {
+                content = content == null ? new StringBuilder(chunk.content) : content.append(chunk.content);
+            }
+            if (chunk.reasoning != null) {
+                reasoning = reasoning == null ? new StringBuilder(chunk.reasoning) : reasoning.append(chunk.reasoning);
+            }
+            if (!chunk.toolCallDeltas.isEmpty()) {
+                if (toolCallDeltas.isEmpty()) {
+                    toolCallDeltas = new ArrayList<>();
+                }
+                toolCallDeltas.addAll(chunk.toolCallDeltas);
+            }
+            if (chunk.logprobs != null) {
+                logprobs = logprobs == null ? new Logprobs.Builder() : logprobs;
+                logprobs.addAll(chunk.logprobs);
+            }
+            if (chunk.finishReason != null) {
+                finishReason = chunk.finishReason;
+            }
+        }
+
+        private AssistantMessage build(Buffer raw, Usage usage, List<AssistantMessage> choices) {
+            return new AssistantMessage(raw, index, content == null ? null : content.toString(),
+                    reasoning == null ? null : reasoning.toString(), finishReason, usage, toolCallDeltas,
+                    logprobs == null ? null : logprobs.build(), choices, Origin.MERGED);
         }
     }
 
+    private static List<ToolCallDelta> toolCallDeltas(JsonArray toolCalls) {
+        if (toolCalls == null || toolCalls.isEmpty()) {
+            return List.of();
+        }
+        List<ToolCallDelta> deltas = new ArrayList<>(toolCalls.size());
+        for (int i = 0; i < toolCalls.size(); i++) {
+            JsonObject toolCall = toolCalls.getJsonObject(i);
+            JsonObject function = toolCall.getJsonObject("function", new JsonObject());
+            deltas.add(new ToolCallDelta(
+                    toolCall.getInteger("index", i),
+                    toolCall.getString("id"),
+                    toolCall.getString("type"),
+                    function.getString("name"),
+                    function.getString("arguments")
+            ));
+        }
+        return deltas;
+    }
+
+    /**
+     * 转化成简单消息，带工具调用时为 {@link ToolCallsMessage}，保留 tool_calls 以便后续请求发回
+     *
+     * @return 简单消息
+     */
     @Override
     public IMessage simple() {
+        if (!toolCallDeltas.isEmpty()) {
+            return new ToolCallsMessage(content(), toolCalls());
+        }
         return new SimpleMessage(content(), role());
     }
 
     @Override
     public JsonObject original() {
-        return original;
+        JsonObject json = original;
+        if (json == null) {
+            json = raw == null ? new JsonObject() : new JsonObject(raw);
+            if (origin != Origin.DECODED && index >= 0) {
+                // 合并时最后一个片段可能是只带用量、没有 choice 的片段，choices 总是由所有 choice 生成
+                JsonArray array = new JsonArray();
+                for (AssistantMessage choice : choices()) {
+                    JsonObject object = new JsonObject().put("index", choice.index);
+                    if (origin == Origin.MERGED) {
+                        object.put("delta", choice.fields(new JsonObject()));
+                    } else {
+                        object.put("message", choice.fields(new JsonObject().put("role", "assistant")));
+                    }
+                    array.add(object
+                            .put("logprobs", choice.logprobs == null ? null : choice.logprobs.toJson())
+                            .put("finish_reason", choice.finishReason));
+                }
+                json.put("choices", array);
+            }
+            if (usage != null && !json.containsKey("usage")) {
+                json.put("usage", usage.toJson());
+            }
+            original = json;
+        }
+        return json;
+    }
+
+    /**
+     * 原始响应数据，没有时由原始 json 序列化
+     */
+    Buffer raw() {
+        return raw != null ? raw : original().toBuffer();
+    }
+
+    /**
+     * 把内容、推理内容和工具调用片段写入 delta 或 message 节点
+     */
+    private JsonObject fields(JsonObject delta) {
+        if (content != null || origin == Origin.ASSEMBLED) {
+            delta.put("content", content);
+        }
+        if (reasoning != null) {
+            delta.put("reasoning_content", reasoning);
+        }
+        if (!toolCallDeltas.isEmpty()) {
+            JsonArray toolCalls = new JsonArray();
+            for (ToolCallDelta toolCallDelta : toolCallDeltas) {
+                JsonObject toolCall = new JsonObject().put("index", toolCallDelta.index());
+                if (toolCallDelta.id() != null) {
+                    toolCall.put("id", toolCallDelta.id());
+                }
+                if (toolCallDelta.type() != null) {
+                    toolCall.put("type", toolCallDelta.type());
+                }
+                JsonObject function = new JsonObject();
+                if (toolCallDelta.name() != null) {
+                    function.put("name", toolCallDelta.name());
+                }
+                if (toolCallDelta.arguments() != null) {
+                    function.put("arguments", toolCallDelta.arguments());
+                }
+                toolCalls.add(toolCall.put("function", function));
+            }
+            delta.put("tool_calls", toolCalls);
+        }
+        return delta;
     }
 
     @Override
@@ -75,6 +371,65 @@ public class AssistantMessage implements IAssistantMessage {
         return isReasoning;
     }
 
+    @Override
+    public String finishReason() {
+        return finishReason;
+    }
+
+    @Override
+    public Usage usage() {
+        return usage;
+    }
+
+    /**
+     * choice 序号，请求 n &gt; 1 个候选时用于区分流式片段属于哪个候选
+     *
+     * @return 序号，没有 choice 的片段（比如只带用量）为 -1
+     */
+    public int index() {
+        return index;
+    }
+
+    /**
+     * 所有候选，请求 n &gt; 1 个候选时包含每个 choice 的消息（按响应中的顺序，第一个就是本消息），用量是整个响应的用量
+     *
+     * @return 所有候选，只有一个 choice 时只包含本消息
+     */
+    public List<AssistantMessage> choices() {
+        return choices == null ? List.of(this) : choices;
+    }
+
+    /**
+     * 输出 token 的对数概率，请求时设置 logprobs（以及 top_logprobs）才有；
+     * 流式片段中是这一段的 token，流式请求的最终消息中是完整回复的 token
+     *
+     * @return 对数概率，没有时为 null
+     */
+    public Logprobs logprobs() {
+        return logprobs;
+    }
+
+    /**
+     * 工具调用片段，流式响应中需要按 index 拼接
+     *
+     * @return 工具调用片段
+     */
+    public List<ToolCallDelta> toolCallDeltas() {
+        return toolCallDeltas;
+    }
+
+    /**
+     * 完整的工具调用；非流式响应和流式请求的最终消息中是完整的，单个流式片段中只是片段，需要用 {@link ToolCallAssembler} 拼接
+     *
+     * @return 工具调用，没有时为空列表
+     */
+    public List<ToolCall> toolCalls() {
+        if (toolCallDeltas.isEmpty()) {
+            return List.of();
+        }
+        return new ToolCallAssembler().add(toolCallDeltas).toolCalls();
+    }
+
     @Override
     public MessageRole role() {
         return MessageRole.ASSISTANT;
@@ -0,0 +1,303 @@
+package net.ximatai.vertxopenai.message;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.netty.buffer.ByteBuf;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.DecodeException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 使用 Jackson 流式解析器直接从响应数据中读取需要的字段，不构建 JsonObject 树
+ * <p>
+ * 只读取每个 choice 的 index、content、reasoning_content、tool_calls、logprobs、finish_reason 以及 usage，其余字段跳过，
+ * 完整的 json 由 {@link AssistantMessage#original()} 在需要时再解析。
+ */
+final class ChunkDecoder {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private ChunkDecoder() {
+    }
+
+    static AssistantMessage decode(Buffer data) {
+        try (JsonParser parser = createParser(data)) {
+            return readRoot(parser, data);
+        } catch (IOException e) {
+            throw new DecodeException("Failed to decode: " + e.getMessage(), e);
+        }
+    }
+
+    private static JsonParser createParser(Buffer data) throws IOException {
+        ByteBuf byteBuf = data.getByteBuf();
+        if (byteBuf != null && byteBuf.hasArray()) {
+            return FACTORY.createParser(byteBuf.array(), byteBuf.arrayOffset() + byteBuf.readerIndex(), byteBuf.readableBytes());
+        }
+        return FACTORY.createParser(data.getBytes());
+    }
+
+    private static AssistantMessage readRoot(JsonParser parser, Buffer data) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new DecodeException("Expected a json object");
+        }
+
+        List<Fields> choices = List.of();
+        Usage usage = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if ("choices".equals(name) && token == JsonToken.START_ARRAY) {
+                choices = readChoices(parser);
+            } else if ("usage".equals(name) && token == JsonToken.START_OBJECT) {
+                usage = readUsage(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        if (choices.isEmpty()) {
+            return message(data, new Fields(-1), usage, null);
+        }
+        if (choices.size() == 1) {
+            return message(data, choices.get(0), usage, null);
+        }
+        // n > 1：每个 choice 一个消息，共享原始数据和用量，第一个作为返回值
+        List<AssistantMessage> messages = new ArrayList<>(choices.size());
+        List<AssistantMessage> view = Collections.unmodifiableList(messages);
+        for (Fields fields : choices) {
+            messages.add(message(data, fields, usage, view));
+        }
+        return messages.get(0);
+    }
+
+    private static AssistantMessage message(Buffer data, Fields fields, Usage usage, List<AssistantMessage> choices) {
+        return new AssistantMessage(data, fields.index, fields.content, fields.reasoning, fields.finishReason, usage,
+                fields.toolCalls, fields.logprobs, choices, AssistantMessage.Origin.DECODED);
+    }
+
+    private static List<Fields> readChoices(JsonParser parser) throws IOException {
+        List<Fields> choices = List.of();
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token == JsonToken.START_OBJECT) {
+                Fields fields = new Fields(choices.size());
+                readChoice(parser, fields);
+                if (choices.isEmpty()) {
+                    choices = new ArrayList<>(1);
+                }
+                choices.add(fields);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return choices;
+    }
+
+    private static void readChoice(JsonParser parser, Fields fields) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if (("delta".equals(name) || "message".equals(name)) && token == JsonToken.START_OBJECT) {
+                readMessage(parser, fields);
+            } else if ("finish_reason".equals(name) && token == JsonToken.VALUE_STRING) {
+                fields.finishReason = parser.getText();
+            } else if ("index".equals(name) && token == JsonToken.VALUE_NUMBER_INT) {
+                fields.index = parser.getIntValue();
+            } else if ("logprobs".equals(name) && token == JsonToken.START_OBJECT) {
+                fields.logprobs = readLogprobs(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    /**
+     * 读取 logprobs.content，直接写入紧凑数组；refusal 等其他字段跳过
+     */
+    private static Logprobs readLogprobs(JsonParser parser) throws IOException {
+        Logprobs.Builder builder = new Logprobs.Builder();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if ("content".equals(name) && token == JsonToken.START_ARRAY) {
+                while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    if (token == JsonToken.START_OBJECT) {
+                        readLogprob(parser, builder);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return builder.build();
+    }
+
+    private static void readLogprob(JsonParser parser, Logprobs.Builder builder) throws IOException {
+        String text = "";
+        double logprob = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if ("token".equals(name) && token == JsonToken.VALUE_STRING) {
+                text = parser.getText();
+            } else if ("logprob".equals(name) && token.isNumeric()) {
+                logprob = parser.getDoubleValue();
+            } else if ("top_logprobs".equals(name) && token == JsonToken.START_ARRAY) {
+                // 候选先于 token 本身追加，字段顺序不影响结果
+                JsonToken candidate;
+                while ((candidate = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    if (candidate == JsonToken.START_OBJECT) {
+                        readTopLogprob(parser, builder);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        builder.token(text, logprob);
+    }
+
+    private static void readTopLogprob(JsonParser parser, Logprobs.Builder builder) throws IOException {
+        String text = "";
+        double logprob = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if ("token".equals(name) && token == JsonToken.VALUE_STRING) {
+                text = parser.getText();
+            } else if ("logprob".equals(name) && token.isNumeric()) {
+                logprob = parser.getDoubleValue();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        builder.top(text, logprob);
+    }
+
+    private static void readMessage(JsonParser parser, Fields fields) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if ("content".equals(name) && token == JsonToken.VALUE_STRING) {
+                fields.content = parser.getText();
+            } else if ("reasoning_content".equals(name) && token == JsonToken.VALUE_STRING) {
+                fields.reasoning = parser.getText();
+            } else if ("tool_calls".equals(name) && token == JsonToken.START_ARRAY) {
+                fields.toolCalls = readToolCalls(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private static List<ToolCallDelta> readToolCalls(JsonParser parser) throws IOException {
+        List<ToolCallDelta> toolCalls = new ArrayList<>(1);
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            int index = toolCalls.size();
+            String id = null;
+            String type = null;
+            String functionName = null;
+            String arguments = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("index".equals(name) && value == JsonToken.VALUE_NUMBER_INT) {
+                    index = parser.getIntValue();
+                } else if ("id".equals(name) && value == JsonToken.VALUE_STRING) {
+                    id = parser.getText();
+                } else if ("type".equals(name) && value == JsonToken.VALUE_STRING) {
+                    type = parser.getText();
+                } else if ("function".equals(name) && value == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String field = parser.currentName();
+                        JsonToken fieldValue = parser.nextToken();
+                        if ("name".equals(field) && fieldValue == JsonToken.VALUE_STRING) {
+                            functionName = parser.getText();
+                        } else if ("arguments".equals(field) && fieldValue == JsonToken.VALUE_STRING) {
+                            arguments = parser.getText();
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            toolCalls.add(new ToolCallDelta(index, id, type, functionName, arguments));
+        }
+        return toolCalls;
+    }
+
+    private static Usage readUsage(JsonParser parser) throws IOException {
+        int prompt = 0;
+        int completion = 0;
+        int total = 0;
+        int reasoning = 0;
+        int cached = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.VALUE_NUMBER_INT) {
+                switch (name) {
+                    case "prompt_tokens" -> prompt = parser.getIntValue();
+                    case "completion_tokens" -> completion = parser.getIntValue();
+                    case "total_tokens" -> total = parser.getIntValue();
+                    case "prompt_cache_hit_tokens" -> cached = parser.getIntValue();
+                    default -> {
+                    }
+                }
+            } else if ("completion_tokens_details".equals(name) && token == JsonToken.START_OBJECT) {
+                reasoning = readIntField(parser, "reasoning_tokens", reasoning);
+            } else if ("prompt_tokens_details".equals(name) && token == JsonToken.START_OBJECT) {
+                cached = readIntField(parser, "cached_tokens", cached);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return new Usage(prompt, completion, total, reasoning, cached);
+    }
+
+    private static int readIntField(JsonParser parser, String field, int defaultValue) throws IOException {
+        int value = defaultValue;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if (field.equals(name) && token == JsonToken.VALUE_NUMBER_INT) {
+                value = parser.getIntValue();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return value;
+    }
+
+    /**
+     * 一个 choice 的字段
+     */
+    private static final class Fields {
+        private int index;
+        private String content;
+        private String reasoning;
+        private String finishReason;
+        private List<ToolCallDelta> toolCalls = List.of();
+        private Logprobs logprobs;
+
+        private Fields(int index) {
+            this.index = index;
+        }
+    }
+}
@@ -34,4 +34,22 @@ public interface IAssistantMessage extends IMessage {
      * @return 是否推理消息
      */
     boolean isReasoning();
+
+    /**
+     * 结束原因，如 stop、length、tool_calls；流式响应中只有最后一段才有。默认返回 null，兼容已有的实现类
+     *
+     * @return 结束原因，没有时为 null
+     */
+    default String finishReason() {
+        return null;
+    }
+
+    /**
+     * token 用量；流式响应中只有开启 stream_options.include_usage 时最后一段才有。默认返回 null，兼容已有的实现类
+     *
+     * @return token 用量，没有时为 null
+     */
+    default Usage usage() {
+        return null;
+    }
 }
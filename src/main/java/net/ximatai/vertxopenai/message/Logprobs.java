@@ -0,0 +1,282 @@
+package net.ximatai.vertxopenai.message;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.util.Arrays;
+
+/**
+ * 输出 token 的对数概率（请求时设置 logprobs、top_logprobs），对应 choice 中的 logprobs.content
+ * <p>
+ * 按列紧凑存储：所有 token 拼接为一个字符串，用 int 偏移量切分，对数概率存为 float 数组，候选 token 同样处理，
+ * 一个回复只占几个数组，不为每个 token 创建 json 节点。{@link #token(int)} 等读取文本的方法每次调用都会创建字符串，
+ * 只需要打分时使用 {@link #logprob(int)}、{@link #sum()} 即可。
+ */
+public final class Logprobs {
+
+    /**
+     * 没有任何 token
+     */
+    public static final Logprobs EMPTY = new Builder().build();
+
+    private final String tokens;
+    /**
+     * 第 i 个 token 是 tokens[offsets[i], offsets[i + 1])，长度为 size + 1
+     */
+    private final int[] offsets;
+    private final float[] logprobs;
+    /**
+     * 第 i 个 token 的候选是 top 数组中的 [topStart[i], topStart[i + 1])，长度为 size + 1
+     */
+    private final int[] topStart;
+    private final String topTokens;
+    private final int[] topOffsets;
+    private final float[] topLogprobs;
+
+    private Logprobs(String tokens, int[] offsets, float[] logprobs,
+                     int[] topStart, String topTokens, int[] topOffsets, float[] topLogprobs) {
+        this.tokens = tokens;
+        this.offsets = offsets;
+        this.logprobs = logprobs;
+        this.topStart = topStart;
+        this.topTokens = topTokens;
+        this.topOffsets = topOffsets;
+        this.topLogprobs = topLogprobs;
+    }
+
+    /**
+     * 从 choice 中的 logprobs 节点解析
+     *
+     * @param logprobs logprobs 节点
+     * @return 对数概率，logprobs 为 null 时返回 null
+     */
+    public static Logprobs fromJson(JsonObject logprobs) {
+        if (logprobs == null) {
+            return null;
+        }
+        Builder builder = new Builder();
+        JsonArray content = logprobs.getJsonArray("content", new JsonArray());
+        for (int i = 0; i < content.size(); i++) {
+            JsonObject token = content.getJsonObject(i);
+            JsonArray top = token.getJsonArray("top_logprobs", new JsonArray());
+            for (int j = 0; j < top.size(); j++) {
+                JsonObject candidate = top.getJsonObject(j);
+                builder.top(candidate.getString("token", ""), candidate.getDouble("logprob", 0.0));
+            }
+            builder.token(token.getString("token", ""), token.getDouble("logprob", 0.0));
+        }
+        return builder.build();
+    }
+
+    /**
+     * token 数
+     *
+     * @return token 数
+     */
+    public int size() {
+        return logprobs.length;
+    }
+
+    /**
+     * 第 i 个 token 的文本
+     *
+     * @param i 序号
+     * @return token 文本
+     */
+    public String token(int i) {
+        return tokens.substring(offsets[i], offsets[i + 1]);
+    }
+
+    /**
+     * 第 i 个 token 的对数概率
+     *
+     * @param i 序号
+     * @return 对数概率
+     */
+    public float logprob(int i) {
+        return logprobs[i];
+    }
+
+    /**
+     * 第 i 个位置的候选 token 数
+     *
+     * @param i 序号
+     * @return 候选数，没有请求 top_logprobs 时为 0
+     */
+    public int topCount(int i) {
+        return topStart[i + 1] - topStart[i];
+    }
+
+    /**
+     * 第 i 个位置的第 k 个候选 token 的文本
+     *
+     * @param i 序号
+     * @param k 候选序号，小于 {@link #topCount(int)}
+     * @return token 文本
+     */
+    public String topToken(int i, int k) {
+        int top = top(i, k);
+        return topTokens.substring(topOffsets[top], topOffsets[top + 1]);
+    }
+
+    /**
+     * 第 i 个位置的第 k 个候选 token 的对数概率
+     *
+     * @param i 序号
+     * @param k 候选序号，小于 {@link #topCount(int)}
+     * @return 对数概率
+     */
+    public float topLogprob(int i, int k) {
+        return topLogprobs[top(i, k)];
+    }
+
+    /**
+     * 所有 token 的对数概率之和，即整个回复的对数概率
+     *
+     * @return 对数概率之和
+     */
+    public double sum() {
+        double sum = 0;
+        for (float logprob : logprobs) {
+            sum += logprob;
+        }
+        return sum;
+    }
+
+    /**
+     * 平均每个 token 的对数概率，比较长度不同的回复时使用
+     *
+     * @return 平均对数概率，没有 token 时为 0
+     */
+    public double mean() {
+        return logprobs.length == 0 ? 0 : sum() / logprobs.length;
+    }
+
+    /**
+     * 所有 token 的对数概率，返回副本
+     *
+     * @return 对数概率
+     */
+    public float[] toArray() {
+        return logprobs.clone();
+    }
+
+    /**
+     * 转换为 logprobs 节点
+     *
+     * @return logprobs 节点
+     */
+    public JsonObject toJson() {
+        JsonArray content = new JsonArray();
+        for (int i = 0; i < size(); i++) {
+            JsonArray top = new JsonArray();
+            for (int k = 0; k < topCount(i); k++) {
+                top.add(new JsonObject().put("token", topToken(i, k)).put("logprob", topLogprob(i, k)));
+            }
+            content.add(new JsonObject()
+                    .put("token", token(i))
+                    .put("logprob", logprob(i))
+                    .put("top_logprobs", top));
+        }
+        return new JsonObject().put("content", content);
+    }
+
+    private int top(int i, int k) {
+        if (k < 0 || k >= topCount(i)) {
+            throw new IndexOutOfBoundsException("Top logprob " + k + " out of bounds for length " + topCount(i));
+        }
+        return topStart[i] + k;
+    }
+
+    /**
+     * 逐个 token 追加，数组按需扩容，用于流式解析和拼接流式片段；每个位置先追加候选，再追加 token 本身
+     */
+    static final class Builder {
+
+        private final StringBuilder tokens = new StringBuilder();
+        private int[] offsets = new int[17];
+        private float[] logprobs = new float[16];
+        private int[] topStart = new int[17];
+        private int size;
+        private final StringBuilder topTokens = new StringBuilder();
+        private int[] topOffsets = new int[17];
+        private float[] topLogprobs = new float[16];
+        private int topSize;
+
+        /**
+         * 追加一个 token，之前追加的候选都属于它
+         */
+        Builder token(String token, double logprob) {
+            ensureTokens(1);
+            tokens.append(token);
+            logprobs[size] = (float) logprob;
+            size++;
+            offsets[size] = tokens.length();
+            topStart[size] = topSize;
+            return this;
+        }
+
+        /**
+         * 给下一个追加的 token 追加一个候选
+         */
+        Builder top(String token, double logprob) {
+            ensureTops(1);
+            topTokens.append(token);
+            topLogprobs[topSize] = (float) logprob;
+            topSize++;
+            topOffsets[topSize] = topTokens.length();
+            return this;
+        }
+
+        /**
+         * 追加另一段的所有 token 和候选，直接复制数组，不切分 token 文本
+         */
+        Builder addAll(Logprobs other) {
+            int count = other.size();
+            int topCount = other.topLogprobs.length;
+            ensureTokens(count);
+            ensureTops(topCount);
+            int base = tokens.length();
+            int topBase = topSize;
+            for (int i = 0; i < count; i++) {
+                offsets[size + i + 1] = base + other.offsets[i + 1];
+                topStart[size + i + 1] = topBase + other.topStart[i + 1];
+            }
+            System.arraycopy(other.logprobs, 0, logprobs, size, count);
+            tokens.append(other.tokens);
+            size += count;
+
+            int topTextBase = topTokens.length();
+            for (int k = 0; k < topCount; k++) {
+                topOffsets[topSize + k + 1] = topTextBase + other.topOffsets[k + 1];
+            }
+            System.arraycopy(other.topLogprobs, 0, topLogprobs, topSize, topCount);
+            topTokens.append(other.topTokens);
+            topSize += topCount;
+            return this;
+        }
+
+        private void ensureTokens(int extra) {
+            if (size + extra > logprobs.length) {
+                int capacity = Math.max(logprobs.length * 2, size + extra);
+                logprobs = Arrays.copyOf(logprobs, capacity);
+                offsets = Arrays.copyOf(offsets, capacity + 1);
+                topStart = Arrays.copyOf(topStart, capacity + 1);
+            }
+        }
+
+        private void ensureTops(int extra) {
+            if (topSize + extra > topLogprobs.length) {
+                int capacity = Math.max(topLogprobs.length * 2, topSize + extra);
+                topLogprobs = Arrays.copyOf(topLogprobs, capacity);
+                topOffsets = Arrays.copyOf(topOffsets, capacity + 1);
+            }
+        }
+
+        Logprobs build() {
+            return new Logprobs(tokens.toString(), Arrays.copyOf(offsets, size + 1), Arrays.copyOf(logprobs, size),
+                    Arrays.copyOf(topStart, size + 1), topTokens.toString(), Arrays.copyOf(topOffsets, topSize + 1),
+                    Arrays.copyOf(topLogprobs, topSize));
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package net.ximatai.vertxopenai.message;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 消息的紧凑二进制编码（大端），用于会话存储和堆外的冷历史，读写都不经过 json
+ * <pre>
+ * 消息：byte 角色（MessageRole 序号，最高位为 1 表示原始 json） | string 内容 | 按角色追加的字段
+ *   TOOL：string 工具调用 id
+ *   ASSISTANT：int 工具调用数 | 每个：string id | string 类型 | string 函数名 | string 参数
+ *   原始 json：string 消息的 json，不再追加按角色的字段
+ * 字符串：int 字节数（null 为 -1） | UTF-8 字节
+ * </pre>
+ * 解码得到的消息只保留上述字段：普通消息解码为 {@link SimpleMessage}，工具结果为 {@link ToolMessage}，
+ * 带工具调用的 AI 消息为 {@link ToolCallsMessage}。自定义了 {@link IMessage#toJson()} 的其他消息类型
+ * 连同 json 一起编码，解码为 {@link RawMessage}，发送的 json 不变。
+ */
+public final class MessageCodec {
+
+    private static final MessageRole[] ROLES = MessageRole.values();
+    private static final int RAW = 0x80;
+    /**
+     * 没有覆盖 {@link IMessage#toJson()} 的类型，json 只由内容和角色决定
+     */
+    private static final ClassValue<Boolean> DEFAULT_JSON = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            try {
+                return type.getMethod("toJson").getDeclaringClass() == IMessage.class;
+            } catch (NoSuchMethodException e) {
+                return false;
+            }
+        }
+    };
+
+    private MessageCodec() {
+    }
+
+    /**
+     * 编码消息
+     *
+     * @param message 消息
+     * @return 编码后的字节
+     */
+    public static byte[] encode(IMessage message) {
+        return encode(message, null);
+    }
+
+    /**
+     * 编码消息，需要保存原始 json 时直接使用已经序列化的 json
+     *
+     * @param message 消息
+     * @param json    消息序列化后的 json，为 null 时按需调用 {@link IMessage#toJson()}
+     * @return 编码后的字节
+     */
+    public static byte[] encode(IMessage message, Buffer json) {
+        byte[] content = utf8(message.content());
+        MessageRole role = message.role();
+        byte[][] fields;
+        int size = 1 + sizeOf(content);
+        boolean raw = !isCompact(message);
+        if (raw) {
+            fields = new byte[][]{(json == null ? message.toJson().toBuffer() : json).getBytes()};
+        } else if (role == MessageRole.TOOL) {
+            fields = new byte[][]{utf8(message instanceof ToolMessage tool ? tool.toolCallId() : null)};
+        } else if (role == MessageRole.ASSISTANT) {
+            List<ToolCall> toolCalls = message instanceof ToolCallsMessage calls ? calls.toolCalls() : List.of();
+            fields = new byte[toolCalls.size() * 4][];
+            for (int i = 0; i < toolCalls.size(); i++) {
+                ToolCall toolCall = toolCalls.get(i);
+                fields[i * 4] = utf8(toolCall.id());
+                fields[i * 4 + 1] = utf8(toolCall.type());
+                fields[i * 4 + 2] = utf8(toolCall.name());
+                fields[i * 4 + 3] = utf8(toolCall.arguments());
+            }
+            size += 4;
+        } else {
+            fields = new byte[0][];
+        }
+        for (byte[] field : fields) {
+            size += sizeOf(field);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put((byte) (role.ordinal() | (raw ? RAW : 0)));
+        putString(buffer, content);
+        if (role == MessageRole.ASSISTANT && !raw) {
+            buffer.putInt(fields.length / 4);
+        }
+        for (byte[] field : fields) {
+            putString(buffer, field);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * 从 buffer 的当前位置解码一条消息，之后 buffer 的位置移到消息末尾
+     *
+     * @param buffer 编码后的数据
+     * @return 消息
+     */
+    public static IMessage decode(ByteBuffer buffer) {
+        int flags = buffer.get() & 0xFF;
+        MessageRole role = ROLES[flags & ~RAW];
+        String content = getString(buffer);
+        if ((flags & RAW) != 0) {
+            int length = buffer.getInt();
+            byte[] json = new byte[length];
+            buffer.get(json);
+            return new RawMessage(role, content, new JsonObject(Buffer.buffer(json)));
+        }
+        if (role == MessageRole.TOOL) {
+            return new ToolMessage(getString(buffer), content);
+        }
+        if (role == MessageRole.ASSISTANT) {
+            int count = buffer.getInt();
+            if (count > 0) {
+                List<ToolCall> toolCalls = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    toolCalls.add(new ToolCall(getString(buffer), getString(buffer), getString(buffer), getString(buffer)));
+                }
+                return new ToolCallsMessage(content, toolCalls);
+            }
+        }
+        return new SimpleMessage(content, role);
+    }
+
+    /**
+     * 紧凑编码能否还原出相同的 json：工具结果和工具调用消息按字段还原，其他消息要求没有覆盖 toJson
+     */
+    private static boolean isCompact(IMessage message) {
+        if (message instanceof ToolMessage || message instanceof ToolCallsMessage) {
+            return true;
+        }
+        return message.role() != MessageRole.TOOL && DEFAULT_JSON.get(message.getClass());
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int sizeOf(byte[] value) {
+        return 4 + (value == null ? 0 : value.length);
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] value) {
+        if (value == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(value.length);
+            buffer.put(value);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
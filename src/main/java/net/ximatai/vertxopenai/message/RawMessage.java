@@ -0,0 +1,19 @@
+package net.ximatai.vertxopenai.message;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * 按原始 json 保存的消息：自定义了 {@link IMessage#toJson()} 的消息无法用紧凑编码还原，
+ * 从会话存储或冷历史解码时得到这个类型，发送时原样使用保存的 json
+ *
+ * @param role    角色
+ * @param content 内容
+ * @param json    消息的 json
+ */
+public record RawMessage(MessageRole role, String content, JsonObject json) implements IMessage {
+
+    @Override
+    public JsonObject toJson() {
+        return json.copy();
+    }
+}
@@ -0,0 +1,49 @@
+package net.ximatai.vertxopenai.message;
+
+import io.vertx.core.buffer.Buffer;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 一条完整的 SSE 事件
+ *
+ * @param type  事件类型（event 字段），未指定时为 message
+ * @param id    最近一次收到的事件 id（id 字段），没有时为 null
+ * @param retry 服务端建议的重连间隔（毫秒，retry 字段），没有时为 -1
+ * @param data  事件数据（data 字段，多行之间以 \n 连接），通常直接引用收到的网络数据，不做拷贝
+ */
+public record SSEEvent(String type, String id, long retry, Buffer data) {
+
+    /**
+     * 默认事件类型
+     */
+    public static final String DEFAULT_TYPE = "message";
+
+    private static final byte[] DONE = "[DONE]".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * 是否 OpenAI 流结束标记 [DONE]
+     *
+     * @return 是否结束标记
+     */
+    public boolean isDone() {
+        if (data.length() != DONE.length) {
+            return false;
+        }
+        for (int i = 0; i < DONE.length; i++) {
+            if (data.getByte(i) != DONE[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 以字符串形式获取事件数据
+     *
+     * @return 事件数据
+     */
+    public String dataAsString() {
+        return data.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -4,38 +4,100 @@ import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.buffer.Buffer;
-import io.vertx.core.parsetools.RecordParser;
+import io.vertx.core.streams.ReadStream;
 import io.vertx.core.streams.WriteStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+
 /**
  * SSE (Server-Sent Events) 解析器
+ * <p>
+ * 直接在字节层面扫描收到的数据块，支持 \n、\r\n、\r 三种换行，以及 data（多行）、event、id、retry 字段和注释行。
+ * 单行 data 的事件直接引用收到的数据块，不产生中间字符串和拷贝。
+ * 与旧实现保持一致，流结束时尚未以空行结束的事件仍会被派发。
+ * <p>
+ * 作为 {@link WriteStream} 接收网络数据，作为 {@link ReadStream} 按需向下游派发事件。
+ * 尚未被下游取走的事件按其原始字节数计入写队列，超过 writeQueueMaxSize 后 writeQueueFull 返回 true，
+ * 上游（如 HTTP 响应的 pipe）随之暂停读取；队列消费到一半以下时触发 drainHandler 恢复读取。
  */
-public class SSEParser implements WriteStream<Buffer> {
+public class SSEParser implements WriteStream<Buffer>, ReadStream<SSEEvent> {
     private static final Logger logger = LoggerFactory.getLogger(SSEParser.class);
-    private int writeQueueMaxSize = Integer.MAX_VALUE;
+
+    /**
+     * 默认写队列大小（字节）
+     */
+    public static final int DEFAULT_WRITE_QUEUE_MAX_SIZE = 32 * 1024;
+
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+    private static final byte COLON = ':';
+    private static final byte SPACE = ' ';
+    private static final byte[] DATA = "data".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] EVENT = "event".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ID = "id".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] RETRY = "retry".getBytes(StandardCharsets.US_ASCII);
+
+    private int writeQueueMaxSize = DEFAULT_WRITE_QUEUE_MAX_SIZE;
+    /**
+     * 已解析但尚未派发的事件所占的原始字节数
+     */
     private int currentQueueSize = 0;
+    private boolean drainRequired;
     private Handler<Void> drainHandler;
-    private final Handler<String> eventHandler;
+    private Handler<SSEEvent> eventHandler;
     private Handler<Throwable> exceptionHandler;
     private Handler<Void> endHandler;
-    private final RecordParser recordParser;
-    private final StringBuilder dataBuffer = new StringBuilder();
+
+    private final ArrayDeque<QueuedEvent> queue = new ArrayDeque<>();
+    private long demand = Long.MAX_VALUE;
+    private boolean emitting;
+    private boolean ended;
+    private boolean endEmitted;
+
+    /**
+     * 跨数据块的半行
+     */
+    private Buffer pending;
+    /**
+     * 上一个数据块以 \r 结尾，下一个数据块开头的 \n 属于同一个换行
+     */
+    private boolean skipLineFeed;
+    private boolean bomChecked;
+    /**
+     * 当前事件已消耗的原始字节数
+     */
+    private int eventBytes;
+
+    private Buffer dataSlice;
+    private Buffer dataBuffer;
+    private int dataLines;
+    private String eventType;
+    private String lastEventId;
+    private long retry = -1;
 
     /**
-     * 穿件 SSE 消息转换器
+     * 创建 SSE 消息转换器，事件回调通过 {@link #handler(Handler)} 设置
+     */
+    public SSEParser() {
+    }
+
+    /**
+     * 创建 SSE 消息转换器，回调只收到事件的 data
      * @param eventHandler 消息到达回调
      * @param endHandler SSE消息结束回调
+     * @deprecated 使用 {@link #SSEParser()}，通过 {@link #handler(Handler)} 读取包含 event、id、retry 字段的 {@link SSEEvent}
      */
+    @Deprecated
     public SSEParser(Handler<String> eventHandler, Handler<Void> endHandler) {
-        this.eventHandler = eventHandler;
+        this.eventHandler = eventHandler == null ? null : event -> eventHandler.handle(event.dataAsString());
         this.endHandler = endHandler;
-        this.recordParser = RecordParser.newDelimited("\n", this::handleLine);
     }
 
     @Override
-    public WriteStream<Buffer> exceptionHandler(Handler<Throwable> handler) {
+    public SSEParser exceptionHandler(Handler<Throwable> handler) {
         this.exceptionHandler = handler;
         return this;
     }
@@ -45,20 +107,9 @@ public class SSEParser implements WriteStream<Buffer> {
      */
     @Override
     public void write(Buffer data, Handler<AsyncResult<Void>> handler) {
-        if (writeQueueFull()) {
-            handler.handle(Future.failedFuture(new IllegalStateException("Write queue is full")));
-            return;
-        }
-
         try {
-            currentQueueSize += data.length();
-            recordParser.handle(data);
+            handleChunk(data);
             handler.handle(Future.succeededFuture());
-
-            // 如果写入后队列从满变成非满，触发 drainHandler
-            if (currentQueueSize < writeQueueMaxSize && drainHandler != null) {
-                drainHandler.handle(null);
-            }
         } catch (Exception e) {
             logger.error("Error processing SSE data", e);
             handler.handle(Future.failedFuture(e));
@@ -70,57 +121,54 @@ public class SSEParser implements WriteStream<Buffer> {
      */
     @Override
     public Future<Void> write(Buffer buffer) {
-        if (writeQueueFull()) {
-            return Future.failedFuture(new IllegalStateException("Write queue is full"));
-        }
-
-        currentQueueSize += buffer.length();
-        recordParser.handle(buffer);
-
-        // 如果写入后队列从满变成非满，触发 drainHandler
-        if (currentQueueSize < writeQueueMaxSize && drainHandler != null) {
-            drainHandler.handle(null);
+        try {
+            handleChunk(buffer);
+            return Future.succeededFuture();
+        } catch (Exception e) {
+            logger.error("Error processing SSE data", e);
+            return Future.failedFuture(e);
         }
-
-        return Future.succeededFuture();
     }
 
     /**
-     * 结束 SSE 解析，返回 Future
+     * 结束 SSE 解析；已解析的事件派发完毕后才会触发 endHandler
      */
     @Override
-    public Future<Void> end() {
+    public void end(Handler<AsyncResult<Void>> handler) {
         try {
-            flushData();
+            flushPending(); // 处理剩余数据
+            ended = true;
+            logger.debug("SSE stream ended.");
+            emit();
+            if (handler != null) {
+                handler.handle(Future.succeededFuture()); // 通知调用方流已结束
+            }
         } catch (Exception e) {
-            logger.error("Error flushing SSE data during end", e);
-        }
-
-        if (endHandler != null) {
-            endHandler.handle(null);
+            logger.error("Error ending SSE stream", e);
+            if (handler != null) {
+                handler.handle(Future.failedFuture(e)); // 发生异常，通知调用方
+            }
         }
-
-        logger.debug("SSE stream ended.");
-        return Future.succeededFuture();
     }
 
     @Override
-    public void end(Handler<AsyncResult<Void>> handler) {
+    public Future<Void> end() {
         try {
-            flushData(); // 处理剩余数据
-            if (endHandler != null) {
-                endHandler.handle(null);
-            }
-            logger.debug("SSE stream ended.");
-            handler.handle(Future.succeededFuture()); // 通知调用方流已结束
+            flushPending();
         } catch (Exception e) {
-            logger.error("Error ending SSE stream", e);
-            handler.handle(Future.failedFuture(e)); // 发生异常，通知调用方
+            logger.error("Error flushing SSE data during end", e);
         }
+        ended = true;
+        logger.debug("SSE stream ended.");
+        emit();
+        return Future.succeededFuture();
     }
 
     @Override
-    public WriteStream<Buffer> setWriteQueueMaxSize(int maxSize) {
+    public SSEParser setWriteQueueMaxSize(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be > 0");
+        }
         this.writeQueueMaxSize = maxSize;
         return this;
     }
@@ -131,74 +179,311 @@ public class SSEParser implements WriteStream<Buffer> {
     }
 
     @Override
-    public WriteStream<Buffer> drainHandler(Handler<Void> handler) {
+    public SSEParser drainHandler(Handler<Void> handler) {
         this.drainHandler = handler;
         return this;
     }
 
+    @Override
+    public SSEParser handler(Handler<SSEEvent> handler) {
+        this.eventHandler = handler;
+        emit();
+        return this;
+    }
+
+    @Override
+    public SSEParser pause() {
+        demand = 0;
+        return this;
+    }
+
+    @Override
+    public SSEParser resume() {
+        return fetch(Long.MAX_VALUE);
+    }
+
+    @Override
+    public SSEParser fetch(long amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("amount must be >= 0");
+        }
+        demand += amount;
+        if (demand < 0) {
+            demand = Long.MAX_VALUE;
+        }
+        emit();
+        return this;
+    }
+
+    @Override
+    public SSEParser endHandler(Handler<Void> endHandler) {
+        this.endHandler = endHandler;
+        emit();
+        return this;
+    }
+
     /**
-     * 解析 SSE 行
+     * 已解析但尚未派发的事件所占的原始字节数
+     *
+     * @return 字节数
      */
-    private void handleLine(Buffer buffer) {
-        String line = buffer.toString().trim();
+    public int queuedBytes() {
+        return currentQueueSize;
+    }
 
-        if (line.isEmpty()) {
-            flushData(); // 处理完整的 SSE 消息
-        } else {
-            dataBuffer.append(line).append("\n");
+    /**
+     * 在有需求时派发队列中的事件，队列清空且上游已结束时触发 endHandler
+     */
+    private void emit() {
+        if (emitting) {
+            return;
+        }
+        emitting = true;
+        try {
+            while (demand > 0 && eventHandler != null && !queue.isEmpty()) {
+                QueuedEvent queued = queue.poll();
+                if (demand != Long.MAX_VALUE) {
+                    demand--;
+                }
+                currentQueueSize -= queued.size();
+                deliver(queued.event());
+            }
+        } finally {
+            emitting = false;
+        }
+
+        if (drainRequired && currentQueueSize <= writeQueueMaxSize / 2) {
+            drainRequired = false;
+            if (drainHandler != null) {
+                drainHandler.handle(null);
+            }
+        }
+
+        if (ended && queue.isEmpty() && !endEmitted) {
+            endEmitted = true;
+            if (endHandler != null) {
+                endHandler.handle(null);
+            }
+        }
+    }
+
+    private void deliver(SSEEvent event) {
+        try {
+            eventHandler.handle(event);
+        } catch (Exception e) {
+            logger.error("Error processing SSE event: {}", event.dataAsString(), e);
+            if (exceptionHandler != null) {
+                exceptionHandler.handle(e);
+            }
         }
     }
 
     /**
-     * 处理完整的 SSE 消息
+     * 按字节扫描数据块，切分出完整的行；跨数据块的半行暂存在 pending 中
      */
-    private void flushData() {
-        if (dataBuffer.isEmpty()) {
-            return;
+    private void handleChunk(Buffer chunk) {
+        int length = chunk.length();
+        int start = 0;
+
+        if (skipLineFeed) {
+            skipLineFeed = false;
+            if (length > 0 && chunk.getByte(0) == LF) {
+                start = 1;
+                eventBytes++;
+            }
         }
 
-        String[] lines = dataBuffer.toString().split("\n");
-        StringBuilder eventData = new StringBuilder();
+        for (int i = start; i < length; i++) {
+            byte b = chunk.getByte(i);
+            if (b != LF && b != CR) {
+                continue;
+            }
 
-        for (String line : lines) {
-            if (line.startsWith("data: [DONE]")) { // 最后一行结束了
-                logger.debug("end");
-            } else if (line.startsWith("data:")) {
-                eventData.append(line.substring(5).trim()).append("\n");
+            eventBytes += i - start + 1;
+            if (pending == null) {
+                handleLine(chunk, start, i);
             } else {
-                logger.debug("Skipping non-data SSE line: {}", line);
+                pending.appendBuffer(chunk, start, i - start);
+                Buffer line = pending;
+                pending = null;
+                eventBytes += line.length() - (i - start);
+                handleLine(line, 0, line.length());
             }
+
+            if (b == CR) {
+                if (i + 1 < length) {
+                    if (chunk.getByte(i + 1) == LF) {
+                        i++;
+                        eventBytes++;
+                    }
+                } else {
+                    skipLineFeed = true;
+                }
+            }
+            start = i + 1;
         }
 
-        if (eventData.isEmpty()) {
-            dataBuffer.setLength(0);
+        if (start < length) {
+            if (pending == null) {
+                pending = Buffer.buffer(length - start + 64);
+            }
+            pending.appendBuffer(chunk, start, length - start);
+        }
+
+        if (writeQueueFull()) {
+            drainRequired = true;
+        }
+    }
+
+    /**
+     * 解析 SSE 行，line 中 [from, to) 为不含行结束符的一行
+     */
+    private void handleLine(Buffer line, int from, int to) {
+        if (!bomChecked) {
+            bomChecked = true;
+            if (to - from >= 3
+                    && line.getByte(from) == (byte) 0xEF
+                    && line.getByte(from + 1) == (byte) 0xBB
+                    && line.getByte(from + 2) == (byte) 0xBF) {
+                from += 3;
+            }
+        }
+
+        if (from == to) {
+            flushData(); // 空行，派发完整的 SSE 消息
             return;
         }
 
-        String data = eventData.toString().trim();
-        int dataSize = eventData.length();
-        dataBuffer.setLength(0);
+        if (line.getByte(from) == COLON) {
+            return; // 注释行
+        }
 
-        try {
-            if (eventHandler != null) {
-                eventHandler.handle(data);
+        int colon = from;
+        while (colon < to && line.getByte(colon) != COLON) {
+            colon++;
+        }
+
+        int valueStart = colon < to ? colon + 1 : to;
+        if (valueStart < to && line.getByte(valueStart) == SPACE) {
+            valueStart++;
+        }
+
+        if (fieldEquals(line, from, colon, DATA)) {
+            appendData(line, valueStart, to);
+        } else if (fieldEquals(line, from, colon, EVENT)) {
+            eventType = line.getString(valueStart, to, "UTF-8");
+        } else if (fieldEquals(line, from, colon, ID)) {
+            if (indexOf(line, valueStart, to, (byte) 0) < 0) {
+                lastEventId = line.getString(valueStart, to, "UTF-8");
             }
-        } catch (Exception e) {
-            logger.error("Error processing SSE event: {}", data, e);
-            if (exceptionHandler != null) {
-                exceptionHandler.handle(e);
+        } else if (fieldEquals(line, from, colon, RETRY)) {
+            long value = parseDigits(line, valueStart, to);
+            if (value >= 0) {
+                retry = value;
+            }
+        } else {
+            logger.debug("Skipping unknown SSE field: {}", line.getString(from, colon, "UTF-8"));
+        }
+    }
+
+    /**
+     * 追加 data 字段；只有一行时直接引用原始数据，多行时才拷贝拼接
+     */
+    private void appendData(Buffer line, int from, int to) {
+        if (dataLines == 0) {
+            dataSlice = line.slice(from, to);
+        } else {
+            if (dataLines == 1) {
+                dataBuffer = Buffer.buffer(dataSlice.length() + (to - from) + 64);
+                dataBuffer.appendBuffer(dataSlice);
+                dataSlice = null;
             }
+            dataBuffer.appendByte(LF).appendBuffer(line, from, to - from);
         }
+        dataLines++;
+    }
 
-        // 释放队列占用的大小
-        currentQueueSize -= dataSize;
-        if (currentQueueSize < 0) {
-            currentQueueSize = 0;
+    /**
+     * 处理完整的 SSE 消息：放入队列，有需求时立即派发
+     */
+    private void flushData() {
+        if (dataLines == 0) {
+            eventType = null;
+            eventBytes = 0;
+            return;
         }
 
-        if (!writeQueueFull() && drainHandler != null) {
-            drainHandler.handle(null);
+        Buffer data = dataLines == 1 ? dataSlice : dataBuffer;
+        SSEEvent event = new SSEEvent(eventType == null ? SSEEvent.DEFAULT_TYPE : eventType, lastEventId, retry, data);
+        int size = eventBytes;
+        dataSlice = null;
+        dataBuffer = null;
+        dataLines = 0;
+        eventType = null;
+        eventBytes = 0;
+
+        if (queue.isEmpty() && demand > 0 && eventHandler != null && !emitting) {
+            if (demand != Long.MAX_VALUE) {
+                demand--;
+            }
+            deliver(event);
+            return;
         }
+
+        queue.add(new QueuedEvent(event, size));
+        currentQueueSize += size;
+        emit();
+    }
+
+    /**
+     * 流结束时处理尚未以换行结束的最后一行，并派发尚未以空行结束的事件
+     */
+    private void flushPending() {
+        if (pending != null) {
+            Buffer line = pending;
+            pending = null;
+            handleLine(line, 0, line.length());
+        }
+        flushData();
+    }
+
+    private static boolean fieldEquals(Buffer line, int from, int to, byte[] field) {
+        if (to - from != field.length) {
+            return false;
+        }
+        for (int i = 0; i < field.length; i++) {
+            if (line.getByte(from + i) != field[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(Buffer line, int from, int to, byte b) {
+        for (int i = from; i < to; i++) {
+            if (line.getByte(i) == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static long parseDigits(Buffer line, int from, int to) {
+        if (from == to || to - from > 18) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            byte b = line.getByte(i);
+            if (b < '0' || b > '9') {
+                return -1;
+            }
+            value = value * 10 + (b - '0');
+        }
+        return value;
+    }
+
+    private record QueuedEvent(SSEEvent event, int size) {
     }
 
 }
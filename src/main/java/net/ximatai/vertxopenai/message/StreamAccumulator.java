@@ -0,0 +1,155 @@
+package net.ximatai.vertxopenai.message;
+
+import io.vertx.core.buffer.Buffer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 流式响应的累加器：按 choice 逐段累加内容、推理内容、工具调用、对数概率和结束原因，并记录用量
+ * <p>
+ * 文本片段按原样保存、流结束时一次拼接，累加过程中不复制已有内容；最终消息直接由累加的字段构造，不再解析任何片段，
+ * {@link AssistantMessage#original()} 在第一次访问时才由最后一个片段和所有 choice 生成。
+ */
+public final class StreamAccumulator {
+
+    /**
+     * 每个 choice 预留的文本片段数
+     */
+    private static final int INITIAL_PIECES = 64;
+
+    /**
+     * 按 choice 序号排列，n &gt; 1 时可能有多个
+     */
+    private final List<Choice> choices = new ArrayList<>(1);
+    private Buffer lastRaw;
+    private Usage usage;
+
+    /**
+     * 一个 choice 的累加状态
+     */
+    private static final class Choice {
+        private final int index;
+        private final List<String> content = new ArrayList<>(INITIAL_PIECES);
+        private List<String> reasoning;
+        private ToolCallAssembler toolCalls;
+        private Logprobs.Builder logprobs;
+        private String finishReason;
+
+        private Choice(int index) {
+            this.index = index;
+        }
+    }
+
+    /**
+     * 累加一个流式片段，片段带多个 choice 时分别累加到各自的序号下
+     *
+     * @param chunk 流式片段
+     * @return this
+     */
+    public StreamAccumulator add(AssistantMessage chunk) {
+        lastRaw = chunk.raw();
+        if (chunk.usage() != null) {
+            usage = chunk.usage();
+        }
+        for (AssistantMessage message : chunk.choices()) {
+            if (message.index() >= 0) {
+                add(choice(message.index()), message);
+            }
+        }
+        return this;
+    }
+
+    private static void add(Choice choice, AssistantMessage chunk) {
+        if (chunk.content() != null && !chunk.content().isEmpty()) {
+            choice.content.add(chunk.content());
+        }
+        if (chunk.reasoning() != null && !chunk.reasoning().isEmpty()) {
+            if (choice.reasoning == null) {
+                choice.reasoning = new ArrayList<>(INITIAL_PIECES);
+            }
+            choice.reasoning.add(chunk.reasoning());
+        }
+        if (!chunk.toolCallDeltas().isEmpty()) {
+            if (choice.toolCalls == null) {
+                choice.toolCalls = new ToolCallAssembler();
+            }
+            choice.toolCalls.add(chunk.toolCallDeltas());
+        }
+        if (chunk.logprobs() != null) {
+            if (choice.logprobs == null) {
+                choice.logprobs = new Logprobs.Builder();
+            }
+            choice.logprobs.addAll(chunk.logprobs());
+        }
+        if (chunk.finishReason() != null) {
+            choice.finishReason = chunk.finishReason();
+        }
+    }
+
+    /**
+     * 是否还没有累加任何片段
+     *
+     * @return 是否为空
+     */
+    public boolean isEmpty() {
+        return lastRaw == null;
+    }
+
+    /**
+     * 由累加的字段构造最终消息：序号最小的 choice 的内容，以及所有 choice 组成的原始 json
+     *
+     * @return 最终消息
+     * @throws IllegalStateException 没有累加任何片段
+     */
+    public AssistantMessage result() {
+        if (isEmpty()) {
+            throw new IllegalStateException("Stream ended without any data");
+        }
+        if (choices.isEmpty()) {
+            choices.add(new Choice(0));
+        }
+        List<AssistantMessage> messages = new ArrayList<>(choices.size());
+        List<AssistantMessage> view = Collections.unmodifiableList(messages);
+        for (Choice choice : choices) {
+            List<ToolCallDelta> toolCallDeltas = List.of();
+            if (choice.toolCalls != null) {
+                List<ToolCall> calls = choice.toolCalls.toolCalls();
+                toolCallDeltas = new ArrayList<>(calls.size());
+                for (int i = 0; i < calls.size(); i++) {
+                    ToolCall call = calls.get(i);
+                    toolCallDeltas.add(new ToolCallDelta(i, call.id(), call.type(), call.name(), call.arguments()));
+                }
+            }
+            String content = String.join("", choice.content).trim();
+            if (content.isEmpty() && !toolCallDeltas.isEmpty()) {
+                // 只有工具调用时 content 为 null，与非流式响应一致
+                content = null;
+            }
+            String reasoning = choice.reasoning == null ? null : String.join("", choice.reasoning);
+            Logprobs logprobs = choice.logprobs == null ? null : choice.logprobs.build();
+            messages.add(new AssistantMessage(lastRaw, choice.index, content, reasoning, choice.finishReason, usage,
+                    toolCallDeltas, logprobs, view, AssistantMessage.Origin.ASSEMBLED));
+        }
+        return messages.get(0);
+    }
+
+    private Choice choice(int index) {
+        // 通常只有一个 choice，n > 1 时片段按序号交替到达
+        for (int i = 0; i < choices.size(); i++) {
+            Choice choice = choices.get(i);
+            if (choice.index == index) {
+                return choice;
+            }
+            if (choice.index > index) {
+                Choice created = new Choice(index);
+                choices.add(i, created);
+                return created;
+            }
+        }
+        Choice created = new Choice(index);
+        choices.add(created);
+        return created;
+    }
+}
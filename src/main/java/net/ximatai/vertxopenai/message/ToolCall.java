@@ -0,0 +1,38 @@
+package net.ximatai.vertxopenai.message;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * 完整的工具调用
+ *
+ * @param id        工具调用 id，返回工具结果时通过 {@link ToolMessage#toolCallId()} 关联
+ * @param type      类型，一般为 function
+ * @param name      函数名
+ * @param arguments 参数（json 字符串）
+ */
+public record ToolCall(String id, String type, String name, String arguments) {
+
+    /**
+     * 解析参数
+     *
+     * @return 参数，没有参数时为空对象
+     * @throws io.vertx.core.json.DecodeException 参数不是合法的 json 对象
+     */
+    public JsonObject argumentsJson() {
+        return arguments == null || arguments.isBlank() ? new JsonObject() : new JsonObject(arguments);
+    }
+
+    /**
+     * 转化为请求中 tool_calls 的一项
+     *
+     * @return json
+     */
+    public JsonObject toJson() {
+        return new JsonObject()
+                .put("id", id)
+                .put("type", type)
+                .put("function", new JsonObject()
+                        .put("name", name)
+                        .put("arguments", arguments == null ? "" : arguments));
+    }
+}
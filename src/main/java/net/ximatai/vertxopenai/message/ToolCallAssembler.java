@@ -0,0 +1,114 @@
+package net.ximatai.vertxopenai.message;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 按 index 拼接流式响应中的工具调用片段，支持并行的多个工具调用
+ * <p>
+ * 只有一段参数的调用直接使用该片段，收到第二段时才创建 StringBuilder，每个片段只复制一次。
+ */
+public final class ToolCallAssembler {
+
+    private final List<Builder> builders = new ArrayList<>(2);
+
+    /**
+     * 创建空的拼接器
+     */
+    public ToolCallAssembler() {
+    }
+
+    /**
+     * 添加片段
+     *
+     * @param deltas 一段响应中的工具调用片段
+     * @return this
+     */
+    public ToolCallAssembler add(List<ToolCallDelta> deltas) {
+        for (ToolCallDelta delta : deltas) {
+            add(delta);
+        }
+        return this;
+    }
+
+    /**
+     * 添加片段
+     *
+     * @param delta 工具调用片段
+     * @return this
+     */
+    public ToolCallAssembler add(ToolCallDelta delta) {
+        int index = delta.index() < 0 ? builders.size() : delta.index();
+        while (builders.size() <= index) {
+            builders.add(null);
+        }
+        Builder builder = builders.get(index);
+        if (builder == null) {
+            builder = new Builder();
+            builders.set(index, builder);
+        }
+        if (delta.id() != null) {
+            builder.id = delta.id();
+        }
+        if (delta.type() != null) {
+            builder.type = delta.type();
+        }
+        if (delta.name() != null && builder.name == null) {
+            builder.name = delta.name();
+        }
+        if (delta.arguments() != null) {
+            builder.append(delta.arguments());
+        }
+        return this;
+    }
+
+    /**
+     * 是否没有任何工具调用
+     *
+     * @return 是否为空
+     */
+    public boolean isEmpty() {
+        return builders.isEmpty();
+    }
+
+    /**
+     * 拼接好的工具调用，按 index 排列
+     *
+     * @return 工具调用
+     */
+    public List<ToolCall> toolCalls() {
+        List<ToolCall> toolCalls = new ArrayList<>(builders.size());
+        for (Builder builder : builders) {
+            if (builder != null) {
+                toolCalls.add(builder.build());
+            }
+        }
+        return toolCalls;
+    }
+
+    private static final class Builder {
+        private String id;
+        private String type;
+        private String name;
+        private String first;
+        private StringBuilder arguments;
+
+        private void append(String fragment) {
+            if (arguments != null) {
+                arguments.append(fragment);
+            } else if (first == null) {
+                first = fragment;
+            } else {
+                arguments = new StringBuilder(Math.max(64, (first.length() + fragment.length()) * 2))
+                        .append(first)
+                        .append(fragment);
+                first = null;
+            }
+        }
+
+        private ToolCall build() {
+            String args = arguments != null ? arguments.toString() : first == null ? "" : first;
+            return new ToolCall(id, type == null ? "function" : type, name, args);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package net.ximatai.vertxopenai.message;
+
+/**
+ * 工具调用片段；流式响应中同一个工具调用会分成多段返回，以 index 关联，arguments 需要按顺序拼接
+ *
+ * @param index     工具调用序号
+ * @param id        工具调用 id，只在第一段出现
+ * @param type      类型，一般为 function，只在第一段出现
+ * @param name      函数名，只在第一段出现
+ * @param arguments 参数片段
+ */
+public record ToolCallDelta(int index, String id, String type, String name, String arguments) {
+}
@@ -0,0 +1,32 @@
+package net.ximatai.vertxopenai.message;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.util.List;
+
+/**
+ * 带工具调用的 AI 消息，保存在历史中，后续请求会原样发回 tool_calls
+ *
+ * @param content   消息内容，可以为 null
+ * @param toolCalls 工具调用，可能有多个（并行调用）
+ */
+public record ToolCallsMessage(String content, List<ToolCall> toolCalls) implements IMessage {
+
+    @Override
+    public MessageRole role() {
+        return MessageRole.ASSISTANT;
+    }
+
+    @Override
+    public JsonObject toJson() {
+        JsonArray calls = new JsonArray();
+        for (ToolCall toolCall : toolCalls) {
+            calls.add(toolCall.toJson());
+        }
+        return new JsonObject()
+                .put("content", content)
+                .put("role", "assistant")
+                .put("tool_calls", calls);
+    }
+}
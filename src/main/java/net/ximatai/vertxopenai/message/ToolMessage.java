@@ -0,0 +1,25 @@
+package net.ximatai.vertxopenai.message;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * 工具调用的结果
+ *
+ * @param toolCallId 对应的工具调用 id
+ * @param content    结果内容
+ */
+public record ToolMessage(String toolCallId, String content) implements IMessage {
+
+    @Override
+    public MessageRole role() {
+        return MessageRole.TOOL;
+    }
+
+    @Override
+    public JsonObject toJson() {
+        return new JsonObject()
+                .put("content", content)
+                .put("role", "tool")
+                .put("tool_call_id", toolCallId);
+    }
+}
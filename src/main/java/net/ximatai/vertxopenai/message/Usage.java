@@ -0,0 +1,75 @@
+package net.ximatai.vertxopenai.message;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Token 用量
+ *
+ * @param promptTokens     输入 token 数
+ * @param completionTokens 输出 token 数（包含推理 token）
+ * @param totalTokens      总 token 数
+ * @param reasoningTokens  推理 token 数（completion_tokens_details.reasoning_tokens）
+ * @param cachedTokens     命中缓存的输入 token 数（prompt_tokens_details.cached_tokens 或 prompt_cache_hit_tokens）
+ */
+public record Usage(int promptTokens, int completionTokens, int totalTokens, int reasoningTokens, int cachedTokens) {
+
+    /**
+     * 没有任何用量
+     */
+    public static final Usage ZERO = new Usage(0, 0, 0, 0, 0);
+
+    /**
+     * 与另一次用量相加
+     *
+     * @param other 另一次用量，为 null 时返回 this
+     * @return 相加后的用量
+     */
+    public Usage plus(Usage other) {
+        if (other == null) {
+            return this;
+        }
+        return new Usage(
+                promptTokens + other.promptTokens,
+                completionTokens + other.completionTokens,
+                totalTokens + other.totalTokens,
+                reasoningTokens + other.reasoningTokens,
+                cachedTokens + other.cachedTokens
+        );
+    }
+
+    /**
+     * 从 usage 节点解析
+     *
+     * @param usage usage 节点
+     * @return 用量，usage 为 null 时返回 null
+     */
+    public static Usage fromJson(JsonObject usage) {
+        if (usage == null) {
+            return null;
+        }
+        JsonObject completionDetails = usage.getJsonObject("completion_tokens_details", new JsonObject());
+        JsonObject promptDetails = usage.getJsonObject("prompt_tokens_details", new JsonObject());
+        int cached = promptDetails.getInteger("cached_tokens", usage.getInteger("prompt_cache_hit_tokens", 0));
+        return new Usage(
+                usage.getInteger("prompt_tokens", 0),
+                usage.getInteger("completion_tokens", 0),
+                usage.getInteger("total_tokens", 0),
+                completionDetails.getInteger("reasoning_tokens", 0),
+                cached
+        );
+    }
+
+    /**
+     * 转换为 usage 节点，与 {@link #fromJson(JsonObject)} 对应
+     *
+     * @return usage 节点
+     */
+    public JsonObject toJson() {
+        return new JsonObject()
+                .put("prompt_tokens", promptTokens)
+                .put("completion_tokens", completionTokens)
+                .put("total_tokens", totalTokens)
+                .put("prompt_tokens_details", new JsonObject().put("cached_tokens", cachedTokens))
+                .put("completion_tokens_details", new JsonObject().put("reasoning_tokens", reasoningTokens));
+    }
+}
@@ -0,0 +1,61 @@
+package net.ximatai.vertxopenai.service;
+
+import io.vertx.core.Future;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.WriteStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 在传输层前加一层响应缓存：命中时直接返回缓存的响应，流式请求把缓存的原始 SSE 数据重新写入 sink；
+ * 只缓存成功的响应，缓存读写失败不影响请求本身
+ */
+class CachingTransport implements ChatTransport {
+
+    private final Logger logger = LoggerFactory.getLogger(CachingTransport.class);
+
+    private final ChatTransport delegate;
+    private final ResponseCache cache;
+
+    CachingTransport(ChatTransport delegate, ResponseCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public Future<Buffer> send(ChatCall call) {
+        String key = RequestDigest.sha256(call.body());
+        return lookup(key).compose(cached -> {
+            if (cached != null) {
+                logger.debug("response cache hit: {}", key);
+                return Future.succeededFuture(cached);
+            }
+            return delegate.send(call).onSuccess(response -> store(key, response));
+        });
+    }
+
+    @Override
+    public Future<Void> stream(ChatCall call, WriteStream<Buffer> sink) {
+        String key = RequestDigest.sha256(call.body());
+        return lookup(key).compose(cached -> {
+            if (cached != null) {
+                logger.debug("response cache hit: {}", key);
+                return sink.write(cached).compose(v -> sink.end());
+            }
+            Buffer recorded = Buffer.buffer();
+            return delegate.stream(call, new ObservingWriteStream(sink, recorded::appendBuffer))
+                    .onSuccess(v -> store(key, recorded));
+        });
+    }
+
+    private Future<Buffer> lookup(String key) {
+        return cache.get(key).otherwise(err -> {
+            logger.warn("response cache get failed: {}", err.getMessage());
+            return null;
+        });
+    }
+
+    private void store(String key, Buffer response) {
+        cache.put(key, response).onFailure(err -> logger.warn("response cache put failed: {}", err.getMessage()));
+    }
+}
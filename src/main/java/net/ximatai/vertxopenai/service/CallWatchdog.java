@@ -0,0 +1,142 @@
+package net.ximatai.vertxopenai.service;
+
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 一次 HTTP 尝试的超时检查：首字节超时、数据间隔超时和调用的总超时
+ * <p>
+ * 数据间隔只记录最后收到数据的时间，定时器到期时再判断是否真的超时，不需要每个数据块都重新设置定时器。
+ * 消费方处理不过来、暂停读取响应期间不计入数据间隔，恢复读取后重新计时。
+ */
+class CallWatchdog {
+
+    private final Vertx vertx;
+    private final ChatCall call;
+    private final Handler<Throwable> onTimeout;
+
+    private volatile long lastData;
+    private boolean receivedData;
+    private boolean stopped;
+    private boolean paused;
+    private long firstByteTimer = -1;
+    private long idleTimer = -1;
+    private long deadlineTimer = -1;
+
+    /**
+     * @param vertx     vertx
+     * @param call      调用
+     * @param onTimeout 首字节或数据间隔超时时的回调；总超时直接取消整个调用
+     */
+    CallWatchdog(Vertx vertx, ChatCall call, Handler<Throwable> onTimeout) {
+        this.vertx = vertx;
+        this.call = call;
+        this.onTimeout = onTimeout;
+    }
+
+    synchronized void start() {
+        long firstByteTimeout = call.firstByteTimeout();
+        if (firstByteTimeout > 0) {
+            firstByteTimer = vertx.setTimer(firstByteTimeout, id ->
+                    fire(new TimeoutException("No data received within " + firstByteTimeout + " ms")));
+        }
+        long remaining = call.remainingTime();
+        if (remaining != Long.MAX_VALUE) {
+            deadlineTimer = vertx.setTimer(Math.max(1, remaining), id -> {
+                stop();
+                call.root().cancel(new TimeoutException("Request timed out"));
+            });
+        }
+    }
+
+    /**
+     * 收到数据
+     */
+    void onData() {
+        lastData = System.nanoTime();
+        synchronized (this) {
+            if (receivedData || stopped) {
+                return;
+            }
+            receivedData = true;
+            if (firstByteTimer != -1) {
+                vertx.cancelTimer(firstByteTimer);
+                firstByteTimer = -1;
+            }
+            if (call.idleTimeout() > 0) {
+                armIdle(call.idleTimeout());
+            }
+        }
+    }
+
+    /**
+     * 消费方暂停读取响应，数据间隔定时器暂停
+     */
+    synchronized void pause() {
+        if (paused || stopped) {
+            return;
+        }
+        paused = true;
+        if (idleTimer != -1) {
+            vertx.cancelTimer(idleTimer);
+            idleTimer = -1;
+        }
+    }
+
+    /**
+     * 消费方恢复读取响应，数据间隔从现在重新计算
+     */
+    void resume() {
+        lastData = System.nanoTime();
+        synchronized (this) {
+            if (!paused) {
+                return;
+            }
+            paused = false;
+            if (receivedData && !stopped && call.idleTimeout() > 0) {
+                armIdle(call.idleTimeout());
+            }
+        }
+    }
+
+    synchronized void stop() {
+        stopped = true;
+        for (long timer : new long[]{firstByteTimer, idleTimer, deadlineTimer}) {
+            if (timer != -1) {
+                vertx.cancelTimer(timer);
+            }
+        }
+        firstByteTimer = idleTimer = deadlineTimer = -1;
+    }
+
+    private void armIdle(long delay) {
+        idleTimer = vertx.setTimer(Math.max(1, delay), id -> {
+            long idle;
+            synchronized (this) {
+                if (idleTimer != id || stopped || paused) {
+                    return;
+                }
+                idleTimer = -1;
+                idle = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastData);
+                if (idle < call.idleTimeout()) {
+                    armIdle(call.idleTimeout() - idle);
+                    return;
+                }
+            }
+            fire(new TimeoutException("No data received for " + idle + " ms"));
+        });
+    }
+
+    private void fire(Throwable timeout) {
+        synchronized (this) {
+            if (stopped) {
+                return;
+            }
+        }
+        stop();
+        onTimeout.handle(timeout);
+    }
+}
@@ -0,0 +1,253 @@
+package net.ximatai.vertxopenai.service;
+
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一次上游调用：请求体以及限流、超时等需要的请求信息，由会话创建后交给传输层
+ * <p>
+ * 调用可以被取消，取消时会重置正在进行的 HTTP 请求；总超时到期时调用会以 {@link java.util.concurrent.TimeoutException} 取消，
+ * 之后不会再重试或转移。
+ */
+public class ChatCall {
+
+    private final String model;
+    private final Buffer body;
+    private final int tokens;
+
+    private long firstByteTimeout;
+    private long idleTimeout;
+    private long deadline;
+    private boolean hasDeadline;
+
+    private volatile String endpoint;
+    /**
+     * 由 {@link #fork()} 派生时的上级调用
+     */
+    private final ChatCall parent;
+
+    private List<Handler<Throwable>> cancelHandlers = new ArrayList<>(2);
+    private Throwable cancelReason;
+
+    /**
+     * 创建上游调用
+     *
+     * @param model  模型名称
+     * @param body   请求体
+     * @param tokens 估算的 token 数（请求中的消息加上预留的回复长度）
+     */
+    public ChatCall(String model, Buffer body, int tokens) {
+        this(model, body, tokens, null);
+    }
+
+    private ChatCall(String model, Buffer body, int tokens, ChatCall parent) {
+        this.model = model;
+        this.body = body;
+        this.tokens = tokens;
+        this.parent = parent;
+    }
+
+    /**
+     * 派生一次单独的尝试（比如对冲请求）：请求体和超时设置相同，上级调用取消时一起取消，
+     * 单独取消只重置这次尝试的 HTTP 请求，不影响上级调用
+     *
+     * @return 派生的调用
+     */
+    ChatCall fork() {
+        ChatCall attempt = new ChatCall(model, body, tokens, this);
+        attempt.firstByteTimeout = firstByteTimeout;
+        attempt.idleTimeout = idleTimeout;
+        attempt.deadline = deadline;
+        attempt.hasDeadline = hasDeadline;
+        onCancel(attempt::cancel);
+        return attempt;
+    }
+
+    /**
+     * 为合并的请求创建共享的调用：请求体和每次尝试的超时设置相同，没有总超时，也不随这个调用取消，
+     * 由合并方在所有订阅者都退出时取消
+     *
+     * @return 共享的调用
+     */
+    ChatCall share() {
+        ChatCall shared = new ChatCall(model, body, tokens, null);
+        shared.firstByteTimeout = firstByteTimeout;
+        shared.idleTimeout = idleTimeout;
+        return shared;
+    }
+
+    /**
+     * 最上级的调用，总超时到期时取消它
+     */
+    ChatCall root() {
+        return parent == null ? this : parent.root();
+    }
+
+    /**
+     * 模型名称
+     *
+     * @return 模型名称
+     */
+    public String model() {
+        return model;
+    }
+
+    /**
+     * 请求体
+     *
+     * @return 请求体
+     */
+    public Buffer body() {
+        return body;
+    }
+
+    /**
+     * 估算的 token 数
+     *
+     * @return token 数
+     */
+    public int tokens() {
+        return tokens;
+    }
+
+    /**
+     * 首字节超时时间（毫秒），0 表示不限制
+     *
+     * @return 超时时间
+     */
+    public long firstByteTimeout() {
+        return firstByteTimeout;
+    }
+
+    /**
+     * 设置首字节超时时间（毫秒）：每次尝试开始（包括等待连接的时间）后在该时间内没有收到任何数据则失败，0 表示不限制
+     *
+     * @param firstByteTimeout 超时时间
+     * @return this
+     */
+    public ChatCall setFirstByteTimeout(long firstByteTimeout) {
+        this.firstByteTimeout = Math.max(0, firstByteTimeout);
+        return this;
+    }
+
+    /**
+     * 数据间隔超时时间（毫秒），0 表示不限制
+     *
+     * @return 超时时间
+     */
+    public long idleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * 设置数据间隔超时时间（毫秒）：收到数据后超过该时间没有新数据则失败，0 表示不限制
+     *
+     * @param idleTimeout 超时时间
+     * @return this
+     */
+    public ChatCall setIdleTimeout(long idleTimeout) {
+        this.idleTimeout = Math.max(0, idleTimeout);
+        return this;
+    }
+
+    /**
+     * 设置总超时时间（毫秒），从现在开始计算，包含排队、重试的时间，0 表示不限制
+     *
+     * @param timeout 超时时间
+     * @return this
+     */
+    public ChatCall setTimeout(long timeout) {
+        this.hasDeadline = timeout > 0;
+        this.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        return this;
+    }
+
+    /**
+     * 距离总超时的剩余时间（毫秒）
+     *
+     * @return 剩余时间，没有总超时时为 {@link Long#MAX_VALUE}，已超时时为 0
+     */
+    public long remainingTime() {
+        if (!hasDeadline) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+    }
+
+    /**
+     * 最近一次发出 HTTP 请求的上游接口（host:port）
+     *
+     * @return 上游接口，还没有发出 HTTP 请求时为 null
+     */
+    public String endpoint() {
+        return endpoint;
+    }
+
+    void setEndpoint(String endpoint) {
+        this.endpoint = endpoint;
+        if (parent != null) {
+            parent.setEndpoint(endpoint);
+        }
+    }
+
+    /**
+     * 取消调用，正在进行的 HTTP 请求会被重置、连接立即释放
+     *
+     * @param reason 原因，调用方的 Future 以此失败
+     * @return 是否由这次调用取消（已经取消过时返回 false）
+     */
+    public boolean cancel(Throwable reason) {
+        List<Handler<Throwable>> handlers;
+        synchronized (this) {
+            if (cancelReason != null) {
+                return false;
+            }
+            cancelReason = reason;
+            handlers = cancelHandlers;
+            cancelHandlers = null;
+        }
+        for (Handler<Throwable> handler : handlers) {
+            handler.handle(reason);
+        }
+        return true;
+    }
+
+    /**
+     * 是否已经取消
+     *
+     * @return 是否已经取消
+     */
+    public synchronized boolean isCancelled() {
+        return cancelReason != null;
+    }
+
+    /**
+     * 取消原因
+     *
+     * @return 取消原因，没有取消时为 null
+     */
+    public synchronized Throwable cancelReason() {
+        return cancelReason;
+    }
+
+    /**
+     * 注册取消回调，已经取消时立即执行
+     *
+     * @param handler 回调，参数为取消原因
+     */
+    public void onCancel(Handler<Throwable> handler) {
+        Throwable reason;
+        synchronized (this) {
+            reason = cancelReason;
+            if (reason == null) {
+                cancelHandlers.add(handler);
+                return;
+            }
+        }
+        handler.handle(reason);
+    }
+}
@@ -0,0 +1,114 @@
+package net.ximatai.vertxopenai.service;
+
+import java.util.function.IntSupplier;
+
+/**
+ * 指标采集接口，所有耗时均为纳秒；model 为模型名称，endpoint 为上游接口的 host:port
+ * <p>
+ * 未配置时不会采集任何指标；所有方法都有空实现，只需覆盖关心的指标。回调在事件循环线程上执行，实现不能阻塞。
+ * 内置的 Micrometer 实现见 {@link MicrometerChatMetrics}。
+ */
+public interface ChatMetrics {
+
+    /**
+     * 一次请求结束（包含限流排队、重试、对冲的全部时间）
+     *
+     * @param model    模型名称
+     * @param endpoint 最后一次尝试的上游接口，没有发出 HTTP 请求（命中缓存、合并到其他请求等）时为 null
+     * @param stream   是否流式请求
+     * @param duration 耗时
+     * @param error    失败原因，成功时为 null
+     */
+    default void request(String model, String endpoint, boolean stream, long duration, Throwable error) {
+    }
+
+    /**
+     * 流式请求从发出到收到第一段消息的耗时
+     *
+     * @param model    模型名称
+     * @param endpoint 上游接口
+     * @param duration 耗时
+     */
+    default void firstToken(String model, String endpoint, long duration) {
+    }
+
+    /**
+     * 一次回复的输出 token 数及生成耗时，二者相除即输出速度（流式请求的耗时从第一段消息开始计算）
+     *
+     * @param model    模型名称
+     * @param endpoint 上游接口
+     * @param tokens   输出 token 数，上游没有返回用量时按收到的消息段数估算
+     * @param duration 生成耗时
+     */
+    default void outputTokens(String model, String endpoint, int tokens, long duration) {
+    }
+
+    /**
+     * 一次 HTTP 请求从发出到收到响应头的耗时
+     *
+     * @param model    模型名称
+     * @param endpoint 上游接口
+     * @param duration 耗时
+     */
+    default void firstByte(String model, String endpoint, long duration) {
+    }
+
+    /**
+     * 响应体相邻两个数据块之间的间隔
+     *
+     * @param model    模型名称
+     * @param endpoint 上游接口
+     * @param interval 间隔
+     */
+    default void chunkInterval(String model, String endpoint, long interval) {
+    }
+
+    /**
+     * 一次 HTTP 请求结束时的收发字节数
+     *
+     * @param model    模型名称
+     * @param endpoint 上游接口
+     * @param sent     请求体字节数
+     * @param received 响应体字节数
+     */
+    default void bytes(String model, String endpoint, long sent, long received) {
+    }
+
+    /**
+     * 等待连接池分配连接的耗时
+     *
+     * @param endpoint 上游接口
+     * @param duration 耗时
+     */
+    default void connectionWait(String endpoint, long duration) {
+    }
+
+    /**
+     * 在客户端限流队列中等待的耗时
+     *
+     * @param model    模型名称
+     * @param duration 耗时
+     */
+    default void queueWait(String model, long duration) {
+    }
+
+    /**
+     * 一次重试
+     *
+     * @param model 模型名称
+     * @param error 触发重试的错误
+     */
+    default void retry(String model, Throwable error) {
+    }
+
+    /**
+     * 注册上游接口的连接池，实现可以据此提供连接池利用率的指标
+     *
+     * @param endpoint    上游接口
+     * @param inFlight    进行中的 HTTP 请求数（包括等待连接的请求）
+     * @param maxInFlight 连接池最多同时进行的请求数：HTTP/1.1 为连接数，HTTP/2 为连接数乘以每个连接的并发流数，
+     *                    由服务端决定时为 -1
+     */
+    default void connectionPool(String endpoint, IntSupplier inFlight, int maxInFlight) {
+    }
+}
@@ -0,0 +1,28 @@
+package net.ximatai.vertxopenai.service;
+
+import io.vertx.core.Future;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.WriteStream;
+
+/**
+ * 会话与上游接口之间的传输层，由 {@link OpenService} 提供给它创建的所有会话
+ */
+public interface ChatTransport {
+
+    /**
+     * 发送一次非流式请求
+     *
+     * @param call 上游调用
+     * @return 响应体（异步）
+     */
+    Future<Buffer> send(ChatCall call);
+
+    /**
+     * 发送一次流式请求，并把响应体按需写入 sink（通常是 SSE 解析器）；sink 写队列满时暂停读取响应
+     *
+     * @param call 上游调用
+     * @param sink 响应体写入的目标，响应结束时会被 end
+     * @return 响应体全部写入 sink 后完成
+     */
+    Future<Void> stream(ChatCall call, WriteStream<Buffer> sink);
+}
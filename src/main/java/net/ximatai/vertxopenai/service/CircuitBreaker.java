@@ -0,0 +1,85 @@
+package net.ximatai.vertxopenai.service;
+
+/**
+ * 单个上游接口的熔断器：连续失败达到阈值后打开，打开期间不再分配请求；
+ * 打开时间过后放行一个试探请求，成功则关闭，失败则重新打开
+ */
+class CircuitBreaker {
+
+    private enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+
+    private State state = State.CLOSED;
+    private int failures;
+    private long openUntil;
+    private boolean trialInFlight;
+
+    CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openMillis * 1_000_000;
+    }
+
+    /**
+     * 当前是否可以分配请求（不改变状态）
+     */
+    synchronized boolean isAvailable(long now) {
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> now - openUntil >= 0;
+            case HALF_OPEN -> !trialInFlight;
+        };
+    }
+
+    /**
+     * 分配一个请求，半开状态下只放行一个试探请求
+     */
+    synchronized boolean tryAcquire(long now) {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (now - openUntil < 0) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                trialInFlight = true;
+                return true;
+            default:
+                if (trialInFlight) {
+                    return false;
+                }
+                trialInFlight = true;
+                return true;
+        }
+    }
+
+    synchronized void onSuccess() {
+        state = State.CLOSED;
+        failures = 0;
+        trialInFlight = false;
+    }
+
+    /**
+     * 结果不能说明接口是否可用（比如调用被取消或总超时）时调用：不改变状态，只归还半开状态下的试探名额
+     */
+    synchronized void release() {
+        trialInFlight = false;
+    }
+
+    synchronized void onFailure(long now) {
+        failures++;
+        if (state == State.HALF_OPEN || failures >= failureThreshold) {
+            state = State.OPEN;
+            openUntil = now + openNanos;
+            trialInFlight = false;
+        }
+    }
+
+    synchronized boolean isOpen() {
+        return state != State.CLOSED;
+    }
+}
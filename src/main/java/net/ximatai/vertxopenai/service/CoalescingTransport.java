@@ -0,0 +1,187 @@
+package net.ximatai.vertxopenai.service;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.WriteStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 合并并发的相同请求：请求体相同的请求在上一个请求完成之前到达时，不再发起新的上游请求，而是共享它的结果；
+ * 流式请求的每个订阅者都会收到相同的数据块序列，中途加入的订阅者先补发已收到的数据
+ * <p>
+ * 上游请求使用单独的共享调用（{@link ChatCall#share()}），第一个到达的调用和之后加入的调用地位相同：
+ * 每个调用的取消和总超时只让它自己失败，所有调用都退出后才取消上游请求。结果在每个调用自己的 context 上交付。
+ */
+class CoalescingTransport implements ChatTransport {
+
+    private final Logger logger = LoggerFactory.getLogger(CoalescingTransport.class);
+
+    private final ChatTransport delegate;
+    private final Vertx vertx;
+    private final ConcurrentMap<String, SendFlight> inflight = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, StreamFlight> inflightStreams = new ConcurrentHashMap<>();
+
+    CoalescingTransport(ChatTransport delegate, Vertx vertx) {
+        this.delegate = delegate;
+        this.vertx = vertx;
+    }
+
+    @Override
+    public Future<Buffer> send(ChatCall call) {
+        String key = RequestDigest.sha256(call.body());
+        while (true) {
+            SendFlight flight = inflight.get(key);
+            if (flight == null) {
+                SendFlight created = new SendFlight(call.share());
+                flight = inflight.putIfAbsent(key, created);
+                if (flight == null) {
+                    created.join();
+                    Future<Buffer> result = subscribe(created, call);
+                    delegate.send(created.call)
+                            .onComplete(ar -> {
+                                inflight.remove(key, created);
+                                created.complete();
+                                created.result.handle(ar);
+                            });
+                    return result;
+                }
+            }
+            if (flight.join()) {
+                logger.debug("coalesced request: {}", key);
+                return subscribe(flight, call);
+            }
+            // 已经结束的请求还没来得及移除，重新发起
+            inflight.remove(key, flight);
+        }
+    }
+
+    /**
+     * 订阅共享请求的结果，调用取消时只让自己失败并退出
+     */
+    private Future<Buffer> subscribe(SendFlight flight, ChatCall call) {
+        Promise<Buffer> promise = Promise.promise();
+        Context context = Vertx.currentContext();
+        flight.result.future().onComplete(ar -> StreamFlight.runOn(context, v -> {
+            share(flight.call, call);
+            promise.handle(ar);
+        }));
+        call.onCancel(reason -> {
+            if (promise.tryFail(reason)) {
+                flight.leave(reason);
+            }
+        });
+        deadline(call, promise.future());
+        return promise.future();
+    }
+
+    @Override
+    public Future<Void> stream(ChatCall call, WriteStream<Buffer> sink) {
+        String key = RequestDigest.sha256(call.body());
+        while (true) {
+            StreamFlight flight = inflightStreams.get(key);
+            if (flight == null) {
+                StreamFlight created = new StreamFlight(call.share());
+                flight = inflightStreams.putIfAbsent(key, created);
+                if (flight == null) {
+                    Future<Void> result = subscribe(created, call, sink);
+                    delegate.stream(created.call(), created)
+                            .onComplete(ar -> {
+                                inflightStreams.remove(key, created);
+                                created.complete(ar);
+                            });
+                    return result;
+                }
+            }
+            Future<Void> result = subscribe(flight, call, sink);
+            if (result != null) {
+                logger.debug("coalesced stream: {}", key);
+                return result;
+            }
+            // 已经结束的请求还没来得及移除，重新发起
+            inflightStreams.remove(key, flight);
+        }
+    }
+
+    private Future<Void> subscribe(StreamFlight flight, ChatCall call, WriteStream<Buffer> sink) {
+        Future<Void> result = flight.join(sink);
+        if (result == null) {
+            return null;
+        }
+        call.onCancel(reason -> flight.leave(sink, reason));
+        deadline(call, result);
+        return result.andThen(ar -> share(flight.call(), call));
+    }
+
+    /**
+     * 共享请求的上游接口记录到每个调用上
+     */
+    private static void share(ChatCall shared, ChatCall call) {
+        String endpoint = shared.endpoint();
+        if (endpoint != null) {
+            call.setEndpoint(endpoint);
+        }
+    }
+
+    /**
+     * 共享调用没有总超时，每个调用的总超时由这里检查，到期时取消该调用
+     */
+    private void deadline(ChatCall call, Future<?> done) {
+        long remaining = call.remainingTime();
+        if (remaining == Long.MAX_VALUE) {
+            return;
+        }
+        long timerId = vertx.setTimer(Math.max(1, remaining), id ->
+                call.root().cancel(new TimeoutException("Request timed out")));
+        done.onComplete(ar -> vertx.cancelTimer(timerId));
+    }
+
+    /**
+     * 一次共享的非流式上游请求和它的订阅者数
+     */
+    private static final class SendFlight {
+        private final ChatCall call;
+        private final Promise<Buffer> result = Promise.promise();
+        private int subscribers;
+        private boolean completed;
+
+        private SendFlight(ChatCall call) {
+            this.call = call;
+        }
+
+        /**
+         * @return 请求已完成或已取消、无法加入时返回 false
+         */
+        private synchronized boolean join() {
+            if (completed || call.isCancelled()) {
+                return false;
+            }
+            subscribers++;
+            return true;
+        }
+
+        /**
+         * 订阅者退出，最后一个退出时取消上游请求
+         */
+        private void leave(Throwable reason) {
+            boolean last;
+            synchronized (this) {
+                last = --subscribers == 0 && !completed;
+            }
+            if (last) {
+                call.cancel(reason);
+            }
+        }
+
+        private synchronized void complete() {
+            completed = true;
+        }
+    }
+}
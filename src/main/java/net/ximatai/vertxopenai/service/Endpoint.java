@@ -0,0 +1,31 @@
+package net.ximatai.vertxopenai.service;
+
+import java.util.Objects;
+
+/**
+ * 一个 OpenAI 兼容的上游接口
+ *
+ * @param baseUrl 接口地址，如 https://api.deepseek.com/chat/completions
+ * @param apiKey  apiKey
+ * @param weight  权重，负载均衡时按权重分配请求
+ */
+public record Endpoint(String baseUrl, String apiKey, int weight) {
+
+    public Endpoint {
+        Objects.requireNonNull(baseUrl, "Base url cannot be null");
+        if (weight < 1) {
+            throw new IllegalArgumentException("weight must be > 0");
+        }
+    }
+
+    /**
+     * 创建权重为 1 的上游接口
+     *
+     * @param baseUrl 接口地址
+     * @param apiKey  apiKey
+     * @return 上游接口
+     */
+    public static Endpoint of(String baseUrl, String apiKey) {
+        return new Endpoint(baseUrl, apiKey, 1);
+    }
+}
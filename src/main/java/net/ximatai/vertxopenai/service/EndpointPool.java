@@ -0,0 +1,210 @@
+package net.ximatai.vertxopenai.service;
+
+import io.vertx.core.Future;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.WriteStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 在多个上游接口之间做负载均衡和故障转移
+ * <p>
+ * 每次请求按 {@link LoadBalancing} 选出得分最低的可用接口；接口暂时不可用（连接失败、429、5xx 等）时计入其熔断器，
+ * 并换一个还没试过的接口重新发送，流式请求只在收到数据之前转移。调用被取消或到达总超时时不计入熔断器，
+ * 只归还半开状态的试探名额。
+ */
+class EndpointPool implements ChatTransport {
+
+    /**
+     * EWMA 的平滑系数
+     */
+    private static final double EWMA_ALPHA = 0.3;
+
+    private final Logger logger = LoggerFactory.getLogger(EndpointPool.class);
+
+    private final List<Member> members;
+    private final LoadBalancing loadBalancing;
+
+    EndpointPool(List<Member> members, LoadBalancing loadBalancing) {
+        this.members = List.copyOf(members);
+        this.loadBalancing = loadBalancing;
+    }
+
+    List<Member> members() {
+        return members;
+    }
+
+    @Override
+    public Future<Buffer> send(ChatCall call) {
+        return send(call, new ArrayList<>(members.size()), null);
+    }
+
+    private Future<Buffer> send(ChatCall call, List<Member> tried, Throwable lastError) {
+        Member member = select(tried);
+        if (member == null) {
+            return Future.failedFuture(unavailable(lastError));
+        }
+        tried.add(member);
+
+        long start = System.nanoTime();
+        member.outstanding.incrementAndGet();
+        return member.transport.send(call).transform(ar -> {
+            member.outstanding.decrementAndGet();
+            if (ar.succeeded()) {
+                member.onSuccess(System.nanoTime() - start);
+                return Future.succeededFuture(ar.result());
+            }
+            if (isCancelled(call, ar.cause())) {
+                member.breaker.release();
+                return Future.failedFuture(ar.cause());
+            }
+            if (!RetryingTransport.isTransient(ar.cause())) {
+                member.breaker.onSuccess();
+                return Future.failedFuture(ar.cause());
+            }
+            member.onFailure();
+            logger.warn("Endpoint {} failed, failing over: {}", member.name, ar.cause().getMessage());
+            return send(call, tried, ar.cause());
+        });
+    }
+
+    @Override
+    public Future<Void> stream(ChatCall call, WriteStream<Buffer> sink) {
+        AtomicReference<Member> current = new AtomicReference<>();
+        StreamRace race = new StreamRace(sink, nanos -> current.get().recordLatency(nanos));
+        return stream(call, race, current, new ArrayList<>(members.size()), null);
+    }
+
+    private Future<Void> stream(ChatCall call, StreamRace race, AtomicReference<Member> current, List<Member> tried, Throwable lastError) {
+        Member member = select(tried);
+        if (member == null) {
+            return Future.failedFuture(unavailable(lastError));
+        }
+        tried.add(member);
+        current.set(member);
+
+        member.outstanding.incrementAndGet();
+        return member.transport.stream(call, race.lane()).transform(ar -> {
+            member.outstanding.decrementAndGet();
+            if (ar.failed() && isCancelled(call, ar.cause())) {
+                member.breaker.release();
+                return Future.failedFuture(ar.cause());
+            }
+            if (ar.succeeded() || !RetryingTransport.isTransient(ar.cause())) {
+                member.breaker.onSuccess();
+                return ar.succeeded() ? Future.succeededFuture() : Future.failedFuture(ar.cause());
+            }
+            member.onFailure();
+            if (race.started()) {
+                return Future.failedFuture(ar.cause());
+            }
+            logger.warn("Endpoint {} failed, failing over: {}", member.name, ar.cause().getMessage());
+            return stream(call, race, current, tried, ar.cause());
+        });
+    }
+
+    /**
+     * 选出得分最低的可用接口，从随机位置开始遍历以打散得分相同的接口
+     */
+    private Member select(List<Member> tried) {
+        long now = System.nanoTime();
+        int size = members.size();
+        int offset = ThreadLocalRandom.current().nextInt(size);
+        while (true) {
+            Member best = null;
+            double bestScore = Double.MAX_VALUE;
+            for (int i = 0; i < size; i++) {
+                Member member = members.get((offset + i) % size);
+                if (tried.contains(member) || !member.breaker.isAvailable(now)) {
+                    continue;
+                }
+                double score = member.score(loadBalancing);
+                if (score < bestScore) {
+                    best = member;
+                    bestScore = score;
+                }
+            }
+            if (best == null || best.breaker.tryAcquire(now)) {
+                return best;
+            }
+            // 半开的接口刚被其他请求占用了试探名额，换一个
+            tried.add(best);
+        }
+    }
+
+    /**
+     * 调用被取消或到达总超时，结果与接口是否可用无关，既不算成功也不算失败
+     */
+    private static boolean isCancelled(ChatCall call, Throwable err) {
+        return call.isCancelled() || err instanceof CancellationException;
+    }
+
+    private static Throwable unavailable(Throwable lastError) {
+        return lastError != null ? lastError : new IllegalStateException("All endpoints are unavailable");
+    }
+
+    /**
+     * 池中的一个上游接口
+     */
+    static class Member {
+
+        private final String name;
+        private final int weight;
+        private final ChatTransport transport;
+        private final CircuitBreaker breaker;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private volatile double ewmaNanos;
+
+        Member(String name, int weight, ChatTransport transport, CircuitBreaker breaker) {
+            this.name = name;
+            this.weight = weight;
+            this.transport = transport;
+            this.breaker = breaker;
+        }
+
+        String name() {
+            return name;
+        }
+
+        int outstanding() {
+            return outstanding.get();
+        }
+
+        double ewmaNanos() {
+            return ewmaNanos;
+        }
+
+        boolean isOpen() {
+            return breaker.isOpen();
+        }
+
+        private double score(LoadBalancing loadBalancing) {
+            double load = outstanding.get() + 1;
+            if (loadBalancing == LoadBalancing.EWMA_LATENCY && ewmaNanos > 0) {
+                load *= ewmaNanos;
+            }
+            return load / weight;
+        }
+
+        private void onSuccess(long latencyNanos) {
+            breaker.onSuccess();
+            recordLatency(latencyNanos);
+        }
+
+        private void onFailure() {
+            breaker.onFailure(System.nanoTime());
+        }
+
+        private synchronized void recordLatency(long nanos) {
+            double current = ewmaNanos;
+            ewmaNanos = current == 0 ? nanos : current + EWMA_ALPHA * (nanos - current);
+        }
+    }
+}
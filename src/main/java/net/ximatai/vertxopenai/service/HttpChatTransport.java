@@ -0,0 +1,265 @@
+package net.ximatai.vertxopenai.service;
+
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.RequestOptions;
+import io.vertx.core.streams.WriteStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 基于共享 HttpClient 的传输层
+ */
+class HttpChatTransport implements ChatTransport {
+
+    private final Logger logger = LoggerFactory.getLogger(HttpChatTransport.class);
+
+    private final Vertx vertx;
+    private final HttpClient client;
+    private final String apiKey;
+    private final String host;
+    private final int port;
+    private final boolean ssl;
+    private final String chatPath;
+    private final String endpoint;
+    /**
+     * 指标采集，未启用时为 null
+     */
+    private final ChatMetrics metrics;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    HttpChatTransport(Vertx vertx, HttpClient client, String apiKey, String host, int port, boolean ssl, String chatPath, ChatMetrics metrics, int maxInFlight) {
+        this.vertx = vertx;
+        this.client = client;
+        this.apiKey = apiKey;
+        this.host = host;
+        this.port = port;
+        this.ssl = ssl;
+        this.chatPath = chatPath;
+        this.endpoint = host + ":" + port;
+        this.metrics = metrics;
+        if (metrics != null) {
+            metrics.connectionPool(endpoint, inFlight::get, maxInFlight);
+        }
+    }
+
+    @Override
+    public Future<Buffer> send(ChatCall call) {
+        Promise<Buffer> result = Promise.promise();
+        start(call, "application/json", result, (response, onChunk, backpressure) -> {
+            // 自行收集响应体，每个数据块都计入数据间隔超时
+            Promise<Buffer> body = Promise.promise();
+            Buffer buffer = Buffer.buffer();
+            response.handler(chunk -> {
+                onChunk.handle(chunk);
+                buffer.appendBuffer(chunk);
+            });
+            response.exceptionHandler(body::tryFail);
+            response.endHandler(v -> body.tryComplete(buffer));
+            return body.future();
+        });
+        return result.future().onSuccess(res -> logger.debug("http body: {}", res));
+    }
+
+    @Override
+    public Future<Void> stream(ChatCall call, WriteStream<Buffer> sink) {
+        Promise<Void> result = Promise.promise();
+        start(call, "text/event-stream", result, (response, onChunk, backpressure) -> {
+            logger.debug("http status: {}", response.statusCode());
+            // pipe 在 sink 写队列满时暂停响应，drain 后恢复；暂停期间不计入数据间隔超时
+            return response.pipe()
+                    .endOnFailure(false)
+                    .to(new ObservingWriteStream(sink, onChunk, backpressure));
+        });
+        return result.future();
+    }
+
+    /**
+     * 发出请求并处理超时和取消：超时和取消从等待连接时就开始生效，等待中取消时请求直接失败、拿到的请求立即丢弃；
+     * 发出后超时或取消时重置 HTTP 请求，连接立即释放
+     */
+    private <T> void start(ChatCall call, String accept, Promise<T> result, ResponseHandler<T> handler) {
+        if (call.isCancelled()) {
+            result.fail(call.cancelReason());
+            return;
+        }
+        call.setEndpoint(endpoint);
+        long start = metrics == null ? 0 : System.nanoTime();
+        if (metrics != null) {
+            inFlight.incrementAndGet();
+            result.future().onComplete(ar -> inFlight.decrementAndGet());
+        }
+        AtomicReference<HttpClientRequest> current = new AtomicReference<>();
+        Handler<Throwable> abort = err -> {
+            if (result.tryFail(err)) {
+                HttpClientRequest request = current.get();
+                if (request != null) {
+                    request.reset(0, err);
+                }
+            }
+        };
+        CallWatchdog watchdog = new CallWatchdog(vertx, call, abort);
+        call.onCancel(abort);
+        watchdog.start();
+        result.future().onComplete(ar -> watchdog.stop());
+
+        client.request(requestOptions(call, accept)).onComplete(ar -> {
+            if (ar.failed()) {
+                result.tryFail(ar.cause());
+                return;
+            }
+            HttpClientRequest request = ar.result();
+            current.set(request);
+            if (result.future().isComplete()) {
+                // 等待连接期间已经取消或超时
+                request.reset(0, result.future().cause());
+                return;
+            }
+
+            AttemptMeter meter = metrics == null ? null : new AttemptMeter(call.model(), start);
+            Handler<Buffer> onChunk = meter == null ? chunk -> watchdog.onData() : chunk -> {
+                watchdog.onData();
+                meter.chunk(chunk);
+            };
+            Handler<Boolean> backpressure = paused -> {
+                if (paused) {
+                    watchdog.pause();
+                } else {
+                    watchdog.resume();
+                }
+            };
+
+            request.send(call.body())
+                    .compose(HttpChatTransport::checkStatus)
+                    .compose(response -> {
+                        watchdog.onData();
+                        if (meter != null) {
+                            meter.firstByte();
+                        }
+                        return handler.handle(response, onChunk, backpressure);
+                    })
+                    .onComplete(res -> {
+                        if (meter != null) {
+                            meter.end(call.body().length());
+                        }
+                        if (res.succeeded()) {
+                            result.tryComplete(res.result());
+                        } else {
+                            result.tryFail(res.cause());
+                        }
+                    });
+        });
+    }
+
+    /**
+     * 读取响应体
+     */
+    @FunctionalInterface
+    private interface ResponseHandler<T> {
+        /**
+         * @param response     响应
+         * @param onChunk      每个数据块到达时调用，用于数据间隔超时和指标
+         * @param backpressure 因消费方处理不过来暂停读取响应时以 true 调用，恢复时以 false 调用
+         * @return 读取结果
+         */
+        Future<T> handle(HttpClientResponse response, Handler<Buffer> onChunk, Handler<Boolean> backpressure);
+    }
+
+    /**
+     * 非 2xx 响应读取响应体后以 {@link OpenAIException} 失败，并带上 Retry-After
+     */
+    private static Future<HttpClientResponse> checkStatus(HttpClientResponse response) {
+        int statusCode = response.statusCode();
+        if (statusCode >= 200 && statusCode < 300) {
+            return Future.succeededFuture(response);
+        }
+        long retryAfter = retryAfter(response.getHeader("retry-after-ms"), response.getHeader("Retry-After"));
+        return response.body().transform(ar -> Future.failedFuture(
+                new OpenAIException(statusCode, ar.succeeded() ? ar.result().toString() : null, retryAfter)));
+    }
+
+    static long retryAfter(String retryAfterMs, String retryAfter) {
+        try {
+            if (retryAfterMs != null) {
+                return Math.max(0, (long) Double.parseDouble(retryAfterMs.trim()));
+            }
+            if (retryAfter != null) {
+                String value = retryAfter.trim();
+                if (!value.isEmpty() && Character.isDigit(value.charAt(0))) {
+                    return Math.max(0, (long) (Double.parseDouble(value) * 1000));
+                }
+                ZonedDateTime date = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Math.max(0, Duration.between(ZonedDateTime.now(date.getZone()), date).toMillis());
+            }
+        } catch (NumberFormatException | DateTimeParseException e) {
+            // 无法识别的值按没有处理
+        }
+        return -1;
+    }
+
+    /**
+     * 请求参数，调用有总超时时等待连接的时间不超过剩余时间，超时后不再占用连接池的等待队列
+     */
+    private RequestOptions requestOptions(ChatCall call, String accept) {
+        RequestOptions options = new RequestOptions()
+                .setMethod(HttpMethod.POST)
+                .setHost(host)
+                .setPort(port)
+                .setSsl(ssl)
+                .setURI(chatPath)
+                .putHeader("Content-Type", "application/json")
+                .putHeader("Accept", accept)
+                .putHeader("Authorization", "Bearer " + apiKey);
+        long remaining = call.remainingTime();
+        if (remaining != Long.MAX_VALUE) {
+            options.setConnectTimeout(Math.max(1, remaining));
+        }
+        return options;
+    }
+
+    /**
+     * 一次 HTTP 尝试的指标：连接等待、首字节、数据块间隔和收发字节数，只在启用指标时创建
+     */
+    private class AttemptMeter {
+        private final String model;
+        private final long sent;
+        private long lastChunk;
+        private long received;
+
+        AttemptMeter(String model, long start) {
+            this.model = model;
+            this.sent = System.nanoTime();
+            metrics.connectionWait(endpoint, sent - start);
+        }
+
+        void firstByte() {
+            lastChunk = System.nanoTime();
+            metrics.firstByte(model, endpoint, lastChunk - sent);
+        }
+
+        void chunk(Buffer chunk) {
+            long now = System.nanoTime();
+            metrics.chunkInterval(model, endpoint, now - lastChunk);
+            lastChunk = now;
+            received += chunk.length();
+        }
+
+        void end(long bodyLength) {
+            metrics.bytes(model, endpoint, bodyLength, received);
+        }
+    }
+}
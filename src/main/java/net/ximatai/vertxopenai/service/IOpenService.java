@@ -1,12 +1,21 @@
 package net.ximatai.vertxopenai.service;
 
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonObject;
+import net.ximatai.vertxopenai.batch.BatchClient;
+import net.ximatai.vertxopenai.batch.BatchOptions;
 import net.ximatai.vertxopenai.session.ChatSession;
+import net.ximatai.vertxopenai.session.SessionRegistry;
+import net.ximatai.vertxopenai.session.SessionRegistryOptions;
+
+import java.util.List;
+import java.util.Objects;
 
 /**
  * 消息服务接口
  */
-public interface IOpenService {
+public interface IOpenService extends AutoCloseable {
 
     /**
      * 创建消息服务
@@ -19,6 +28,54 @@ public interface IOpenService {
         return new OpenService(apiKey, baseUrl);
     }
 
+    /**
+     * 创建消息服务
+     *
+     * @param apiKey  apiKey
+     * @param baseUrl baseUrl
+     * @param options 服务配置（连接池大小、keep-alive、HTTP/2 等）
+     * @return 创建好的消息服务
+     */
+    static IOpenService create(String apiKey, String baseUrl, OpenServiceOptions options) {
+        return new OpenService(apiKey, baseUrl, options);
+    }
+
+    /**
+     * 在已有的 Vertx 上创建消息服务，请求回调运行在调用方的事件循环上
+     *
+     * @param vertx   vertx
+     * @param apiKey  apiKey
+     * @param baseUrl baseUrl
+     * @param options 服务配置
+     * @return 创建好的消息服务
+     */
+    static IOpenService create(Vertx vertx, String apiKey, String baseUrl, OpenServiceOptions options) {
+        return new OpenService(Objects.requireNonNull(vertx, "Vertx cannot be null"), apiKey, baseUrl, options);
+    }
+
+    /**
+     * 创建在多个上游接口之间负载均衡、自动故障转移的消息服务
+     *
+     * @param endpoints 上游接口
+     * @param options   服务配置（负载均衡策略、熔断等）
+     * @return 创建好的消息服务
+     */
+    static IOpenService create(List<Endpoint> endpoints, OpenServiceOptions options) {
+        return new OpenService(null, endpoints, options);
+    }
+
+    /**
+     * 在已有的 Vertx 上创建在多个上游接口之间负载均衡的消息服务
+     *
+     * @param vertx     vertx
+     * @param endpoints 上游接口
+     * @param options   服务配置
+     * @return 创建好的消息服务
+     */
+    static IOpenService create(Vertx vertx, List<Endpoint> endpoints, OpenServiceOptions options) {
+        return new OpenService(Objects.requireNonNull(vertx, "Vertx cannot be null"), endpoints, options);
+    }
+
     /**
      * 创建新会话
      *
@@ -37,4 +94,45 @@ public interface IOpenService {
      */
     ChatSession connect(JsonObject config);
 
+    /**
+     * 以指定的 id 创建新会话
+     *
+     * @param sessionId 会话 id
+     * @param config    模型详细配置
+     * @return 创建好的 ChatSession
+     */
+    ChatSession connect(String sessionId, JsonObject config);
+
+    /**
+     * 创建会话注册表，按 id 获取会话，空闲会话的历史移到堆外；配置了会话存储时，注册表中没有的会话先从存储恢复
+     *
+     * @param config  新会话的模型配置
+     * @param options 注册表配置
+     * @return 会话注册表
+     */
+    SessionRegistry registry(JsonObject config, SessionRegistryOptions options);
+
+    /**
+     * 从服务配置的会话存储中按 id 恢复会话；没有配置存储时以 IllegalStateException 失败，
+     * 会话不存在时以 NoSuchElementException 失败
+     *
+     * @param sessionId 会话 id，即 {@link ChatSession#getId()}
+     * @return 恢复的会话（异步）
+     */
+    Future<ChatSession> restore(String sessionId);
+
+    /**
+     * 创建批量任务客户端，Batch API 使用第一个上游接口，降级模式的请求与会话共用同一个传输层
+     *
+     * @param options 批量任务配置
+     * @return 批量任务客户端
+     */
+    BatchClient batch(BatchOptions options);
+
+    /**
+     * 关闭服务，释放连接池并停止创建过的会话注册表的定时检查；服务自行创建的 Vertx 会一并关闭
+     */
+    @Override
+    void close();
+
 }
@@ -0,0 +1,93 @@
+package net.ximatai.vertxopenai.service;
+
+import io.vertx.core.Future;
+import io.vertx.core.buffer.Buffer;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 进程内响应缓存，按条数做 LRU 淘汰，条目超过存活时间后失效
+ */
+public class InMemoryResponseCache implements ResponseCache {
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LinkedHashMap<String, Entry> entries;
+
+    /**
+     * 创建进程内响应缓存
+     *
+     * @param maxEntries 最多缓存的响应数量
+     * @param ttl        每条响应的存活时间
+     */
+    public InMemoryResponseCache(int maxEntries, Duration ttl) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be > 0");
+        }
+        Objects.requireNonNull(ttl, "TTL cannot be null");
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("ttl must be > 0");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > InMemoryResponseCache.this.maxEntries;
+            }
+        };
+    }
+
+    @Override
+    public Future<Buffer> get(String key) {
+        return Future.succeededFuture(lookup(key));
+    }
+
+    @Override
+    public Future<Void> put(String key, Buffer value) {
+        synchronized (entries) {
+            entries.put(key, new Entry(value, System.nanoTime() + ttlNanos));
+        }
+        return Future.succeededFuture();
+    }
+
+    /**
+     * 当前缓存的响应数量（包含已过期但尚未清理的条目）
+     *
+     * @return 响应数量
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    private Buffer lookup(String key) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (System.nanoTime() - entry.expiresAt() >= 0) {
+                entries.remove(key);
+                return null;
+            }
+            return entry.value();
+        }
+    }
+
+    private record Entry(Buffer value, long expiresAt) {
+    }
+}
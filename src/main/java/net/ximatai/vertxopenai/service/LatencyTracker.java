@@ -0,0 +1,46 @@
+package net.ximatai.vertxopenai.service;
+
+import java.util.Arrays;
+
+/**
+ * 记录最近若干次请求的耗时，用于估算分位数
+ */
+class LatencyTracker {
+
+    private final long[] samples;
+    private int next;
+    private int count;
+
+    LatencyTracker(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        count = Math.min(count + 1, samples.length);
+    }
+
+    synchronized int count() {
+        return count;
+    }
+
+    /**
+     * 分位数
+     *
+     * @param quantile 0 到 1 之间
+     * @return 耗时（纳秒），没有样本时为 -1
+     */
+    long quantile(double quantile) {
+        long[] sorted;
+        synchronized (this) {
+            if (count == 0) {
+                return -1;
+            }
+            sorted = Arrays.copyOf(samples, count);
+        }
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
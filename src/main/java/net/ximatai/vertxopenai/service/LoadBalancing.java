@@ -0,0 +1,15 @@
+package net.ximatai.vertxopenai.service;
+
+/**
+ * 多个上游接口之间的负载均衡策略，两种策略都会按权重折算
+ */
+public enum LoadBalancing {
+    /**
+     * 选择进行中请求最少的接口
+     */
+    LEAST_OUTSTANDING,
+    /**
+     * 选择首字节耗时（指数加权移动平均）乘以进行中请求数最小的接口，慢的副本会自动少分到请求
+     */
+    EWMA_LATENCY
+}
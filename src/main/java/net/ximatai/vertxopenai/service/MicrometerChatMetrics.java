@@ -0,0 +1,193 @@
+package net.ximatai.vertxopenai.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+/**
+ * 基于 Micrometer 的指标采集，需要自行引入 micrometer-core
+ * <p>
+ * 指标名称以 openai.chat 开头，带 model、endpoint 标签；没有经过 HTTP 请求（命中缓存等）时 endpoint 为 none。
+ * 每个标签组合的指标只创建一次，数据块间隔等高频指标不会重复查找注册表。
+ */
+public class MicrometerChatMetrics implements ChatMetrics {
+
+    private static final String NONE = "none";
+
+    private final MeterRegistry registry;
+    private final ConcurrentMap<Key, Meters> meters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Timer> connectionWaits = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Timer> queueWaits = new ConcurrentHashMap<>();
+    private final ConcurrentMap<RequestKey, Timer> requests = new ConcurrentHashMap<>();
+    private final ConcurrentMap<RetryKey, Counter> retries = new ConcurrentHashMap<>();
+
+    /**
+     * 创建指标采集
+     *
+     * @param registry 指标注册表
+     */
+    public MicrometerChatMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void request(String model, String endpoint, boolean stream, long duration, Throwable error) {
+        RequestKey key = new RequestKey(model == null ? NONE : model, endpoint == null ? NONE : endpoint, stream,
+                error == null ? NONE : error.getClass().getSimpleName());
+        requests.computeIfAbsent(key, k -> Timer.builder("openai.chat.requests")
+                        .description("请求耗时，包含限流排队和重试")
+                        .tags(tags(k.model(), k.endpoint()).and("stream", String.valueOf(k.stream())).and("error", k.error()))
+                        .register(registry))
+                .record(duration, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void firstToken(String model, String endpoint, long duration) {
+        meters(model, endpoint).firstToken.record(duration, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void outputTokens(String model, String endpoint, int tokens, long duration) {
+        Meters meters = meters(model, endpoint);
+        meters.outputTokens.increment(tokens);
+        if (duration > 0) {
+            meters.tokensPerSecond.record(tokens * 1e9 / duration);
+        }
+    }
+
+    @Override
+    public void firstByte(String model, String endpoint, long duration) {
+        meters(model, endpoint).firstByte.record(duration, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void chunkInterval(String model, String endpoint, long interval) {
+        meters(model, endpoint).chunkInterval.record(interval, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void bytes(String model, String endpoint, long sent, long received) {
+        Meters meters = meters(model, endpoint);
+        meters.bytesSent.increment(sent);
+        meters.bytesReceived.increment(received);
+    }
+
+    @Override
+    public void connectionWait(String endpoint, long duration) {
+        connectionWaits.computeIfAbsent(endpoint, e -> Timer.builder("openai.chat.connection.wait")
+                        .description("等待连接池分配连接的耗时")
+                        .tags("endpoint", e)
+                        .register(registry))
+                .record(duration, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void queueWait(String model, long duration) {
+        queueWaits.computeIfAbsent(model == null ? NONE : model, m -> Timer.builder("openai.chat.queue.wait")
+                        .description("在客户端限流队列中等待的耗时")
+                        .tags("model", m)
+                        .register(registry))
+                .record(duration, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void retry(String model, Throwable error) {
+        RetryKey key = new RetryKey(model == null ? NONE : model, error.getClass().getSimpleName());
+        retries.computeIfAbsent(key, k -> Counter.builder("openai.chat.retries")
+                        .tags("model", k.model(), "error", k.error())
+                        .register(registry))
+                .increment();
+    }
+
+    @Override
+    public void connectionPool(String endpoint, IntSupplier inFlight, int maxInFlight) {
+        // 注册表对 gauge 的对象只保持弱引用，这里的 supplier 没有其他引用，需要强引用
+        Gauge.builder("openai.chat.requests.in.flight", inFlight, IntSupplier::getAsInt)
+                .description("进行中的 HTTP 请求数，包括等待连接的请求")
+                .tags("endpoint", endpoint)
+                .strongReference(true)
+                .register(registry);
+        if (maxInFlight > 0) {
+            Gauge.builder("openai.chat.requests.max", () -> maxInFlight)
+                    .description("连接池最多同时进行的请求数")
+                    .tags("endpoint", endpoint)
+                    .strongReference(true)
+                    .register(registry);
+        }
+    }
+
+    private Meters meters(String model, String endpoint) {
+        Key key = new Key(model == null ? NONE : model, endpoint == null ? NONE : endpoint);
+        Meters result = meters.get(key);
+        if (result == null) {
+            result = meters.computeIfAbsent(key, k -> new Meters(registry, tags(k.model(), k.endpoint())));
+        }
+        return result;
+    }
+
+    private static Tags tags(String model, String endpoint) {
+        return Tags.of("model", model == null ? NONE : model, "endpoint", endpoint == null ? NONE : endpoint);
+    }
+
+    private record Key(String model, String endpoint) {
+    }
+
+    private record RequestKey(String model, String endpoint, boolean stream, String error) {
+    }
+
+    private record RetryKey(String model, String error) {
+    }
+
+    /**
+     * 同一 model、endpoint 组合的指标
+     */
+    private static class Meters {
+        private final Timer firstToken;
+        private final Timer firstByte;
+        private final Timer chunkInterval;
+        private final Counter outputTokens;
+        private final DistributionSummary tokensPerSecond;
+        private final Counter bytesSent;
+        private final Counter bytesReceived;
+
+        Meters(MeterRegistry registry, Tags tags) {
+            firstToken = Timer.builder("openai.chat.first.token")
+                    .description("流式请求从发出到收到第一段消息的耗时")
+                    .tags(tags)
+                    .register(registry);
+            firstByte = Timer.builder("openai.chat.first.byte")
+                    .description("HTTP 请求从发出到收到响应头的耗时")
+                    .tags(tags)
+                    .register(registry);
+            chunkInterval = Timer.builder("openai.chat.chunk.interval")
+                    .description("相邻两个数据块之间的间隔")
+                    .tags(tags)
+                    .register(registry);
+            outputTokens = Counter.builder("openai.chat.output.tokens")
+                    .baseUnit("tokens")
+                    .tags(tags)
+                    .register(registry);
+            tokensPerSecond = DistributionSummary.builder("openai.chat.output.speed")
+                    .description("输出速度")
+                    .baseUnit("tokens/s")
+                    .tags(tags)
+                    .register(registry);
+            bytesSent = Counter.builder("openai.chat.bytes.sent")
+                    .baseUnit("bytes")
+                    .tags(tags)
+                    .register(registry);
+            bytesReceived = Counter.builder("openai.chat.bytes.received")
+                    .baseUnit("bytes")
+                    .tags(tags)
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package net.ximatai.vertxopenai.service;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.WriteStream;
+
+/**
+ * 把写入的数据原样转发给 delegate，转发前交给 observer 观察（记录副本、更新超时等），背压由 delegate 决定；
+ * 可以同时观察背压：上游因 delegate 写队列满暂停时收到 true，delegate 排空、上游恢复时收到 false
+ */
+class ObservingWriteStream implements WriteStream<Buffer> {
+
+    private final WriteStream<Buffer> delegate;
+    private final Handler<Buffer> observer;
+    private final Handler<Boolean> backpressure;
+
+    ObservingWriteStream(WriteStream<Buffer> delegate, Handler<Buffer> observer) {
+        this(delegate, observer, null);
+    }
+
+    ObservingWriteStream(WriteStream<Buffer> delegate, Handler<Buffer> observer, Handler<Boolean> backpressure) {
+        this.delegate = delegate;
+        this.observer = observer;
+        this.backpressure = backpressure;
+    }
+
+    @Override
+    public ObservingWriteStream exceptionHandler(Handler<Throwable> handler) {
+        delegate.exceptionHandler(handler);
+        return this;
+    }
+
+    @Override
+    public Future<Void> write(Buffer data) {
+        observer.handle(data);
+        return delegate.write(data);
+    }
+
+    @Override
+    public void write(Buffer data, Handler<AsyncResult<Void>> handler) {
+        observer.handle(data);
+        delegate.write(data, handler);
+    }
+
+    @Override
+    public Future<Void> end() {
+        return delegate.end();
+    }
+
+    @Override
+    public void end(Handler<AsyncResult<Void>> handler) {
+        delegate.end(handler);
+    }
+
+    @Override
+    public ObservingWriteStream setWriteQueueMaxSize(int maxSize) {
+        delegate.setWriteQueueMaxSize(maxSize);
+        return this;
+    }
+
+    @Override
+    public boolean writeQueueFull() {
+        boolean full = delegate.writeQueueFull();
+        if (full && backpressure != null) {
+            backpressure.handle(true);
+        }
+        return full;
+    }
+
+    @Override
+    public ObservingWriteStream drainHandler(Handler<Void> handler) {
+        if (handler == null || backpressure == null) {
+            delegate.drainHandler(handler);
+        } else {
+            delegate.drainHandler(v -> {
+                backpressure.handle(false);
+                handler.handle(v);
+            });
+        }
+        return this;
+    }
+}
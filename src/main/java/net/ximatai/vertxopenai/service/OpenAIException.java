@@ -0,0 +1,52 @@
+package net.ximatai.vertxopenai.service;
+
+/**
+ * 上游接口返回了非 2xx 的响应
+ */
+public class OpenAIException extends RuntimeException {
+
+    private final int statusCode;
+    private final String body;
+    private final long retryAfter;
+
+    /**
+     * 创建异常
+     *
+     * @param statusCode HTTP 状态码
+     * @param body       响应体
+     * @param retryAfter 服务端要求的重试等待时间（毫秒），没有时为 -1
+     */
+    public OpenAIException(int statusCode, String body, long retryAfter) {
+        super("HTTP " + statusCode + (body == null || body.isEmpty() ? "" : ": " + body));
+        this.statusCode = statusCode;
+        this.body = body;
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * HTTP 状态码
+     *
+     * @return 状态码
+     */
+    public int statusCode() {
+        return statusCode;
+    }
+
+    /**
+     * 响应体，通常是包含 error 字段的 json
+     *
+     * @return 响应体
+     */
+    public String body() {
+        return body;
+    }
+
+    /**
+     * 服务端通过 Retry-After（或 retry-after-ms）要求的重试等待时间
+     *
+     * @return 等待时间（毫秒），没有时为 -1
+     */
+    public long retryAfter() {
+        return retryAfter;
+    }
+}
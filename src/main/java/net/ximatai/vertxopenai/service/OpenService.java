@@ -1,23 +1,53 @@
 package net.ximatai.vertxopenai.service;
 
+import io.vertx.core.Future;
 import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpVersion;
 import io.vertx.core.json.JsonObject;
-import io.vertx.ext.web.client.WebClient;
-import io.vertx.ext.web.client.WebClientOptions;
+import net.ximatai.vertxopenai.batch.BatchClient;
+import net.ximatai.vertxopenai.batch.BatchOptions;
 import net.ximatai.vertxopenai.session.ChatSession;
+import net.ximatai.vertxopenai.session.SessionRegistry;
+import net.ximatai.vertxopenai.session.SessionRegistryOptions;
+import net.ximatai.vertxopenai.store.SessionStore;
 
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 /**
  * 消息服务
  */
 public class OpenService implements IOpenService {
 
-    private Vertx vertx;
-    private String apiKey;
-    private String baseUrl;
+    private final Vertx vertx;
+    /**
+     * Vertx 是否由本服务创建（关闭服务时需要一并关闭）
+     */
+    private final boolean ownsVertx;
+    private final OpenServiceOptions options;
+    private final List<Target> targets;
+
+    /**
+     * 服务内所有会话共享的 HttpClient（连接池），首次使用时创建
+     */
+    private volatile HttpClient httpClient;
+    private volatile ChatTransport transport;
+    private volatile boolean closed;
+    /**
+     * 创建过的会话注册表，服务关闭时停止它们的定时检查
+     */
+    private final Set<SessionRegistry> registries = ConcurrentHashMap.newKeySet();
 
     /**
      * 创建消息服务
@@ -26,41 +56,235 @@ public class OpenService implements IOpenService {
      * @param baseUrl baseUrl
      */
     public OpenService(String apiKey, String baseUrl) {
-        this.apiKey = apiKey;
-        this.baseUrl = baseUrl;
-        vertx = Vertx.vertx();
+        this(apiKey, baseUrl, new OpenServiceOptions());
     }
 
-    @Override
-    public ChatSession connect(JsonObject config) {
-        String chatPath;
+    /**
+     * 创建消息服务
+     *
+     * @param apiKey  apiKey
+     * @param baseUrl baseUrl
+     * @param options 服务配置
+     */
+    public OpenService(String apiKey, String baseUrl, OpenServiceOptions options) {
+        this(null, apiKey, baseUrl, options);
+    }
 
-        WebClientOptions options = new WebClientOptions();
+    /**
+     * 在调用方提供的 Vertx 上创建消息服务，关闭服务时不会关闭该 Vertx
+     *
+     * @param vertx   vertx，为 null 时由服务自行创建
+     * @param apiKey  apiKey
+     * @param baseUrl baseUrl
+     * @param options 服务配置
+     */
+    public OpenService(Vertx vertx, String apiKey, String baseUrl, OpenServiceOptions options) {
+        this(vertx, List.of(Endpoint.of(baseUrl, apiKey)), options);
+    }
+
+    /**
+     * 创建在多个上游接口之间负载均衡的消息服务，关闭服务时不会关闭调用方提供的 Vertx
+     *
+     * @param vertx     vertx，为 null 时由服务自行创建
+     * @param endpoints 上游接口
+     * @param options   服务配置
+     */
+    public OpenService(Vertx vertx, List<Endpoint> endpoints, OpenServiceOptions options) {
+        this.options = Objects.requireNonNull(options, "Options cannot be null");
+        if (endpoints == null || endpoints.isEmpty()) {
+            throw new IllegalArgumentException("At least one endpoint is required");
+        }
+        this.targets = endpoints.stream().map(OpenService::target).toList();
+
+        this.ownsVertx = vertx == null;
+        this.vertx = ownsVertx ? Vertx.vertx() : vertx;
+    }
+
+    private static Target target(Endpoint endpoint) {
         try {
-            URI uri = new URI(this.baseUrl);
-            boolean isSSL;
-            isSSL = uri.toURL().getProtocol().equals("https");
+            URI uri = new URI(endpoint.baseUrl());
+            boolean ssl = uri.toURL().getProtocol().equals("https");
 
             int port = uri.getPort();
             if (port == -1) {
-                port = isSSL ? 443 : 80;
+                port = ssl ? 443 : 80;
             }
 
-            String host = uri.getHost();
+            return new Target(endpoint, uri.getHost(), port, ssl, uri.getPath());
+
+        } catch (URISyntaxException | MalformedURLException | IllegalArgumentException e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-            options.setSsl(isSSL);
-            options.setDefaultHost(host);
-            options.setDefaultPort(port);
+    @Override
+    public ChatSession connect(JsonObject config) {
+        return connect(UUID.randomUUID().toString(), config);
+    }
 
-            chatPath = uri.getPath();
+    @Override
+    public ChatSession connect(String sessionId, JsonObject config) {
+        if (closed) {
+            throw new IllegalStateException("OpenService is closed");
+        }
+        return new ChatSession(sessionId, config, transport(), options.getMetrics(), options.getSessionStore())
+                .setBudget(options.getBudget());
+    }
 
-        } catch (URISyntaxException | MalformedURLException e) {
-            throw new RuntimeException(e);
+    @Override
+    public SessionRegistry registry(JsonObject config, SessionRegistryOptions registryOptions) {
+        Objects.requireNonNull(config, "Config cannot be null");
+        Function<String, Future<ChatSession>> loader = options.getSessionStore() == null ? null : id -> restore(id)
+                .recover(err -> err instanceof NoSuchElementException ? Future.succeededFuture() : Future.failedFuture(err));
+        SessionRegistry registry = new SessionRegistry(vertx, id -> connect(id, config), loader, registryOptions);
+        registries.add(registry);
+        if (closed) {
+            registry.close();
+            throw new IllegalStateException("OpenService is closed");
         }
+        return registry;
+    }
 
-        WebClient webClient = WebClient.create(vertx, options);
+    @Override
+    public Future<ChatSession> restore(String sessionId) {
+        if (closed) {
+            throw new IllegalStateException("OpenService is closed");
+        }
+        SessionStore store = options.getSessionStore();
+        if (store == null) {
+            return Future.failedFuture(new IllegalStateException("Session store is not configured"));
+        }
+        return store.load(sessionId).compose(stored -> {
+            if (stored == null) {
+                return Future.failedFuture(new NoSuchElementException("Session not found: " + sessionId));
+            }
+            return Future.succeededFuture(ChatSession.restore(stored, transport(), options.getMetrics(), store)
+                    .setBudget(options.getBudget()));
+        });
+    }
 
-        return new ChatSession(apiKey, chatPath, config, webClient);
+    @Override
+    public BatchClient batch(BatchOptions options) {
+        if (closed) {
+            throw new IllegalStateException("OpenService is closed");
+        }
+        ChatTransport current = transport();
+        return new BatchClient(vertx, httpClient, targets.get(0).endpoint(), current, options);
     }
 
+    private ChatTransport transport() {
+        ChatTransport current = transport;
+        if (current == null) {
+            synchronized (this) {
+                if (closed) {
+                    throw new IllegalStateException("OpenService is closed");
+                }
+                current = transport;
+                if (current == null) {
+                    httpClient = vertx.createHttpClient(httpClientOptions());
+                    current = targets.size() == 1 ? endpointTransport(targets.get(0)) : endpointPool();
+                    if (options.getRetry() != null) {
+                        current = new RetryingTransport(current, vertx, options.getRetry(), options.getMetrics());
+                    }
+                    if (options.isCoalescing()) {
+                        current = new CoalescingTransport(current, vertx);
+                    }
+                    if (options.getResponseCache() != null) {
+                        current = new CachingTransport(current, options.getResponseCache());
+                    }
+                    transport = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 单个上游接口的传输层，限流按接口（即按 apiKey）分别计算
+     */
+    private ChatTransport endpointTransport(Target target) {
+        ChatTransport current = new HttpChatTransport(vertx, httpClient, target.endpoint().apiKey(),
+                target.host(), target.port(), target.ssl(), target.chatPath(), options.getMetrics(), maxInFlight());
+        if (options.hasRateLimit()) {
+            current = new RateLimitedTransport(current, vertx, options::getRateLimit, options.getMetrics());
+        }
+        return current;
+    }
+
+    /**
+     * 连接池最多同时进行的请求数，HTTP/2 每个连接可以同时进行多个请求，并发流数由服务端决定时为 -1
+     */
+    private int maxInFlight() {
+        if (!options.isHttp2()) {
+            return options.getMaxPoolSize();
+        }
+        int limit = options.getHttp2MultiplexingLimit();
+        return limit < 0 ? -1 : options.getHttp2MaxPoolSize() * limit;
+    }
+
+    private EndpointPool endpointPool() {
+        List<EndpointPool.Member> members = new ArrayList<>(targets.size());
+        for (Target target : targets) {
+            members.add(new EndpointPool.Member(
+                    target.endpoint().baseUrl(),
+                    target.endpoint().weight(),
+                    endpointTransport(target),
+                    new CircuitBreaker(options.getCircuitBreakerThreshold(), options.getCircuitBreakerOpenTime())
+            ));
+        }
+        return new EndpointPool(members, options.getLoadBalancing());
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            registries.forEach(SessionRegistry::close);
+            registries.clear();
+            if (httpClient != null) {
+                httpClient.close();
+                httpClient = null;
+                transport = null;
+            }
+        }
+        if (ownsVertx) {
+            vertx.close();
+        }
+    }
+
+    private HttpClientOptions httpClientOptions() {
+        Target first = targets.get(0);
+        boolean anySsl = targets.stream().anyMatch(Target::ssl);
+        HttpClientOptions httpClientOptions = new HttpClientOptions();
+        httpClientOptions.setSsl(first.ssl());
+        httpClientOptions.setDefaultHost(first.host());
+        httpClientOptions.setDefaultPort(first.port());
+        httpClientOptions.setMaxPoolSize(options.getMaxPoolSize());
+        httpClientOptions.setKeepAlive(options.isKeepAlive());
+        httpClientOptions.setKeepAliveTimeout(options.getKeepAliveTimeout());
+        httpClientOptions.setHttp2MaxPoolSize(options.getHttp2MaxPoolSize());
+        httpClientOptions.setHttp2MultiplexingLimit(options.getHttp2MultiplexingLimit());
+        httpClientOptions.setHttp2KeepAliveTimeout(options.getKeepAliveTimeout());
+        httpClientOptions.setIdleTimeout(options.getIdleTimeout());
+        httpClientOptions.setIdleTimeoutUnit(options.getIdleTimeoutUnit());
+        httpClientOptions.setConnectTimeout(options.getConnectTimeout());
+
+        if (options.isHttp2()) {
+            httpClientOptions.setProtocolVersion(HttpVersion.HTTP_2);
+            httpClientOptions.setUseAlpn(anySsl);
+            httpClientOptions.setHttp2ClearTextUpgrade(targets.stream().anyMatch(target -> !target.ssl()));
+            httpClientOptions.setAlpnVersions(List.of(HttpVersion.HTTP_2, HttpVersion.HTTP_1_1));
+        }
+
+        return httpClientOptions;
+    }
+
+    /**
+     * 解析后的上游接口地址
+     */
+    private record Target(Endpoint endpoint, String host, int port, boolean ssl, String chatPath) {
+    }
 }
@@ -0,0 +1,516 @@
+package net.ximatai.vertxopenai.service;
+
+import net.ximatai.vertxopenai.session.TokenBudget;
+import net.ximatai.vertxopenai.store.SessionStore;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 消息服务配置，主要用于配置服务内共享的 HTTP 连接池
+ */
+public class OpenServiceOptions {
+
+    /**
+     * 默认 HTTP/1.x 连接池大小
+     */
+    public static final int DEFAULT_MAX_POOL_SIZE = 20;
+    /**
+     * 默认 keep-alive 超时时间（秒）
+     */
+    public static final int DEFAULT_KEEP_ALIVE_TIMEOUT = 60;
+    /**
+     * 默认 HTTP/2 连接池大小
+     */
+    public static final int DEFAULT_HTTP2_MAX_POOL_SIZE = 1;
+    /**
+     * 默认单个 HTTP/2 连接的并发流数量，-1 表示使用服务端的设置
+     */
+    public static final int DEFAULT_HTTP2_MULTIPLEXING_LIMIT = -1;
+    /**
+     * 默认连接超时时间（毫秒）
+     */
+    public static final int DEFAULT_CONNECT_TIMEOUT = 60_000;
+    /**
+     * 默认熔断阈值（连续失败次数）
+     */
+    public static final int DEFAULT_CIRCUIT_BREAKER_THRESHOLD = 5;
+    /**
+     * 默认熔断时间（毫秒）
+     */
+    public static final long DEFAULT_CIRCUIT_BREAKER_OPEN_TIME = 30_000;
+
+    private int maxPoolSize = DEFAULT_MAX_POOL_SIZE;
+    private boolean keepAlive = true;
+    private int keepAliveTimeout = DEFAULT_KEEP_ALIVE_TIMEOUT;
+    private boolean http2 = false;
+    private int http2MaxPoolSize = DEFAULT_HTTP2_MAX_POOL_SIZE;
+    private int http2MultiplexingLimit = DEFAULT_HTTP2_MULTIPLEXING_LIMIT;
+    private int idleTimeout = 0;
+    private TimeUnit idleTimeoutUnit = TimeUnit.SECONDS;
+    private int connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+    private ResponseCache responseCache;
+    private boolean coalescing = false;
+    private RateLimitOptions rateLimit;
+    private RetryOptions retry;
+    private LoadBalancing loadBalancing = LoadBalancing.LEAST_OUTSTANDING;
+    private int circuitBreakerThreshold = DEFAULT_CIRCUIT_BREAKER_THRESHOLD;
+    private long circuitBreakerOpenTime = DEFAULT_CIRCUIT_BREAKER_OPEN_TIME;
+    private ChatMetrics metrics;
+    private TokenBudget budget;
+    private SessionStore sessionStore;
+    private final Map<String, RateLimitOptions> modelRateLimits = new HashMap<>();
+
+    /**
+     * 使用默认值创建配置
+     */
+    public OpenServiceOptions() {
+    }
+
+    /**
+     * 获取 HTTP/1.x 连接池大小
+     *
+     * @return 连接池大小
+     */
+    public int getMaxPoolSize() {
+        return maxPoolSize;
+    }
+
+    /**
+     * 设置 HTTP/1.x 连接池大小，即同一服务最多同时保持的连接数
+     *
+     * @param maxPoolSize 连接池大小
+     * @return this
+     */
+    public OpenServiceOptions setMaxPoolSize(int maxPoolSize) {
+        if (maxPoolSize < 1) {
+            throw new IllegalArgumentException("maxPoolSize must be > 0");
+        }
+        this.maxPoolSize = maxPoolSize;
+        return this;
+    }
+
+    /**
+     * 是否复用连接
+     *
+     * @return 是否复用连接
+     */
+    public boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    /**
+     * 设置是否复用连接
+     *
+     * @param keepAlive 是否复用连接
+     * @return this
+     */
+    public OpenServiceOptions setKeepAlive(boolean keepAlive) {
+        this.keepAlive = keepAlive;
+        return this;
+    }
+
+    /**
+     * 获取 keep-alive 超时时间（秒）
+     *
+     * @return 超时时间
+     */
+    public int getKeepAliveTimeout() {
+        return keepAliveTimeout;
+    }
+
+    /**
+     * 设置 keep-alive 超时时间（秒），空闲超过该时间的连接会被连接池回收，0 表示不回收
+     *
+     * @param keepAliveTimeout 超时时间
+     * @return this
+     */
+    public OpenServiceOptions setKeepAliveTimeout(int keepAliveTimeout) {
+        if (keepAliveTimeout < 0) {
+            throw new IllegalArgumentException("keepAliveTimeout must be >= 0");
+        }
+        this.keepAliveTimeout = keepAliveTimeout;
+        return this;
+    }
+
+    /**
+     * 是否优先使用 HTTP/2
+     *
+     * @return 是否优先使用 HTTP/2
+     */
+    public boolean isHttp2() {
+        return http2;
+    }
+
+    /**
+     * 设置是否优先使用 HTTP/2（https 下通过 ALPN 协商，服务端不支持时回退到 HTTP/1.1）
+     *
+     * @param http2 是否优先使用 HTTP/2
+     * @return this
+     */
+    public OpenServiceOptions setHttp2(boolean http2) {
+        this.http2 = http2;
+        return this;
+    }
+
+    /**
+     * 获取 HTTP/2 连接池大小
+     *
+     * @return 连接池大小
+     */
+    public int getHttp2MaxPoolSize() {
+        return http2MaxPoolSize;
+    }
+
+    /**
+     * 设置 HTTP/2 连接池大小
+     *
+     * @param http2MaxPoolSize 连接池大小
+     * @return this
+     */
+    public OpenServiceOptions setHttp2MaxPoolSize(int http2MaxPoolSize) {
+        if (http2MaxPoolSize < 1) {
+            throw new IllegalArgumentException("http2MaxPoolSize must be > 0");
+        }
+        this.http2MaxPoolSize = http2MaxPoolSize;
+        return this;
+    }
+
+    /**
+     * 获取单个 HTTP/2 连接的并发流数量
+     *
+     * @return 并发流数量
+     */
+    public int getHttp2MultiplexingLimit() {
+        return http2MultiplexingLimit;
+    }
+
+    /**
+     * 设置单个 HTTP/2 连接的并发流数量，-1 表示使用服务端的设置
+     *
+     * @param http2MultiplexingLimit 并发流数量
+     * @return this
+     */
+    public OpenServiceOptions setHttp2MultiplexingLimit(int http2MultiplexingLimit) {
+        if (http2MultiplexingLimit == 0 || http2MultiplexingLimit < -1) {
+            throw new IllegalArgumentException("http2MultiplexingLimit must be > 0 or -1");
+        }
+        this.http2MultiplexingLimit = http2MultiplexingLimit;
+        return this;
+    }
+
+    /**
+     * 获取连接空闲超时时间
+     *
+     * @return 空闲超时时间
+     */
+    public int getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * 设置连接空闲超时时间，连接在该时间内没有收发任何数据会被关闭，0 表示不限制
+     *
+     * @param idleTimeout 空闲超时时间
+     * @return this
+     */
+    public OpenServiceOptions setIdleTimeout(int idleTimeout) {
+        if (idleTimeout < 0) {
+            throw new IllegalArgumentException("idleTimeout must be >= 0");
+        }
+        this.idleTimeout = idleTimeout;
+        return this;
+    }
+
+    /**
+     * 获取连接空闲超时时间单位
+     *
+     * @return 时间单位
+     */
+    public TimeUnit getIdleTimeoutUnit() {
+        return idleTimeoutUnit;
+    }
+
+    /**
+     * 设置连接空闲超时时间单位，默认为秒
+     *
+     * @param idleTimeoutUnit 时间单位
+     * @return this
+     */
+    public OpenServiceOptions setIdleTimeoutUnit(TimeUnit idleTimeoutUnit) {
+        this.idleTimeoutUnit = idleTimeoutUnit;
+        return this;
+    }
+
+    /**
+     * 获取连接超时时间（毫秒）
+     *
+     * @return 连接超时时间
+     */
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    /**
+     * 设置连接超时时间（毫秒）
+     *
+     * @param connectTimeout 连接超时时间
+     * @return this
+     */
+    public OpenServiceOptions setConnectTimeout(int connectTimeout) {
+        if (connectTimeout < 0) {
+            throw new IllegalArgumentException("connectTimeout must be >= 0");
+        }
+        this.connectTimeout = connectTimeout;
+        return this;
+    }
+
+    /**
+     * 获取响应缓存
+     *
+     * @return 响应缓存，未启用时为 null
+     */
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * 设置响应缓存，请求体（模型、配置、消息列表）完全相同的请求直接返回缓存的响应，流式请求会重放缓存的数据块；
+     * 适合 temperature 为 0 的分类、抽取等确定性请求，默认不启用
+     *
+     * @param responseCache 响应缓存，为 null 时不启用
+     * @return this
+     */
+    public OpenServiceOptions setResponseCache(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+        return this;
+    }
+
+    /**
+     * 是否合并并发的相同请求
+     *
+     * @return 是否合并
+     */
+    public boolean isCoalescing() {
+        return coalescing;
+    }
+
+    /**
+     * 设置是否合并并发的相同请求：请求体完全相同的请求同时进行时只发起一次上游请求，所有调用方得到相同的响应，
+     * 流式请求的每个订阅者收到相同的数据块序列；默认不启用
+     *
+     * @param coalescing 是否合并
+     * @return this
+     */
+    public OpenServiceOptions setCoalescing(boolean coalescing) {
+        this.coalescing = coalescing;
+        return this;
+    }
+
+    /**
+     * 获取默认限流配置
+     *
+     * @return 限流配置，未启用时为 null
+     */
+    public RateLimitOptions getRateLimit() {
+        return rateLimit;
+    }
+
+    /**
+     * 设置默认限流配置，每个模型按该配置独立限流；默认不限流
+     *
+     * @param rateLimit 限流配置，为 null 时不限流
+     * @return this
+     */
+    public OpenServiceOptions setRateLimit(RateLimitOptions rateLimit) {
+        this.rateLimit = rateLimit;
+        return this;
+    }
+
+    /**
+     * 获取指定模型的限流配置，没有单独配置时使用默认配置
+     *
+     * @param model 模型名称
+     * @return 限流配置，不限流时为 null
+     */
+    public RateLimitOptions getRateLimit(String model) {
+        return modelRateLimits.getOrDefault(model, rateLimit);
+    }
+
+    /**
+     * 为指定模型单独设置限流配置
+     *
+     * @param model     模型名称
+     * @param rateLimit 限流配置，为 null 时该模型使用默认配置
+     * @return this
+     */
+    public OpenServiceOptions setRateLimit(String model, RateLimitOptions rateLimit) {
+        Objects.requireNonNull(model, "Model cannot be null");
+        if (rateLimit == null) {
+            modelRateLimits.remove(model);
+        } else {
+            modelRateLimits.put(model, rateLimit);
+        }
+        return this;
+    }
+
+    /**
+     * 获取重试配置
+     *
+     * @return 重试配置，未启用时为 null
+     */
+    public RetryOptions getRetry() {
+        return retry;
+    }
+
+    /**
+     * 设置重试与对冲请求配置，默认失败时不重试
+     *
+     * @param retry 重试配置，为 null 时不重试
+     * @return this
+     */
+    public OpenServiceOptions setRetry(RetryOptions retry) {
+        this.retry = retry;
+        return this;
+    }
+
+    /**
+     * 获取多个上游接口之间的负载均衡策略
+     *
+     * @return 负载均衡策略
+     */
+    public LoadBalancing getLoadBalancing() {
+        return loadBalancing;
+    }
+
+    /**
+     * 设置多个上游接口之间的负载均衡策略，默认选择进行中请求最少的接口
+     *
+     * @param loadBalancing 负载均衡策略
+     * @return this
+     */
+    public OpenServiceOptions setLoadBalancing(LoadBalancing loadBalancing) {
+        this.loadBalancing = Objects.requireNonNull(loadBalancing, "Load balancing cannot be null");
+        return this;
+    }
+
+    /**
+     * 获取熔断阈值
+     *
+     * @return 连续失败次数
+     */
+    public int getCircuitBreakerThreshold() {
+        return circuitBreakerThreshold;
+    }
+
+    /**
+     * 设置熔断阈值：某个上游接口连续失败（连接失败、429、5xx 等）达到该次数后暂停分配请求，只在配置了多个上游接口时生效
+     *
+     * @param circuitBreakerThreshold 连续失败次数
+     * @return this
+     */
+    public OpenServiceOptions setCircuitBreakerThreshold(int circuitBreakerThreshold) {
+        if (circuitBreakerThreshold < 1) {
+            throw new IllegalArgumentException("circuitBreakerThreshold must be > 0");
+        }
+        this.circuitBreakerThreshold = circuitBreakerThreshold;
+        return this;
+    }
+
+    /**
+     * 获取熔断时间（毫秒）
+     *
+     * @return 熔断时间
+     */
+    public long getCircuitBreakerOpenTime() {
+        return circuitBreakerOpenTime;
+    }
+
+    /**
+     * 设置熔断时间（毫秒），熔断的接口在该时间后放行一个试探请求，成功后恢复
+     *
+     * @param circuitBreakerOpenTime 熔断时间
+     * @return this
+     */
+    public OpenServiceOptions setCircuitBreakerOpenTime(long circuitBreakerOpenTime) {
+        if (circuitBreakerOpenTime < 1) {
+            throw new IllegalArgumentException("circuitBreakerOpenTime must be > 0");
+        }
+        this.circuitBreakerOpenTime = circuitBreakerOpenTime;
+        return this;
+    }
+
+    /**
+     * 获取指标采集
+     *
+     * @return 指标采集，未启用时为 null
+     */
+    public ChatMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * 设置指标采集，记录请求耗时、首 token 耗时、数据块间隔、输出速度、收发字节数、重试次数、排队时间和连接池使用情况，
+     * 按模型和上游接口区分；默认不采集，不采集时没有额外开销
+     *
+     * @param metrics 指标采集，为 null 时不采集
+     * @return this
+     */
+    public OpenServiceOptions setMetrics(ChatMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    /**
+     * 获取服务的 token 预算
+     *
+     * @return 预算，未启用时为 null
+     */
+    public TokenBudget getBudget() {
+        return budget;
+    }
+
+    /**
+     * 设置服务（即同一 apiKey）内所有会话共享的 token 预算，用完后新的请求在发出前失败；
+     * 预算会作为每个会话的默认预算，见 {@link TokenBudget}
+     *
+     * @param budget 预算，为 null 时不限制
+     * @return this
+     */
+    public OpenServiceOptions setBudget(TokenBudget budget) {
+        this.budget = budget;
+        return this;
+    }
+
+    /**
+     * 获取会话存储
+     *
+     * @return 会话存储，未启用时为 null
+     */
+    public SessionStore getSessionStore() {
+        return sessionStore;
+    }
+
+    /**
+     * 设置会话存储，服务创建的会话会把状态和历史写入存储，之后可以通过 {@link IOpenService#restore(String)} 按 id 恢复；
+     * 内置实现见 {@link net.ximatai.vertxopenai.store.FileSessionStore}
+     *
+     * @param sessionStore 会话存储，为 null 时不保存
+     * @return this
+     */
+    public OpenServiceOptions setSessionStore(SessionStore sessionStore) {
+        this.sessionStore = sessionStore;
+        return this;
+    }
+
+    /**
+     * 是否配置了限流
+     *
+     * @return 是否配置了限流
+     */
+    boolean hasRateLimit() {
+        return rateLimit != null || !modelRateLimits.isEmpty();
+    }
+}
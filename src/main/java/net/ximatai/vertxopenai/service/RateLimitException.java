@@ -0,0 +1,16 @@
+package net.ximatai.vertxopenai.service;
+
+/**
+ * 请求被客户端限流拒绝：排队已满或排队超时
+ */
+public class RateLimitException extends RuntimeException {
+
+    /**
+     * 创建限流异常
+     *
+     * @param message 原因
+     */
+    public RateLimitException(String message) {
+        super(message, null, false, false);
+    }
+}
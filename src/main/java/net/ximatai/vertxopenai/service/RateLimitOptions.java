@@ -0,0 +1,143 @@
+package net.ximatai.vertxopenai.service;
+
+/**
+ * 客户端限流配置，0 表示对应的维度不限制
+ */
+public class RateLimitOptions {
+
+    /**
+     * 默认排队上限
+     */
+    public static final int DEFAULT_MAX_QUEUE_SIZE = 1000;
+    /**
+     * 默认最长排队时间（毫秒）
+     */
+    public static final long DEFAULT_MAX_WAIT_TIME = 60_000;
+
+    private int requestsPerMinute = 0;
+    private int tokensPerMinute = 0;
+    private int maxInFlight = 0;
+    private int maxQueueSize = DEFAULT_MAX_QUEUE_SIZE;
+    private long maxWaitTime = DEFAULT_MAX_WAIT_TIME;
+
+    /**
+     * 使用默认值创建配置（不限流）
+     */
+    public RateLimitOptions() {
+    }
+
+    /**
+     * 获取每分钟请求数上限
+     *
+     * @return 每分钟请求数
+     */
+    public int getRequestsPerMinute() {
+        return requestsPerMinute;
+    }
+
+    /**
+     * 设置每分钟请求数上限
+     *
+     * @param requestsPerMinute 每分钟请求数，0 表示不限制
+     * @return this
+     */
+    public RateLimitOptions setRequestsPerMinute(int requestsPerMinute) {
+        if (requestsPerMinute < 0) {
+            throw new IllegalArgumentException("requestsPerMinute must be >= 0");
+        }
+        this.requestsPerMinute = requestsPerMinute;
+        return this;
+    }
+
+    /**
+     * 获取每分钟 token 数上限
+     *
+     * @return 每分钟 token 数
+     */
+    public int getTokensPerMinute() {
+        return tokensPerMinute;
+    }
+
+    /**
+     * 设置每分钟 token 数上限，按请求的估算 token 数（消息加上 max_tokens）计算
+     *
+     * @param tokensPerMinute 每分钟 token 数，0 表示不限制
+     * @return this
+     */
+    public RateLimitOptions setTokensPerMinute(int tokensPerMinute) {
+        if (tokensPerMinute < 0) {
+            throw new IllegalArgumentException("tokensPerMinute must be >= 0");
+        }
+        this.tokensPerMinute = tokensPerMinute;
+        return this;
+    }
+
+    /**
+     * 获取同时进行的请求数上限
+     *
+     * @return 并发请求数
+     */
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * 设置同时进行的请求数上限，流式请求在响应结束前都算进行中
+     *
+     * @param maxInFlight 并发请求数，0 表示不限制
+     * @return this
+     */
+    public RateLimitOptions setMaxInFlight(int maxInFlight) {
+        if (maxInFlight < 0) {
+            throw new IllegalArgumentException("maxInFlight must be >= 0");
+        }
+        this.maxInFlight = maxInFlight;
+        return this;
+    }
+
+    /**
+     * 获取排队上限
+     *
+     * @return 排队上限
+     */
+    public int getMaxQueueSize() {
+        return maxQueueSize;
+    }
+
+    /**
+     * 设置排队上限，超出限额的请求按到达顺序排队，队列已满时立即失败
+     *
+     * @param maxQueueSize 排队上限，0 表示不排队
+     * @return this
+     */
+    public RateLimitOptions setMaxQueueSize(int maxQueueSize) {
+        if (maxQueueSize < 0) {
+            throw new IllegalArgumentException("maxQueueSize must be >= 0");
+        }
+        this.maxQueueSize = maxQueueSize;
+        return this;
+    }
+
+    /**
+     * 获取最长排队时间（毫秒）
+     *
+     * @return 最长排队时间
+     */
+    public long getMaxWaitTime() {
+        return maxWaitTime;
+    }
+
+    /**
+     * 设置最长排队时间（毫秒），超时的请求以 {@link RateLimitException} 失败
+     *
+     * @param maxWaitTime 最长排队时间
+     * @return this
+     */
+    public RateLimitOptions setMaxWaitTime(long maxWaitTime) {
+        if (maxWaitTime <= 0) {
+            throw new IllegalArgumentException("maxWaitTime must be > 0");
+        }
+        this.maxWaitTime = maxWaitTime;
+        return this;
+    }
+}
@@ -0,0 +1,83 @@
+package net.ximatai.vertxopenai.service;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.WriteStream;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * 按模型限流的传输层，每个模型使用独立的 {@link RateLimiter}，没有配置限流的模型直接放行
+ */
+class RateLimitedTransport implements ChatTransport {
+
+    private final ChatTransport delegate;
+    private final Vertx vertx;
+    private final Function<String, RateLimitOptions> options;
+    private final ChatMetrics metrics;
+    private final ConcurrentMap<String, RateLimiter> limiters = new ConcurrentHashMap<>();
+
+    RateLimitedTransport(ChatTransport delegate, Vertx vertx, Function<String, RateLimitOptions> options, ChatMetrics metrics) {
+        this.delegate = delegate;
+        this.vertx = vertx;
+        this.options = options;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Future<Buffer> send(ChatCall call) {
+        RateLimiter limiter = limiter(call.model());
+        if (limiter == null) {
+            return delegate.send(call);
+        }
+        return acquire(limiter, call)
+                .compose(v -> {
+                    if (call.isCancelled()) {
+                        limiter.release();
+                        return Future.failedFuture(call.cancelReason());
+                    }
+                    return delegate.send(call).onComplete(ar -> limiter.release());
+                });
+    }
+
+    @Override
+    public Future<Void> stream(ChatCall call, WriteStream<Buffer> sink) {
+        RateLimiter limiter = limiter(call.model());
+        if (limiter == null) {
+            return delegate.stream(call, sink);
+        }
+        return acquire(limiter, call)
+                .compose(v -> {
+                    if (call.isCancelled()) {
+                        limiter.release();
+                        return Future.failedFuture(call.cancelReason());
+                    }
+                    return delegate.stream(call, sink).onComplete(ar -> limiter.release());
+                });
+    }
+
+    private Future<Void> acquire(RateLimiter limiter, ChatCall call) {
+        if (metrics == null) {
+            return limiter.acquire(call);
+        }
+        long start = System.nanoTime();
+        return limiter.acquire(call)
+                .onSuccess(v -> metrics.queueWait(call.model(), System.nanoTime() - start));
+    }
+
+    private RateLimiter limiter(String model) {
+        String key = model == null ? "" : model;
+        RateLimiter limiter = limiters.get(key);
+        if (limiter == null) {
+            RateLimitOptions limit = options.apply(model);
+            if (limit == null) {
+                return null;
+            }
+            limiter = limiters.computeIfAbsent(key, k -> new RateLimiter(vertx, limit));
+        }
+        return limiter;
+    }
+}
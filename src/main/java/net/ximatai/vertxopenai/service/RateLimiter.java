@@ -0,0 +1,252 @@
+package net.ximatai.vertxopenai.service;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 非阻塞限流器：每分钟请求数、每分钟 token 数按令牌桶计算，并限制同时进行的请求数
+ * <p>
+ * 超出限额的请求按到达顺序排队，不占用线程；令牌不足时用一个 vertx 定时器在令牌补足或排队超时时再检查，
+ * 队列已满时立即失败。
+ */
+class RateLimiter {
+
+    private static final double NANOS_PER_MINUTE = 60_000_000_000d;
+
+    private final Vertx vertx;
+    private final int requestsPerMinute;
+    private final int tokensPerMinute;
+    private final int maxInFlight;
+    private final int maxQueueSize;
+    private final long maxWaitNanos;
+
+    private final ArrayDeque<Waiter> queue = new ArrayDeque<>();
+    private double requests;
+    private double tokens;
+    private long lastRefill;
+    private int inFlight;
+    private long timerId = -1;
+    private long timerAt;
+
+    RateLimiter(Vertx vertx, RateLimitOptions options) {
+        this.vertx = vertx;
+        this.requestsPerMinute = options.getRequestsPerMinute();
+        this.tokensPerMinute = options.getTokensPerMinute();
+        this.maxInFlight = options.getMaxInFlight();
+        this.maxQueueSize = options.getMaxQueueSize();
+        this.maxWaitNanos = options.getMaxWaitTime() * 1_000_000;
+        this.requests = requestsPerMinute;
+        this.tokens = tokensPerMinute;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * 申请一次请求的配额，请求结束后必须调用 {@link #release()}
+     *
+     * @param cost    请求的估算 token 数
+     * @param maxWait 本次请求最多排队多久（毫秒），和配置的最长排队时间取较小值
+     * @return 获得配额时完成，排队已满或超时时以 {@link RateLimitException} 失败
+     */
+    Future<Void> acquire(int cost, long maxWait) {
+        return acquire(cost, maxWait, null);
+    }
+
+    /**
+     * 为一次上游调用申请配额，请求结束后必须调用 {@link #release()}。排队期间调用被取消时立即出队并以取消原因失败，
+     * 排队到调用的总超时到期时以 {@link TimeoutException} 失败
+     *
+     * @param call 上游调用
+     * @return 获得配额时完成
+     */
+    Future<Void> acquire(ChatCall call) {
+        return acquire(call.tokens(), call.remainingTime(), call);
+    }
+
+    private Future<Void> acquire(int cost, long maxWait, ChatCall call) {
+        Waiter waiter;
+        synchronized (this) {
+            long now = System.nanoTime();
+            refill(now);
+            int tokenCost = tokensPerMinute > 0 ? Math.min(Math.max(cost, 0), tokensPerMinute) : 0;
+            if (queue.isEmpty() && available(tokenCost)) {
+                take(tokenCost);
+                return Future.succeededFuture();
+            }
+            if (queue.size() >= maxQueueSize) {
+                return Future.failedFuture(new RateLimitException("Rate limit queue is full"));
+            }
+            long waitNanos = Math.min(maxWaitNanos, TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxWait)));
+            waiter = new Waiter(Promise.promise(), tokenCost, now + waitNanos, call);
+            queue.add(waiter);
+            schedule(now);
+        }
+        if (call != null) {
+            Waiter queued = waiter;
+            call.onCancel(reason -> cancel(queued, reason));
+        }
+        return waiter.promise().future();
+    }
+
+    /**
+     * 排队中的调用被取消：出队，不再占用队列位置
+     */
+    private void cancel(Waiter waiter, Throwable reason) {
+        synchronized (this) {
+            if (!queue.remove(waiter)) {
+                return;
+            }
+            schedule(System.nanoTime());
+        }
+        waiter.promise().tryFail(reason);
+        // 队首被移除后后面的请求可能已经可以放行
+        drain();
+    }
+
+    /**
+     * 归还并发配额
+     */
+    void release() {
+        synchronized (this) {
+            inFlight--;
+        }
+        drain();
+    }
+
+    /**
+     * 排队中的请求数
+     *
+     * @return 请求数
+     */
+    synchronized int queued() {
+        return queue.size();
+    }
+
+    /**
+     * 进行中的请求数
+     *
+     * @return 请求数
+     */
+    synchronized int inFlight() {
+        return inFlight;
+    }
+
+    private void drain() {
+        List<Waiter> ready = new ArrayList<>();
+        List<Waiter> expired = new ArrayList<>();
+        synchronized (this) {
+            long now = System.nanoTime();
+            refill(now);
+            for (Iterator<Waiter> it = queue.iterator(); it.hasNext(); ) {
+                Waiter waiter = it.next();
+                if (now - waiter.deadline() >= 0) {
+                    it.remove();
+                    expired.add(waiter);
+                }
+            }
+            while (!queue.isEmpty() && available(queue.peek().tokens())) {
+                Waiter waiter = queue.poll();
+                take(waiter.tokens());
+                ready.add(waiter);
+            }
+            schedule(now);
+        }
+
+        for (Waiter waiter : expired) {
+            ChatCall call = waiter.call();
+            if (call != null && call.remainingTime() == 0) {
+                // 等到的是调用的总超时，与其他阶段的总超时一样取消整个调用
+                call.root().cancel(new TimeoutException("Request timed out"));
+                waiter.promise().tryFail(call.cancelReason());
+            } else {
+                waiter.promise().tryFail(new RateLimitException("Timed out waiting for rate limit"));
+            }
+        }
+        for (Waiter waiter : ready) {
+            waiter.promise().tryComplete();
+        }
+    }
+
+    private void refill(long now) {
+        double minutes = (now - lastRefill) / NANOS_PER_MINUTE;
+        lastRefill = now;
+        if (requestsPerMinute > 0) {
+            requests = Math.min(requestsPerMinute, requests + minutes * requestsPerMinute);
+        }
+        if (tokensPerMinute > 0) {
+            tokens = Math.min(tokensPerMinute, tokens + minutes * tokensPerMinute);
+        }
+    }
+
+    private boolean available(int tokenCost) {
+        return (requestsPerMinute == 0 || requests >= 1)
+                && (tokensPerMinute == 0 || tokens >= tokenCost)
+                && (maxInFlight == 0 || inFlight < maxInFlight);
+    }
+
+    private void take(int tokenCost) {
+        if (requestsPerMinute > 0) {
+            requests -= 1;
+        }
+        if (tokensPerMinute > 0) {
+            tokens -= tokenCost;
+        }
+        inFlight++;
+    }
+
+    /**
+     * 在最近的排队超时或队首令牌补足时再检查一次；只因并发数排队时由 release 触发
+     */
+    private void schedule(long now) {
+        if (queue.isEmpty()) {
+            if (timerId != -1) {
+                vertx.cancelTimer(timerId);
+                timerId = -1;
+            }
+            return;
+        }
+
+        long next = Long.MAX_VALUE;
+        for (Waiter waiter : queue) {
+            next = Math.min(next, waiter.deadline());
+        }
+        long refillWait = 0;
+        if (requestsPerMinute > 0 && requests < 1) {
+            refillWait = Math.max(refillWait, (long) ((1 - requests) * NANOS_PER_MINUTE / requestsPerMinute));
+        }
+        Waiter head = queue.peek();
+        if (tokensPerMinute > 0 && tokens < head.tokens()) {
+            refillWait = Math.max(refillWait, (long) ((head.tokens() - tokens) * NANOS_PER_MINUTE / tokensPerMinute));
+        }
+        if (refillWait > 0) {
+            next = Math.min(next, now + refillWait);
+        }
+
+        if (timerId != -1) {
+            if (timerAt - next <= 0) {
+                return;
+            }
+            vertx.cancelTimer(timerId);
+        }
+        long delay = Math.max(1, (next - now + 999_999) / 1_000_000);
+        timerAt = next;
+        timerId = vertx.setTimer(delay, id -> {
+            synchronized (this) {
+                if (timerId == id) {
+                    timerId = -1;
+                }
+            }
+            drain();
+        });
+    }
+
+    private record Waiter(Promise<Void> promise, int tokens, long deadline, ChatCall call) {
+    }
+}
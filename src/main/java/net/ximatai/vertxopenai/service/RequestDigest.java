@@ -0,0 +1,34 @@
+package net.ximatai.vertxopenai.service;
+
+import io.netty.buffer.ByteBuf;
+import io.vertx.core.buffer.Buffer;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * 请求体摘要，请求体已包含模型、配置和完整的消息列表，摘要相同即视为同一请求
+ */
+final class RequestDigest {
+
+    private RequestDigest() {
+    }
+
+    static String sha256(Buffer body) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        ByteBuf byteBuf = body.getByteBuf();
+        if (byteBuf != null && byteBuf.hasArray()) {
+            digest.update(byteBuf.array(), byteBuf.arrayOffset() + byteBuf.readerIndex(), byteBuf.readableBytes());
+        } else {
+            digest.update(body.getBytes());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
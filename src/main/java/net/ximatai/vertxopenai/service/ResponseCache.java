@@ -0,0 +1,29 @@
+package net.ximatai.vertxopenai.service;
+
+import io.vertx.core.Future;
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * 响应缓存，以请求体的摘要为键保存上游的原始响应（流式请求保存原始 SSE 数据）
+ * <p>
+ * 接口是异步的，可以实现为 Redis 等外部存储；内置实现见 {@link InMemoryResponseCache}。
+ */
+public interface ResponseCache {
+
+    /**
+     * 读取缓存
+     *
+     * @param key 请求摘要
+     * @return 缓存的响应，未命中时为 null（异步）
+     */
+    Future<Buffer> get(String key);
+
+    /**
+     * 写入缓存
+     *
+     * @param key   请求摘要
+     * @param value 响应
+     * @return 写入完成（异步）
+     */
+    Future<Void> put(String key, Buffer value);
+}
@@ -0,0 +1,180 @@
+package net.ximatai.vertxopenai.service;
+
+/**
+ * 重试与对冲请求配置
+ * <p>
+ * 429、5xx 以及连接失败会按指数退避（带随机抖动）重试，服务端返回 Retry-After 时按其等待；
+ * 流式请求只在还没有收到任何数据之前重试。
+ */
+public class RetryOptions {
+
+    /**
+     * 默认最大重试次数
+     */
+    public static final int DEFAULT_MAX_RETRIES = 2;
+    /**
+     * 默认首次重试的退避时间（毫秒）
+     */
+    public static final long DEFAULT_INITIAL_BACKOFF = 500;
+    /**
+     * 默认最长退避时间（毫秒）
+     */
+    public static final long DEFAULT_MAX_BACKOFF = 30_000;
+    /**
+     * 默认最长接受的 Retry-After（毫秒）
+     */
+    public static final long DEFAULT_MAX_RETRY_AFTER = 60_000;
+    /**
+     * 默认对冲延迟（毫秒）
+     */
+    public static final long DEFAULT_HEDGE_DELAY = 2_000;
+
+    private int maxRetries = DEFAULT_MAX_RETRIES;
+    private long initialBackoff = DEFAULT_INITIAL_BACKOFF;
+    private long maxBackoff = DEFAULT_MAX_BACKOFF;
+    private long maxRetryAfter = DEFAULT_MAX_RETRY_AFTER;
+    private boolean hedging = false;
+    private long hedgeDelay = DEFAULT_HEDGE_DELAY;
+
+    /**
+     * 使用默认值创建配置
+     */
+    public RetryOptions() {
+    }
+
+    /**
+     * 获取最大重试次数
+     *
+     * @return 最大重试次数
+     */
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * 设置最大重试次数（不含第一次请求）
+     *
+     * @param maxRetries 最大重试次数
+     * @return this
+     */
+    public RetryOptions setMaxRetries(int maxRetries) {
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("maxRetries must be >= 0");
+        }
+        this.maxRetries = maxRetries;
+        return this;
+    }
+
+    /**
+     * 获取首次重试的退避时间（毫秒）
+     *
+     * @return 退避时间
+     */
+    public long getInitialBackoff() {
+        return initialBackoff;
+    }
+
+    /**
+     * 设置首次重试的退避时间（毫秒），之后每次翻倍
+     *
+     * @param initialBackoff 退避时间
+     * @return this
+     */
+    public RetryOptions setInitialBackoff(long initialBackoff) {
+        if (initialBackoff < 1) {
+            throw new IllegalArgumentException("initialBackoff must be > 0");
+        }
+        this.initialBackoff = initialBackoff;
+        return this;
+    }
+
+    /**
+     * 获取最长退避时间（毫秒）
+     *
+     * @return 退避时间
+     */
+    public long getMaxBackoff() {
+        return maxBackoff;
+    }
+
+    /**
+     * 设置最长退避时间（毫秒）
+     *
+     * @param maxBackoff 退避时间
+     * @return this
+     */
+    public RetryOptions setMaxBackoff(long maxBackoff) {
+        if (maxBackoff < 1) {
+            throw new IllegalArgumentException("maxBackoff must be > 0");
+        }
+        this.maxBackoff = maxBackoff;
+        return this;
+    }
+
+    /**
+     * 获取最长接受的 Retry-After（毫秒）
+     *
+     * @return Retry-After 上限
+     */
+    public long getMaxRetryAfter() {
+        return maxRetryAfter;
+    }
+
+    /**
+     * 设置最长接受的 Retry-After（毫秒），服务端要求等待更久时不再重试
+     *
+     * @param maxRetryAfter Retry-After 上限
+     * @return this
+     */
+    public RetryOptions setMaxRetryAfter(long maxRetryAfter) {
+        if (maxRetryAfter < 0) {
+            throw new IllegalArgumentException("maxRetryAfter must be >= 0");
+        }
+        this.maxRetryAfter = maxRetryAfter;
+        return this;
+    }
+
+    /**
+     * 是否启用对冲请求
+     *
+     * @return 是否启用
+     */
+    public boolean isHedging() {
+        return hedging;
+    }
+
+    /**
+     * 设置是否启用对冲请求：第一个请求在最近请求首字节耗时的 p95 内还没有收到数据时，再发出一个相同的请求，
+     * 采用先返回数据的一个；会增加上游的请求量，默认不启用
+     *
+     * @param hedging 是否启用
+     * @return this
+     */
+    public RetryOptions setHedging(boolean hedging) {
+        this.hedging = hedging;
+        return this;
+    }
+
+    /**
+     * 获取对冲延迟（毫秒）
+     *
+     * @return 对冲延迟
+     */
+    public long getHedgeDelay() {
+        return hedgeDelay;
+    }
+
+    /**
+     * 设置对冲延迟（毫秒），在积累足够的耗时样本之前使用，同时也是 p95 的下限
+     *
+     * @param hedgeDelay 对冲延迟
+     * @return this
+     */
+    public RetryOptions setHedgeDelay(long hedgeDelay) {
+        if (hedgeDelay < 1) {
+            throw new IllegalArgumentException("hedgeDelay must be > 0");
+        }
+        this.hedgeDelay = hedgeDelay;
+        return this;
+    }
+}
@@ -0,0 +1,231 @@
+package net.ximatai.vertxopenai.service;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClosedException;
+import io.vertx.core.streams.WriteStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.ConnectException;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 带重试和对冲请求的传输层，配置见 {@link RetryOptions}
+ */
+class RetryingTransport implements ChatTransport {
+
+    /**
+     * 积累到这么多耗时样本后才用 p95 作为对冲延迟
+     */
+    private static final int MIN_HEDGE_SAMPLES = 20;
+
+    private final Logger logger = LoggerFactory.getLogger(RetryingTransport.class);
+
+    private final ChatTransport delegate;
+    private final Vertx vertx;
+    private final RetryOptions options;
+    private final ChatMetrics metrics;
+    /**
+     * 非流式请求的完整响应耗时
+     */
+    private final LatencyTracker responseLatency = new LatencyTracker(256);
+    /**
+     * 流式请求的首字节耗时
+     */
+    private final LatencyTracker firstByteLatency = new LatencyTracker(256);
+
+    RetryingTransport(ChatTransport delegate, Vertx vertx, RetryOptions options) {
+        this(delegate, vertx, options, null);
+    }
+
+    RetryingTransport(ChatTransport delegate, Vertx vertx, RetryOptions options, ChatMetrics metrics) {
+        this.delegate = delegate;
+        this.vertx = vertx;
+        this.options = options;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Future<Buffer> send(ChatCall call) {
+        return withRetry(call, () -> hedgedSend(call), () -> true, 0);
+    }
+
+    @Override
+    public Future<Void> stream(ChatCall call, WriteStream<Buffer> sink) {
+        StreamRace race = new StreamRace(sink, firstByteLatency::record);
+        // 已经有数据交给 sink 之后不能再重试
+        return withRetry(call, () -> hedgedStream(call, race), () -> !race.started(), 0);
+    }
+
+    private <T> Future<T> withRetry(ChatCall call, Supplier<Future<T>> attempt, Supplier<Boolean> canRetry, int retries) {
+        return attempt.get().recover(err -> {
+            // 已取消（包括总超时）的调用不再重试
+            long delay = retries < options.getMaxRetries() && canRetry.get() && !call.isCancelled() ? retryDelay(err, retries) : -1;
+            if (delay < 0) {
+                return Future.failedFuture(err);
+            }
+            if (delay >= call.remainingTime()) {
+                // 等不到重试时机就会到达总超时，与其他阶段的总超时一样取消整个调用
+                TimeoutException timeout = new TimeoutException("Request timed out");
+                timeout.initCause(err);
+                call.root().cancel(timeout);
+                return Future.failedFuture(call.cancelReason());
+            }
+            logger.warn("Retrying chat request in {} ms ({}/{}): {}", delay, retries + 1, options.getMaxRetries(), err.getMessage());
+            if (metrics != null) {
+                metrics.retry(call.model(), err);
+            }
+            // 等待期间取消时立即失败，不等定时器到期
+            Promise<Void> timer = Promise.promise();
+            long timerId = vertx.setTimer(Math.max(1, delay), id -> timer.tryComplete());
+            call.onCancel(reason -> {
+                if (timer.tryFail(reason)) {
+                    vertx.cancelTimer(timerId);
+                }
+            });
+            return timer.future().compose(v -> call.isCancelled()
+                    ? Future.failedFuture(call.cancelReason())
+                    : withRetry(call, attempt, canRetry, retries + 1));
+        });
+    }
+
+    /**
+     * 重试前的等待时间，不可重试时返回 -1
+     */
+    long retryDelay(Throwable err, int retries) {
+        if (!isTransient(err)) {
+            return -1;
+        }
+        if (err instanceof OpenAIException e && e.retryAfter() >= 0) {
+            return e.retryAfter() <= options.getMaxRetryAfter() ? e.retryAfter() : -1;
+        }
+
+        // 指数退避，取 [backoff/2, backoff] 之间的随机值，避免大量客户端同时重试
+        long backoff = Math.min(options.getMaxBackoff(), options.getInitialBackoff() << Math.min(retries, 30));
+        return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+    }
+
+    /**
+     * 是否是可以重试、说明上游暂时不可用的错误：408、409、429、5xx、连接失败以及首字节或数据间隔超时
+     */
+    static boolean isTransient(Throwable err) {
+        if (err instanceof OpenAIException e) {
+            int status = e.statusCode();
+            return status == 408 || status == 409 || status == 429 || status >= 500;
+        }
+        return err instanceof ConnectException
+                || err instanceof UnknownHostException
+                || err instanceof HttpClosedException
+                || err instanceof TimeoutException;
+    }
+
+    /**
+     * 对冲延迟：样本足够时取同类请求最近耗时的 p95（非流式为完整响应耗时，流式为首字节耗时），且不低于配置的对冲延迟
+     */
+    long hedgeDelay(boolean stream) {
+        LatencyTracker latency = stream ? firstByteLatency : responseLatency;
+        long delay = options.getHedgeDelay();
+        if (latency.count() >= MIN_HEDGE_SAMPLES) {
+            delay = Math.max(delay, TimeUnit.NANOSECONDS.toMillis(latency.quantile(0.95)));
+        }
+        return delay;
+    }
+
+    private Future<Buffer> hedgedSend(ChatCall call) {
+        long start = System.nanoTime();
+        if (!options.isHedging()) {
+            return delegate.send(call).onSuccess(response -> responseLatency.record(System.nanoTime() - start));
+        }
+
+        // 每次尝试单独取消，一次成功后取消其余的尝试，释放连接
+        Promise<Buffer> promise = Promise.promise();
+        AtomicInteger pending = new AtomicInteger(1);
+        List<ChatCall> attempts = new CopyOnWriteArrayList<>();
+        Handler<AsyncResult<Buffer>> onResult = ar -> {
+            if (ar.succeeded()) {
+                if (promise.tryComplete(ar.result())) {
+                    responseLatency.record(System.nanoTime() - start);
+                }
+            } else if (pending.decrementAndGet() == 0) {
+                promise.tryFail(ar.cause());
+            }
+        };
+
+        sendAttempt(call, attempts, onResult);
+        long timerId = vertx.setTimer(hedgeDelay(false), id -> {
+            if (!promise.future().isComplete() && !call.isCancelled() && pending.incrementAndGet() > 1) {
+                logger.debug("Sending hedged chat request");
+                sendAttempt(call, attempts, onResult);
+            }
+        });
+        return promise.future().onComplete(ar -> {
+            vertx.cancelTimer(timerId);
+            for (ChatCall attempt : attempts) {
+                attempt.cancel(new CancellationException("Another attempt won the race"));
+            }
+        });
+    }
+
+    private void sendAttempt(ChatCall call, List<ChatCall> attempts, Handler<AsyncResult<Buffer>> onResult) {
+        ChatCall attempt = call.fork();
+        attempts.add(attempt);
+        delegate.send(attempt).onComplete(onResult);
+    }
+
+    private Future<Void> hedgedStream(ChatCall call, StreamRace race) {
+        if (!options.isHedging()) {
+            return delegate.stream(call, race.lane());
+        }
+
+        // 每个 lane 单独取消：一个 lane 获胜时其余的 lane 立即取消，不再读取响应
+        Promise<Void> promise = Promise.promise();
+        AtomicInteger pending = new AtomicInteger(1);
+        List<ChatCall> attempts = new CopyOnWriteArrayList<>();
+        startLane(call, race, promise, pending, attempts);
+        long timerId = vertx.setTimer(hedgeDelay(true), id -> {
+            if (!race.started() && !promise.future().isComplete() && !call.isCancelled() && pending.incrementAndGet() > 1) {
+                logger.debug("Sending hedged chat stream");
+                startLane(call, race, promise, pending, attempts);
+            }
+        });
+        return promise.future().onComplete(ar -> {
+            vertx.cancelTimer(timerId);
+            if (ar.failed()) {
+                for (ChatCall attempt : attempts) {
+                    attempt.cancel(ar.cause());
+                }
+            }
+        });
+    }
+
+    private void startLane(ChatCall call, StreamRace race, Promise<Void> promise, AtomicInteger pending, List<ChatCall> attempts) {
+        ChatCall attempt = call.fork();
+        attempts.add(attempt);
+        StreamRace.Lane lane = race.lane(attempt);
+        delegate.stream(attempt, lane).onComplete(ar -> {
+            StreamRace.Lane winner = race.winner();
+            if (winner == lane) {
+                if (ar.succeeded()) {
+                    promise.tryComplete();
+                } else {
+                    promise.tryFail(ar.cause());
+                }
+            } else if (pending.decrementAndGet() == 0 && winner == null) {
+                promise.tryFail(ar.failed() ? ar.cause() : new IllegalStateException("Stream ended without data"));
+            }
+        });
+    }
+}
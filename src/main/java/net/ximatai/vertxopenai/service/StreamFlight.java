@@ -0,0 +1,199 @@
+package net.ximatai.vertxopenai.service;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.WriteStream;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 一次上游流式响应，把收到的数据块依次写给所有订阅者
+ * <p>
+ * 上游请求使用单独的共享调用，不属于任何一个订阅者：订阅者取消或超时只让自己退出，最后一个订阅者退出时才取消上游请求。
+ * 数据块和结果在每个订阅者自己的 context 上交付。
+ * <p>
+ * 任一订阅者写队列满时上游暂停，全部订阅者都可写时恢复；已收到的数据会保留到请求结束，用于补发给中途加入的订阅者。
+ */
+class StreamFlight implements WriteStream<Buffer> {
+
+    private final ChatCall call;
+    private final List<Subscriber> subscribers = new ArrayList<>();
+    private final Buffer received = Buffer.buffer();
+    private Handler<Void> drainHandler;
+    private boolean ended;
+    private boolean completed;
+
+    /**
+     * @param call 共享的上游调用
+     */
+    StreamFlight(ChatCall call) {
+        this.call = call;
+    }
+
+    ChatCall call() {
+        return call;
+    }
+
+    /**
+     * 加入订阅
+     *
+     * @param sink 订阅者
+     * @return 这个订阅者的结果，请求已完成或已取消、无法加入时返回 null
+     */
+    synchronized Future<Void> join(WriteStream<Buffer> sink) {
+        if (completed || call.isCancelled()) {
+            return null;
+        }
+        Subscriber subscriber = new Subscriber(sink, Vertx.currentContext(), Promise.promise());
+        if (received.length() > 0) {
+            sink.write(received.copy());
+        }
+        if (ended) {
+            sink.end();
+        } else {
+            sink.drainHandler(v -> checkDrain());
+        }
+        subscribers.add(subscriber);
+        return subscriber.result().future();
+    }
+
+    /**
+     * 退出订阅，之后的数据不再写给该订阅者；最后一个订阅者退出时取消上游请求
+     *
+     * @param sink   订阅者
+     * @param reason 退出原因，订阅者的结果以此失败
+     */
+    void leave(WriteStream<Buffer> sink, Throwable reason) {
+        Subscriber left = null;
+        boolean last;
+        synchronized (this) {
+            for (int i = 0; i < subscribers.size(); i++) {
+                if (subscribers.get(i).sink() == sink) {
+                    left = subscribers.remove(i);
+                    break;
+                }
+            }
+            last = left != null && subscribers.isEmpty() && !completed;
+        }
+        if (left == null) {
+            return;
+        }
+        left.result().tryFail(reason);
+        if (last) {
+            call.cancel(reason);
+        } else {
+            checkDrain();
+        }
+    }
+
+    void complete(AsyncResult<Void> ar) {
+        List<Subscriber> remaining;
+        synchronized (this) {
+            completed = true;
+            remaining = new ArrayList<>(subscribers);
+            subscribers.clear();
+        }
+        for (Subscriber subscriber : remaining) {
+            subscriber.run(v -> subscriber.result().handle(ar));
+        }
+    }
+
+    @Override
+    public StreamFlight exceptionHandler(Handler<Throwable> handler) {
+        return this;
+    }
+
+    @Override
+    public synchronized Future<Void> write(Buffer data) {
+        received.appendBuffer(data);
+        for (Subscriber subscriber : subscribers) {
+            subscriber.run(v -> subscriber.sink().write(data));
+        }
+        return Future.succeededFuture();
+    }
+
+    @Override
+    public void write(Buffer data, Handler<AsyncResult<Void>> handler) {
+        Future<Void> future = write(data);
+        if (handler != null) {
+            handler.handle(future);
+        }
+    }
+
+    @Override
+    public synchronized Future<Void> end() {
+        ended = true;
+        for (Subscriber subscriber : subscribers) {
+            subscriber.run(v -> subscriber.sink().end());
+        }
+        return Future.succeededFuture();
+    }
+
+    @Override
+    public void end(Handler<AsyncResult<Void>> handler) {
+        Future<Void> future = end();
+        if (handler != null) {
+            handler.handle(future);
+        }
+    }
+
+    @Override
+    public StreamFlight setWriteQueueMaxSize(int maxSize) {
+        return this;
+    }
+
+    @Override
+    public synchronized boolean writeQueueFull() {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.sink().writeQueueFull()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public synchronized StreamFlight drainHandler(Handler<Void> handler) {
+        this.drainHandler = handler;
+        return this;
+    }
+
+    private void checkDrain() {
+        Handler<Void> handler;
+        synchronized (this) {
+            handler = drainHandler;
+            if (handler == null || writeQueueFull()) {
+                return;
+            }
+            drainHandler = null;
+        }
+        handler.handle(null);
+    }
+
+    /**
+     * 在 context 上执行，已经在该 context 上或没有 context 时直接执行；同一个 context 上按提交顺序执行
+     */
+    static void runOn(Context context, Handler<Void> action) {
+        if (context == null || context == Vertx.currentContext()) {
+            action.handle(null);
+        } else {
+            context.runOnContext(action);
+        }
+    }
+
+    /**
+     * 一个订阅者：写入的流、加入时所在的 context 和它自己的结果
+     */
+    private record Subscriber(WriteStream<Buffer> sink, Context context, Promise<Void> result) {
+
+        void run(Handler<Void> action) {
+            runOn(context, action);
+        }
+    }
+}
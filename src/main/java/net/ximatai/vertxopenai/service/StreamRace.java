@@ -0,0 +1,159 @@
+package net.ximatai.vertxopenai.service;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.WriteStream;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongConsumer;
+
+/**
+ * 同一个流式请求的多次尝试（重试或对冲）共用一个 sink：每次尝试写入各自的 {@link Lane}，
+ * 第一个收到数据（或正常结束）的 lane 获得 sink；其余 lane 如果带有自己的调用（对冲请求）会立即取消，
+ * 不再继续读取响应，否则数据直接丢弃
+ */
+class StreamRace {
+
+    private final WriteStream<Buffer> sink;
+    private final LongConsumer firstByteListener;
+    private final AtomicReference<Lane> winner = new AtomicReference<>();
+    private final List<Lane> lanes = new ArrayList<>(2);
+
+    /**
+     * @param sink              最终的 sink
+     * @param firstByteListener 获胜 lane 从创建到收到第一个数据的耗时（纳秒）
+     */
+    StreamRace(WriteStream<Buffer> sink, LongConsumer firstByteListener) {
+        this.sink = sink;
+        this.firstByteListener = firstByteListener;
+    }
+
+    Lane lane() {
+        return lane(null);
+    }
+
+    /**
+     * 创建一个 lane，其他 lane 获胜时取消 attempt
+     *
+     * @param attempt 这个 lane 单独的调用，为 null 时不取消
+     */
+    Lane lane(ChatCall attempt) {
+        Lane lane = new Lane(System.nanoTime(), attempt);
+        Lane current;
+        synchronized (lanes) {
+            current = winner.get();
+            lanes.add(lane);
+        }
+        if (current != null && attempt != null) {
+            attempt.cancel(new CancellationException("Another attempt won the race"));
+        }
+        return lane;
+    }
+
+    /**
+     * 是否已经有数据交给了 sink，之后不能再重试
+     */
+    boolean started() {
+        return winner.get() != null;
+    }
+
+    Lane winner() {
+        return winner.get();
+    }
+
+    /**
+     * 获胜之后取消其余的 lane
+     */
+    private void cancelLosers(Lane winner) {
+        List<Lane> losers;
+        synchronized (lanes) {
+            losers = new ArrayList<>(lanes);
+        }
+        for (Lane lane : losers) {
+            if (lane != winner && lane.attempt != null) {
+                lane.attempt.cancel(new CancellationException("Another attempt won the race"));
+            }
+        }
+    }
+
+    class Lane implements WriteStream<Buffer> {
+
+        private final long createdAt;
+        private final ChatCall attempt;
+
+        private Lane(long createdAt, ChatCall attempt) {
+            this.createdAt = createdAt;
+            this.attempt = attempt;
+        }
+
+        private boolean claim() {
+            Lane current = winner.get();
+            if (current == null) {
+                boolean won;
+                synchronized (lanes) {
+                    won = winner.compareAndSet(null, this);
+                }
+                if (won) {
+                    firstByteListener.accept(System.nanoTime() - createdAt);
+                    cancelLosers(this);
+                    return true;
+                }
+            }
+            return winner.get() == this;
+        }
+
+        @Override
+        public Lane exceptionHandler(Handler<Throwable> handler) {
+            return this;
+        }
+
+        @Override
+        public Future<Void> write(Buffer data) {
+            return claim() ? sink.write(data) : Future.succeededFuture();
+        }
+
+        @Override
+        public void write(Buffer data, Handler<AsyncResult<Void>> handler) {
+            Future<Void> future = write(data);
+            if (handler != null) {
+                future.onComplete(handler);
+            }
+        }
+
+        @Override
+        public Future<Void> end() {
+            return claim() ? sink.end() : Future.succeededFuture();
+        }
+
+        @Override
+        public void end(Handler<AsyncResult<Void>> handler) {
+            Future<Void> future = end();
+            if (handler != null) {
+                future.onComplete(handler);
+            }
+        }
+
+        @Override
+        public Lane setWriteQueueMaxSize(int maxSize) {
+            return this;
+        }
+
+        @Override
+        public boolean writeQueueFull() {
+            return winner.get() == this && sink.writeQueueFull();
+        }
+
+        @Override
+        public Lane drainHandler(Handler<Void> handler) {
+            if (winner.get() == this) {
+                sink.drainHandler(handler);
+            }
+            return this;
+        }
+    }
+}
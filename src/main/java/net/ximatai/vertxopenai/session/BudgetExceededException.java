@@ -0,0 +1,16 @@
+package net.ximatai.vertxopenai.session;
+
+/**
+ * 请求在发出前被拒绝：会话或服务的 token 预算已经用完
+ */
+public class BudgetExceededException extends RuntimeException {
+
+    /**
+     * 创建预算异常
+     *
+     * @param message 原因
+     */
+    public BudgetExceededException(String message) {
+        super(message, null, false, false);
+    }
+}
@@ -4,10 +4,13 @@ import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import net.ximatai.vertxopenai.message.AssistantMessage;
 import net.ximatai.vertxopenai.message.IMessage;
+import net.ximatai.vertxopenai.message.ToolCall;
 import net.ximatai.vertxopenai.message.UserMessage;
+import net.ximatai.vertxopenai.service.ChatCall;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 
 /**
  * 一次请求对应一个ChatRequest
@@ -18,6 +21,22 @@ public class ChatRequest {
     private boolean isTemporary = false;
     private boolean isStream;
     private Handler<AssistantMessage> eventHandler;
+    private long timeout;
+    private long firstTokenTimeout;
+    private long idleTimeout;
+    private ChatCall call;
+    private boolean cancelled;
+    private ToolDispatcher tools;
+    private long coalesceWindow;
+    private int coalesceChars;
+    /**
+     * 已经执行的工具调用轮数
+     */
+    private int round;
+    /**
+     * 携带工具结果继续对话的后续请求，取消时一并取消
+     */
+    private ChatRequest next;
 
     List<IMessage> messages = new ArrayList<>();
 
@@ -40,6 +59,101 @@ public class ChatRequest {
         return this;
     }
 
+    /**
+     * 设置总超时时间（毫秒），包含排队、重试和读取完整响应的时间，超时后请求以 {@link java.util.concurrent.TimeoutException} 失败
+     *
+     * @param timeout 超时时间，0 表示不限制
+     * @return this
+     */
+    public ChatRequest timeout(long timeout) {
+        this.timeout = timeout;
+        return this;
+    }
+
+    /**
+     * 设置首个 token 的超时时间（毫秒）：请求开始（包括等待连接的时间）后在该时间内没有收到任何数据则失败（配置了重试时会重试）
+     *
+     * @param firstTokenTimeout 超时时间，0 表示不限制
+     * @return this
+     */
+    public ChatRequest firstTokenTimeout(long firstTokenTimeout) {
+        this.firstTokenTimeout = firstTokenTimeout;
+        return this;
+    }
+
+    /**
+     * 设置数据间隔超时时间（毫秒）：流式响应中途超过该时间没有新数据则失败
+     *
+     * @param idleTimeout 超时时间，0 表示不限制
+     * @return this
+     */
+    public ChatRequest idleTimeout(long idleTimeout) {
+        this.idleTimeout = idleTimeout;
+        return this;
+    }
+
+    /**
+     * 随请求发送工具定义，模型返回工具调用时由调度器执行并自动继续对话，{@link #send()} 的结果为最终回复；
+     * 流式请求同样发送工具定义，但不自动执行，工具调用在最终消息的 {@link AssistantMessage#toolCalls()} 中由调用方处理
+     *
+     * @param tools 工具调度器
+     * @return this
+     */
+    public ChatRequest tools(ToolDispatcher tools) {
+        this.tools = tools;
+        return this;
+    }
+
+    ToolDispatcher tools() {
+        return tools;
+    }
+
+    /**
+     * 取消请求：正在进行的 HTTP 请求会被重置、连接立即释放，请求以 {@link CancellationException} 失败
+     *
+     * @return 是否由这次调用取消（请求已经取消过时返回 false）
+     */
+    public boolean cancel() {
+        ChatCall current;
+        ChatRequest following;
+        synchronized (this) {
+            if (cancelled) {
+                return false;
+            }
+            cancelled = true;
+            current = call;
+            following = next;
+        }
+        if (current != null) {
+            current.cancel(new CancellationException("Request cancelled"));
+        }
+        if (following != null) {
+            following.cancel();
+        }
+        return true;
+    }
+
+    /**
+     * 关联发出的上游调用，发送之前已经取消的请求立即取消
+     */
+    void attach(ChatCall call) {
+        call.setTimeout(timeout)
+                .setFirstByteTimeout(firstTokenTimeout)
+                .setIdleTimeout(idleTimeout);
+        boolean cancelNow;
+        synchronized (this) {
+            this.call = call;
+            cancelNow = cancelled;
+        }
+        if (cancelNow) {
+            call.cancel(new CancellationException("Request cancelled"));
+        }
+    }
+
+    boolean isTemporary() {
+        return isTemporary;
+    }
+
     /**
      * 添加消息（字符串）
      *
@@ -72,6 +186,63 @@ public class ChatRequest {
         return this;
     }
 
+    /**
+     * 合并流式片段后再交给回调，减少回调次数，见 {@link ChatStream#coalesce(long, int)}；对所有流式发送方式生效
+     *
+     * @param window   时间窗口（毫秒），0 表示不按时间合并
+     * @param maxChars 字符数，0 表示不按字符数合并
+     * @return this
+     */
+    public ChatRequest coalesce(long window, int maxChars) {
+        if (window < 0 || maxChars < 0 || (window == 0 && maxChars == 0)) {
+            throw new IllegalArgumentException("window or maxChars must be > 0");
+        }
+        this.coalesceWindow = window;
+        this.coalesceChars = maxChars;
+        return this;
+    }
+
+    boolean isCoalescing() {
+        return coalesceWindow > 0 || coalesceChars > 0;
+    }
+
+    long coalesceWindow() {
+        return coalesceWindow;
+    }
+
+    int coalesceChars() {
+        return coalesceChars;
+    }
+
+    /**
+     * 以流式请求发送，返回可暂停、按需读取的流（忽略 {@link #stream(Handler)} 设置的回调）
+     *
+     * @return 流式响应，{@link ChatStream#result()} 为最终完整消息
+     */
+    public ChatStream sendStream() {
+        if (this.messages.isEmpty()) {
+            throw new IllegalStateException("No messages to send");
+        }
+
+        return chatSession.stream(this);
+    }
+
+    /**
+     * 以多播流式请求发送，一个上游响应分发给多个订阅者，通过 {@link MulticastStream#subscribe(OverflowPolicy)} 添加订阅者
+     * （忽略 {@link #stream(Handler)} 设置的回调）
+     *
+     * @param bufferSize 环形缓冲区保留的片段数，订阅者落后超过该数量时按其 {@link OverflowPolicy} 处理
+     * @return 多播流
+     */
+    public MulticastStream sendMulticast(int bufferSize) {
+        if (this.messages.isEmpty()) {
+            throw new IllegalStateException("No messages to send");
+        }
+
+        MulticastStream multicast = new MulticastStream(bufferSize);
+        return multicast.connect(chatSession.stream(this));
+    }
+
     /**
      * 发送请求
      * @return AI返回消息（异步）
@@ -82,9 +253,47 @@ public class ChatRequest {
         }
 
         if (isStream) {
-            return chatSession.sendBatchWithStream(messages, isTemporary, eventHandler);
+            return chatSession.stream(this)
+                    .handler(eventHandler)
+                    .result();
+        } else if (tools != null) {
+            return chatSession.send(this).compose(this::continueWithTools);
         } else {
-            return chatSession.sendBatch(messages, isTemporary);
+            return chatSession.send(this);
+        }
+    }
+
+    /**
+     * 回复中有工具调用时执行工具，把结果发回模型继续对话
+     */
+    private Future<AssistantMessage> continueWithTools(AssistantMessage reply) {
+        List<ToolCall> toolCalls = reply.toolCalls();
+        if (toolCalls.isEmpty() || round >= tools.getMaxRounds()) {
+            return Future.succeededFuture(reply);
         }
+        return tools.dispatch(toolCalls).compose(results -> {
+            ChatRequest following = new ChatRequest(chatSession)
+                    .timeout(timeout)
+                    .firstTokenTimeout(firstTokenTimeout)
+                    .idleTimeout(idleTimeout)
+                    .tools(tools);
+            following.round = round + 1;
+            if (isTemporary) {
+                // 临时请求的消息不在会话历史中，需要连同这一轮一起带上
+                following.temporary();
+                following.messages.addAll(messages);
+                following.messages.add(reply.simple());
+            }
+            following.messages.addAll(results);
+            boolean cancelNow;
+            synchronized (this) {
+                next = following;
+                cancelNow = cancelled;
+            }
+            if (cancelNow) {
+                return Future.failedFuture(new CancellationException("Request cancelled"));
+            }
+            return following.send();
+        });
     }
 }
@@ -3,50 +3,162 @@ package net.ximatai.vertxopenai.session;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Promise;
-import io.vertx.core.http.HttpResponseExpectation;
-import io.vertx.core.json.JsonArray;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.client.WebClient;
-import io.vertx.ext.web.codec.BodyCodec;
 import net.ximatai.vertxopenai.message.AssistantMessage;
 import net.ximatai.vertxopenai.message.IMessage;
 import net.ximatai.vertxopenai.message.SSEParser;
 import net.ximatai.vertxopenai.message.SystemMessage;
+import net.ximatai.vertxopenai.message.Usage;
+import net.ximatai.vertxopenai.service.ChatCall;
+import net.ximatai.vertxopenai.service.ChatMetrics;
+import net.ximatai.vertxopenai.service.ChatTransport;
+import net.ximatai.vertxopenai.store.SessionState;
+import net.ximatai.vertxopenai.store.SessionStore;
+import net.ximatai.vertxopenai.store.StoredSession;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.UUID;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * 开启会话
+ * <p>
+ * 会话可以在多个线程、多个事件循环上同时使用：每个请求基于发出时的历史快照构建请求体，
+ * 完成后本次消息和 AI 回复作为完整的一轮原子地追加到历史，同时进行的请求按完成顺序追加，不会相互穿插；
+ * 读取历史得到的是不可变快照，读写都不加锁。
+ * <p>
+ * 配置了 {@link SessionStore} 时，状态的修改和每一轮对话会按发生的顺序写入存储，会话可以在重启后或其他节点上按 id 恢复。
  */
 public class ChatSession {
 
     private final Logger logger = LoggerFactory.getLogger(ChatSession.class);
 
-    private final String apiKey;
-    private final String chatPath;
-    private final WebClient webClient;
-    private final List<IMessage> messages = new ArrayList<>();
-    private JsonObject config;
-    private SystemMessage systemMessage;
+    private final String id;
+    private final ChatTransport transport;
+    /**
+     * 指标采集，未启用时为 null
+     */
+    private final ChatMetrics metrics;
+    /**
+     * 会话存储，未启用时为 null
+     */
+    private final SessionStore store;
+    /**
+     * 保证写入存储的顺序与内存中修改的顺序一致，只在启用存储时使用
+     */
+    private final Object storeLock = new Object();
+    /**
+     * 会话历史的最新快照，每条消息只序列化一次；每个请求基于发出时的快照构建，完成后整轮追加
+     */
+    private final AtomicReference<History> history = new AtomicReference<>(History.empty(0));
+    private final AtomicReference<Usage> usage = new AtomicReference<>(Usage.ZERO);
+    private volatile JsonObject config;
+    private volatile EncodedMessage systemMessage;
+    private volatile EncodedMessage summaryMessage;
+    private volatile HistoryPolicy historyPolicy = HistoryPolicy.unlimited();
+    private volatile TokenBudget budget;
+    /**
+     * 最近一次使用（{@link #open()} 或发送请求）的时间（System.nanoTime），供 {@link SessionRegistry} 判断空闲
+     */
+    private volatile long lastAccess = System.nanoTime();
 
     /**
      * 开启会话
      *
+     * @param config    模型可选配置，如：frequency_penalty、max_tokens、temperature 等
+     * @param transport 传输层
+     */
+    public ChatSession(JsonObject config, ChatTransport transport) {
+        this(config, transport, null);
+    }
+
+    /**
+     * 开启会话，请求通过传入的 WebClient 发往它默认的主机和端口
+     *
      * @param apiKey    apiKey
      * @param chatPath  chat接口路径
      * @param config    模型可选配置，如：frequency_penalty、max_tokens、temperature 等
      * @param webClient webClient
+     * @deprecated 不支持重试、限流、首字节和数据间隔超时等传输层功能，取消时也不会中止 HTTP 请求，
+     * 请通过 {@link net.ximatai.vertxopenai.service.IOpenService#connect} 创建会话，或使用 {@link #ChatSession(JsonObject, ChatTransport)}
      */
+    @Deprecated
     public ChatSession(String apiKey, String chatPath, JsonObject config, WebClient webClient) {
-        this.apiKey = apiKey;
-        this.chatPath = chatPath;
+        this(config, new WebClientTransport(apiKey, chatPath, webClient));
+    }
+
+    /**
+     * 开启会话并采集指标
+     *
+     * @param config    模型可选配置，如：frequency_penalty、max_tokens、temperature 等
+     * @param transport 传输层
+     * @param metrics   指标采集，为 null 时不采集
+     */
+    public ChatSession(JsonObject config, ChatTransport transport, ChatMetrics metrics) {
+        this(UUID.randomUUID().toString(), config, transport, metrics, null);
+    }
+
+    /**
+     * 开启会话，启用存储时立即保存会话状态
+     *
+     * @param id        会话 id
+     * @param config    模型可选配置，如：frequency_penalty、max_tokens、temperature 等
+     * @param transport 传输层
+     * @param metrics   指标采集，为 null 时不采集
+     * @param store     会话存储，为 null 时不保存
+     */
+    public ChatSession(String id, JsonObject config, ChatTransport transport, ChatMetrics metrics, SessionStore store) {
+        this.id = Objects.requireNonNull(id, "Session id cannot be null");
         this.config = config;
-        this.webClient = webClient;
+        this.transport = transport;
+        this.metrics = metrics;
+        this.store = store;
+        if (store != null) {
+            synchronized (storeLock) {
+                persistState();
+            }
+        }
+    }
+
+    private ChatSession(StoredSession stored, ChatTransport transport, ChatMetrics metrics, SessionStore store) {
+        SessionState state = stored.state();
+        this.id = stored.id();
+        this.config = state.config();
+        this.transport = transport;
+        this.metrics = metrics;
+        this.store = store;
+        this.systemMessage = state.systemMessage() == null ? null : EncodedMessage.of(new SystemMessage(state.systemMessage()));
+        this.summaryMessage = state.summary() == null ? null : EncodedMessage.of(new SystemMessage(state.summary()));
+        this.history.set(History.of(EncodedMessage.of(stored.messages()), 0));
+    }
+
+    /**
+     * 由存储中读取的会话恢复会话，之后的修改继续写入该存储
+     *
+     * @param stored    存储中读取的会话
+     * @param transport 传输层
+     * @param metrics   指标采集，为 null 时不采集
+     * @param store     会话存储
+     * @return 恢复的会话
+     */
+    public static ChatSession restore(StoredSession stored, ChatTransport transport, ChatMetrics metrics, SessionStore store) {
+        Objects.requireNonNull(stored, "Stored session cannot be null");
+        return new ChatSession(stored, transport, metrics, store);
+    }
+
+    /**
+     * 获取会话 id
+     *
+     * @return 会话 id
+     */
+    public String getId() {
+        return id;
     }
 
     /**
@@ -57,10 +169,73 @@ public class ChatSession {
      */
     public ChatSession setSystemMessage(String message) {
         Objects.requireNonNull(message, "System message cannot be null");
-        this.systemMessage = new SystemMessage(message);
+        EncodedMessage encoded = EncodedMessage.of(new SystemMessage(message));
+        updateState(() -> this.systemMessage = encoded);
+        return this;
+    }
+
+    /**
+     * 设置历史摘要，作为系统消息紧跟在系统消息之后发送，不受历史策略影响；
+     * 通常与截断历史的 {@link HistoryPolicy} 配合，用摘要概括被截断的早期对话
+     *
+     * @param summary 摘要内容，为 null 时清除摘要
+     * @return this
+     */
+    public ChatSession setSummary(String summary) {
+        EncodedMessage encoded = summary == null ? null : EncodedMessage.of(new SystemMessage(summary));
+        updateState(() -> this.summaryMessage = encoded);
         return this;
     }
 
+    /**
+     * 获取历史摘要
+     *
+     * @return 摘要内容，没有时为 null
+     */
+    public String getSummary() {
+        return summaryMessage == null ? null : summaryMessage.message().content();
+    }
+
+    /**
+     * 设置历史策略，决定每轮请求携带哪些历史消息，默认发送全部历史
+     *
+     * @param historyPolicy 历史策略
+     * @return this
+     */
+    public ChatSession setHistoryPolicy(HistoryPolicy historyPolicy) {
+        this.historyPolicy = Objects.requireNonNull(historyPolicy, "History policy cannot be null");
+        return this;
+    }
+
+    /**
+     * 设置 token 预算，预算用完后新的请求在发出前以 {@link BudgetExceededException} 失败
+     *
+     * @param budget 预算，为 null 时不限制
+     * @return this
+     */
+    public ChatSession setBudget(TokenBudget budget) {
+        this.budget = budget;
+        return this;
+    }
+
+    /**
+     * 获取 token 预算
+     *
+     * @return 预算，没有时为 null
+     */
+    public TokenBudget getBudget() {
+        return budget;
+    }
+
+    /**
+     * 获取会话内所有请求（包括临时请求）累计的 token 用量
+     *
+     * @return 累计用量
+     */
+    public Usage getUsage() {
+        return usage.get();
+    }
+
     /**
      * 设置模型配置
      *
@@ -68,7 +243,7 @@ public class ChatSession {
      * @return this
      */
     public ChatSession setConfig(JsonObject config) {
-        this.config = config;
+        updateState(() -> this.config = config);
         return this;
     }
 
@@ -87,6 +262,8 @@ public class ChatSession {
      * @return ChatRequest
      */
     public ChatRequest open() {
+        lastAccess = System.nanoTime();
+        hot();
         return new ChatRequest(this);
     }
 
@@ -98,27 +275,79 @@ public class ChatSession {
      * @return AI返回消息（异步）
      */
     public Future<AssistantMessage> sendBatch(List<IMessage> messages, boolean isTemporary) {
+        return send(messages, isTemporary, null);
+    }
+
+    /**
+     * 发送消息对话（stream模式）
+     *
+     * @param messages     消息列表
+     * @param isTemporary  是否临时消息
+     * @param eventHandler 流式回调
+     * @return AI返回消息（异步）
+     */
+    public Future<AssistantMessage> sendBatchWithStream(List<IMessage> messages, boolean isTemporary, Handler<AssistantMessage> eventHandler) {
+        return sendBatchWithStream(messages, isTemporary)
+                .handler(eventHandler)
+                .result();
+    }
+
+    /**
+     * 发送消息对话（stream模式），返回可暂停、按需读取的流
+     *
+     * @param messages    消息列表
+     * @param isTemporary 是否临时消息
+     * @return 流式响应
+     */
+    public ChatStream sendBatchWithStream(List<IMessage> messages, boolean isTemporary) {
+        return stream(messages, isTemporary, null);
+    }
+
+    /**
+     * 发送请求，超时和取消由 request 控制
+     */
+    Future<AssistantMessage> send(ChatRequest request) {
+        return send(request.messages, request.isTemporary(), request);
+    }
+
+    /**
+     * 以流式发送请求，超时和取消由 request 控制
+     */
+    ChatStream stream(ChatRequest request) {
+        return stream(request.messages, request.isTemporary(), request);
+    }
+
+    private Future<AssistantMessage> send(List<IMessage> messages, boolean isTemporary, ChatRequest request) {
+        BudgetExceededException exceeded = budget == null ? null : budget.exceeded();
+        if (exceeded != null) {
+            return Future.failedFuture(exceeded);
+        }
+
+        lastAccess = System.nanoTime();
         Promise<AssistantMessage> promise = Promise.promise();
+        List<EncodedMessage> encoded = EncodedMessage.of(messages);
+        History snapshot = hot();
+        ChatCall call = buildCall(snapshot, encoded, false, request);
 
-        if (!isTemporary) {
-            this.messages.addAll(messages);
+        if (metrics != null) {
+            long start = System.nanoTime();
+            promise.future().onComplete(ar -> {
+                long duration = System.nanoTime() - start;
+                metrics.request(call.model(), call.endpoint(), false, duration, ar.cause());
+                if (ar.succeeded()) {
+                    recordOutput(call, ar.result().usage(), 0, duration);
+                }
+            });
         }
 
-        webClient
-                .post(chatPath)
-                .putHeader("Content-Type", "application/json")
-                .putHeader("Authorization", "Bearer " + apiKey)
-                .sendJsonObject(
-                        buildRequestBody(messages)
-                )
-                .expecting(HttpResponseExpectation.SC_SUCCESS)
-                .onSuccess(res -> {
-                    logger.debug("http status: {}", res.statusCode());
-                    logger.debug("http body: {}", res.bodyAsString());
-                    AssistantMessage responseMessage = new AssistantMessage(res.bodyAsJsonObject());
+        transport
+                .send(call)
+                .onSuccess(response -> {
+                    AssistantMessage responseMessage = AssistantMessage.parse(response);
+                    recordUsage(responseMessage.usage());
 
                     if (!isTemporary) {
-                        this.messages.add(responseMessage.simple());
+                        commit(snapshot, encoded, responseMessage);
                     }
 
                     promise.complete(responseMessage);
@@ -131,90 +360,177 @@ public class ChatSession {
         return promise.future();
     }
 
-    /**
-     * 发送消息对话（stream模式）
-     *
-     * @param messages     消息列表
-     * @param isTemporary  是否临时消息
-     * @param eventHandler 流式回调
-     * @return AI返回消息（异步）
-     */
-    public Future<AssistantMessage> sendBatchWithStream(List<IMessage> messages, boolean isTemporary, Handler<AssistantMessage> eventHandler) {
+    private ChatStream stream(List<IMessage> messages, boolean isTemporary, ChatRequest request) {
+        BudgetExceededException exceeded = budget == null ? null : budget.exceeded();
+        if (exceeded != null) {
+            ChatStream stream = new ChatStream(new SSEParser());
+            stream.fail(exceeded);
+            return stream;
+        }
 
-        Promise<AssistantMessage> promise = Promise.promise();
-        StringBuilder messageBuilder = new StringBuilder();
-        AtomicReference<String> lastData = new AtomicReference<>();
+        lastAccess = System.nanoTime();
+        List<EncodedMessage> encoded = EncodedMessage.of(messages);
+        History snapshot = hot();
+        ChatCall call = buildCall(snapshot, encoded, true, request);
 
-        if (!isTemporary) {
-            this.messages.addAll(messages);
+        SSEParser sseParser = new SSEParser();
+        ChatStream stream = new ChatStream(sseParser);
+        stream.bind(call);
+        if (request != null && request.isCoalescing()) {
+            stream.coalesce(request.coalesceWindow(), request.coalesceChars());
         }
 
-        SSEParser sseParser = new SSEParser(data -> {
-            AssistantMessage assistantMessage = new AssistantMessage(new JsonObject(data));
-            lastData.set(data);
-            eventHandler.handle(assistantMessage);
-            if (!assistantMessage.isReasoning()) {
-                messageBuilder.append(assistantMessage.content());
-            }
-        }, end -> {
-            JsonObject json = new JsonObject(lastData.get());
-            json.put("choices", new JsonArray(
-                    List.of(
-                            json.getJsonArray("choices")
-                                    .getJsonObject(0)
-                                    .put("message", new JsonObject().put("content", messageBuilder.toString().trim()))
-                    )
-            ));
-
-            AssistantMessage assistantMessage = new AssistantMessage(json);
+        if (metrics != null) {
+            long start = System.nanoTime();
+            stream.result().onComplete(ar -> {
+                long end = System.nanoTime();
+                metrics.request(call.model(), call.endpoint(), true, end - start, ar.cause());
+                long firstChunk = stream.firstChunkTime();
+                if (firstChunk != 0) {
+                    metrics.firstToken(call.model(), call.endpoint(), firstChunk - start);
+                    if (ar.succeeded()) {
+                        recordOutput(call, ar.result().usage(), stream.chunks(), end - firstChunk);
+                    }
+                }
+            });
+        }
 
+        stream.result().onSuccess(assistantMessage -> {
+            recordUsage(assistantMessage.usage());
             if (!isTemporary) {
-                this.messages.add(assistantMessage.simple());
+                commit(snapshot, encoded, assistantMessage);
             }
-
-            promise.complete(assistantMessage);
         });
 
-        webClient
-                .post(chatPath)
-                .as(BodyCodec.pipe(sseParser))
-                .putHeader("Content-Type", "application/json")
-                .putHeader("Authorization", "Bearer " + apiKey)
-                .sendJsonObject(
-                        buildRequestBody(messages)
-                                .put("stream", true)
-                )
-                .expecting(HttpResponseExpectation.SC_SUCCESS)
-                .onSuccess(res -> {
-                    logger.debug("http status: {}", res.statusCode());
-                })
+        transport
+                .stream(call, sseParser)
                 .onFailure(err -> {
                     logger.error(err.getMessage());
-                    promise.fail(err);
+                    stream.fail(err);
                 });
 
-        return promise.future();
+        return stream;
+    }
+
+    /**
+     * 把本次消息和 AI 回复作为完整的一轮追加到历史；请求发出后会话被清空时丢弃
+     */
+    private void commit(History snapshot, List<EncodedMessage> encoded, AssistantMessage reply) {
+        List<EncodedMessage> turn = new ArrayList<>(encoded.size() + 1);
+        turn.addAll(encoded);
+        turn.add(EncodedMessage.of(reply.simple()));
+        if (store == null) {
+            history.updateAndGet(current -> current.generation() == snapshot.generation() ? current.append(turn) : current);
+            return;
+        }
+        synchronized (storeLock) {
+            History updated = history.updateAndGet(current -> current.generation() == snapshot.generation() ? current.append(turn) : current);
+            if (updated.generation() == snapshot.generation()) {
+                List<IMessage> messages = new ArrayList<>(turn.size());
+                for (EncodedMessage message : turn) {
+                    messages.add(message.message());
+                }
+                persist(store.append(id, messages));
+            }
+        }
+    }
+
+    /**
+     * 修改会话状态，启用存储时连同修改后的完整状态一起写入
+     */
+    private void updateState(Runnable update) {
+        if (store == null) {
+            update.run();
+            return;
+        }
+        synchronized (storeLock) {
+            update.run();
+            persistState();
+        }
+    }
+
+    private void persistState() {
+        EncodedMessage system = systemMessage;
+        EncodedMessage summary = summaryMessage;
+        persist(store.save(id, new SessionState(config,
+                system == null ? null : system.message().content(),
+                summary == null ? null : summary.message().content())));
     }
 
-    private JsonObject buildRequestBody(List<IMessage> messages) {
+    /**
+     * 存储失败不影响请求本身，只记录日志
+     */
+    private void persist(Future<Void> write) {
+        write.onFailure(err -> logger.error("Failed to persist session {}: {}", id, err.getMessage()));
+    }
 
-        List<JsonObject> messageList = new ArrayList<>(messages.stream().map(IMessage::toJson).toList());
-        if (systemMessage != null) {
-            messageList.add(0, systemMessage.toJson());
+    private void recordUsage(Usage usage) {
+        if (usage == null) {
+            return;
+        }
+        this.usage.accumulateAndGet(usage, Usage::plus);
+        TokenBudget current = budget;
+        if (current != null) {
+            current.record(usage);
         }
+    }
 
-        return config.copy()
-                .put("messages", messageList);
+    /**
+     * 输出 token 数优先取上游返回的用量，没有时按消息段数估算
+     */
+    private void recordOutput(ChatCall call, Usage usage, int chunks, long duration) {
+        int tokens = usage != null ? usage.completionTokens() : chunks;
+        if (tokens > 0) {
+            metrics.outputTokens(call.model(), call.endpoint(), tokens, duration);
+        }
+    }
+
+    /**
+     * 请求体：系统消息 + 摘要 + 历史策略选出的历史 + 本次消息，除本次消息外都直接复用已序列化的片段；
+     * 估算的 token 数为发送的消息加上配置中预留的回复长度
+     */
+    private ChatCall buildCall(History history, List<EncodedMessage> messages, boolean stream, ChatRequest request) {
+        List<EncodedMessage> pinned = new ArrayList<>(2);
+        EncodedMessage system = systemMessage;
+        if (system != null) {
+            pinned.add(system);
+        }
+        EncodedMessage summary = summaryMessage;
+        if (summary != null) {
+            pinned.add(summary);
+        }
+
+        int reserved = EncodedMessage.tokens(pinned) + EncodedMessage.tokens(messages);
+        int start = Math.max(0, Math.min(history.size(), historyPolicy.start(history, reserved)));
+
+        List<EncodedMessage> window = history.subList(start, history.size());
+        JsonObject config = this.config;
+        ToolDispatcher tools = request == null ? null : request.tools();
+        if (tools != null) {
+            config = config.copy().put("tools", tools.definitions());
+        }
+        Buffer body = RequestBody.encode(config, stream, pinned, window, messages);
+
+        int tokens = reserved + EncodedMessage.tokens(window)
+                + config.getInteger("max_completion_tokens", config.getInteger("max_tokens", 0));
+        ChatCall call = new ChatCall(config.getString("model"), body, tokens);
+        if (request != null) {
+            request.attach(call);
+        }
+        return call;
     }
 
     /**
-     * 清空会话历史包含 systemMessage
+     * 清空会话历史包含 systemMessage 和摘要
      *
      * @return this
      */
     public ChatSession clear() {
         clearMessages();
-        systemMessage = null;
+        updateState(() -> {
+            systemMessage = null;
+            summaryMessage = null;
+        });
         return this;
     }
 
@@ -224,16 +540,68 @@ public class ChatSession {
      * @return this
      */
     public ChatSession clearMessages() {
-        messages.clear();
+        if (store == null) {
+            history.updateAndGet(current -> History.empty(current.generation() + 1));
+            return this;
+        }
+        synchronized (storeLock) {
+            history.updateAndGet(current -> History.empty(current.generation() + 1));
+            persist(store.clearMessages(id));
+        }
         return this;
     }
 
     /**
-     * 获取会话中所有消息列表
+     * 当前历史，已冻结时先解冻；多个线程同时解冻时只有一个结果被采用
+     */
+    private History hot() {
+        History current = history.get();
+        while (current.isFrozen()) {
+            History thawed = current.thaw();
+            if (history.compareAndSet(current, thawed)) {
+                return thawed;
+            }
+            current = history.get();
+        }
+        return current;
+    }
+
+    /**
+     * 把历史冻结到堆外内存，下次使用会话时自动恢复
+     */
+    void offload() {
+        offload(lastAccess);
+    }
+
+    /**
+     * 把历史冻结到堆外内存；选出会话之后会话又被使用过，或者冻结期间历史发生变化时放弃
+     *
+     * @param lastAccess 选出会话时的 {@link #lastAccess()}
+     * @return 是否冻结
+     */
+    boolean offload(long lastAccess) {
+        History current = history.get();
+        if (current.isFrozen() || this.lastAccess != lastAccess) {
+            return false;
+        }
+        History frozen = current.freeze();
+        return this.lastAccess == lastAccess && history.compareAndSet(current, frozen);
+    }
+
+    boolean isOffloaded() {
+        return history.get().isFrozen();
+    }
+
+    long lastAccess() {
+        return lastAccess;
+    }
+
+    /**
+     * 获取会话中所有消息列表，返回的是当前历史的不可变快照，之后的请求不会改变它
      *
      * @return 消息列表
      */
     public List<IMessage> getMessages() {
-        return messages;
+        return hot().messages();
     }
 }
@@ -0,0 +1,289 @@
+package net.ximatai.vertxopenai.session;
+
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.streams.ReadStream;
+import net.ximatai.vertxopenai.message.AssistantMessage;
+import net.ximatai.vertxopenai.message.SSEEvent;
+import net.ximatai.vertxopenai.message.SSEParser;
+import net.ximatai.vertxopenai.message.StreamAccumulator;
+import net.ximatai.vertxopenai.service.ChatCall;
+
+import java.util.ArrayDeque;
+
+/**
+ * 流式响应，按需读取 AI 返回的每一段消息
+ * <p>
+ * 在设置 handler 之前不会读取任何消息；pause/fetch 会一直传递到底层 HTTP 响应，
+ * 消费方处理不过来时上游连接随之暂停，每个流占用的内存有上限。
+ * <p>
+ * fetch 的数量按交给 handler 的消息计算：合并片段或跳过只带用量的片段时，会继续向上游读取，直到交出一条消息。
+ * <p>
+ * handler 抛出异常时流以该异常失败，并取消上游请求；流结束之后设置的 endHandler 会立即触发。
+ */
+public class ChatStream implements ReadStream<AssistantMessage> {
+
+    private final SSEParser parser;
+    private final Promise<AssistantMessage> result = Promise.promise();
+    /**
+     * 累加内容、推理内容、工具调用和用量，流结束时直接构造最终消息
+     */
+    private final StreamAccumulator accumulator = new StreamAccumulator();
+    private int chunks;
+    private long firstChunkTime;
+
+    private Handler<AssistantMessage> handler;
+    private Handler<Void> endHandler;
+    private Handler<Throwable> exceptionHandler;
+    private DeltaCoalescer coalescer;
+    /**
+     * 上游调用，handler 抛出异常时取消
+     */
+    private ChatCall call;
+    /**
+     * 已经可以交给 handler、但下游还没有需求的消息，比如暂停期间时间窗口到期合并出的片段
+     */
+    private final ArrayDeque<AssistantMessage> ready = new ArrayDeque<>();
+    private long demand = Long.MAX_VALUE;
+    private boolean flowing;
+    private boolean draining;
+    private boolean ended;
+    private boolean endEmitted;
+
+    ChatStream(SSEParser parser) {
+        this.parser = parser;
+        parser.pause();
+        parser.handler(this::handleEvent);
+        parser.endHandler(v -> handleEnd());
+        parser.exceptionHandler(this::fail);
+    }
+
+    /**
+     * 最终完整的 AI 消息，流结束后完成
+     *
+     * @return AI返回消息（异步）
+     */
+    public Future<AssistantMessage> result() {
+        return result.future();
+    }
+
+    /**
+     * 合并流式片段后再交给 handler，减少 handler 的调用次数（比如每个 token 一个事件时合并为较大的 websocket 帧）：
+     * 累计的文本达到 maxChars 个字符，或第一个片段等待超过 window 毫秒时交出合并后的片段，带结束原因的片段总是立即交出；
+     * 暂停期间合并出的片段等到 fetch/resume 时再交出。需要在设置 handler 之前调用
+     *
+     * @param window   时间窗口（毫秒），0 表示不按时间合并
+     * @param maxChars 字符数，0 表示不按字符数合并
+     * @return this
+     */
+    public ChatStream coalesce(long window, int maxChars) {
+        this.coalescer = new DeltaCoalescer(window, maxChars, this::emit);
+        return this;
+    }
+
+    @Override
+    public ChatStream exceptionHandler(Handler<Throwable> handler) {
+        this.exceptionHandler = handler;
+        return this;
+    }
+
+    @Override
+    public ChatStream handler(Handler<AssistantMessage> handler) {
+        this.handler = handler;
+        drain();
+        return this;
+    }
+
+    @Override
+    public ChatStream pause() {
+        demand = 0;
+        request();
+        return this;
+    }
+
+    @Override
+    public ChatStream resume() {
+        return fetch(Long.MAX_VALUE);
+    }
+
+    @Override
+    public ChatStream fetch(long amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("amount must be >= 0");
+        }
+        demand += amount;
+        if (demand < 0) {
+            demand = Long.MAX_VALUE;
+        }
+        drain();
+        return this;
+    }
+
+    @Override
+    public ChatStream endHandler(Handler<Void> endHandler) {
+        this.endHandler = endHandler;
+        if (endEmitted && endHandler != null) {
+            endHandler.handle(null);
+        }
+        return this;
+    }
+
+    /**
+     * 绑定上游调用，handler 抛出异常时取消
+     *
+     * @param call 上游调用
+     */
+    void bind(ChatCall call) {
+        this.call = call;
+    }
+
+    /**
+     * 上游请求失败
+     *
+     * @param err 异常
+     */
+    void fail(Throwable err) {
+        if (coalescer != null) {
+            coalescer.discard();
+        }
+        ready.clear();
+        if (result.tryFail(err) && exceptionHandler != null) {
+            exceptionHandler.handle(err);
+        }
+    }
+
+    /**
+     * 收到的消息段数
+     */
+    int chunks() {
+        return chunks;
+    }
+
+    /**
+     * 收到第一段消息的时间（{@link System#nanoTime()}），还没有收到时为 0
+     */
+    long firstChunkTime() {
+        return firstChunkTime;
+    }
+
+    private void handleEvent(SSEEvent event) {
+        if (result.future().isComplete()) {
+            return;
+        }
+        if (!event.isDone()) {
+            AssistantMessage assistantMessage = AssistantMessage.parse(event.data());
+            accumulator.add(assistantMessage);
+            if (assistantMessage.usage() == null || !isUsageOnly(assistantMessage)) {
+                if (chunks++ == 0) {
+                    firstChunkTime = System.nanoTime();
+                }
+                if (coalescer != null) {
+                    coalescer.add(assistantMessage);
+                } else {
+                    emit(assistantMessage);
+                }
+            }
+        }
+        // 这个事件没有交出消息时继续读取
+        request();
+    }
+
+    private void emit(AssistantMessage assistantMessage) {
+        ready.add(assistantMessage);
+        drain();
+    }
+
+    /**
+     * 按下游需求把消息交给 handler，全部交出且上游已结束时触发 endHandler，否则按剩余需求向上游读取
+     */
+    private void drain() {
+        if (draining) {
+            return;
+        }
+        draining = true;
+        try {
+            while (demand > 0 && handler != null && !ready.isEmpty()) {
+                if (demand != Long.MAX_VALUE) {
+                    demand--;
+                }
+                try {
+                    handler.handle(ready.poll());
+                } catch (RuntimeException e) {
+                    handlerFailed(e);
+                    return;
+                }
+            }
+        } finally {
+            draining = false;
+        }
+        if (ended) {
+            if (ready.isEmpty() && !endEmitted) {
+                endEmitted = true;
+                if (endHandler != null) {
+                    endHandler.handle(null);
+                }
+            }
+            return;
+        }
+        request();
+    }
+
+    /**
+     * handler 抛出异常：不再读取，流以该异常失败并取消上游请求
+     */
+    private void handlerFailed(Throwable err) {
+        parser.pause();
+        fail(err);
+        if (call != null) {
+            call.cancel(err);
+        }
+    }
+
+    /**
+     * 还有需求且没有待交出的消息时向上游读取：流动模式下直接恢复，否则一次只取一个事件
+     */
+    private void request() {
+        if (handler == null || demand == 0 || !ready.isEmpty() || ended) {
+            if (flowing || demand == 0) {
+                flowing = false;
+                parser.pause();
+            }
+        } else if (demand == Long.MAX_VALUE) {
+            if (!flowing) {
+                flowing = true;
+                parser.resume();
+            }
+        } else {
+            flowing = false;
+            parser.pause();
+            parser.fetch(1);
+        }
+    }
+
+    /**
+     * 只带用量、没有任何消息内容的片段不交给 handler
+     */
+    private static boolean isUsageOnly(AssistantMessage message) {
+        return message.content() == null && message.reasoning() == null
+                && message.finishReason() == null && message.toolCallDeltas().isEmpty();
+    }
+
+    private void handleEnd() {
+        if (result.future().isComplete()) {
+            return;
+        }
+        if (coalescer != null) {
+            coalescer.flush();
+        }
+
+        if (accumulator.isEmpty()) {
+            fail(new IllegalStateException("Stream ended without any data"));
+            return;
+        }
+        AssistantMessage assistantMessage = accumulator.result();
+        result.complete(assistantMessage);
+        ended = true;
+        drain();
+    }
+}
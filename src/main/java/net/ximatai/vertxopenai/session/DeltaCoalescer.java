@@ -0,0 +1,128 @@
+package net.ximatai.vertxopenai.session;
+
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import net.ximatai.vertxopenai.message.AssistantMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * 合并流式片段：累计的文本达到字符数、或第一个片段等待超过时间窗口时，把积攒的片段合并为一条交给下游；
+ * 带结束原因的片段总是立即连同之前的片段一起交出。n &gt; 1 时一个片段可能带多个 choice，合并时按序号分别拼接，
+ * 交出的片段通过 {@link AssistantMessage#choices()} 读取每个 choice
+ * <p>
+ * 时间窗口依赖 Vert.x 定时器，在没有 Vert.x 上下文的线程上只在下一个片段到达或流结束时检查。
+ */
+class DeltaCoalescer {
+
+    private final long window;
+    private final int maxChars;
+    private final Handler<AssistantMessage> downstream;
+    private final LongSupplier clock;
+    private final List<AssistantMessage> pending = new ArrayList<>();
+    private int chars;
+    private long firstAt;
+    private Context context;
+    private long timerId = -1;
+
+    /**
+     * @param window     时间窗口（毫秒），0 表示不按时间合并
+     * @param maxChars   字符数，0 表示不按字符数合并
+     * @param downstream 合并后的片段
+     */
+    DeltaCoalescer(long window, int maxChars, Handler<AssistantMessage> downstream) {
+        this(window, maxChars, downstream, System::nanoTime);
+    }
+
+    /**
+     * @param window     时间窗口（毫秒），0 表示不按时间合并
+     * @param maxChars   字符数，0 表示不按字符数合并
+     * @param downstream 合并后的片段
+     * @param clock      当前时间（纳秒），测试时替换为可控的时钟
+     */
+    DeltaCoalescer(long window, int maxChars, Handler<AssistantMessage> downstream, LongSupplier clock) {
+        if (window < 0) {
+            throw new IllegalArgumentException("window must be >= 0");
+        }
+        if (maxChars < 0) {
+            throw new IllegalArgumentException("maxChars must be >= 0");
+        }
+        if (window == 0 && maxChars == 0) {
+            throw new IllegalArgumentException("window or maxChars must be > 0");
+        }
+        this.window = window;
+        this.maxChars = maxChars;
+        this.downstream = downstream;
+        this.clock = clock;
+    }
+
+    void add(AssistantMessage message) {
+        if (pending.isEmpty()) {
+            firstAt = clock.getAsLong();
+        }
+        pending.add(message);
+        boolean finished = false;
+        for (AssistantMessage choice : message.choices()) {
+            chars += length(choice.content()) + length(choice.reasoning());
+            finished |= choice.finishReason() != null;
+        }
+
+        if (finished
+                || (maxChars > 0 && chars >= maxChars)
+                || (window > 0 && clock.getAsLong() - firstAt >= window * 1_000_000)) {
+            flush();
+        } else if (window > 0 && timerId < 0 && pending.size() == 1) {
+            schedule();
+        }
+    }
+
+    /**
+     * 立即交出积攒的片段
+     */
+    void flush() {
+        cancelTimer();
+        if (pending.isEmpty()) {
+            return;
+        }
+        AssistantMessage merged = AssistantMessage.merge(pending);
+        pending.clear();
+        chars = 0;
+        downstream.handle(merged);
+    }
+
+    /**
+     * 丢弃积攒的片段，流失败时调用
+     */
+    void discard() {
+        cancelTimer();
+        pending.clear();
+        chars = 0;
+    }
+
+    private void schedule() {
+        if (context == null) {
+            context = Vertx.currentContext();
+            if (context == null) {
+                return;
+            }
+        }
+        timerId = context.owner().setTimer(window, id -> {
+            timerId = -1;
+            flush();
+        });
+    }
+
+    private void cancelTimer() {
+        if (timerId >= 0) {
+            context.owner().cancelTimer(timerId);
+            timerId = -1;
+        }
+    }
+
+    private static int length(String text) {
+        return text == null ? 0 : text.length();
+    }
+}
@@ -0,0 +1,37 @@
+package net.ximatai.vertxopenai.session;
+
+import io.vertx.core.buffer.Buffer;
+import net.ximatai.vertxopenai.message.IMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 消息及其序列化后的 json，消息进入会话时只序列化、估算 token 一次，之后每轮请求直接复用
+ *
+ * @param message 消息
+ * @param json    序列化后的 json
+ * @param tokens  估算的 token 数
+ */
+record EncodedMessage(IMessage message, Buffer json, int tokens) implements HistoryEntry {
+
+    static EncodedMessage of(IMessage message) {
+        return new EncodedMessage(message, message.toJson().toBuffer(), TokenEstimator.estimate(message));
+    }
+
+    static int tokens(List<EncodedMessage> messages) {
+        int tokens = 0;
+        for (EncodedMessage message : messages) {
+            tokens += message.tokens();
+        }
+        return tokens;
+    }
+
+    static List<EncodedMessage> of(List<IMessage> messages) {
+        List<EncodedMessage> encoded = new ArrayList<>(messages.size());
+        for (IMessage message : messages) {
+            encoded.add(of(message));
+        }
+        return encoded;
+    }
+}
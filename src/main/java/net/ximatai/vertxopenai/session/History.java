@@ -0,0 +1,198 @@
+package net.ximatai.vertxopenai.session;
+
+import net.ximatai.vertxopenai.message.IMessage;
+import net.ximatai.vertxopenai.message.MessageCodec;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 会话历史的不可变快照，只能追加
+ * <p>
+ * 多个快照共享同一个底层数组：从最新的快照追加时用 CAS 占用数组末尾的空位直接写入，不需要复制；
+ * 从旧快照追加（末尾已经被其他快照占用）或容量不足时才复制出新的数组。已经写入的位置不会再被修改，
+ * 所以读取快照不需要任何同步，读者也不会阻塞写者。
+ * <p>
+ * 长时间不用的会话可以把历史冻结为堆外的紧凑编码（{@link #freeze()}），堆上只剩一个小对象；
+ * 冻结的历史不能直接读取，下次使用时先 {@link #thaw()} 解冻。
+ */
+final class History extends AbstractList<EncodedMessage> implements RandomAccess {
+
+    private static final int MIN_CAPACITY = 16;
+
+    /**
+     * 未冻结时的底层数组，冻结后为 null
+     */
+    private final Backing backing;
+    /**
+     * 冻结后的堆外编码：每条消息依次为 int token 数和 {@link MessageCodec} 编码的消息；未冻结时为 null
+     */
+    private final ByteBuffer frozen;
+    private final int size;
+    /**
+     * 清空会话时递增，清空之前发出的请求完成后不再写入历史
+     */
+    private final long generation;
+
+    private History(Backing backing, int size, long generation) {
+        this(backing, null, size, generation);
+    }
+
+    private History(Backing backing, ByteBuffer frozen, int size, long generation) {
+        this.backing = backing;
+        this.frozen = frozen;
+        this.size = size;
+        this.generation = generation;
+    }
+
+    /**
+     * 空的历史
+     *
+     * @param generation 代数
+     * @return 空的历史
+     */
+    static History empty(long generation) {
+        return new History(new Backing(0), 0, generation);
+    }
+
+    /**
+     * 由已有的消息创建历史
+     *
+     * @param messages   消息
+     * @param generation 代数
+     * @return 历史
+     */
+    static History of(List<EncodedMessage> messages, long generation) {
+        return empty(generation).append(messages);
+    }
+
+    long generation() {
+        return generation;
+    }
+
+    /**
+     * 追加消息，返回新的快照，当前快照不变
+     *
+     * @param messages 消息
+     * @return 新的快照
+     */
+    History append(List<EncodedMessage> messages) {
+        if (frozen != null) {
+            return thaw().append(messages);
+        }
+        int count = messages.size();
+        if (count == 0) {
+            return this;
+        }
+        int newSize = size + count;
+        Backing target = backing;
+        if (newSize > target.items.length || !target.used.compareAndSet(size, newSize)) {
+            target = new Backing(Math.max(MIN_CAPACITY, newSize * 2));
+            System.arraycopy(backing.items, 0, target.items, 0, size);
+            target.used.set(newSize);
+        }
+        for (int i = 0; i < count; i++) {
+            target.items[size + i] = messages.get(i);
+        }
+        return new History(target, newSize, generation);
+    }
+
+    boolean isFrozen() {
+        return frozen != null;
+    }
+
+    /**
+     * 把消息编码到堆外内存，返回冻结的快照；能用紧凑编码还原的消息解冻时重新生成 json，
+     * 自定义 json 的消息连同已经序列化的 json 一起保存
+     *
+     * @return 冻结的快照
+     */
+    History freeze() {
+        if (frozen != null) {
+            return this;
+        }
+        byte[][] encoded = new byte[size][];
+        int length = 0;
+        for (int i = 0; i < size; i++) {
+            EncodedMessage item = backing.items[i];
+            encoded[i] = MessageCodec.encode(item.message(), item.json());
+            length += 4 + encoded[i].length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(length);
+        for (int i = 0; i < size; i++) {
+            buffer.putInt(backing.items[i].tokens());
+            buffer.put(encoded[i]);
+        }
+        return new History(null, buffer.flip(), size, generation);
+    }
+
+    /**
+     * 从堆外编码恢复消息，返回未冻结的快照
+     *
+     * @return 未冻结的快照
+     */
+    History thaw() {
+        if (frozen == null) {
+            return this;
+        }
+        ByteBuffer buffer = frozen.duplicate();
+        List<EncodedMessage> messages = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int tokens = buffer.getInt();
+            IMessage message = MessageCodec.decode(buffer);
+            messages.add(new EncodedMessage(message, message.toJson().toBuffer(), tokens));
+        }
+        return of(messages, generation);
+    }
+
+    /**
+     * 快照中的消息
+     *
+     * @return 只读的消息列表
+     */
+    List<IMessage> messages() {
+        return new AbstractList<>() {
+            @Override
+            public IMessage get(int index) {
+                return History.this.get(index).message();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public EncodedMessage get(int index) {
+        if (frozen != null) {
+            throw new IllegalStateException("History is frozen");
+        }
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return backing.items[index];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 共享的底层数组，used 是已经被某个快照占用的长度
+     */
+    private static final class Backing {
+        private final EncodedMessage[] items;
+        private final AtomicInteger used = new AtomicInteger();
+
+        private Backing(int capacity) {
+            this.items = new EncodedMessage[capacity];
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package net.ximatai.vertxopenai.session;
+
+import net.ximatai.vertxopenai.message.IMessage;
+
+/**
+ * 会话历史中的一条消息
+ */
+public interface HistoryEntry {
+
+    /**
+     * 消息
+     *
+     * @return 消息
+     */
+    IMessage message();
+
+    /**
+     * 估算的 token 数，消息进入会话时计算一次
+     *
+     * @return token 数
+     */
+    int tokens();
+}
@@ -0,0 +1,94 @@
+package net.ximatai.vertxopenai.session;
+
+import net.ximatai.vertxopenai.message.MessageRole;
+
+import java.util.List;
+
+/**
+ * 会话历史策略，决定每轮请求携带哪些历史消息
+ * <p>
+ * 策略只影响发送的内容，会话中保存的历史不会被删除；系统消息和摘要（{@link ChatSession#setSummary(String)}）总是会发送。
+ */
+@FunctionalInterface
+public interface HistoryPolicy {
+
+    /**
+     * 计算本轮请求从哪一条历史消息开始发送
+     *
+     * @param history        会话历史
+     * @param reservedTokens 本轮请求中历史以外部分（系统消息、摘要、本次消息）估算的 token 数
+     * @return 起始下标，0 表示发送全部历史，history.size() 表示不发送历史
+     */
+    int start(List<? extends HistoryEntry> history, int reservedTokens);
+
+    /**
+     * 发送全部历史（默认）
+     *
+     * @return 策略
+     */
+    static HistoryPolicy unlimited() {
+        return (history, reservedTokens) -> 0;
+    }
+
+    /**
+     * 只发送最近 n 轮对话（一轮从一条用户消息开始）
+     *
+     * @param turns 轮数
+     * @return 策略
+     */
+    static HistoryPolicy lastTurns(int turns) {
+        if (turns < 0) {
+            throw new IllegalArgumentException("turns must be >= 0");
+        }
+        return (history, reservedTokens) -> {
+            int remaining = turns;
+            for (int i = history.size() - 1; i >= 0; i--) {
+                if (history.get(i).message().role() == MessageRole.USER) {
+                    if (remaining == 0) {
+                        return alignToTurn(history, i + 1);
+                    }
+                    remaining--;
+                }
+            }
+            return turns == 0 ? history.size() : 0;
+        };
+    }
+
+    /**
+     * 在 token 预算内尽量多地发送最近的历史，按整轮对话截断
+     *
+     * @param maxTokens 整个请求的 token 预算（包含系统消息、摘要和本次消息）
+     * @return 策略
+     */
+    static HistoryPolicy tokenBudget(int maxTokens) {
+        if (maxTokens <= 0) {
+            throw new IllegalArgumentException("maxTokens must be > 0");
+        }
+        return (history, reservedTokens) -> {
+            int budget = maxTokens - reservedTokens;
+            int start = history.size();
+            while (start > 0 && history.get(start - 1).tokens() <= budget) {
+                budget -= history.get(start - 1).tokens();
+                start--;
+            }
+            return alignToTurn(history, start);
+        };
+    }
+
+    /**
+     * 把起始位置向后移动到下一轮对话的开头，避免只发送半轮对话，可用于自定义策略
+     *
+     * @param history 会话历史
+     * @param start   起始下标
+     * @return 对齐后的起始下标
+     */
+    static int alignToTurn(List<? extends HistoryEntry> history, int start) {
+        if (start == 0) {
+            return 0;
+        }
+        while (start < history.size() && history.get(start).message().role() != MessageRole.USER) {
+            start++;
+        }
+        return start;
+    }
+}
@@ -0,0 +1,385 @@
+package net.ximatai.vertxopenai.session;
+
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
+import net.ximatai.vertxopenai.message.AssistantMessage;
+
+import java.util.Objects;
+
+/**
+ * 多播流：一个上游流式响应分发给多个订阅者，比如聊天室中所有人看到同一个回答
+ * <p>
+ * 上游按自身速度读取，片段写入固定大小的环形缓冲区，每个订阅者有自己的读取位置和背压（pause/fetch），
+ * 慢的订阅者不会拖慢上游和其他订阅者。订阅者落后超过缓冲区大小时按各自的 {@link OverflowPolicy} 处理。
+ * <p>
+ * 晚加入的订阅者从头读取：仍在缓冲区中的片段逐段读取，已经被覆盖的部分合并为一条消息。
+ * 合并的消息只包含文本内容和推理内容，完整的工具调用从 {@link #result()} 读取。
+ */
+public class MulticastStream {
+
+    private static final Object END = new Object();
+
+    private final AssistantMessage[] ring;
+    /**
+     * 每个片段之前的累计内容长度，合并被覆盖的片段时使用
+     */
+    private final int[] contentStart;
+    private final int[] reasoningStart;
+    private final StringBuilder content = new StringBuilder();
+    private final StringBuilder reasoning = new StringBuilder();
+    private volatile Subscriber[] subscribers = new Subscriber[0];
+    private ChatStream upstream;
+    /**
+     * 已经收到的片段数，下一个片段的序号
+     */
+    private long head;
+    private boolean ended;
+    private Throwable failure;
+
+    MulticastStream(int bufferSize) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("bufferSize must be > 0");
+        }
+        this.ring = new AssistantMessage[bufferSize];
+        this.contentStart = new int[bufferSize];
+        this.reasoningStart = new int[bufferSize];
+    }
+
+    /**
+     * 开始读取上游
+     */
+    MulticastStream connect(ChatStream upstream) {
+        this.upstream = upstream;
+        upstream.exceptionHandler(this::fail);
+        upstream.endHandler(v -> end());
+        upstream.handler(this::publish);
+        return this;
+    }
+
+    /**
+     * 最终完整的 AI 消息，上游结束后完成
+     *
+     * @return AI返回消息（异步）
+     */
+    public Future<AssistantMessage> result() {
+        return upstream.result();
+    }
+
+    /**
+     * 添加订阅者，设置 handler 之后开始读取
+     *
+     * @param policy 落后超过缓冲区大小时的处理方式
+     * @return 订阅者
+     */
+    public Subscriber subscribe(OverflowPolicy policy) {
+        Objects.requireNonNull(policy, "Overflow policy cannot be null");
+        synchronized (this) {
+            Subscriber subscriber = new Subscriber(policy, head);
+            Subscriber[] current = subscribers;
+            Subscriber[] updated = new Subscriber[current.length + 1];
+            System.arraycopy(current, 0, updated, 0, current.length);
+            updated[current.length] = subscriber;
+            subscribers = updated;
+            return subscriber;
+        }
+    }
+
+    /**
+     * 当前的订阅者数，已经结束、断开或取消的订阅者不计入
+     *
+     * @return 订阅者数
+     */
+    public int subscribers() {
+        return subscribers.length;
+    }
+
+    private void publish(AssistantMessage message) {
+        synchronized (this) {
+            int slot = slot(head);
+            ring[slot] = message;
+            contentStart[slot] = content.length();
+            reasoningStart[slot] = reasoning.length();
+            if (message.content() != null) {
+                content.append(message.content());
+            }
+            if (message.reasoning() != null) {
+                reasoning.append(message.reasoning());
+            }
+            head++;
+        }
+        drainAll();
+    }
+
+    private void end() {
+        synchronized (this) {
+            ended = true;
+        }
+        drainAll();
+    }
+
+    private void fail(Throwable err) {
+        synchronized (this) {
+            failure = err;
+        }
+        drainAll();
+    }
+
+    private void drainAll() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.drain();
+        }
+    }
+
+    private int slot(long sequence) {
+        return (int) (sequence % ring.length);
+    }
+
+    private synchronized void remove(Subscriber subscriber) {
+        Subscriber[] current = subscribers;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == subscriber) {
+                Subscriber[] updated = new Subscriber[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                subscribers = updated;
+                return;
+            }
+        }
+    }
+
+    /**
+     * 多播流的一个订阅者
+     */
+    public final class Subscriber implements ReadStream<AssistantMessage> {
+
+        private final OverflowPolicy policy;
+        /**
+         * 加入时上游的位置，之前的片段属于回放，总是完整回放
+         */
+        private final long joinedAt;
+        private long cursor;
+        private int contentPos;
+        private int reasoningPos;
+        private long demand = Long.MAX_VALUE;
+        private boolean draining;
+        private boolean closed;
+        private Handler<AssistantMessage> handler;
+        private Handler<Void> endHandler;
+        private Handler<Throwable> exceptionHandler;
+
+        private Subscriber(OverflowPolicy policy, long joinedAt) {
+            this.policy = policy;
+            this.joinedAt = joinedAt;
+        }
+
+        @Override
+        public Subscriber exceptionHandler(Handler<Throwable> handler) {
+            synchronized (MulticastStream.this) {
+                this.exceptionHandler = handler;
+            }
+            return this;
+        }
+
+        @Override
+        public Subscriber handler(Handler<AssistantMessage> handler) {
+            synchronized (MulticastStream.this) {
+                this.handler = handler;
+            }
+            drain();
+            return this;
+        }
+
+        @Override
+        public Subscriber pause() {
+            synchronized (MulticastStream.this) {
+                demand = 0;
+            }
+            return this;
+        }
+
+        @Override
+        public Subscriber resume() {
+            synchronized (MulticastStream.this) {
+                demand = Long.MAX_VALUE;
+            }
+            drain();
+            return this;
+        }
+
+        @Override
+        public Subscriber fetch(long amount) {
+            synchronized (MulticastStream.this) {
+                demand += amount;
+                if (demand < 0) {
+                    demand = Long.MAX_VALUE;
+                }
+            }
+            drain();
+            return this;
+        }
+
+        @Override
+        public Subscriber endHandler(Handler<Void> endHandler) {
+            synchronized (MulticastStream.this) {
+                this.endHandler = endHandler;
+            }
+            drain();
+            return this;
+        }
+
+        /**
+         * 取消订阅，之后不再收到任何回调
+         */
+        public void unsubscribe() {
+            synchronized (MulticastStream.this) {
+                closed = true;
+            }
+            remove(this);
+        }
+
+        /**
+         * 尚未读取的片段数
+         *
+         * @return 片段数
+         */
+        public long lag() {
+            synchronized (MulticastStream.this) {
+                return head - cursor;
+            }
+        }
+
+        private void drain() {
+            synchronized (MulticastStream.this) {
+                if (draining) {
+                    return;
+                }
+                draining = true;
+            }
+            try {
+                while (true) {
+                    Object next;
+                    Handler<AssistantMessage> messageHandler;
+                    Handler<Void> onEnd;
+                    Handler<Throwable> onError;
+                    synchronized (MulticastStream.this) {
+                        next = poll();
+                        if (next == null) {
+                            draining = false;
+                            return;
+                        }
+                        messageHandler = handler;
+                        onEnd = endHandler;
+                        onError = exceptionHandler;
+                    }
+                    if (next instanceof AssistantMessage message) {
+                        try {
+                            messageHandler.handle(message);
+                        } catch (RuntimeException e) {
+                            // 一个订阅者出错只断开它自己，不影响上游和其他订阅者
+                            synchronized (MulticastStream.this) {
+                                closed = true;
+                            }
+                            next = e;
+                        }
+                    }
+                    if (next instanceof AssistantMessage) {
+                        continue;
+                    } else if (next == END) {
+                        remove(this);
+                        if (onEnd != null) {
+                            onEnd.handle(null);
+                        }
+                    } else {
+                        remove(this);
+                        if (onError != null) {
+                            onError.handle((Throwable) next);
+                        }
+                    }
+                }
+            } finally {
+                synchronized (MulticastStream.this) {
+                    draining = false;
+                }
+            }
+        }
+
+        /**
+         * 下一条要交给订阅者的消息、END 或异常，没有可读内容时为 null；调用时持有多播流的锁
+         */
+        private Object poll() {
+            while (!closed) {
+                if (failure != null) {
+                    closed = true;
+                    return failure;
+                }
+                long oldest = Math.max(0, head - ring.length);
+                if (cursor < oldest) {
+                    boolean replay = cursor < joinedAt;
+                    if (!replay && policy == OverflowPolicy.DISCONNECT) {
+                        closed = true;
+                        return new SlowSubscriberException("Subscriber fell behind by " + (head - cursor) + " chunks");
+                    }
+                    if (!replay && policy == OverflowPolicy.DROP) {
+                        skipTo(oldest);
+                        continue;
+                    }
+                    if (handler == null || demand == 0) {
+                        return null;
+                    }
+                    AssistantMessage merged = merged(oldest);
+                    skipTo(oldest);
+                    if (merged != null) {
+                        demand--;
+                        return merged;
+                    }
+                    continue;
+                }
+                if (cursor < head) {
+                    if (handler == null || demand == 0) {
+                        return null;
+                    }
+                    AssistantMessage message = ring[slot(cursor++)];
+                    contentPos += message.content() == null ? 0 : message.content().length();
+                    reasoningPos += message.reasoning() == null ? 0 : message.reasoning().length();
+                    demand--;
+                    return message;
+                }
+                if (ended) {
+                    closed = true;
+                    return END;
+                }
+                return null;
+            }
+            return null;
+        }
+
+        private void skipTo(long sequence) {
+            cursor = sequence;
+            contentPos = contentStart[slot(sequence)];
+            reasoningPos = reasoningStart[slot(sequence)];
+        }
+
+        /**
+         * 合并从当前位置到 sequence 之前被覆盖的片段，没有任何内容时为 null
+         */
+        private AssistantMessage merged(long sequence) {
+            int contentEnd = contentStart[slot(sequence)];
+            int reasoningEnd = reasoningStart[slot(sequence)];
+            if (contentEnd == contentPos && reasoningEnd == reasoningPos) {
+                return null;
+            }
+            JsonObject delta = new JsonObject();
+            if (contentEnd > contentPos) {
+                delta.put("content", content.substring(contentPos, contentEnd));
+            }
+            if (reasoningEnd > reasoningPos) {
+                delta.put("reasoning_content", reasoning.substring(reasoningPos, reasoningEnd));
+            }
+            return new AssistantMessage(new JsonObject()
+                    .put("choices", new JsonArray().add(new JsonObject().put("index", 0).put("delta", delta))));
+        }
+    }
+}
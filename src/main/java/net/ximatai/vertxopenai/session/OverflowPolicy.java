@@ -0,0 +1,19 @@
+package net.ximatai.vertxopenai.session;
+
+/**
+ * 多播流的订阅者落后超过缓冲区大小（未读的片段被覆盖）时的处理方式
+ */
+public enum OverflowPolicy {
+    /**
+     * 丢弃被覆盖的片段，从缓冲区中最早的片段继续读取
+     */
+    DROP,
+    /**
+     * 把被覆盖的片段的内容合并为一条消息交给订阅者，之后继续逐段读取
+     */
+    COALESCE,
+    /**
+     * 以 {@link SlowSubscriberException} 断开订阅者
+     */
+    DISCONNECT
+}
@@ -0,0 +1,84 @@
+package net.ximatai.vertxopenai.session;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+
+import java.util.List;
+
+/**
+ * 由预先序列化好的片段拼接请求体，只有模型配置需要每次重新序列化
+ */
+final class RequestBody {
+
+    private static final Buffer STREAM = Buffer.buffer("\"stream\":true,");
+    /**
+     * 流式请求默认要求在最后返回 token 用量
+     */
+    private static final Buffer STREAM_WITH_USAGE = Buffer.buffer("\"stream\":true,\"stream_options\":{\"include_usage\":true},");
+    private static final Buffer MESSAGES_START = Buffer.buffer("\"messages\":[");
+    private static final Buffer MESSAGES_END = Buffer.buffer("]}");
+    private static final byte COMMA = ',';
+
+    private RequestBody() {
+    }
+
+    /**
+     * 拼接请求体
+     *
+     * @param config   模型配置
+     * @param stream   是否流式请求
+     * @param segments 依次拼接的消息片段
+     * @return 请求体
+     */
+    @SafeVarargs
+    static Buffer encode(JsonObject config, boolean stream, List<EncodedMessage>... segments) {
+        boolean streamOptions = config.containsKey("stream_options");
+        if (config.containsKey("messages") || (stream && config.containsKey("stream")) || (!stream && streamOptions)) {
+            config = config.copy();
+            config.remove("messages");
+            config.remove("stream");
+            if (!stream) {
+                // stream_options 只能用于流式请求
+                config.remove("stream_options");
+            }
+        }
+        Buffer streamField = streamOptions ? STREAM : STREAM_WITH_USAGE;
+        Buffer head = config.toBuffer();
+        int headLength = head.length() - 1; // 去掉结尾的 }
+
+        int size = headLength + 1 + MESSAGES_START.length() + MESSAGES_END.length();
+        if (stream) {
+            size += streamField.length();
+        }
+        int count = 0;
+        for (List<EncodedMessage> segment : segments) {
+            for (EncodedMessage message : segment) {
+                size += message.json().length();
+            }
+            count += segment.size();
+        }
+        size += count;
+
+        Buffer body = Buffer.buffer(size);
+        body.appendBuffer(head, 0, headLength);
+        if (headLength > 1) {
+            body.appendByte(COMMA);
+        }
+        if (stream) {
+            body.appendBuffer(streamField);
+        }
+        body.appendBuffer(MESSAGES_START);
+
+        boolean first = true;
+        for (List<EncodedMessage> segment : segments) {
+            for (EncodedMessage message : segment) {
+                if (!first) {
+                    body.appendByte(COMMA);
+                }
+                body.appendBuffer(message.json());
+                first = false;
+            }
+        }
+        return body.appendBuffer(MESSAGES_END);
+    }
+}
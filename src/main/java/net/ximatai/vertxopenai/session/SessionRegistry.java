@@ -0,0 +1,202 @@
+package net.ximatai.vertxopenai.session;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * 会话注册表，按 id（比如最终用户）管理大量会话，大部分会话处于空闲状态时控制堆内存占用
+ * <p>
+ * 会话按最近获取的顺序排列。定时检查时，空闲超过 {@link SessionRegistryOptions#getIdleTime()} 的会话，
+ * 以及超出 {@link SessionRegistryOptions#getMaxHotSessions()} 的最久未使用的会话，其历史被编码到堆外内存，
+ * 堆上只保留会话本身；下次 {@link ChatSession#open()} 时自动恢复。超出 {@link SessionRegistryOptions#getMaxSessions()}
+ * 的会话被移出注册表，配置了会话存储时下次获取会从存储恢复。
+ * <p>
+ * 同一个 id 应当始终通过注册表获取，不要长期持有会话对象，否则被移出注册表的会话与之后恢复的会话会各自修改历史。
+ */
+public class SessionRegistry implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionRegistry.class);
+
+    private final Vertx vertx;
+    private final Function<String, ChatSession> factory;
+    private final Function<String, Future<ChatSession>> loader;
+    private final SessionRegistryOptions options;
+    private final LinkedHashMap<String, ChatSession> sessions;
+    /**
+     * 正在从存储恢复的会话，同一个 id 只恢复一次
+     */
+    private final Map<String, Future<ChatSession>> loading = new HashMap<>();
+    private final long timerId;
+    private boolean closed;
+
+    /**
+     * 创建会话注册表，通常通过 {@code IOpenService.registry} 创建
+     *
+     * @param vertx   vertx，用于定时检查
+     * @param factory 按 id 创建新会话
+     * @param loader  按 id 从存储恢复会话，会话不存在时结果为 null；为 null 时不从存储恢复
+     * @param options 注册表配置
+     */
+    public SessionRegistry(Vertx vertx, Function<String, ChatSession> factory,
+                           Function<String, Future<ChatSession>> loader, SessionRegistryOptions options) {
+        this.vertx = Objects.requireNonNull(vertx, "Vertx cannot be null");
+        this.factory = Objects.requireNonNull(factory, "Factory cannot be null");
+        this.loader = loader;
+        this.options = Objects.requireNonNull(options, "Options cannot be null");
+        this.sessions = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ChatSession> eldest) {
+                return size() > SessionRegistry.this.options.getMaxSessions();
+            }
+        };
+        this.timerId = vertx.setPeriodic(options.getSweepInterval(), id -> vertx
+                .executeBlocking(() -> {
+                    sweep();
+                    return null;
+                }, false)
+                .onFailure(err -> logger.error("Session registry sweep failed: {}", err.getMessage())));
+    }
+
+    /**
+     * 获取会话：注册表中没有时先从存储恢复，存储中也没有时创建新会话
+     *
+     * @param id 会话 id
+     * @return 会话（异步）
+     */
+    public Future<ChatSession> get(String id) {
+        Objects.requireNonNull(id, "Session id cannot be null");
+        Promise<ChatSession> promise;
+        synchronized (this) {
+            if (closed) {
+                return Future.failedFuture(new IllegalStateException("SessionRegistry is closed"));
+            }
+            ChatSession session = sessions.get(id);
+            if (session != null) {
+                return Future.succeededFuture(session);
+            }
+            Future<ChatSession> pending = loading.get(id);
+            if (pending != null) {
+                return pending;
+            }
+            if (loader == null) {
+                session = factory.apply(id);
+                sessions.put(id, session);
+                return Future.succeededFuture(session);
+            }
+            promise = Promise.promise();
+            loading.put(id, promise.future());
+        }
+
+        loader.apply(id).onComplete(ar -> {
+            ChatSession session = null;
+            Throwable failure = ar.cause();
+            synchronized (this) {
+                loading.remove(id);
+                if (ar.succeeded()) {
+                    try {
+                        session = ar.result() != null ? ar.result() : factory.apply(id);
+                        sessions.put(id, session);
+                    } catch (RuntimeException e) {
+                        failure = e;
+                    }
+                }
+            }
+            if (session != null) {
+                promise.complete(session);
+            } else {
+                promise.fail(failure);
+            }
+        });
+        return promise.future();
+    }
+
+    /**
+     * 获取注册表中已有的会话，不会恢复或创建
+     *
+     * @param id 会话 id
+     * @return 会话，没有时为 null
+     */
+    public synchronized ChatSession getIfPresent(String id) {
+        return sessions.get(id);
+    }
+
+    /**
+     * 把会话移出注册表，不会删除存储中的数据
+     *
+     * @param id 会话 id
+     * @return 被移出的会话，没有时为 null
+     */
+    public synchronized ChatSession remove(String id) {
+        return sessions.remove(id);
+    }
+
+    /**
+     * 注册表中的会话数
+     *
+     * @return 会话数
+     */
+    public synchronized int size() {
+        return sessions.size();
+    }
+
+    /**
+     * 把空闲的和超出数量的会话历史移到堆外，从最久未使用的会话开始；在锁内选出会话，在锁外逐个冻结，不阻塞 {@link #get}
+     */
+    void sweep() {
+        for (Candidate candidate : candidates()) {
+            candidate.session().offload(candidate.lastAccess());
+        }
+    }
+
+    /**
+     * 按最久未使用的顺序选出需要移到堆外的会话，记下选出时的使用时间，冻结前会话又被使用过时放弃
+     */
+    private synchronized List<Candidate> candidates() {
+        long idleBefore = System.nanoTime() - options.getIdleTime() * 1_000_000;
+        int hot = 0;
+        for (ChatSession session : sessions.values()) {
+            if (!session.isOffloaded()) {
+                hot++;
+            }
+        }
+        int excess = hot - options.getMaxHotSessions();
+        List<Candidate> candidates = new ArrayList<>();
+        for (ChatSession session : sessions.values()) {
+            if (session.isOffloaded()) {
+                continue;
+            }
+            long lastAccess = session.lastAccess();
+            if (excess > 0 || lastAccess - idleBefore < 0) {
+                candidates.add(new Candidate(session, lastAccess));
+                excess--;
+            }
+        }
+        return candidates;
+    }
+
+    private record Candidate(ChatSession session, long lastAccess) {
+    }
+
+    /**
+     * 停止定时检查，注册表中的会话仍然可以使用；创建它的服务关闭时自动调用
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        vertx.cancelTimer(timerId);
+    }
+}
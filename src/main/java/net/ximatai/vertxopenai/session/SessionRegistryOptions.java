@@ -0,0 +1,124 @@
+package net.ximatai.vertxopenai.session;
+
+/**
+ * 会话注册表配置
+ */
+public class SessionRegistryOptions {
+
+    /**
+     * 默认历史保留在堆上的会话数
+     */
+    public static final int DEFAULT_MAX_HOT_SESSIONS = 10_000;
+    /**
+     * 默认空闲时间（毫秒）
+     */
+    public static final long DEFAULT_IDLE_TIME = 600_000;
+    /**
+     * 默认检查间隔（毫秒）
+     */
+    public static final long DEFAULT_SWEEP_INTERVAL = 30_000;
+
+    private int maxHotSessions = DEFAULT_MAX_HOT_SESSIONS;
+    private long idleTime = DEFAULT_IDLE_TIME;
+    private int maxSessions = Integer.MAX_VALUE;
+    private long sweepInterval = DEFAULT_SWEEP_INTERVAL;
+
+    /**
+     * 使用默认值创建配置
+     */
+    public SessionRegistryOptions() {
+    }
+
+    /**
+     * 获取历史保留在堆上的会话数
+     *
+     * @return 会话数
+     */
+    public int getMaxHotSessions() {
+        return maxHotSessions;
+    }
+
+    /**
+     * 设置历史保留在堆上的会话数，超出时最久未使用的会话的历史被移到堆外
+     *
+     * @param maxHotSessions 会话数
+     * @return this
+     */
+    public SessionRegistryOptions setMaxHotSessions(int maxHotSessions) {
+        if (maxHotSessions < 0) {
+            throw new IllegalArgumentException("maxHotSessions must be >= 0");
+        }
+        this.maxHotSessions = maxHotSessions;
+        return this;
+    }
+
+    /**
+     * 获取空闲时间（毫秒）
+     *
+     * @return 空闲时间
+     */
+    public long getIdleTime() {
+        return idleTime;
+    }
+
+    /**
+     * 设置空闲时间（毫秒），超过该时间没有使用的会话的历史被移到堆外
+     *
+     * @param idleTime 空闲时间
+     * @return this
+     */
+    public SessionRegistryOptions setIdleTime(long idleTime) {
+        if (idleTime < 1) {
+            throw new IllegalArgumentException("idleTime must be > 0");
+        }
+        this.idleTime = idleTime;
+        return this;
+    }
+
+    /**
+     * 获取注册表中最多保留的会话数
+     *
+     * @return 会话数
+     */
+    public int getMaxSessions() {
+        return maxSessions;
+    }
+
+    /**
+     * 设置注册表中最多保留的会话数，超出时移除最久未使用的会话，默认不限制；
+     * 配置了会话存储时被移除的会话可以在下次获取时从存储恢复，否则其历史会丢失
+     *
+     * @param maxSessions 会话数
+     * @return this
+     */
+    public SessionRegistryOptions setMaxSessions(int maxSessions) {
+        if (maxSessions < 1) {
+            throw new IllegalArgumentException("maxSessions must be > 0");
+        }
+        this.maxSessions = maxSessions;
+        return this;
+    }
+
+    /**
+     * 获取检查间隔（毫秒）
+     *
+     * @return 检查间隔
+     */
+    public long getSweepInterval() {
+        return sweepInterval;
+    }
+
+    /**
+     * 设置检查空闲会话的间隔（毫秒），检查在 worker 线程上进行
+     *
+     * @param sweepInterval 检查间隔
+     * @return this
+     */
+    public SessionRegistryOptions setSweepInterval(long sweepInterval) {
+        if (sweepInterval < 1) {
+            throw new IllegalArgumentException("sweepInterval must be > 0");
+        }
+        this.sweepInterval = sweepInterval;
+        return this;
+    }
+}
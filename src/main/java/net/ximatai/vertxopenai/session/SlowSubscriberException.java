@@ -0,0 +1,16 @@
+package net.ximatai.vertxopenai.session;
+
+/**
+ * 多播流的订阅者读取太慢，未读的片段已经被覆盖，按 {@link OverflowPolicy#DISCONNECT} 断开
+ */
+public class SlowSubscriberException extends RuntimeException {
+
+    /**
+     * 创建异常
+     *
+     * @param message 原因
+     */
+    public SlowSubscriberException(String message) {
+        super(message, null, false, false);
+    }
+}
@@ -0,0 +1,117 @@
+package net.ximatai.vertxopenai.session;
+
+import net.ximatai.vertxopenai.message.Usage;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * token 预算：按上游返回的用量（total_tokens）累计，达到上限后新的请求在发出前以 {@link BudgetExceededException} 失败
+ * <p>
+ * 预算可以有上级预算，记录用量时同时计入上级，任何一级用完都会拒绝请求。服务配置的预算会作为每个会话的默认预算，
+ * 需要为单个会话另外限额时以它为上级：
+ * <pre>{@code
+ * session.setBudget(new TokenBudget(10_000, session.getBudget()));
+ * }</pre>
+ * 预算只在发出请求前检查，同时进行的请求可能让用量略微超出上限。
+ */
+public class TokenBudget {
+
+    private final long limit;
+    private final TokenBudget parent;
+    private final AtomicLong used = new AtomicLong();
+
+    /**
+     * 创建预算
+     *
+     * @param limit token 上限
+     */
+    public TokenBudget(long limit) {
+        this(limit, null);
+    }
+
+    /**
+     * 创建预算
+     *
+     * @param limit  token 上限
+     * @param parent 上级预算，可以为 null
+     */
+    public TokenBudget(long limit, TokenBudget parent) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be > 0");
+        }
+        this.limit = limit;
+        this.parent = parent;
+    }
+
+    /**
+     * token 上限
+     *
+     * @return 上限
+     */
+    public long limit() {
+        return limit;
+    }
+
+    /**
+     * 已经使用的 token 数
+     *
+     * @return 已使用
+     */
+    public long used() {
+        return used.get();
+    }
+
+    /**
+     * 剩余的 token 数（不考虑上级预算）
+     *
+     * @return 剩余
+     */
+    public long remaining() {
+        return Math.max(0, limit - used.get());
+    }
+
+    /**
+     * 本级或任何一级上级预算是否已经用完
+     *
+     * @return 是否用完
+     */
+    public boolean isExhausted() {
+        return used.get() >= limit || (parent != null && parent.isExhausted());
+    }
+
+    /**
+     * 记录一次用量，同时计入上级预算
+     *
+     * @param usage 用量，为 null 时忽略
+     */
+    public void record(Usage usage) {
+        if (usage == null) {
+            return;
+        }
+        int tokens = usage.totalTokens() > 0 ? usage.totalTokens() : usage.promptTokens() + usage.completionTokens();
+        used.addAndGet(tokens);
+        if (parent != null) {
+            parent.record(usage);
+        }
+    }
+
+    /**
+     * 清零本级预算的用量，比如每个计费周期开始时调用
+     */
+    public void reset() {
+        used.set(0);
+    }
+
+    /**
+     * 检查预算
+     *
+     * @return 本级或上级预算用完时返回对应的异常，否则返回 null
+     */
+    BudgetExceededException exceeded() {
+        long current = used.get();
+        if (current >= limit) {
+            return new BudgetExceededException("Token budget exceeded: used " + current + " of " + limit);
+        }
+        return parent == null ? null : parent.exceeded();
+    }
+}
@@ -0,0 +1,98 @@
+package net.ximatai.vertxopenai.session;
+
+import net.ximatai.vertxopenai.message.IMessage;
+import net.ximatai.vertxopenai.message.ToolCall;
+import net.ximatai.vertxopenai.message.ToolCallsMessage;
+
+/**
+ * 本地 token 数估算，不依赖具体模型的词表，单次扫描、不分配内存
+ * <p>
+ * 英文等 ASCII 单词按约 4 个字符一个 token 计，标点各计 1 个，中日韩文字每字计 1 个，其他文字约 2 个字符一个 token，
+ * 每条消息和每个工具调用另加 4 个 token 的格式开销。结果略偏大，适合用来控制请求大小，不适合用来计费。
+ */
+public final class TokenEstimator {
+
+    /**
+     * 每条消息的格式开销（role、分隔符等）
+     */
+    public static final int MESSAGE_OVERHEAD = 4;
+
+    private TokenEstimator() {
+    }
+
+    /**
+     * 估算一条消息的 token 数
+     *
+     * @param message 消息
+     * @return token 数
+     */
+    public static int estimate(IMessage message) {
+        int tokens = MESSAGE_OVERHEAD + estimate(message.content());
+        if (message instanceof ToolCallsMessage calls) {
+            for (ToolCall toolCall : calls.toolCalls()) {
+                tokens += MESSAGE_OVERHEAD + estimate(toolCall.name()) + estimate(toolCall.arguments());
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * 估算一段文本的 token 数
+     *
+     * @param text 文本，可以为 null
+     * @return token 数
+     */
+    public static int estimate(CharSequence text) {
+        if (text == null) {
+            return 0;
+        }
+
+        int tokens = 0;
+        int asciiRun = 0;
+        int otherRun = 0;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                if (otherRun > 0) {
+                    tokens += (otherRun + 1) / 2;
+                    otherRun = 0;
+                }
+                if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')) {
+                    asciiRun++;
+                    continue;
+                }
+                tokens += (asciiRun + 3) / 4;
+                asciiRun = 0;
+                if (c > ' ') {
+                    tokens++;
+                }
+                continue;
+            }
+
+            if (asciiRun > 0) {
+                tokens += (asciiRun + 3) / 4;
+                asciiRun = 0;
+            }
+            if (Character.isHighSurrogate(c)) {
+                tokens += 2; // emoji 等补充平面字符
+                i++;
+            } else if (isCjk(c)) {
+                tokens += (otherRun + 1) / 2;
+                otherRun = 0;
+                tokens++;
+            } else {
+                otherRun++;
+            }
+        }
+        return tokens + (asciiRun + 3) / 4 + (otherRun + 1) / 2;
+    }
+
+    private static boolean isCjk(char c) {
+        return (c >= 0x4E00 && c <= 0x9FFF)     // CJK 统一汉字
+                || (c >= 0x3400 && c <= 0x4DBF) // 扩展 A
+                || (c >= 0x3000 && c <= 0x30FF) // 中日标点、平假名、片假名
+                || (c >= 0xAC00 && c <= 0xD7AF) // 韩文音节
+                || (c >= 0xFF00 && c <= 0xFFEF);// 全角字符
+    }
+}
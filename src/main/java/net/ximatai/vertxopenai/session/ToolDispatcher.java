@@ -0,0 +1,143 @@
+package net.ximatai.vertxopenai.session;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import net.ximatai.vertxopenai.message.ToolCall;
+import net.ximatai.vertxopenai.message.ToolMessage;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 工具调度器：注册工具，通过 {@link ChatRequest#tools(ToolDispatcher)} 随请求发给模型，
+ * 模型返回工具调用时自动执行并把结果发回模型，直到模型给出最终回复
+ * <p>
+ * 同一轮中的多个工具调用并发执行；工具失败、工具不存在或参数不是合法 json 时，错误信息作为该工具的结果返回给模型，
+ * 不会中断对话。
+ */
+public class ToolDispatcher {
+
+    /**
+     * 默认最多执行的工具调用轮数
+     */
+    public static final int DEFAULT_MAX_ROUNDS = 8;
+
+    private final Map<String, Tool> tools = new LinkedHashMap<>();
+    private int maxRounds = DEFAULT_MAX_ROUNDS;
+    private JsonArray definitions;
+
+    private record Tool(JsonObject definition, ToolHandler handler) {
+    }
+
+    /**
+     * 注册工具
+     *
+     * @param name        工具名
+     * @param description 工具说明
+     * @param parameters  参数的 JSON Schema，可以为 null
+     * @param handler     工具实现
+     * @return this
+     */
+    public synchronized ToolDispatcher register(String name, String description, JsonObject parameters, ToolHandler handler) {
+        Objects.requireNonNull(name, "Tool name cannot be null");
+        Objects.requireNonNull(handler, "Tool handler cannot be null");
+        JsonObject function = new JsonObject().put("name", name);
+        if (description != null) {
+            function.put("description", description);
+        }
+        if (parameters != null) {
+            function.put("parameters", parameters);
+        }
+        tools.put(name, new Tool(new JsonObject().put("type", "function").put("function", function), handler));
+        definitions = null;
+        return this;
+    }
+
+    /**
+     * 获取最多执行的工具调用轮数
+     *
+     * @return 轮数
+     */
+    public int getMaxRounds() {
+        return maxRounds;
+    }
+
+    /**
+     * 设置最多执行的工具调用轮数，达到后模型再返回的工具调用不再执行，直接作为请求结果返回
+     *
+     * @param maxRounds 轮数
+     * @return this
+     */
+    public ToolDispatcher setMaxRounds(int maxRounds) {
+        if (maxRounds < 1) {
+            throw new IllegalArgumentException("maxRounds must be > 0");
+        }
+        this.maxRounds = maxRounds;
+        return this;
+    }
+
+    /**
+     * 请求中 tools 字段的内容，注册工具后重新生成
+     *
+     * @return 工具定义
+     */
+    public synchronized JsonArray definitions() {
+        if (definitions == null) {
+            JsonArray array = new JsonArray();
+            for (Tool tool : tools.values()) {
+                array.add(tool.definition());
+            }
+            definitions = array;
+        }
+        return definitions;
+    }
+
+    /**
+     * 并发执行一轮工具调用
+     *
+     * @param toolCalls 工具调用
+     * @return 按调用顺序排列的工具结果（异步），不会失败
+     */
+    public Future<List<ToolMessage>> dispatch(List<ToolCall> toolCalls) {
+        if (toolCalls.isEmpty()) {
+            return Future.succeededFuture(List.of());
+        }
+        ToolMessage[] results = new ToolMessage[toolCalls.size()];
+        AtomicInteger remaining = new AtomicInteger(results.length);
+        Promise<List<ToolMessage>> promise = Promise.promise();
+        for (int i = 0; i < results.length; i++) {
+            int index = i;
+            ToolCall toolCall = toolCalls.get(i);
+            invoke(toolCall).onComplete(ar -> {
+                String content = ar.succeeded() ? ar.result() : "Error: " + ar.cause().getMessage();
+                results[index] = new ToolMessage(toolCall.id(), content);
+                if (remaining.decrementAndGet() == 0) {
+                    promise.complete(Arrays.asList(results));
+                }
+            });
+        }
+        return promise.future();
+    }
+
+    private Future<String> invoke(ToolCall toolCall) {
+        Tool tool;
+        synchronized (this) {
+            tool = tools.get(toolCall.name());
+        }
+        if (tool == null) {
+            return Future.failedFuture("unknown tool " + toolCall.name());
+        }
+        try {
+            Future<String> result = tool.handler().handle(toolCall.argumentsJson());
+            return result == null ? Future.succeededFuture() : result;
+        } catch (RuntimeException e) {
+            return Future.failedFuture(e);
+        }
+    }
+}
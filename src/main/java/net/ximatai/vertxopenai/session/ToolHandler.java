@@ -0,0 +1,19 @@
+package net.ximatai.vertxopenai.session;
+
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * 工具的实现
+ */
+@FunctionalInterface
+public interface ToolHandler {
+
+    /**
+     * 执行工具
+     *
+     * @param arguments 模型给出的参数
+     * @return 返回给模型的结果（异步）
+     */
+    Future<String> handle(JsonObject arguments);
+}
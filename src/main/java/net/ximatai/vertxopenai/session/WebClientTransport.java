@@ -0,0 +1,80 @@
+package net.ximatai.vertxopenai.session;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.WriteStream;
+import io.vertx.ext.web.client.HttpRequest;
+import io.vertx.ext.web.client.HttpResponse;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.codec.BodyCodec;
+import net.ximatai.vertxopenai.service.ChatCall;
+import net.ximatai.vertxopenai.service.ChatTransport;
+import net.ximatai.vertxopenai.service.OpenAIException;
+
+/**
+ * 基于调用方提供的 WebClient 的传输层，只用于兼容已废弃的 {@link ChatSession} 构造方法
+ * <p>
+ * 请求发往 WebClient 默认的主机和端口；不支持首字节和数据间隔超时。设置了总超时时由 {@link HttpRequest#timeout(long)}
+ * 在剩余时间后中止 HTTP 请求；取消时结果立即失败，但 WebClient 无法重置请求，连接直到响应结束或总超时后才释放。
+ * 流式响应直接写入 sink，非 2xx 的响应体同样会写入，请求以 {@link OpenAIException} 失败。
+ */
+class WebClientTransport implements ChatTransport {
+
+    private final String apiKey;
+    private final String chatPath;
+    private final WebClient webClient;
+
+    WebClientTransport(String apiKey, String chatPath, WebClient webClient) {
+        this.apiKey = apiKey;
+        this.chatPath = chatPath;
+        this.webClient = webClient;
+    }
+
+    @Override
+    public Future<Buffer> send(ChatCall call) {
+        return start(call, request(call, "application/json"))
+                .compose(response -> response.statusCode() >= 200 && response.statusCode() < 300
+                        ? Future.succeededFuture(response.body())
+                        : Future.failedFuture(new OpenAIException(response.statusCode(), response.bodyAsString(), -1)));
+    }
+
+    @Override
+    public Future<Void> stream(ChatCall call, WriteStream<Buffer> sink) {
+        return start(call, request(call, "text/event-stream").as(BodyCodec.pipe(sink)))
+                .compose(response -> response.statusCode() >= 200 && response.statusCode() < 300
+                        ? Future.succeededFuture()
+                        : Future.failedFuture(new OpenAIException(response.statusCode(), null, -1)));
+    }
+
+    private HttpRequest<Buffer> request(ChatCall call, String accept) {
+        HttpRequest<Buffer> request = webClient.post(chatPath)
+                .putHeader("Content-Type", "application/json")
+                .putHeader("Accept", accept)
+                .putHeader("Authorization", "Bearer " + apiKey);
+        long remaining = call.remainingTime();
+        if (remaining != Long.MAX_VALUE) {
+            request.timeout(Math.max(1, remaining));
+        }
+        return request;
+    }
+
+    /**
+     * 发出请求，调用取消时结果立即失败，已经发出的 HTTP 请求继续进行，直到响应结束或总超时
+     */
+    private <T> Future<HttpResponse<T>> start(ChatCall call, HttpRequest<T> request) {
+        if (call.isCancelled()) {
+            return Future.failedFuture(call.cancelReason());
+        }
+        Promise<HttpResponse<T>> result = Promise.promise();
+        call.onCancel(result::tryFail);
+        request.sendBuffer(call.body()).onComplete(ar -> {
+            if (ar.succeeded()) {
+                result.tryComplete(ar.result());
+            } else {
+                result.tryFail(ar.cause());
+            }
+        });
+        return result.future();
+    }
+}
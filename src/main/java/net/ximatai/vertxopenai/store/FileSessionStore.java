@@ -0,0 +1,514 @@
+package net.ximatai.vertxopenai.store;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import net.ximatai.vertxopenai.message.IMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * 基于本地文件的会话存储
+ * <p>
+ * 所有会话写入同一个追加写的日志，日志由若干内存映射的分段组成，写入只是把编码好的记录复制到映射的内存，
+ * 由操作系统回写磁盘；消息以紧凑的二进制格式保存（见 {@link RecordCodec}），读取会话时按位置顺序解码，不需要解析 json。
+ * 内存中只保留每个会话的记录位置。
+ * <p>
+ * 所有读写和压缩都提交到存储自己的单线程队列上按提交顺序执行，不占用调用方的 event loop，结果回到调用方的 context；
+ * 索引只在这个线程上访问，不需要加锁。
+ * <p>
+ * 被覆盖的状态、被清空的消息和被删除的会话会在日志中留下失效数据，定时检查失效数据比例，达到阈值后压缩：
+ * 把仍然有效的记录按会话依次复制到新的分段（同一个会话的记录因此连续存放），再删除旧的分段。
+ * 压缩同样在队列中执行，之后提交的操作排在压缩之后。
+ * <p>
+ * 进程启动时按顺序扫描所有分段重建索引，崩溃时写了一半的记录通过 CRC 校验识别并丢弃。一个目录同时只能被一个存储打开。
+ */
+public class FileSessionStore implements SessionStore, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileSessionStore.class);
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d+)\\.log");
+    /**
+     * 记录第一个有效分段的序号，压缩完成时原子地替换
+     */
+    private static final String BASE_FILE = "base";
+    private static final String LOCK_FILE = "lock";
+
+    private final Vertx vertx;
+    private final Path directory;
+    private final FileSessionStoreOptions options;
+    private final FileChannel lockChannel;
+    /**
+     * 执行所有读写和压缩的单线程队列
+     */
+    private final ExecutorService worker;
+    private final long timerId;
+    private volatile Thread workerThread;
+
+    private List<Segment> segments = new ArrayList<>();
+    private Map<String, Entry> entries = new HashMap<>();
+    /**
+     * 有效分段中所有记录的字节数，只在队列线程上修改
+     */
+    private volatile long totalBytes;
+    /**
+     * 仍然有效的记录的字节数，只在队列线程上修改
+     */
+    private volatile long liveBytes;
+    private volatile boolean closed;
+
+    /**
+     * 打开会话存储，目录不存在时创建，已有数据时扫描分段重建索引
+     *
+     * @param vertx     vertx，用于定时压缩
+     * @param directory 存储目录
+     * @param options   存储配置
+     */
+    public FileSessionStore(Vertx vertx, Path directory, FileSessionStoreOptions options) {
+        this.vertx = Objects.requireNonNull(vertx, "Vertx cannot be null");
+        this.directory = Objects.requireNonNull(directory, "Directory cannot be null");
+        this.options = Objects.requireNonNull(options, "Options cannot be null");
+        try {
+            Files.createDirectories(directory);
+            this.lockChannel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            FileLock lock = lockChannel.tryLock();
+            if (lock == null) {
+                lockChannel.close();
+                throw new IllegalStateException("Session store is used by another process: " + directory);
+            }
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.worker = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "session-store-" + directory.getFileName());
+            thread.setDaemon(true);
+            workerThread = thread;
+            return thread;
+        });
+        this.timerId = vertx.setPeriodic(options.getCompactionInterval(), id -> submit(() -> {
+            compactIfNeeded();
+            return null;
+        }).onFailure(err -> logger.error("Session store compaction failed: {}", err.getMessage())));
+    }
+
+    @Override
+    public Future<Void> save(String sessionId, SessionState state) {
+        Objects.requireNonNull(state, "State cannot be null");
+        return write(sessionId, RecordCodec.STATE, RecordCodec.state(sessionId, state));
+    }
+
+    @Override
+    public Future<Void> append(String sessionId, List<IMessage> messages) {
+        if (messages.isEmpty()) {
+            return Future.succeededFuture();
+        }
+        return write(sessionId, RecordCodec.MESSAGES, RecordCodec.messages(sessionId, messages));
+    }
+
+    @Override
+    public Future<Void> clearMessages(String sessionId) {
+        return write(sessionId, RecordCodec.CLEAR, RecordCodec.marker(RecordCodec.CLEAR, sessionId));
+    }
+
+    @Override
+    public Future<Void> delete(String sessionId) {
+        return write(sessionId, RecordCodec.DELETE, RecordCodec.marker(RecordCodec.DELETE, sessionId));
+    }
+
+    @Override
+    public Future<StoredSession> load(String sessionId) {
+        return submit(() -> {
+            Entry entry = entries.get(sessionId);
+            if (entry == null || entry.state == null) {
+                return null;
+            }
+            SessionState state = RecordCodec.readState(entry.state.segment().buffer(), entry.state.offset());
+            List<IMessage> messages = new ArrayList<>(entry.messageCount);
+            for (Location location : entry.messages) {
+                RecordCodec.readMessages(location.segment().buffer(), location.offset(), messages);
+            }
+            return new StoredSession(sessionId, state, Collections.unmodifiableList(messages));
+        });
+    }
+
+    /**
+     * 立即压缩，不检查失效数据比例
+     *
+     * @return 压缩完成（异步）
+     */
+    public Future<Void> compact() {
+        return submit(() -> {
+            compactNow();
+            return null;
+        });
+    }
+
+    /**
+     * 日志中失效数据的比例
+     *
+     * @return 失效数据比例
+     */
+    public double garbageRatio() {
+        long total = totalBytes;
+        return total == 0 ? 0 : (double) (total - liveBytes) / total;
+    }
+
+    /**
+     * 关闭存储，等待已提交的操作执行完，把分段刷到磁盘并释放目录；之后提交的操作会失败
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        vertx.cancelTimer(timerId);
+        if (Thread.currentThread() == workerThread) {
+            // 在操作的回调中关闭，直接执行剩余的操作
+            for (Runnable task : worker.shutdownNow()) {
+                task.run();
+            }
+        } else {
+            awaitPending();
+        }
+        for (Segment segment : segments) {
+            try {
+                segment.force();
+                segment.close();
+            } catch (IOException e) {
+                logger.error("Failed to close segment {}: {}", segment.path(), e.getMessage());
+            }
+        }
+        try {
+            lockChannel.close();
+        } catch (IOException e) {
+            logger.error("Failed to release session store lock: {}", e.getMessage());
+        }
+    }
+
+    private void awaitPending() {
+        worker.shutdown();
+        try {
+            while (!worker.awaitTermination(1, TimeUnit.SECONDS)) {
+                logger.warn("Waiting for pending session store operations in {}", directory);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            worker.shutdownNow();
+        }
+    }
+
+    private Future<Void> write(String sessionId, byte type, byte[] record) {
+        Objects.requireNonNull(sessionId, "Session id cannot be null");
+        return submit(() -> {
+            if ((type == RecordCodec.CLEAR || type == RecordCodec.DELETE) && !entries.containsKey(sessionId)) {
+                return null;
+            }
+            apply(type, sessionId, append(record));
+            return null;
+        });
+    }
+
+    /**
+     * 把操作放到队列上执行，结果回到调用方的 context；不在 vertx 线程上调用时在队列线程上完成
+     */
+    private <T> Future<T> submit(Callable<T> task) {
+        if (closed) {
+            return Future.failedFuture(new IllegalStateException("FileSessionStore is closed"));
+        }
+        Context context = Vertx.currentContext();
+        Promise<T> promise = Promise.promise();
+        try {
+            worker.execute(() -> {
+                AsyncResult<T> result;
+                try {
+                    result = Future.succeededFuture(task.call());
+                } catch (Exception e) {
+                    result = Future.failedFuture(e);
+                }
+                complete(context, promise, result);
+            });
+        } catch (RejectedExecutionException e) {
+            return Future.failedFuture(new IllegalStateException("FileSessionStore is closed"));
+        }
+        return promise.future();
+    }
+
+    private static <T> void complete(Context context, Promise<T> promise, AsyncResult<T> result) {
+        if (context == null) {
+            promise.handle(result);
+        } else {
+            context.runOnContext(v -> promise.handle(result));
+        }
+    }
+
+    private Location append(byte[] record) throws IOException {
+        Segment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (segment == null || !segment.fits(record.length)) {
+            segment = roll(record.length);
+        }
+        int offset = segment.append(record);
+        if (options.isSync()) {
+            segment.force();
+        }
+        return new Location(segment, offset, record.length);
+    }
+
+    private Segment roll(int length) throws IOException {
+        long number = nextNumber();
+        int capacity = Math.max(options.getSegmentSize(), Segment.HEADER + length);
+        Segment segment = Segment.create(number, segmentPath(number), capacity);
+        segments.add(segment);
+        return segment;
+    }
+
+    private long nextNumber() throws IOException {
+        if (!segments.isEmpty()) {
+            return segments.get(segments.size() - 1).number() + 1;
+        }
+        long next = readBase();
+        for (Path path : segmentFiles()) {
+            next = Math.max(next, segmentNumber(path) + 1);
+        }
+        return Math.max(next, 1);
+    }
+
+    /**
+     * 把记录应用到索引，写入和启动时重放共用
+     */
+    private void apply(byte type, String sessionId, Location location) {
+        totalBytes += location.length();
+        switch (type) {
+            case RecordCodec.STATE -> {
+                Entry entry = entries.computeIfAbsent(sessionId, id -> new Entry());
+                if (entry.state != null) {
+                    liveBytes -= entry.state.length();
+                }
+                entry.state = location;
+                liveBytes += location.length();
+            }
+            case RecordCodec.MESSAGES -> {
+                Entry entry = entries.computeIfAbsent(sessionId, id -> new Entry());
+                entry.messages.add(location);
+                entry.messageCount += RecordCodec.messageCount(location.segment().buffer(), location.offset());
+                liveBytes += location.length();
+            }
+            case RecordCodec.CLEAR -> {
+                Entry entry = entries.get(sessionId);
+                if (entry != null) {
+                    liveBytes -= entry.messageBytes();
+                    entry.messages.clear();
+                    entry.messageCount = 0;
+                }
+            }
+            case RecordCodec.DELETE -> {
+                Entry entry = entries.remove(sessionId);
+                if (entry != null) {
+                    liveBytes -= entry.messageBytes() + (entry.state == null ? 0 : entry.state.length());
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    private void compactIfNeeded() throws IOException {
+        if (totalBytes == 0 || garbageRatio() < options.getCompactionRatio()) {
+            return;
+        }
+        compactNow();
+    }
+
+    /**
+     * 把有效记录按会话复制到新的分段。新分段以 COMPACTION 记录开头，全部写完并刷盘后才更新 base 文件，
+     * 之后删除旧分段；中途崩溃时 base 仍指向旧分段，启动时丢弃未完成的新分段
+     */
+    private void compactNow() throws IOException {
+        List<Segment> old = segments;
+        long first = nextNumber();
+        segments = new ArrayList<>();
+        try {
+            Segment marker = Segment.create(first, segmentPath(first), options.getSegmentSize());
+            segments.add(marker);
+            marker.append(RecordCodec.marker(RecordCodec.COMPACTION, ""));
+
+            Map<String, Entry> compacted = new HashMap<>(entries.size() * 2);
+            long bytes = 0;
+            for (Map.Entry<String, Entry> item : entries.entrySet()) {
+                Entry entry = item.getValue();
+                Entry copy = new Entry();
+                if (entry.state != null) {
+                    copy.state = copy(entry.state);
+                    bytes += copy.state.length();
+                }
+                for (Location location : entry.messages) {
+                    Location moved = copy(location);
+                    copy.messages.add(moved);
+                    bytes += moved.length();
+                }
+                copy.messageCount = entry.messageCount;
+                compacted.put(item.getKey(), copy);
+            }
+            for (Segment segment : segments) {
+                segment.force();
+            }
+            writeBase(first);
+
+            entries = compacted;
+            totalBytes = bytes;
+            liveBytes = bytes;
+        } catch (IOException | RuntimeException e) {
+            for (Segment segment : segments) {
+                deleteQuietly(segment);
+            }
+            segments = old;
+            throw e;
+        }
+        for (Segment segment : old) {
+            deleteQuietly(segment);
+        }
+    }
+
+    private Location copy(Location location) throws IOException {
+        return append(location.segment().copy(location.offset(), location.length()));
+    }
+
+    /**
+     * 启动时删除压缩前的旧分段，按顺序重放其余分段；遇到 base 之后以 COMPACTION 开头的分段，
+     * 说明压缩没有完成，丢弃它和之后的分段
+     */
+    private void recover() throws IOException {
+        long base = readBase();
+        boolean discard = false;
+        for (Path path : segmentFiles()) {
+            long number = segmentNumber(path);
+            if (number < base || discard) {
+                Files.deleteIfExists(path);
+                continue;
+            }
+            Segment segment = Segment.open(number, path, 0);
+            ByteBuffer buffer = segment.buffer();
+            int offset = Segment.HEADER;
+            int length;
+            while ((length = RecordCodec.check(buffer, offset, buffer.capacity())) > 0) {
+                byte type = RecordCodec.type(buffer, offset);
+                if (type == RecordCodec.COMPACTION) {
+                    if (number > base) {
+                        discard = true;
+                        break;
+                    }
+                } else {
+                    apply(type, RecordCodec.sessionId(buffer, offset), new Location(segment, offset, length));
+                }
+                offset += length;
+            }
+            if (discard) {
+                logger.warn("Discarding unfinished compaction from segment {}", path);
+                segment.delete();
+                continue;
+            }
+            segment.truncate(offset);
+            segments.add(segment);
+        }
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(path -> SEGMENT_NAME.matcher(path.getFileName().toString()).matches())
+                    .sorted((a, b) -> Long.compare(segmentNumber(a), segmentNumber(b)))
+                    .toList();
+        }
+    }
+
+    private static long segmentNumber(Path path) {
+        Matcher matcher = SEGMENT_NAME.matcher(path.getFileName().toString());
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Not a segment file: " + path);
+        }
+        return Long.parseLong(matcher.group(1));
+    }
+
+    private Path segmentPath(long number) {
+        return directory.resolve(String.format("segment-%012d.log", number));
+    }
+
+    private long readBase() throws IOException {
+        Path path = directory.resolve(BASE_FILE);
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        return Long.parseLong(Files.readString(path, StandardCharsets.UTF_8).trim());
+    }
+
+    private void writeBase(long base) throws IOException {
+        Path temp = directory.resolve(BASE_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.wrap(Long.toString(base).getBytes(StandardCharsets.UTF_8)));
+            channel.force(true);
+        }
+        Files.move(temp, directory.resolve(BASE_FILE), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void deleteQuietly(Segment segment) {
+        try {
+            segment.delete();
+        } catch (IOException e) {
+            logger.error("Failed to delete segment {}: {}", segment.path(), e.getMessage());
+        }
+    }
+
+    /**
+     * 记录在分段中的位置
+     */
+    private record Location(Segment segment, int offset, int length) {
+    }
+
+    /**
+     * 一个会话的最新状态和清空后追加的消息记录
+     */
+    private static final class Entry {
+        private final List<Location> messages = new ArrayList<>();
+        private Location state;
+        private int messageCount;
+
+        private long messageBytes() {
+            long bytes = 0;
+            for (Location location : messages) {
+                bytes += location.length();
+            }
+            return bytes;
+        }
+    }
+}
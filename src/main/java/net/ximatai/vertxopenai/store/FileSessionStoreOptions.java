@@ -0,0 +1,120 @@
+package net.ximatai.vertxopenai.store;
+
+/**
+ * 文件会话存储配置
+ */
+public class FileSessionStoreOptions {
+
+    /**
+     * 默认分段大小（字节）
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    /**
+     * 默认压缩检查间隔（毫秒）
+     */
+    public static final long DEFAULT_COMPACTION_INTERVAL = 60_000;
+    /**
+     * 默认触发压缩的失效数据比例
+     */
+    public static final double DEFAULT_COMPACTION_RATIO = 0.5;
+
+    private int segmentSize = DEFAULT_SEGMENT_SIZE;
+    private long compactionInterval = DEFAULT_COMPACTION_INTERVAL;
+    private double compactionRatio = DEFAULT_COMPACTION_RATIO;
+    private boolean sync = false;
+
+    /**
+     * 使用默认值创建配置
+     */
+    public FileSessionStoreOptions() {
+    }
+
+    /**
+     * 获取分段大小（字节）
+     *
+     * @return 分段大小
+     */
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * 设置分段大小（字节），每个分段是一个内存映射的文件，写满后创建新的分段；超过分段大小的单条记录独占一个分段
+     *
+     * @param segmentSize 分段大小
+     * @return this
+     */
+    public FileSessionStoreOptions setSegmentSize(int segmentSize) {
+        if (segmentSize < 4096) {
+            throw new IllegalArgumentException("segmentSize must be >= 4096");
+        }
+        this.segmentSize = segmentSize;
+        return this;
+    }
+
+    /**
+     * 获取压缩检查间隔（毫秒）
+     *
+     * @return 压缩检查间隔
+     */
+    public long getCompactionInterval() {
+        return compactionInterval;
+    }
+
+    /**
+     * 设置压缩检查间隔（毫秒），到期时失效数据比例达到阈值则在 worker 线程上压缩
+     *
+     * @param compactionInterval 压缩检查间隔
+     * @return this
+     */
+    public FileSessionStoreOptions setCompactionInterval(long compactionInterval) {
+        if (compactionInterval < 1) {
+            throw new IllegalArgumentException("compactionInterval must be > 0");
+        }
+        this.compactionInterval = compactionInterval;
+        return this;
+    }
+
+    /**
+     * 获取触发压缩的失效数据比例
+     *
+     * @return 失效数据比例
+     */
+    public double getCompactionRatio() {
+        return compactionRatio;
+    }
+
+    /**
+     * 设置触发压缩的失效数据比例，失效数据即被覆盖的状态、被清空的消息和被删除的会话
+     *
+     * @param compactionRatio 失效数据比例，取值 (0, 1]
+     * @return this
+     */
+    public FileSessionStoreOptions setCompactionRatio(double compactionRatio) {
+        if (!(compactionRatio > 0 && compactionRatio <= 1)) {
+            throw new IllegalArgumentException("compactionRatio must be in (0, 1]");
+        }
+        this.compactionRatio = compactionRatio;
+        return this;
+    }
+
+    /**
+     * 是否每次写入后刷盘
+     *
+     * @return 是否刷盘
+     */
+    public boolean isSync() {
+        return sync;
+    }
+
+    /**
+     * 设置是否每次写入后把分段刷到磁盘；默认由操作系统回写，进程崩溃不会丢数据，但机器掉电可能丢失最近的写入
+     *
+     * @param sync 是否刷盘
+     * @return this
+     */
+    public FileSessionStoreOptions setSync(boolean sync) {
+        this.sync = sync;
+        return this;
+    }
+}
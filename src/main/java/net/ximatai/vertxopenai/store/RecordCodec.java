@@ -0,0 +1,175 @@
+package net.ximatai.vertxopenai.store;
+
+import io.vertx.core.json.JsonObject;
+import net.ximatai.vertxopenai.message.IMessage;
+import net.ximatai.vertxopenai.message.MessageCodec;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * 存储记录的二进制编码（大端）
+ * <pre>
+ * 记录：int 长度（类型及之后的字节数） | int CRC32（类型及之后的字节） | byte 类型 | string 会话 id | 内容
+ * 字符串：int 字节数（null 为 -1） | UTF-8 字节
+ * STATE：string 配置 json | string 系统消息 | string 摘要
+ * MESSAGES：int 条数 | 每条消息按 {@link MessageCodec} 编码
+ * CLEAR、DELETE、COMPACTION：没有内容
+ * </pre>
+ * 消息直接按字段读写，读取历史时不需要解析 json。
+ */
+final class RecordCodec {
+
+    /**
+     * 记录头：长度和 CRC32
+     */
+    static final int HEADER = 8;
+
+    static final byte STATE = 1;
+    static final byte MESSAGES = 2;
+    static final byte CLEAR = 3;
+    static final byte DELETE = 4;
+    /**
+     * 压缩生成的第一个分段以此开头，用于识别未完成的压缩
+     */
+    static final byte COMPACTION = 5;
+
+    private RecordCodec() {
+    }
+
+    static byte[] state(String sessionId, SessionState state) {
+        byte[] id = utf8(sessionId);
+        byte[] config = utf8(state.config() == null ? null : state.config().encode());
+        byte[] system = utf8(state.systemMessage());
+        byte[] summary = utf8(state.summary());
+        ByteBuffer buffer = allocate(STATE, id, sizeOf(config) + sizeOf(system) + sizeOf(summary));
+        putString(buffer, config);
+        putString(buffer, system);
+        putString(buffer, summary);
+        return seal(buffer);
+    }
+
+    static byte[] messages(String sessionId, List<IMessage> messages) {
+        byte[] id = utf8(sessionId);
+        byte[][] encoded = new byte[messages.size()][];
+        int size = 4;
+        for (int i = 0; i < encoded.length; i++) {
+            encoded[i] = MessageCodec.encode(messages.get(i));
+            size += encoded[i].length;
+        }
+        ByteBuffer buffer = allocate(MESSAGES, id, size);
+        buffer.putInt(encoded.length);
+        for (byte[] message : encoded) {
+            buffer.put(message);
+        }
+        return seal(buffer);
+    }
+
+    static byte[] marker(byte type, String sessionId) {
+        return seal(allocate(type, utf8(sessionId), 0));
+    }
+
+    /**
+     * 校验 offset 处的记录
+     *
+     * @return 记录的总长度，记录不完整或损坏时为 -1
+     */
+    static int check(ByteBuffer buffer, int offset, int limit) {
+        if (offset + HEADER + 1 > limit) {
+            return -1;
+        }
+        int length = buffer.getInt(offset);
+        if (length < 1 || length > limit - offset - HEADER) {
+            return -1;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(offset + HEADER, length));
+        if ((int) crc.getValue() != buffer.getInt(offset + 4)) {
+            return -1;
+        }
+        return HEADER + length;
+    }
+
+    static byte type(ByteBuffer buffer, int offset) {
+        return buffer.get(offset + HEADER);
+    }
+
+    static String sessionId(ByteBuffer buffer, int offset) {
+        return getString(buffer, offset + HEADER + 1);
+    }
+
+    static SessionState readState(ByteBuffer buffer, int offset) {
+        int position = skipString(buffer, offset + HEADER + 1);
+        String config = getString(buffer, position);
+        position = skipString(buffer, position);
+        String system = getString(buffer, position);
+        position = skipString(buffer, position);
+        String summary = getString(buffer, position);
+        return new SessionState(config == null ? null : new JsonObject(config), system, summary);
+    }
+
+    static void readMessages(ByteBuffer buffer, int offset, List<IMessage> messages) {
+        int position = skipString(buffer, offset + HEADER + 1);
+        int count = buffer.getInt(position);
+        ByteBuffer view = buffer.duplicate().position(position + 4);
+        for (int i = 0; i < count; i++) {
+            messages.add(MessageCodec.decode(view));
+        }
+    }
+
+    /**
+     * 读取 MESSAGES 记录中的消息条数
+     */
+    static int messageCount(ByteBuffer buffer, int offset) {
+        return buffer.getInt(skipString(buffer, offset + HEADER + 1));
+    }
+
+    private static ByteBuffer allocate(byte type, byte[] id, int payload) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER + 1 + sizeOf(id) + payload);
+        buffer.putInt(buffer.capacity() - HEADER);
+        buffer.putInt(0);
+        buffer.put(type);
+        putString(buffer, id);
+        return buffer;
+    }
+
+    private static byte[] seal(ByteBuffer buffer) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER, buffer.capacity() - HEADER);
+        buffer.putInt(4, (int) crc.getValue());
+        return buffer.array();
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int sizeOf(byte[] value) {
+        return 4 + (value == null ? 0 : value.length);
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] value) {
+        if (value == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(value.length);
+            buffer.put(value);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer, int position) {
+        int length = buffer.getInt(position);
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(position + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int skipString(ByteBuffer buffer, int position) {
+        return position + 4 + Math.max(0, buffer.getInt(position));
+    }
+}
@@ -0,0 +1,154 @@
+package net.ximatai.vertxopenai.store;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 内存映射的日志分段，记录只追加在末尾；文件按分段大小预先映射，未写入的部分为 0
+ */
+final class Segment {
+
+    /**
+     * 文件头：魔数和格式版本
+     */
+    static final int HEADER = 8;
+    private static final int MAGIC = 0x564F5353;
+    private static final int VERSION = 1;
+
+    private final long number;
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private int position;
+
+    private Segment(long number, Path path, FileChannel channel, MappedByteBuffer buffer, int position) {
+        this.number = number;
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.position = position;
+    }
+
+    /**
+     * 创建新的分段
+     *
+     * @param number   分段序号
+     * @param path     文件
+     * @param capacity 容量
+     * @return 分段
+     */
+    static Segment create(long number, Path path, int capacity) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        return new Segment(number, path, channel, buffer, HEADER);
+    }
+
+    /**
+     * 打开已有的分段，写入位置由调用方扫描记录后设置
+     *
+     * @param number   分段序号
+     * @param path     文件
+     * @param capacity 最小容量，文件更小时会被扩展
+     * @return 分段
+     */
+    static Segment open(long number, Path path, int capacity) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = Math.max(channel.size(), capacity);
+        if (size > Integer.MAX_VALUE) {
+            channel.close();
+            throw new IOException("Segment too large: " + path);
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        if (buffer.getInt(0) == 0) {
+            // 创建后还没写入文件头就崩溃了
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+        }
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            channel.close();
+            throw new IOException("Not a session store segment: " + path);
+        }
+        return new Segment(number, path, channel, buffer, HEADER);
+    }
+
+    long number() {
+        return number;
+    }
+
+    Path path() {
+        return path;
+    }
+
+    MappedByteBuffer buffer() {
+        return buffer;
+    }
+
+    int position() {
+        return position;
+    }
+
+    int capacity() {
+        return buffer.capacity();
+    }
+
+    /**
+     * 设置写入位置，之后还有数据（崩溃前写了一半的记录）时清零，避免它们在新记录之后被当作有效记录
+     *
+     * @param position 写入位置
+     */
+    void truncate(int position) {
+        this.position = position;
+        if (buffer.capacity() - position < 4 || buffer.getInt(position) == 0) {
+            return;
+        }
+        byte[] zeros = new byte[8192];
+        for (int i = position; i < buffer.capacity(); i += zeros.length) {
+            buffer.put(i, zeros, 0, Math.min(zeros.length, buffer.capacity() - i));
+        }
+    }
+
+    boolean fits(int length) {
+        return buffer.capacity() - position >= length;
+    }
+
+    /**
+     * 追加记录
+     *
+     * @param record 记录
+     * @return 记录的位置
+     */
+    int append(byte[] record) {
+        int offset = position;
+        buffer.put(offset, record);
+        position += record.length;
+        return offset;
+    }
+
+    /**
+     * 复制 offset 处的记录
+     */
+    byte[] copy(int offset, int length) {
+        byte[] record = new byte[length];
+        buffer.get(offset, record);
+        return record;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    void close() throws IOException {
+        channel.close();
+    }
+
+    void delete() throws IOException {
+        close();
+        Files.deleteIfExists(path);
+    }
+}
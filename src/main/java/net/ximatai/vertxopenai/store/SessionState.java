@@ -0,0 +1,13 @@
+package net.ximatai.vertxopenai.store;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * 会话状态，即历史消息以外需要保存的部分
+ *
+ * @param config        模型配置
+ * @param systemMessage 系统消息，没有时为 null
+ * @param summary       历史摘要，没有时为 null
+ */
+public record SessionState(JsonObject config, String systemMessage, String summary) {
+}
@@ -0,0 +1,57 @@
+package net.ximatai.vertxopenai.store;
+
+import io.vertx.core.Future;
+import net.ximatai.vertxopenai.message.IMessage;
+
+import java.util.List;
+
+/**
+ * 会话存储，保存会话的状态和历史消息，使会话在进程重启后、或在其他节点上可以按 id 恢复
+ * <p>
+ * 会话只追加消息、整体覆盖状态、清空消息，接口按这几种操作设计，便于实现为追加写的日志；
+ * 同一个会话的操作按调用顺序提交。接口是异步的，可以实现为数据库等外部存储，内置实现见 {@link FileSessionStore}。
+ */
+public interface SessionStore {
+
+    /**
+     * 保存会话状态，覆盖之前保存的状态
+     *
+     * @param sessionId 会话 id
+     * @param state     会话状态
+     * @return 保存完成（异步）
+     */
+    Future<Void> save(String sessionId, SessionState state);
+
+    /**
+     * 追加历史消息
+     *
+     * @param sessionId 会话 id
+     * @param messages  消息，一次追加的消息作为一个整体保存
+     * @return 追加完成（异步）
+     */
+    Future<Void> append(String sessionId, List<IMessage> messages);
+
+    /**
+     * 清空历史消息，会话状态保留
+     *
+     * @param sessionId 会话 id
+     * @return 清空完成（异步）
+     */
+    Future<Void> clearMessages(String sessionId);
+
+    /**
+     * 读取会话
+     *
+     * @param sessionId 会话 id
+     * @return 保存的会话，不存在时为 null（异步）
+     */
+    Future<StoredSession> load(String sessionId);
+
+    /**
+     * 删除会话
+     *
+     * @param sessionId 会话 id
+     * @return 删除完成（异步）
+     */
+    Future<Void> delete(String sessionId);
+}
@@ -0,0 +1,15 @@
+package net.ximatai.vertxopenai.store;
+
+import net.ximatai.vertxopenai.message.IMessage;
+
+import java.util.List;
+
+/**
+ * 从存储中读取的会话
+ *
+ * @param id       会话 id
+ * @param state    会话状态
+ * @param messages 历史消息，按追加顺序排列
+ */
+public record StoredSession(String id, SessionState state, List<IMessage> messages) {
+}
@@ -7,6 +7,7 @@ import io.vertx.junit5.VertxTestContext;
 import net.ximatai.vertxopenai.message.AssistantMessage;
 import net.ximatai.vertxopenai.service.IOpenService;
 import net.ximatai.vertxopenai.session.ChatSession;
+import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.DisplayName;
@@ -26,14 +27,20 @@ public class ChatTest {
 
     String url = "https://api.siliconflow.cn/v1/chat/completions";
 
+    IOpenService service;
     ChatSession chatSession;
 
     @BeforeAll
     void beforeAll() {
-        IOpenService service = IOpenService.create(System.getenv("SF_API_KEY"), url);
+        service = IOpenService.create(System.getenv("SF_API_KEY"), url);
         chatSession = service.connect("deepseek-ai/DeepSeek-R1-Distill-Qwen-7B");
     }
 
+    @AfterAll
+    void afterAll() {
+        service.close();
+    }
+
     @Test
     @DisplayName("对话测试（异步）")
     void testChat(VertxTestContext testContext) {
@@ -0,0 +1,274 @@
+package net.ximatai.vertxopenai;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.WebClientOptions;
+import net.ximatai.vertxopenai.message.AssistantMessage;
+import net.ximatai.vertxopenai.mock.MockOpenAIServer;
+import net.ximatai.vertxopenai.mock.MockServerOptions;
+import net.ximatai.vertxopenai.service.IOpenService;
+import net.ximatai.vertxopenai.service.OpenAIException;
+import net.ximatai.vertxopenai.service.OpenServiceOptions;
+import net.ximatai.vertxopenai.session.ChatRequest;
+import net.ximatai.vertxopenai.session.ChatSession;
+import net.ximatai.vertxopenai.session.ChatStream;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 通过本地模拟服务离线测试完整的请求链路
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class MockServerTest {
+
+    Vertx vertx;
+    MockOpenAIServer server;
+
+    @BeforeAll
+    void beforeAll() {
+        vertx = Vertx.vertx();
+        server = MockOpenAIServer.start(vertx, new MockServerOptions()
+                        .setCompletionTokens(10)
+                        .setChunkSize(3)
+                        .setTokensPerSecond(1000))
+                .toCompletionStage()
+                .toCompletableFuture()
+                .join();
+    }
+
+    @AfterAll
+    void afterAll() {
+        server.close();
+        vertx.close();
+    }
+
+    @Test
+    @DisplayName("非流式请求返回完整回复和用量")
+    void testChat() {
+        IOpenService service = IOpenService.create(vertx, "mock", server.url(), new OpenServiceOptions());
+        ChatSession session = service.connect("mock");
+        AssistantMessage message = session.open()
+                .addMessage("你好")
+                .send()
+                .toCompletionStage()
+                .toCompletableFuture()
+                .join();
+
+        Assertions.assertEquals("你好".repeat(10), message.content());
+        Assertions.assertEquals(10, message.usage().completionTokens());
+        Assertions.assertEquals(2, session.getMessages().size());
+        service.close();
+    }
+
+    @Test
+    @DisplayName("流式请求按配置分段返回，最终消息带用量")
+    void testStream() {
+        IOpenService service = IOpenService.create(vertx, "mock", server.url(), new OpenServiceOptions());
+        List<String> chunks = new ArrayList<>();
+        AssistantMessage message = service.connect("mock").open()
+                .addMessage("你好")
+                .sendStream()
+                .handler(chunk -> {
+                    if (chunk.content() != null) {
+                        chunks.add(chunk.content());
+                    }
+                })
+                .result()
+                .toCompletionStage()
+                .toCompletableFuture()
+                .join();
+
+        Assertions.assertEquals(List.of("你好".repeat(3), "你好".repeat(3), "你好".repeat(3), "你好"), chunks);
+        Assertions.assertEquals("你好".repeat(10), message.content());
+        Assertions.assertEquals("stop", message.finishReason());
+        Assertions.assertEquals(10, message.usage().completionTokens());
+        service.close();
+    }
+
+    @Test
+    @DisplayName("同一个服务创建的所有会话共享一个连接池")
+    void testSharedPool() throws Exception {
+        MockOpenAIServer slow = start(new MockServerOptions().setLatency(50));
+        IOpenService service = IOpenService.create(vertx, "mock", slow.url(), new OpenServiceOptions().setMaxPoolSize(1));
+
+        List<CompletableFuture<AssistantMessage>> results = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            results.add(service.connect("mock").open()
+                    .addMessage("你好")
+                    .send()
+                    .toCompletionStage()
+                    .toCompletableFuture());
+        }
+        for (CompletableFuture<AssistantMessage> result : results) {
+            Assertions.assertNotNull(result.get(5, TimeUnit.SECONDS).content());
+        }
+        Assertions.assertEquals(4, slow.requests());
+        Assertions.assertEquals(1, slow.maxConcurrency());
+        service.close();
+        slow.close();
+    }
+
+    @Test
+    @DisplayName("注入的错误以 OpenAIException 返回")
+    void testError() {
+        MockOpenAIServer failing = MockOpenAIServer.start(vertx, new MockServerOptions()
+                        .setErrorRate(1)
+                        .setErrorStatus(503))
+                .toCompletionStage()
+                .toCompletableFuture()
+                .join();
+        IOpenService service = IOpenService.create(vertx, "mock", failing.url(), new OpenServiceOptions());
+
+        CompletionException e = Assertions.assertThrows(CompletionException.class, () -> service.connect("mock").open()
+                .addMessage("你好")
+                .send()
+                .toCompletionStage()
+                .toCompletableFuture()
+                .join());
+        Assertions.assertInstanceOf(OpenAIException.class, e.getCause());
+        Assertions.assertEquals(503, ((OpenAIException) e.getCause()).statusCode());
+        Assertions.assertEquals(1, failing.requests());
+        service.close();
+        failing.close();
+    }
+
+    @Test
+    @DisplayName("流式请求中途取消时重置 HTTP 请求，连接池只有一个连接时下一个请求仍然可以发出")
+    void testCancelReleasesConnection() {
+        MockOpenAIServer slow = start(new MockServerOptions()
+                .setCompletionTokens(100)
+                .setTokensPerSecond(20));
+        IOpenService service = IOpenService.create(vertx, "mock", slow.url(), new OpenServiceOptions().setMaxPoolSize(1));
+        ChatSession session = service.connect("mock");
+
+        for (int i = 0; i < 2; i++) {
+            ChatRequest request = session.open().addMessage("你好").temporary();
+            ChatStream stream = request.sendStream();
+            List<String> chunks = new ArrayList<>();
+            stream.handler(chunk -> {
+                chunks.add(chunk.content());
+                request.cancel();
+            });
+            ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> stream.result()
+                    .toCompletionStage()
+                    .toCompletableFuture()
+                    .get(5, TimeUnit.SECONDS));
+            Assertions.assertInstanceOf(CancellationException.class, e.getCause());
+            Assertions.assertEquals(List.of("你好"), chunks);
+            awaitIdle(slow);
+        }
+        Assertions.assertEquals(2, slow.requests());
+        service.close();
+        slow.close();
+    }
+
+    @Test
+    @DisplayName("首个 token 超时：服务在超时时间内没有返回任何数据时请求以 TimeoutException 失败")
+    void testFirstTokenTimeout() {
+        MockOpenAIServer slow = start(new MockServerOptions().setLatency(2000));
+        IOpenService service = IOpenService.create(vertx, "mock", slow.url(), new OpenServiceOptions());
+
+        long start = System.nanoTime();
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> service.connect("mock").open()
+                .addMessage("你好")
+                .firstTokenTimeout(100)
+                .send()
+                .toCompletionStage()
+                .toCompletableFuture()
+                .get(5, TimeUnit.SECONDS));
+        Assertions.assertInstanceOf(TimeoutException.class, e.getCause());
+        Assertions.assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(2000));
+        awaitIdle(slow);
+        service.close();
+        slow.close();
+    }
+
+    @Test
+    @DisplayName("数据间隔超时：流式响应中途停顿超过超时时间时请求以 TimeoutException 失败")
+    void testIdleTimeout() {
+        MockOpenAIServer stalled = start(new MockServerOptions()
+                .setCompletionTokens(10)
+                .setTokensPerSecond(1));
+        IOpenService service = IOpenService.create(vertx, "mock", stalled.url(), new OpenServiceOptions());
+
+        List<String> chunks = new ArrayList<>();
+        ChatStream stream = service.connect("mock").open()
+                .addMessage("你好")
+                .idleTimeout(100)
+                .sendStream()
+                .handler(chunk -> chunks.add(chunk.content()));
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> stream.result()
+                .toCompletionStage()
+                .toCompletableFuture()
+                .get(5, TimeUnit.SECONDS));
+        Assertions.assertInstanceOf(TimeoutException.class, e.getCause());
+        Assertions.assertEquals(List.of("你好"), chunks);
+        awaitIdle(stalled);
+        service.close();
+        stalled.close();
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    @DisplayName("废弃的 WebClient 构造方法仍然可以发送普通请求和流式请求")
+    void testDeprecatedConstructor() {
+        WebClient webClient = WebClient.create(vertx, new WebClientOptions()
+                .setDefaultHost("localhost")
+                .setDefaultPort(server.port()));
+        ChatSession session = new ChatSession("key", "/v1/chat/completions", new JsonObject().put("model", "mock"), webClient);
+
+        AssistantMessage message = session.open()
+                .addMessage("你好")
+                .send()
+                .toCompletionStage()
+                .toCompletableFuture()
+                .join();
+        Assertions.assertEquals("你好".repeat(10), message.content());
+
+        AssistantMessage streamed = session.open()
+                .addMessage("你好")
+                .sendStream()
+                .handler(chunk -> {
+                })
+                .result()
+                .toCompletionStage()
+                .toCompletableFuture()
+                .join();
+        Assertions.assertEquals("你好".repeat(10), streamed.content());
+        Assertions.assertEquals(4, session.getMessages().size());
+        webClient.close();
+    }
+
+    private MockOpenAIServer start(MockServerOptions options) {
+        return MockOpenAIServer.start(vertx, options)
+                .toCompletionStage()
+                .toCompletableFuture()
+                .join();
+    }
+
+    /**
+     * 等待服务端感知到请求被重置，所有请求都处理完
+     */
+    private static void awaitIdle(MockOpenAIServer server) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (server.active() > 0) {
+            Assertions.assertTrue(System.nanoTime() < deadline, "active requests: " + server.active());
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package net.ximatai.vertxopenai.batch;
+
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
+import net.ximatai.vertxopenai.mock.MockOpenAIServer;
+import net.ximatai.vertxopenai.mock.MockServerOptions;
+import net.ximatai.vertxopenai.service.IOpenService;
+import net.ximatai.vertxopenai.service.OpenAIException;
+import net.ximatai.vertxopenai.service.OpenServiceOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 通过本地模拟服务测试批量任务：写入 JSONL、降级模式和 Batch API 的轮询
+ */
+public class BatchClientTest {
+
+    Vertx vertx;
+    MockOpenAIServer server;
+    IOpenService service;
+
+    @BeforeEach
+    void beforeEach() throws Exception {
+        vertx = Vertx.vertx();
+        server = await(MockOpenAIServer.start(vertx, new MockServerOptions()
+                .setCompletionTokens(4)
+                .setLatency(50)));
+        service = IOpenService.create(vertx, "mock", server.url(), new OpenServiceOptions());
+    }
+
+    @AfterEach
+    void afterEach() throws Exception {
+        service.close();
+        await(server.close());
+        await(vertx.close());
+    }
+
+    @Test
+    @DisplayName("请求逐行写入 JSONL 文件，url 为 chat completions 的路径")
+    void testWriteJsonl() throws Exception {
+        BatchClient batch = service.batch(new BatchOptions());
+        String path = await(batch.writeJsonl(new ListStream(requests(5))));
+        List<String> lines = Files.readAllLines(Path.of(path));
+        Files.delete(Path.of(path));
+
+        Assertions.assertEquals(5, lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            JsonObject line = new JsonObject(lines.get(i));
+            Assertions.assertEquals("task-" + i, line.getString("custom_id"));
+            Assertions.assertEquals("/v1/chat/completions", line.getString("url"));
+            Assertions.assertEquals("model-" + i, line.getJsonObject("body").getString("model"));
+        }
+    }
+
+    @Test
+    @DisplayName("降级模式按并发数逐个发送，每个结果对应自己的请求")
+    void testFallback() throws Exception {
+        BatchClient batch = service.batch(new BatchOptions().setFallback(true).setConcurrency(3));
+        Map<String, BatchResult> results = collect(await(batch.run(new ListStream(requests(10)))));
+
+        Assertions.assertEquals(10, results.size());
+        for (int i = 0; i < 10; i++) {
+            BatchResult result = results.get("task-" + i);
+            Assertions.assertTrue(result.succeeded());
+            Assertions.assertEquals("model-" + i, result.message().original().getString("model"));
+        }
+        Assertions.assertEquals(10, server.requests());
+        Assertions.assertTrue(server.maxConcurrency() <= 3, "max concurrency " + server.maxConcurrency());
+        Assertions.assertTrue(server.maxConcurrency() > 1, "max concurrency " + server.maxConcurrency());
+        Assertions.assertEquals(0, server.batchPolls());
+    }
+
+    @Test
+    @DisplayName("通过 Batch API 提交，轮询直到完成后读取全部结果")
+    void testPolling() throws Exception {
+        BatchClient batch = service.batch(new BatchOptions().setPollInterval(10).setMaxPollInterval(20));
+        Map<String, BatchResult> results = collect(await(batch.run(new ListStream(requests(4)))));
+
+        Assertions.assertEquals(4, results.size());
+        for (int i = 0; i < 4; i++) {
+            BatchResult result = results.get("task-" + i);
+            Assertions.assertTrue(result.succeeded());
+            Assertions.assertEquals("model-" + i, result.message().original().getString("model"));
+        }
+        Assertions.assertTrue(server.batchPolls() >= 3, "polls " + server.batchPolls());
+        Assertions.assertEquals(0, server.requests());
+    }
+
+    @Test
+    @DisplayName("下载结果文件失败时以响应体失败，不返回结果")
+    void testDownloadFailure() throws Exception {
+        BatchClient batch = service.batch(new BatchOptions());
+        JsonObject finished = new JsonObject()
+                .put("id", "batch-unknown")
+                .put("status", "completed")
+                .put("output_file_id", "file-unknown");
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> await(batch.results(finished)));
+        OpenAIException cause = Assertions.assertInstanceOf(OpenAIException.class, e.getCause());
+        Assertions.assertEquals(404, cause.statusCode());
+        Assertions.assertTrue(cause.body().contains("No such file: file-unknown"), cause.body());
+    }
+
+    private static List<BatchRequest> requests(int count) {
+        List<BatchRequest> requests = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            requests.add(BatchRequest.of("task-" + i, new JsonObject().put("model", "model-" + i), "问题 " + i));
+        }
+        return requests;
+    }
+
+    private static Map<String, BatchResult> collect(ReadStream<BatchResult> stream) throws Exception {
+        Map<String, BatchResult> results = new HashMap<>();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        stream.exceptionHandler(done::completeExceptionally);
+        stream.endHandler(v -> done.complete(null));
+        stream.handler(result -> results.put(result.customId(), result));
+        done.get(10, TimeUnit.SECONDS);
+        return results;
+    }
+
+    private static <T> T await(Future<T> future) throws Exception {
+        return future.toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 依次发出列表中的请求，暂停时停止发出
+     */
+    private static class ListStream implements ReadStream<BatchRequest> {
+        private final List<BatchRequest> items;
+        private Handler<BatchRequest> handler;
+        private Handler<Void> endHandler;
+        private int next;
+        private boolean paused;
+
+        ListStream(List<BatchRequest> items) {
+            this.items = items;
+        }
+
+        @Override
+        public ListStream exceptionHandler(Handler<Throwable> handler) {
+            return this;
+        }
+
+        @Override
+        public ListStream handler(Handler<BatchRequest> handler) {
+            this.handler = handler;
+            emit();
+            return this;
+        }
+
+        @Override
+        public ListStream pause() {
+            paused = true;
+            return this;
+        }
+
+        @Override
+        public ListStream resume() {
+            paused = false;
+            emit();
+            return this;
+        }
+
+        @Override
+        public ListStream fetch(long amount) {
+            return resume();
+        }
+
+        @Override
+        public ListStream endHandler(Handler<Void> endHandler) {
+            this.endHandler = endHandler;
+            return this;
+        }
+
+        private void emit() {
+            while (!paused && handler != null && next < items.size()) {
+                handler.handle(items.get(next++));
+            }
+            if (next == items.size() && endHandler != null) {
+                Handler<Void> end = endHandler;
+                endHandler = null;
+                end.handle(null);
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package net.ximatai.vertxopenai.batch;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class BatchRequestTest {
+
+    @Test
+    @DisplayName("请求写成 JSONL 中的一行，请求体直接拼接")
+    void testJsonl() {
+        BatchRequest request = BatchRequest.of("task-1", new JsonObject().put("model", "gpt-4o-mini").put("stream", true), "你好");
+        String line = request.toJsonl("/v1/chat/completions").toString();
+
+        Assertions.assertTrue(line.endsWith("}\n"));
+        Assertions.assertEquals(1, line.split("\n").length);
+        JsonObject json = new JsonObject(line.trim());
+        Assertions.assertEquals("task-1", json.getString("custom_id"));
+        Assertions.assertEquals("POST", json.getString("method"));
+        Assertions.assertEquals("/v1/chat/completions", json.getString("url"));
+        Assertions.assertEquals("gpt-4o-mini", json.getJsonObject("body").getString("model"));
+        Assertions.assertFalse(json.getJsonObject("body").containsKey("stream"));
+        Assertions.assertEquals("你好", json.getJsonObject("body").getJsonArray("messages").getJsonObject(0).getString("content"));
+    }
+
+    @Test
+    @DisplayName("格式化过的请求体去掉换行")
+    void testSingleLine() {
+        BatchRequest request = new BatchRequest("a\nb", Buffer.buffer("{\n  \"model\": \"m\"\r\n}"));
+        String line = request.toJsonl("/chat/completions").toString();
+
+        Assertions.assertEquals(1, line.split("\n").length);
+        Assertions.assertEquals("a\nb", new JsonObject(line).getString("custom_id"));
+    }
+
+    @Test
+    @DisplayName("解析输出文件和错误文件中的结果")
+    void testParseResult() {
+        BatchResult success = BatchResult.parse(Buffer.buffer("""
+                {"id":"batch_req_1","custom_id":"task-1","response":{"status_code":200,"request_id":"r",\
+                "body":{"choices":[{"index":0,"message":{"role":"assistant","content":"Hello"},"finish_reason":"stop"}]}},"error":null}"""));
+        Assertions.assertTrue(success.succeeded());
+        Assertions.assertEquals("task-1", success.customId());
+        Assertions.assertEquals("Hello", success.message().content());
+
+        BatchResult failed = BatchResult.parse(Buffer.buffer("""
+                {"id":"batch_req_2","custom_id":"task-2","response":{"status_code":400,\
+                "body":{"error":{"message":"Invalid model","type":"invalid_request_error"}}},"error":null}"""));
+        Assertions.assertFalse(failed.succeeded());
+        Assertions.assertEquals(400, failed.statusCode());
+        Assertions.assertEquals("Invalid model", failed.error());
+
+        BatchResult expired = BatchResult.parse(Buffer.buffer("""
+                {"custom_id":"task-3","response":null,"error":{"code":"batch_expired","message":"Expired"}}"""));
+        Assertions.assertEquals(0, expired.statusCode());
+        Assertions.assertEquals("Expired", expired.error());
+    }
+}
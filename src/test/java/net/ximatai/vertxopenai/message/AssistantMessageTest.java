@@ -0,0 +1,41 @@
+package net.ximatai.vertxopenai.message;
+
+import io.vertx.core.buffer.Buffer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class AssistantMessageTest {
+
+    @Test
+    @DisplayName("流式片段：content、reasoning_content 与 finish_reason")
+    void testParseDelta() {
+        AssistantMessage message = AssistantMessage.parse(Buffer.buffer("""
+                {"id":"1","object":"chat.completion.chunk","choices":[{"index":0,
+                "delta":{"role":"assistant","content":null,"reasoning_content":"想一想","extra":{"a":[1,2]}},
+                "logprobs":null,"finish_reason":null}]}
+                """));
+
+        Assertions.assertTrue(message.isReasoning());
+        Assertions.assertNull(message.content());
+        Assertions.assertEquals("想一想", message.reasoning());
+        Assertions.assertNull(message.finishReason());
+        Assertions.assertNull(message.usage());
+        Assertions.assertTrue(message.toolCallDeltas().isEmpty());
+    }
+
+    @Test
+    @DisplayName("工具调用片段与 usage")
+    void testParseToolCallsAndUsage() {
+        AssistantMessage message = AssistantMessage.parse(Buffer.buffer("""
+                {"choices":[{"index":0,"delta":{"tool_calls":[{"index":1,"id":"call_1","type":"function",
+                "function":{"name":"weather","arguments":"{\\"city\\":"}}]},"finish_reason":"tool_calls"}],
+                "usage":{"prompt_tokens":10,"completion_tokens":5,"total_tokens":15,
+                "completion_tokens_details":{"reasoning_tokens":2},"prompt_tokens_details":{"cached_tokens":8}}}
+                """));
+
+        Assertions.assertEquals("tool_calls", message.finishReason());
+        Assertions.assertEquals(new Usage(10, 5, 15, 2, 8), message.usage());
+        Assertions.assertEquals(new ToolCallDelta(1, "call_1", "function", "weather", "{\"city\":"), message.toolCallDeltas().get(0));
+    }
+}
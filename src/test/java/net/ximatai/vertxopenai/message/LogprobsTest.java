@@ -0,0 +1,84 @@
+package net.ximatai.vertxopenai.message;
+
+import io.vertx.core.buffer.Buffer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class LogprobsTest {
+
+    private static final String RESPONSE = """
+            {"id":"1","object":"chat.completion","choices":[
+            {"index":0,"message":{"role":"assistant","content":"你好"},"finish_reason":"stop",
+            "logprobs":{"content":[
+            {"token":"你","logprob":-0.5,"bytes":[228,189,160],"top_logprobs":[{"token":"你","logprob":-0.5},{"token":"您","logprob":-1.25}]},
+            {"top_logprobs":[{"token":"好","logprob":-0.25}],"logprob":-0.25,"token":"好"}],"refusal":null}},
+            {"index":1,"message":{"role":"assistant","content":"您好"},"finish_reason":"stop",
+            "logprobs":{"content":[{"token":"您","logprob":-1.25,"top_logprobs":[]},{"token":"好","logprob":-0.5,"top_logprobs":[]}]}}],
+            "usage":{"prompt_tokens":3,"completion_tokens":4,"total_tokens":7}}
+            """;
+
+    @Test
+    @DisplayName("n > 1：每个 choice 都可以读取，对数概率按 token 存储")
+    void testChoices() {
+        AssistantMessage message = AssistantMessage.parse(Buffer.buffer(RESPONSE));
+
+        List<AssistantMessage> choices = message.choices();
+        Assertions.assertEquals(2, choices.size());
+        Assertions.assertSame(message, choices.get(0));
+        Assertions.assertEquals("您好", choices.get(1).content());
+        Assertions.assertEquals(1, choices.get(1).index());
+        Assertions.assertEquals(7, choices.get(1).usage().totalTokens());
+
+        Logprobs logprobs = message.logprobs();
+        Assertions.assertEquals(2, logprobs.size());
+        Assertions.assertEquals("你", logprobs.token(0));
+        Assertions.assertEquals("好", logprobs.token(1));
+        Assertions.assertEquals(-0.25f, logprobs.logprob(1));
+        Assertions.assertEquals(2, logprobs.topCount(0));
+        Assertions.assertEquals("您", logprobs.topToken(0, 1));
+        Assertions.assertEquals(-1.25f, logprobs.topLogprob(0, 1));
+        Assertions.assertEquals(1, logprobs.topCount(1));
+        Assertions.assertEquals(-0.75, logprobs.sum(), 1e-6);
+        Assertions.assertEquals(-1.75, choices.get(1).logprobs().sum(), 1e-6);
+        Assertions.assertEquals(0, choices.get(1).logprobs().topCount(0));
+
+        AssistantMessage fromJson = new AssistantMessage(message.original());
+        Assertions.assertEquals(2, fromJson.choices().size());
+        Assertions.assertArrayEquals(logprobs.toArray(), fromJson.logprobs().toArray());
+        Assertions.assertEquals("好", fromJson.logprobs().topToken(1, 0));
+    }
+
+    @Test
+    @DisplayName("流式请求：按 choice 拼接每段的对数概率")
+    void testStream() {
+        StreamAccumulator accumulator = new StreamAccumulator();
+        accumulator.add(AssistantMessage.parse(Buffer.buffer("""
+                {"choices":[{"index":0,"delta":{"content":"你"},"logprobs":{"content":[
+                {"token":"你","logprob":-0.5,"top_logprobs":[{"token":"你","logprob":-0.5},{"token":"您","logprob":-1.25}]}]}}]}
+                """)));
+        accumulator.add(AssistantMessage.parse(Buffer.buffer("""
+                {"choices":[{"index":1,"delta":{"content":"嗨"},"logprobs":{"content":[
+                {"token":"嗨","logprob":-2.0,"top_logprobs":[]}]}}]}
+                """)));
+        accumulator.add(AssistantMessage.parse(Buffer.buffer("""
+                {"choices":[{"index":0,"delta":{"content":"好"},"logprobs":{"content":[
+                {"token":"好","logprob":-0.25,"top_logprobs":[{"token":"好","logprob":-0.25}]}]},"finish_reason":"stop"}]}
+                """)));
+
+        AssistantMessage message = accumulator.result();
+        Logprobs logprobs = message.logprobs();
+        Assertions.assertEquals(2, logprobs.size());
+        Assertions.assertEquals("好", logprobs.token(1));
+        Assertions.assertEquals("您", logprobs.topToken(0, 1));
+        Assertions.assertEquals("好", logprobs.topToken(1, 0));
+        Assertions.assertEquals(1, logprobs.topCount(1));
+        Assertions.assertEquals(-2.0, message.choices().get(1).logprobs().sum(), 1e-6);
+
+        Logprobs fromOriginal = Logprobs.fromJson(message.original().getJsonArray("choices").getJsonObject(0).getJsonObject("logprobs"));
+        Assertions.assertArrayEquals(logprobs.toArray(), fromOriginal.toArray());
+        Assertions.assertEquals(-1.25f, fromOriginal.topLogprob(0, 1));
+    }
+}
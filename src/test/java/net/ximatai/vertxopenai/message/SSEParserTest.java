@@ -0,0 +1,108 @@
+package net.ximatai.vertxopenai.message;
+
+import io.vertx.core.buffer.Buffer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SSEParserTest {
+
+    private final List<SSEEvent> events = new ArrayList<>();
+
+    private SSEParser parser() {
+        return new SSEParser().handler(events::add);
+    }
+
+    @Test
+    @DisplayName("多行 data、event、id、retry 与注释")
+    void testFields() {
+        SSEParser parser = parser();
+        parser.write(Buffer.buffer(": keep-alive\nevent: delta\nid: 7\nretry: 3000\ndata: line1\ndata:line2\n\n"));
+
+        Assertions.assertEquals(1, events.size());
+        SSEEvent event = events.get(0);
+        Assertions.assertEquals("delta", event.type());
+        Assertions.assertEquals("7", event.id());
+        Assertions.assertEquals(3000, event.retry());
+        Assertions.assertEquals("line1\nline2", event.dataAsString());
+    }
+
+    @Test
+    @DisplayName("跨数据块的行与 CRLF 换行")
+    void testSplitChunks() {
+        SSEParser parser = parser();
+        parser.write(Buffer.buffer("data: {\"a\":"));
+        parser.write(Buffer.buffer("1}\r"));
+        parser.write(Buffer.buffer("\n\r\ndata: [DONE]\r\n\r\n"));
+
+        Assertions.assertEquals(2, events.size());
+        Assertions.assertEquals("{\"a\":1}", events.get(0).dataAsString());
+        Assertions.assertEquals(SSEEvent.DEFAULT_TYPE, events.get(0).type());
+        Assertions.assertFalse(events.get(0).isDone());
+        Assertions.assertTrue(events.get(1).isDone());
+    }
+
+    @Test
+    @DisplayName("流结束时派发未以空行结束的事件")
+    void testFlushOnEnd() {
+        SSEParser parser = parser();
+        parser.write(Buffer.buffer("\n\ndata: tail"));
+        Assertions.assertTrue(events.isEmpty());
+
+        parser.end();
+        Assertions.assertEquals(1, events.size());
+        Assertions.assertEquals("tail", events.get(0).dataAsString());
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    @DisplayName("废弃的构造方法只把事件的 data 交给回调，流结束时触发结束回调")
+    void testDeprecatedConstructor() {
+        List<String> data = new ArrayList<>();
+        List<String> ended = new ArrayList<>();
+        SSEParser parser = new SSEParser(data::add, v -> ended.add("end"));
+        parser.write(Buffer.buffer("event: delta\ndata: {\"a\":1}\n\ndata: [DONE]\n\n"));
+        parser.end();
+
+        Assertions.assertEquals(List.of("{\"a\":1}", "[DONE]"), data);
+        Assertions.assertEquals(List.of("end"), ended);
+    }
+
+    @Test
+    @DisplayName("下游暂停时写队列按原始字节数计满，消费后触发 drain")
+    void testBackpressure() {
+        List<String> drained = new ArrayList<>();
+        List<String> ended = new ArrayList<>();
+        SSEParser parser = new SSEParser()
+                .setWriteQueueMaxSize(40)
+                .drainHandler(v -> drained.add("drain"))
+                .endHandler(v -> ended.add("end"))
+                .handler(events::add)
+                .pause();
+
+        parser.write(Buffer.buffer("data: 0123456789\n\n")); // 18 字节
+        Assertions.assertFalse(parser.writeQueueFull());
+        parser.write(Buffer.buffer("data: 0123456789\n\ndata: 0123456789\n\n"));
+        Assertions.assertTrue(parser.writeQueueFull());
+        Assertions.assertEquals(54, parser.queuedBytes());
+        parser.end();
+        Assertions.assertTrue(ended.isEmpty());
+
+        parser.fetch(1);
+        Assertions.assertEquals(1, events.size());
+        Assertions.assertTrue(drained.isEmpty());
+
+        parser.fetch(1);
+        Assertions.assertEquals(2, events.size());
+        Assertions.assertEquals(1, drained.size());
+        Assertions.assertTrue(ended.isEmpty());
+
+        parser.resume();
+        Assertions.assertEquals(3, events.size());
+        Assertions.assertEquals(0, parser.queuedBytes());
+        Assertions.assertEquals(1, ended.size());
+    }
+}
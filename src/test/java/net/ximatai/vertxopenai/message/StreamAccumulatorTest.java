@@ -0,0 +1,83 @@
+package net.ximatai.vertxopenai.message;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class StreamAccumulatorTest {
+
+    private static AssistantMessage chunk(String json) {
+        return AssistantMessage.parse(Buffer.buffer(json));
+    }
+
+    @Test
+    @DisplayName("按 choice 累加内容、推理内容和结束原因，用量取自最后的用量片段")
+    void testChoices() {
+        StreamAccumulator accumulator = new StreamAccumulator()
+                .add(chunk("{\"id\":\"c1\",\"model\":\"m\",\"choices\":[{\"index\":0,\"delta\":{\"reasoning_content\":\"想\"}}]}"))
+                .add(chunk("{\"id\":\"c1\",\"choices\":[{\"index\":1,\"delta\":{\"content\":\"B\"}}]}"))
+                .add(chunk("{\"id\":\"c1\",\"choices\":[{\"index\":0,\"delta\":{\"reasoning_content\":\"一想\"}}]}"))
+                .add(chunk("{\"id\":\"c1\",\"choices\":[{\"index\":0,\"delta\":{\"content\":\"\\n\\nA\"}}]}"))
+                .add(chunk("{\"id\":\"c1\",\"choices\":[{\"index\":1,\"delta\":{\"content\":\"b\"},\"finish_reason\":\"length\"}]}"))
+                .add(chunk("{\"id\":\"c1\",\"choices\":[{\"index\":0,\"delta\":{\"content\":\"a\"},\"finish_reason\":\"stop\"}]}"))
+                .add(chunk("{\"id\":\"c1\",\"model\":\"m\",\"choices\":[],\"usage\":{\"prompt_tokens\":3,\"completion_tokens\":4,\"total_tokens\":7}}"));
+
+        AssistantMessage message = accumulator.result();
+        Assertions.assertEquals("Aa", message.content());
+        Assertions.assertEquals("想一想", message.reasoning());
+        Assertions.assertEquals("stop", message.finishReason());
+        Assertions.assertEquals(7, message.usage().totalTokens());
+
+        JsonObject original = message.original();
+        Assertions.assertEquals("m", original.getString("model"));
+        JsonArray choices = original.getJsonArray("choices");
+        Assertions.assertEquals(2, choices.size());
+        Assertions.assertEquals("Bb", choices.getJsonObject(1).getJsonObject("message").getString("content"));
+        Assertions.assertEquals("length", choices.getJsonObject(1).getString("finish_reason"));
+        Assertions.assertEquals("想一想", choices.getJsonObject(0).getJsonObject("message").getString("reasoning_content"));
+        Assertions.assertEquals(Integer.valueOf(4), original.getJsonObject("usage").getInteger("completion_tokens"));
+    }
+
+    @Test
+    @DisplayName("一个事件带多个 choice 时分别累加到各自的序号下，合并后的片段同样保留每个 choice")
+    void testMultipleChoicesInOneEvent() {
+        AssistantMessage first = chunk("{\"choices\":[{\"index\":0,\"delta\":{\"content\":\"A\"}},{\"index\":1,\"delta\":{\"content\":\"B\"}}]}");
+        AssistantMessage second = chunk("{\"choices\":[{\"index\":1,\"delta\":{\"content\":\"b\"},\"finish_reason\":\"length\"},{\"index\":0,\"delta\":{\"content\":\"a\"},\"finish_reason\":\"stop\"}]}");
+
+        AssistantMessage message = new StreamAccumulator().add(first).add(second).result();
+        Assertions.assertEquals(2, message.choices().size());
+        Assertions.assertEquals("Aa", message.content());
+        Assertions.assertEquals("Bb", message.choices().get(1).content());
+        Assertions.assertEquals("length", message.choices().get(1).finishReason());
+
+        AssistantMessage merged = AssistantMessage.merge(List.of(first, second));
+        Assertions.assertEquals("Aa", merged.content());
+        Assertions.assertEquals("stop", merged.finishReason());
+        Assertions.assertEquals(1, merged.choices().get(1).index());
+        Assertions.assertEquals("Bb", merged.choices().get(1).content());
+        JsonArray choices = merged.original().getJsonArray("choices");
+        Assertions.assertEquals(2, choices.size());
+        Assertions.assertEquals("Bb", choices.getJsonObject(1).getJsonObject("delta").getString("content"));
+        Assertions.assertEquals("length", choices.getJsonObject(1).getString("finish_reason"));
+    }
+
+    @Test
+    @DisplayName("工具调用拼接完整，只有工具调用时 content 为 null；没有任何片段时失败")
+    void testToolCallsAndEmpty() {
+        AssistantMessage message = new StreamAccumulator()
+                .add(chunk("{\"choices\":[{\"index\":0,\"delta\":{\"tool_calls\":[{\"index\":0,\"id\":\"call_1\",\"type\":\"function\",\"function\":{\"name\":\"f\",\"arguments\":\"{\\\"a\\\"\"}}]}}]}"))
+                .add(chunk("{\"choices\":[{\"index\":0,\"delta\":{\"tool_calls\":[{\"index\":0,\"function\":{\"arguments\":\":1}\"}}]},\"finish_reason\":\"tool_calls\"}]}"))
+                .result();
+
+        Assertions.assertNull(message.content());
+        Assertions.assertEquals(new ToolCall("call_1", "function", "f", "{\"a\":1}"), message.toolCalls().get(0));
+        Assertions.assertInstanceOf(ToolCallsMessage.class, message.simple());
+
+        Assertions.assertThrows(IllegalStateException.class, () -> new StreamAccumulator().result());
+    }
+}
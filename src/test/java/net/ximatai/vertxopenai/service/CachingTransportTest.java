@@ -0,0 +1,72 @@
+package net.ximatai.vertxopenai.service;
+
+import io.vertx.core.Future;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.WriteStream;
+import net.ximatai.vertxopenai.message.SSEParser;
+import net.ximatai.vertxopenai.mock.ScriptedTransport;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+public class CachingTransportTest {
+
+    private static ChatCall call(String body) {
+        return new ChatCall("model", Buffer.buffer(body), 0);
+    }
+
+    @Test
+    @DisplayName("相同请求体命中缓存，不同请求体不命中")
+    void testSend() {
+        ScriptedTransport upstream = ScriptedTransport.replying(call ->
+                Future.succeededFuture(Buffer.buffer("response " + new JsonObject(call.body()).getInteger("a"))));
+        InMemoryResponseCache cache = new InMemoryResponseCache(10, Duration.ofMinutes(1));
+        CachingTransport transport = new CachingTransport(upstream, cache);
+
+        Assertions.assertEquals("response 1", transport.send(call("{\"a\":1}")).result().toString());
+        Assertions.assertEquals("response 1", transport.send(call("{\"a\":1}")).result().toString());
+        Assertions.assertEquals("response 2", transport.send(call("{\"a\":2}")).result().toString());
+        Assertions.assertEquals(2, upstream.calls().size());
+        Assertions.assertEquals(2, cache.size());
+    }
+
+    @Test
+    @DisplayName("流式请求命中缓存时重放相同的事件")
+    void testStreamReplay() {
+        ScriptedTransport upstream = new ScriptedTransport();
+        CachingTransport transport = new CachingTransport(upstream, new InMemoryResponseCache(10, Duration.ofMinutes(1)));
+
+        List<String> first = new ArrayList<>();
+        transport.stream(call("{}"), new SSEParser().handler(event -> first.add(event.dataAsString())));
+        WriteStream<Buffer> sink = upstream.sinks().get(0);
+        sink.write(Buffer.buffer("data: a\n\n"));
+        sink.write(Buffer.buffer("data: b\n\ndata: [DONE]\n\n"));
+        sink.end();
+        upstream.streams().get(0).complete();
+        List<String> second = new ArrayList<>();
+        transport.stream(call("{}"), new SSEParser().handler(event -> second.add(event.dataAsString())));
+
+        Assertions.assertEquals(List.of("a", "b", "[DONE]"), first);
+        Assertions.assertEquals(first, second);
+        Assertions.assertEquals(1, upstream.calls().size());
+    }
+
+    @Test
+    @DisplayName("超出容量时淘汰最久未使用的响应")
+    void testEviction() {
+        InMemoryResponseCache cache = new InMemoryResponseCache(2, Duration.ofMinutes(1));
+        cache.put("a", Buffer.buffer("1"));
+        cache.put("b", Buffer.buffer("2"));
+        cache.get("a");
+        cache.put("c", Buffer.buffer("3"));
+
+        Assertions.assertNotNull(cache.get("a").result());
+        Assertions.assertNull(cache.get("b").result());
+        Assertions.assertNotNull(cache.get("c").result());
+    }
+}
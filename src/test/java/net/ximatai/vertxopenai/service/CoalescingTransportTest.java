@@ -0,0 +1,112 @@
+package net.ximatai.vertxopenai.service;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.WriteStream;
+import net.ximatai.vertxopenai.message.SSEParser;
+import net.ximatai.vertxopenai.mock.ScriptedTransport;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class CoalescingTransportTest {
+
+    private static ChatCall call(String body) {
+        return new ChatCall("model", Buffer.buffer(body), 0);
+    }
+
+    @Test
+    @DisplayName("并发的相同请求共享一次上游请求，完成后的请求重新发起")
+    void testSend() {
+        ScriptedTransport upstream = new ScriptedTransport();
+        CoalescingTransport transport = new CoalescingTransport(upstream, Vertx.vertx());
+
+        Future<Buffer> first = transport.send(call("{\"a\":1}"));
+        Future<Buffer> second = transport.send(call("{\"a\":1}"));
+        transport.send(call("{\"a\":2}"));
+        Assertions.assertEquals(2, upstream.sends().size());
+
+        upstream.sends().get(0).complete(Buffer.buffer("response"));
+        Assertions.assertEquals("response", first.result().toString());
+        Assertions.assertSame(first.result(), second.result());
+
+        transport.send(call("{\"a\":1}"));
+        Assertions.assertEquals(3, upstream.sends().size());
+    }
+
+    @Test
+    @DisplayName("流式请求的订阅者收到相同的数据块，中途加入的订阅者先补发已收到的数据")
+    void testStream() {
+        ScriptedTransport upstream = new ScriptedTransport();
+        CoalescingTransport transport = new CoalescingTransport(upstream, Vertx.vertx());
+
+        List<String> first = new ArrayList<>();
+        Future<Void> firstResult = transport.stream(call("{}"), new SSEParser().handler(event -> first.add(event.dataAsString())));
+        WriteStream<Buffer> sink = upstream.sinks().get(0);
+        sink.write(Buffer.buffer("data: a\n\n"));
+
+        List<String> second = new ArrayList<>();
+        Future<Void> secondResult = transport.stream(call("{}"), new SSEParser().handler(event -> second.add(event.dataAsString())));
+        sink.write(Buffer.buffer("data: b\n\n"));
+        sink.end();
+        upstream.streams().get(0).complete();
+
+        Assertions.assertEquals(1, upstream.streams().size());
+        Assertions.assertEquals(List.of("a", "b"), first);
+        Assertions.assertEquals(first, second);
+        Assertions.assertTrue(firstResult.succeeded());
+        Assertions.assertTrue(secondResult.succeeded());
+    }
+
+    @Test
+    @DisplayName("取消第一个流式订阅者不影响其他订阅者，最后一个订阅者退出时才取消上游请求")
+    void testLeaderCancel() {
+        ScriptedTransport upstream = new ScriptedTransport();
+        CoalescingTransport transport = new CoalescingTransport(upstream, Vertx.vertx());
+
+        ChatCall leader = call("{}");
+        Future<Void> leaderResult = transport.stream(leader, new SSEParser().handler(event -> {
+        }));
+        ChatCall follower = call("{}");
+        List<String> received = new ArrayList<>();
+        Future<Void> followerResult = transport.stream(follower, new SSEParser().handler(event -> received.add(event.dataAsString())));
+        ChatCall shared = upstream.calls().get(0);
+        Assertions.assertNotSame(leader, shared);
+
+        leader.cancel(new CancellationException("cancelled"));
+        Assertions.assertInstanceOf(CancellationException.class, leaderResult.cause());
+        Assertions.assertFalse(shared.isCancelled());
+        upstream.sinks().get(0).write(Buffer.buffer("data: a\n\n"));
+        Assertions.assertEquals(List.of("a"), received);
+
+        follower.cancel(new CancellationException("cancelled"));
+        Assertions.assertTrue(followerResult.failed());
+        Assertions.assertTrue(shared.isCancelled());
+    }
+
+    @Test
+    @DisplayName("第一个调用的总超时只让它自己失败，其他调用继续等待共享的结果")
+    void testLeaderDeadline() throws Exception {
+        ScriptedTransport upstream = new ScriptedTransport();
+        CoalescingTransport transport = new CoalescingTransport(upstream, Vertx.vertx());
+
+        Future<Buffer> leader = transport.send(call("{}").setTimeout(20));
+        Future<Buffer> follower = transport.send(call("{}"));
+        ExecutionException timeout = Assertions.assertThrows(ExecutionException.class,
+                () -> leader.toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS));
+        Assertions.assertInstanceOf(TimeoutException.class, timeout.getCause());
+        Assertions.assertFalse(upstream.calls().get(0).isCancelled());
+        Assertions.assertFalse(follower.isComplete());
+
+        upstream.sends().get(0).complete(Buffer.buffer("response"));
+        Assertions.assertEquals("response", follower.result().toString());
+    }
+}
@@ -0,0 +1,128 @@
+package net.ximatai.vertxopenai.service;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
+import net.ximatai.vertxopenai.mock.ScriptedTransport;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class EndpointPoolTest {
+
+    private static final ChatCall CALL = new ChatCall("model", Buffer.buffer("{}"), 0);
+
+    private static EndpointPool pool(ScriptedTransport... endpoints) {
+        List<EndpointPool.Member> members = new ArrayList<>();
+        for (int i = 0; i < endpoints.length; i++) {
+            members.add(new EndpointPool.Member("endpoint-" + i, 1, endpoints[i], new CircuitBreaker(1, 60_000)));
+        }
+        return new EndpointPool(members, LoadBalancing.LEAST_OUTSTANDING);
+    }
+
+    @Test
+    @DisplayName("上游暂时不可用时转移到其他接口，并熔断故障接口")
+    void testFailover() {
+        ScriptedTransport broken = ScriptedTransport.replying(call -> Future.failedFuture(new OpenAIException(503, null, -1)));
+        ScriptedTransport healthy = ScriptedTransport.replying(call -> Future.succeededFuture(Buffer.buffer("ok")));
+        EndpointPool pool = pool(broken, healthy);
+
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertEquals("ok", pool.send(CALL).result().toString());
+        }
+        Assertions.assertTrue(broken.calls().size() <= 1);
+        Assertions.assertEquals(10, healthy.calls().size());
+        Assertions.assertEquals(broken.calls().size() == 1, pool.members().get(0).isOpen());
+    }
+
+    @Test
+    @DisplayName("客户端错误不转移")
+    void testClientError() {
+        ScriptedTransport first = ScriptedTransport.replying(call -> Future.failedFuture(new OpenAIException(400, null, -1)));
+        ScriptedTransport second = ScriptedTransport.replying(call -> Future.failedFuture(new OpenAIException(400, null, -1)));
+        EndpointPool pool = pool(first, second);
+
+        Future<Buffer> result = pool.send(CALL);
+        Assertions.assertEquals(400, ((OpenAIException) result.cause()).statusCode());
+        Assertions.assertEquals(1, first.calls().size() + second.calls().size());
+    }
+
+    @Test
+    @DisplayName("进行中请求多的接口少分配请求")
+    void testLeastOutstanding() {
+        ScriptedTransport slow = new ScriptedTransport();
+        ScriptedTransport fast = ScriptedTransport.replying(call -> Future.succeededFuture(Buffer.buffer("ok")));
+        EndpointPool pool = pool(slow, fast);
+
+        // 第一个请求挂起在 slow 上之后，其余请求都应该分配给 fast
+        while (slow.calls().isEmpty()) {
+            pool.send(CALL);
+        }
+        int before = fast.calls().size();
+        for (int i = 0; i < 5; i++) {
+            pool.send(CALL);
+        }
+        Assertions.assertEquals(before + 5, fast.calls().size());
+        Assertions.assertEquals(1, slow.calls().size());
+    }
+
+    @Test
+    @DisplayName("取消或总超时不计入熔断器，只归还半开状态的试探名额")
+    void testCancelDoesNotCount() {
+        AtomicInteger attempts = new AtomicInteger();
+        ScriptedTransport endpoint = ScriptedTransport.replying(call -> {
+            if (attempts.getAndIncrement() == 0) {
+                return Future.failedFuture(new OpenAIException(503, null, -1));
+            }
+            Promise<Buffer> pending = Promise.promise();
+            call.onCancel(pending::tryFail);
+            return pending.future();
+        });
+        EndpointPool pool = new EndpointPool(List.of(new EndpointPool.Member("endpoint", 1, endpoint, new CircuitBreaker(1, 0))),
+                LoadBalancing.LEAST_OUTSTANDING);
+
+        Assertions.assertTrue(pool.send(new ChatCall("model", Buffer.buffer("{}"), 0)).failed());
+        Assertions.assertTrue(pool.members().get(0).isOpen());
+
+        // 半开状态下的试探请求被取消：熔断器不关闭，试探名额归还给下一个请求
+        ChatCall trial = new ChatCall("model", Buffer.buffer("{}"), 0);
+        Future<Buffer> cancelled = pool.send(trial);
+        trial.cancel(new CancellationException("Request cancelled"));
+        Assertions.assertInstanceOf(CancellationException.class, cancelled.cause());
+        Assertions.assertTrue(pool.members().get(0).isOpen());
+
+        ChatCall next = new ChatCall("model", Buffer.buffer("{}"), 0);
+        Future<Buffer> timedOut = pool.send(next);
+        Assertions.assertEquals(3, endpoint.calls().size());
+        next.cancel(new TimeoutException("Request timed out"));
+        Assertions.assertInstanceOf(TimeoutException.class, timedOut.cause());
+        Assertions.assertTrue(pool.members().get(0).isOpen());
+
+        pool.send(new ChatCall("model", Buffer.buffer("{}"), 0));
+        Assertions.assertEquals(4, endpoint.calls().size());
+    }
+
+    @Test
+    @DisplayName("总超时不算作接口失败，不会打开熔断器")
+    void testDeadlineDoesNotOpen() {
+        ScriptedTransport endpoint = new ScriptedTransport();
+        EndpointPool pool = new EndpointPool(List.of(new EndpointPool.Member("endpoint", 1, endpoint, new CircuitBreaker(2, 60_000))),
+                LoadBalancing.LEAST_OUTSTANDING);
+
+        ChatCall call = new ChatCall("model", Buffer.buffer("{}"), 0);
+        Future<Buffer> timedOut = pool.send(call);
+        call.cancel(new TimeoutException("Request timed out"));
+        Assertions.assertInstanceOf(TimeoutException.class, timedOut.cause());
+
+        Future<Buffer> failed = pool.send(new ChatCall("model", Buffer.buffer("{}"), 0));
+        endpoint.sends().get(1).fail(new OpenAIException(503, null, -1));
+        Assertions.assertInstanceOf(OpenAIException.class, failed.cause());
+        Assertions.assertFalse(pool.members().get(0).isOpen());
+    }
+}
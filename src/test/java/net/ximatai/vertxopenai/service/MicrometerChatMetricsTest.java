@@ -0,0 +1,55 @@
+package net.ximatai.vertxopenai.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MicrometerChatMetricsTest {
+
+    @Test
+    @DisplayName("连接池 gauge 在 supplier 没有其他引用时仍然有效")
+    void testConnectionPoolGauges() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        MicrometerChatMetrics metrics = new MicrometerChatMetrics(registry);
+        AtomicInteger inFlight = new AtomicInteger(3);
+        // 与 HttpChatTransport 一样传入临时创建的方法引用
+        metrics.connectionPool("api:443", inFlight::get, 8);
+
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Assertions.assertEquals(3.0, registry.get("openai.chat.requests.in.flight").tag("endpoint", "api:443").gauge().value());
+        Assertions.assertEquals(8.0, registry.get("openai.chat.requests.max").tag("endpoint", "api:443").gauge().value());
+        inFlight.set(5);
+        Assertions.assertEquals(5.0, registry.get("openai.chat.requests.in.flight").tag("endpoint", "api:443").gauge().value());
+
+        // 并发流数由服务端决定时不注册上限
+        metrics.connectionPool("h2:443", inFlight::get, -1);
+        Assertions.assertEquals(5.0, registry.get("openai.chat.requests.in.flight").tag("endpoint", "h2:443").gauge().value());
+        Assertions.assertNull(registry.find("openai.chat.requests.max").tag("endpoint", "h2:443").gauge());
+    }
+
+    @Test
+    @DisplayName("请求耗时和重试次数按标签记录")
+    void testRequestsAndRetries() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        MicrometerChatMetrics metrics = new MicrometerChatMetrics(registry);
+
+        metrics.request("gpt", "api:443", true, 1_000_000, null);
+        metrics.request("gpt", "api:443", true, 2_000_000, null);
+        metrics.request("gpt", null, false, 3_000_000, new TimeoutException());
+        metrics.retry("gpt", new TimeoutException());
+        metrics.retry("gpt", new TimeoutException());
+
+        Assertions.assertEquals(2L, registry.get("openai.chat.requests").tag("stream", "true").tag("error", "none").timer().count());
+        Assertions.assertEquals(1L, registry.get("openai.chat.requests").tag("endpoint", "none")
+                .tag("error", "TimeoutException").timer().count());
+        Assertions.assertEquals(2, registry.get("openai.chat.requests").timers().size());
+        Assertions.assertEquals(2.0, registry.get("openai.chat.retries").tag("model", "gpt").counter().count());
+    }
+}
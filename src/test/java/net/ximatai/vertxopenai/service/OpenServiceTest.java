@@ -0,0 +1,63 @@
+package net.ximatai.vertxopenai.service;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import net.ximatai.vertxopenai.session.SessionRegistryOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class OpenServiceTest {
+
+    private Vertx vertx;
+
+    @BeforeEach
+    void setUp() {
+        vertx = Vertx.vertx();
+    }
+
+    @AfterEach
+    void tearDown() {
+        vertx.close();
+    }
+
+    @Test
+    @DisplayName("连接池配置的默认值，非法值立即失败")
+    void testOptions() {
+        OpenServiceOptions options = new OpenServiceOptions();
+        Assertions.assertEquals(OpenServiceOptions.DEFAULT_MAX_POOL_SIZE, options.getMaxPoolSize());
+        Assertions.assertEquals(OpenServiceOptions.DEFAULT_KEEP_ALIVE_TIMEOUT, options.getKeepAliveTimeout());
+        Assertions.assertEquals(OpenServiceOptions.DEFAULT_CONNECT_TIMEOUT, options.getConnectTimeout());
+        Assertions.assertTrue(options.isKeepAlive());
+        Assertions.assertFalse(options.isHttp2());
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> options.setMaxPoolSize(0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> options.setKeepAliveTimeout(-1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> options.setHttp2MaxPoolSize(0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> options.setHttp2MultiplexingLimit(0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> options.setIdleTimeout(-1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> options.setConnectTimeout(-1));
+        Assertions.assertEquals(-1, options.setHttp2MultiplexingLimit(-1).getHttp2MultiplexingLimit());
+    }
+
+    @Test
+    @DisplayName("无法解析的地址在创建服务时失败")
+    void testInvalidUrl() {
+        Assertions.assertThrows(RuntimeException.class, () -> new OpenService(vertx, "key", "not a url", new OpenServiceOptions()));
+        Assertions.assertThrows(NullPointerException.class, () -> new OpenService(vertx, "key", "http://localhost/v1/chat/completions", null));
+    }
+
+    @Test
+    @DisplayName("关闭后不能再创建会话或注册表，重复关闭没有影响")
+    void testClosed() {
+        OpenService service = new OpenService(vertx, "key", "http://localhost:8080/v1/chat/completions", new OpenServiceOptions());
+        Assertions.assertNotNull(service.connect("model"));
+        service.close();
+        service.close();
+
+        Assertions.assertThrows(IllegalStateException.class, () -> service.connect("model"));
+        Assertions.assertThrows(IllegalStateException.class, () -> service.registry(new JsonObject(), new SessionRegistryOptions()));
+    }
+}
@@ -0,0 +1,107 @@
+package net.ximatai.vertxopenai.service;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class RateLimiterTest {
+
+    private Vertx vertx;
+
+    @BeforeEach
+    void setUp() {
+        vertx = Vertx.vertx();
+    }
+
+    @AfterEach
+    void tearDown() {
+        vertx.close();
+    }
+
+    @Test
+    @DisplayName("并发数达到上限时排队，队列已满时立即失败，归还后按顺序放行")
+    void testMaxInFlight() {
+        RateLimiter limiter = new RateLimiter(vertx, new RateLimitOptions()
+                .setMaxInFlight(1)
+                .setMaxQueueSize(1));
+
+        Future<Void> first = limiter.acquire(0, Long.MAX_VALUE);
+        Future<Void> second = limiter.acquire(0, Long.MAX_VALUE);
+        Future<Void> third = limiter.acquire(0, Long.MAX_VALUE);
+
+        Assertions.assertTrue(first.succeeded());
+        Assertions.assertFalse(second.isComplete());
+        Assertions.assertInstanceOf(RateLimitException.class, third.cause());
+
+        limiter.release();
+        Assertions.assertTrue(second.succeeded());
+        Assertions.assertEquals(1, limiter.inFlight());
+        Assertions.assertEquals(0, limiter.queued());
+    }
+
+    @Test
+    @DisplayName("每分钟请求数和 token 数用完后排队")
+    void testRate() {
+        RateLimiter limiter = new RateLimiter(vertx, new RateLimitOptions()
+                .setRequestsPerMinute(2)
+                .setTokensPerMinute(1000));
+
+        Assertions.assertTrue(limiter.acquire(100, Long.MAX_VALUE).succeeded());
+        Assertions.assertTrue(limiter.acquire(100, Long.MAX_VALUE).succeeded());
+        Assertions.assertFalse(limiter.acquire(100, Long.MAX_VALUE).isComplete());
+
+        RateLimiter tokenLimiter = new RateLimiter(vertx, new RateLimitOptions().setTokensPerMinute(1000));
+        Assertions.assertTrue(tokenLimiter.acquire(800, Long.MAX_VALUE).succeeded());
+        Assertions.assertFalse(tokenLimiter.acquire(800, Long.MAX_VALUE).isComplete());
+        // 排队中的请求之后到达的小请求也要排队，保证先到先得
+        Assertions.assertFalse(tokenLimiter.acquire(1, Long.MAX_VALUE).isComplete());
+        Assertions.assertEquals(2, tokenLimiter.queued());
+    }
+
+    @Test
+    @DisplayName("排队中的调用被取消时立即出队，以取消原因失败")
+    void testCancelWhileQueued() {
+        RateLimiter limiter = new RateLimiter(vertx, new RateLimitOptions().setMaxInFlight(1));
+        Assertions.assertTrue(limiter.acquire(0, Long.MAX_VALUE).succeeded());
+
+        ChatCall call = new ChatCall("model", Buffer.buffer("{}"), 0);
+        Future<Void> queued = limiter.acquire(call);
+        Future<Void> next = limiter.acquire(0, Long.MAX_VALUE);
+        Assertions.assertEquals(2, limiter.queued());
+
+        CancellationException reason = new CancellationException("Request cancelled");
+        call.cancel(reason);
+        Assertions.assertSame(reason, queued.cause());
+        Assertions.assertEquals(1, limiter.queued());
+
+        limiter.release();
+        Assertions.assertTrue(next.succeeded());
+    }
+
+    @Test
+    @DisplayName("排队到调用的总超时时以 TimeoutException 失败")
+    void testDeadlineWhileQueued() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter(vertx, new RateLimitOptions().setMaxInFlight(1));
+        Assertions.assertTrue(limiter.acquire(0, Long.MAX_VALUE).succeeded());
+
+        ChatCall call = new ChatCall("model", Buffer.buffer("{}"), 0).setTimeout(20);
+        Future<Void> queued = limiter.acquire(call);
+        CountDownLatch done = new CountDownLatch(1);
+        queued.onComplete(ar -> done.countDown());
+
+        Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Assertions.assertInstanceOf(TimeoutException.class, queued.cause());
+        Assertions.assertTrue(call.isCancelled());
+        Assertions.assertEquals(0, limiter.queued());
+    }
+}
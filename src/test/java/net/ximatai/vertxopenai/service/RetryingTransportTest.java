@@ -0,0 +1,179 @@
+package net.ximatai.vertxopenai.service;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.WriteStream;
+import net.ximatai.vertxopenai.message.SSEParser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class RetryingTransportTest {
+
+    private Vertx vertx;
+
+    @BeforeEach
+    void setUp() {
+        vertx = Vertx.vertx();
+    }
+
+    @AfterEach
+    void tearDown() {
+        vertx.close();
+    }
+
+    @Test
+    @DisplayName("429/5xx/连接失败可以重试，优先使用 Retry-After")
+    void testRetryDelay() {
+        RetryingTransport transport = new RetryingTransport(null, vertx, new RetryOptions()
+                .setInitialBackoff(500)
+                .setMaxRetryAfter(10_000));
+
+        Assertions.assertEquals(1500, transport.retryDelay(new OpenAIException(429, null, 1500), 0));
+        Assertions.assertEquals(-1, transport.retryDelay(new OpenAIException(429, null, 20_000), 0));
+        Assertions.assertEquals(-1, transport.retryDelay(new OpenAIException(400, null, -1), 0));
+        Assertions.assertEquals(-1, transport.retryDelay(new IllegalStateException(), 0));
+
+        long delay = transport.retryDelay(new OpenAIException(503, null, -1), 0);
+        Assertions.assertTrue(delay >= 250 && delay <= 500);
+        delay = transport.retryDelay(new ConnectException(), 2);
+        Assertions.assertTrue(delay >= 1000 && delay <= 2000);
+    }
+
+    @Test
+    @DisplayName("解析 Retry-After 与 retry-after-ms")
+    void testParseRetryAfter() {
+        Assertions.assertEquals(2000, HttpChatTransport.retryAfter(null, "2"));
+        Assertions.assertEquals(150, HttpChatTransport.retryAfter("150", "2"));
+        Assertions.assertEquals(-1, HttpChatTransport.retryAfter(null, "soon"));
+        Assertions.assertEquals(-1, HttpChatTransport.retryAfter(null, null));
+    }
+
+    @Test
+    @DisplayName("流式请求收到数据后不再重试")
+    void testNoRetryAfterFirstChunk() {
+        int[] calls = new int[1];
+        ChatTransport upstream = new ChatTransport() {
+            @Override
+            public Future<Buffer> send(ChatCall call) {
+                return Future.failedFuture(new OpenAIException(503, null, -1));
+            }
+
+            @Override
+            public Future<Void> stream(ChatCall call, WriteStream<Buffer> sink) {
+                calls[0]++;
+                sink.write(Buffer.buffer("data: a\n\n"));
+                return Future.failedFuture(new OpenAIException(503, null, 0));
+            }
+        };
+        RetryingTransport transport = new RetryingTransport(upstream, vertx, new RetryOptions().setMaxRetries(3));
+
+        List<String> events = new ArrayList<>();
+        Future<Void> result = transport.stream(new ChatCall("model", Buffer.buffer("{}"), 0),
+                new SSEParser().handler(event -> events.add(event.dataAsString())));
+
+        Assertions.assertTrue(result.failed());
+        Assertions.assertEquals(1, calls[0]);
+        Assertions.assertEquals(List.of("a"), events);
+    }
+
+    @Test
+    @DisplayName("对冲请求：一个尝试获胜后立即取消其余尝试，上级调用不受影响")
+    void testCancelLosingAttempts() {
+        ChatCall call = new ChatCall("model", Buffer.buffer("{}"), 0);
+        ChatCall first = call.fork();
+        ChatCall second = call.fork();
+        List<String> events = new ArrayList<>();
+        StreamRace race = new StreamRace(new SSEParser().handler(event -> events.add(event.dataAsString())), nanos -> {
+        });
+        StreamRace.Lane firstLane = race.lane(first);
+        StreamRace.Lane secondLane = race.lane(second);
+
+        secondLane.write(Buffer.buffer("data: b\n\n"));
+        firstLane.write(Buffer.buffer("data: a\n\n"));
+
+        Assertions.assertEquals(List.of("b"), events);
+        Assertions.assertInstanceOf(CancellationException.class, first.cancelReason());
+        Assertions.assertFalse(second.isCancelled());
+        Assertions.assertFalse(call.isCancelled());
+
+        // 获胜之后才创建的 lane 直接取消
+        ChatCall third = call.fork();
+        race.lane(third);
+        Assertions.assertTrue(third.isCancelled());
+
+        // 上级调用取消时所有尝试一起取消
+        TimeoutException timeout = new TimeoutException();
+        call.cancel(timeout);
+        Assertions.assertSame(timeout, second.cancelReason());
+    }
+
+    @Test
+    @DisplayName("等待重试期间取消时立即失败；等不到重试时机时以 TimeoutException 失败")
+    void testCancelDuringBackoff() {
+        int[] calls = new int[1];
+        ChatTransport upstream = new ChatTransport() {
+            @Override
+            public Future<Buffer> send(ChatCall call) {
+                calls[0]++;
+                return Future.failedFuture(new OpenAIException(503, null, -1));
+            }
+
+            @Override
+            public Future<Void> stream(ChatCall call, WriteStream<Buffer> sink) {
+                return send(call).mapEmpty();
+            }
+        };
+        RetryingTransport transport = new RetryingTransport(upstream, vertx, new RetryOptions()
+                .setMaxRetries(3)
+                .setInitialBackoff(60_000)
+                .setMaxBackoff(60_000));
+
+        ChatCall call = new ChatCall("model", Buffer.buffer("{}"), 0);
+        Future<Buffer> result = transport.send(call);
+        Assertions.assertFalse(result.isComplete());
+        CancellationException reason = new CancellationException("Request cancelled");
+        call.cancel(reason);
+        Assertions.assertSame(reason, result.cause());
+        Assertions.assertEquals(1, calls[0]);
+
+        ChatCall shortCall = new ChatCall("model", Buffer.buffer("{}"), 0).setTimeout(1000);
+        Future<Buffer> timedOut = transport.send(shortCall);
+        Assertions.assertInstanceOf(TimeoutException.class, timedOut.cause());
+        Assertions.assertInstanceOf(OpenAIException.class, timedOut.cause().getCause());
+        Assertions.assertEquals(2, calls[0]);
+    }
+
+    @Test
+    @DisplayName("消费方暂停读取期间不计入数据间隔超时")
+    void testIdleTimeoutPausedWhileBackpressured() throws InterruptedException {
+        ChatCall call = new ChatCall("model", Buffer.buffer("{}"), 0).setIdleTimeout(50);
+        List<Throwable> timeouts = new ArrayList<>();
+        CountDownLatch fired = new CountDownLatch(1);
+        CallWatchdog watchdog = new CallWatchdog(vertx, call, err -> {
+            timeouts.add(err);
+            fired.countDown();
+        });
+        watchdog.start();
+        watchdog.onData();
+        watchdog.pause();
+
+        Assertions.assertFalse(fired.await(200, TimeUnit.MILLISECONDS));
+        Assertions.assertTrue(timeouts.isEmpty());
+
+        watchdog.resume();
+        Assertions.assertTrue(fired.await(5, TimeUnit.SECONDS));
+        Assertions.assertInstanceOf(TimeoutException.class, timeouts.get(0));
+    }
+}
@@ -0,0 +1,53 @@
+package net.ximatai.vertxopenai.session;
+
+import io.vertx.core.Future;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import net.ximatai.vertxopenai.mock.ScriptedTransport;
+import net.ximatai.vertxopenai.service.ChatMetrics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ChatMetricsTest {
+
+    private static final String RESPONSE = """
+            {"choices":[{"index":0,"message":{"role":"assistant","content":"你好"},"finish_reason":"stop"}],
+            "usage":{"prompt_tokens":5,"completion_tokens":7,"total_tokens":12}}""";
+
+    private static class RecordingMetrics implements ChatMetrics {
+        private final List<String> records = new ArrayList<>();
+
+        @Override
+        public void request(String model, String endpoint, boolean stream, long duration, Throwable error) {
+            records.add("request " + model + " " + endpoint + " " + stream + " " + (error == null ? "ok" : error.getMessage()));
+        }
+
+        @Override
+        public void outputTokens(String model, String endpoint, int tokens, long duration) {
+            records.add("tokens " + model + " " + tokens);
+        }
+    }
+
+    @Test
+    @DisplayName("请求结束后记录耗时和上游返回的输出 token 数")
+    void testSend() {
+        RecordingMetrics metrics = new RecordingMetrics();
+        ChatSession session = new ChatSession(new JsonObject().put("model", "test"), ScriptedTransport.replying(call ->
+                call.body().toString().contains("fail")
+                        ? Future.failedFuture("upstream failed")
+                        : Future.succeededFuture(Buffer.buffer(RESPONSE))), metrics);
+
+        session.open().addMessage("你好").send();
+        session.open().addMessage("fail").send();
+
+        Assertions.assertEquals(List.of(
+                "request test null false ok",
+                "tokens test 7",
+                "request test null false upstream failed"
+        ), metrics.records);
+    }
+}
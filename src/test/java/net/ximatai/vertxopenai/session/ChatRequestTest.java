@@ -0,0 +1,95 @@
+package net.ximatai.vertxopenai.session;
+
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonObject;
+import net.ximatai.vertxopenai.message.AssistantMessage;
+import net.ximatai.vertxopenai.mock.ScriptedTransport;
+import net.ximatai.vertxopenai.service.ChatCall;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+public class ChatRequestTest {
+
+    @Test
+    @DisplayName("超时设置传递给上游调用，取消后请求失败")
+    void testCancel() {
+        ScriptedTransport transport = new ScriptedTransport();
+        ChatSession session = new ChatSession(new JsonObject().put("model", "test"), transport);
+
+        ChatRequest request = session.open()
+                .addMessage("你好")
+                .timeout(30_000)
+                .firstTokenTimeout(5_000)
+                .idleTimeout(1_000);
+        Future<AssistantMessage> result = request.send();
+
+        ChatCall call = transport.calls().get(0);
+        Assertions.assertEquals("test", call.model());
+        Assertions.assertEquals(5_000, call.firstByteTimeout());
+        Assertions.assertEquals(1_000, call.idleTimeout());
+        Assertions.assertTrue(call.remainingTime() <= 30_000);
+        Assertions.assertFalse(result.isComplete());
+
+        Assertions.assertTrue(request.cancel());
+        Assertions.assertFalse(request.cancel());
+        Assertions.assertInstanceOf(CancellationException.class, result.cause());
+    }
+
+    @Test
+    @DisplayName("流式请求取消后结果失败")
+    void testCancelStream() {
+        ScriptedTransport transport = new ScriptedTransport();
+        ChatSession session = new ChatSession(new JsonObject().put("model", "test"), transport);
+
+        ChatRequest request = session.open().addMessage("你好");
+        ChatStream stream = request.sendStream();
+        request.cancel();
+
+        Assertions.assertTrue(transport.calls().get(0).isCancelled());
+        Assertions.assertInstanceOf(CancellationException.class, stream.result().cause());
+    }
+
+    @Test
+    @DisplayName("handler 抛出异常时流以该异常失败，并取消上游请求")
+    void testHandlerFailure() {
+        ScriptedTransport transport = new ScriptedTransport();
+        ChatSession session = new ChatSession(new JsonObject().put("model", "test"), transport);
+
+        IllegalStateException thrown = new IllegalStateException("handler failed");
+        List<Throwable> errors = new ArrayList<>();
+        ChatStream stream = session.open().addMessage("你好").sendStream()
+                .exceptionHandler(errors::add)
+                .handler(chunk -> {
+                    throw thrown;
+                });
+        transport.chunk("你");
+
+        Assertions.assertSame(thrown, stream.result().cause());
+        Assertions.assertEquals(List.of(thrown), errors);
+        Assertions.assertSame(thrown, transport.calls().get(0).cancelReason());
+        Assertions.assertTrue(transport.streams().get(0).future().failed());
+        Assertions.assertEquals(0, session.getMessages().size());
+    }
+
+    @Test
+    @DisplayName("流结束之后设置的 endHandler 立即触发")
+    void testLateEndHandler() {
+        ScriptedTransport transport = new ScriptedTransport();
+        ChatSession session = new ChatSession(new JsonObject().put("model", "test"), transport);
+
+        ChatStream stream = session.open().addMessage("你好").sendStream()
+                .handler(chunk -> {
+                });
+        transport.chunk("你").finish("好");
+        Assertions.assertEquals("你好", stream.result().result().content());
+
+        List<String> ended = new ArrayList<>();
+        stream.endHandler(v -> ended.add("end"));
+        Assertions.assertEquals(List.of("end"), ended);
+    }
+}
@@ -0,0 +1,95 @@
+package net.ximatai.vertxopenai.session;
+
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import net.ximatai.vertxopenai.message.IMessage;
+import net.ximatai.vertxopenai.message.MessageRole;
+import net.ximatai.vertxopenai.mock.ScriptedTransport;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+public class ChatSessionConcurrencyTest {
+
+    @Test
+    @DisplayName("同时进行的请求基于各自的快照发送，完成后整轮按完成顺序追加")
+    void testOverlappingRequests() {
+        ScriptedTransport transport = new ScriptedTransport();
+        ChatSession session = new ChatSession(new JsonObject().put("model", "test"), transport);
+
+        session.open().addMessage("first").send();
+        session.open().addMessage("second").send();
+        Assertions.assertFalse(transport.body(1).encode().contains("first"));
+
+        List<IMessage> before = session.getMessages();
+        transport.sends().get(1).complete(ScriptedTransport.completion("second reply"));
+        transport.sends().get(0).complete(ScriptedTransport.completion("first reply"));
+
+        Assertions.assertEquals(0, before.size());
+        List<String> contents = session.getMessages().stream().map(IMessage::content).toList();
+        Assertions.assertEquals(List.of("second", "second reply", "first", "first reply"), contents);
+    }
+
+    @Test
+    @DisplayName("清空会话之前发出的请求完成后不再写入历史")
+    void testClearDuringRequest() {
+        ScriptedTransport transport = new ScriptedTransport();
+        ChatSession session = new ChatSession(new JsonObject().put("model", "test"), transport);
+
+        session.open().addMessage("old").send();
+        session.clearMessages();
+        session.open().addMessage("new").send();
+        transport.sends().get(0).complete(ScriptedTransport.completion("old reply"));
+        transport.sends().get(1).complete(ScriptedTransport.completion("new reply"));
+
+        List<String> contents = session.getMessages().stream().map(IMessage::content).toList();
+        Assertions.assertEquals(List.of("new", "new reply"), contents);
+    }
+
+    @Test
+    @DisplayName("多个线程同时使用一个会话，每一轮都完整且不相互穿插")
+    void testConcurrentThreads() throws InterruptedException {
+        ScriptedTransport transport = ScriptedTransport.replying(call -> {
+            JsonArray messages = new JsonObject(call.body()).getJsonArray("messages");
+            String content = messages.getJsonObject(messages.size() - 1).getString("content");
+            return Future.succeededFuture(ScriptedTransport.completion("re:" + content));
+        });
+        ChatSession session = new ChatSession(new JsonObject().put("model", "test"), transport);
+        int threads = 8;
+        int requests = 200;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < requests; i++) {
+                    session.open().addMessage(id + "-" + i).send();
+                    session.getMessages().size();
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        List<IMessage> messages = session.getMessages();
+        Assertions.assertEquals(threads * requests * 2, messages.size());
+        for (int i = 0; i < messages.size(); i += 2) {
+            Assertions.assertEquals(MessageRole.USER, messages.get(i).role());
+            Assertions.assertEquals("re:" + messages.get(i).content(), messages.get(i + 1).content());
+        }
+    }
+}
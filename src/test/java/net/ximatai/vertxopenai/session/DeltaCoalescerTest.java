@@ -0,0 +1,136 @@
+package net.ximatai.vertxopenai.session;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import net.ximatai.vertxopenai.message.AssistantMessage;
+import net.ximatai.vertxopenai.message.Usage;
+import net.ximatai.vertxopenai.mock.ScriptedTransport;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class DeltaCoalescerTest {
+
+    @Test
+    @DisplayName("按字符数合并流式片段，结束原因立即交出，最终消息不受影响")
+    void testMaxChars() {
+        ScriptedTransport transport = new ScriptedTransport();
+        ChatSession session = new ChatSession(new JsonObject().put("model", "test"), transport, null);
+        List<AssistantMessage> received = new ArrayList<>();
+        ChatStream stream = session.open().addMessage("你好").coalesce(0, 4).sendStream();
+        stream.handler(received::add);
+
+        for (String token : List.of("a", "b", "c", "d", "e", "f")) {
+            transport.chunk(token);
+        }
+        Assertions.assertEquals(1, received.size());
+        Assertions.assertEquals("abcd", received.get(0).content());
+
+        transport.finish("g");
+        Assertions.assertEquals(2, received.size());
+        AssistantMessage last = received.get(1);
+        Assertions.assertEquals("efg", last.content());
+        Assertions.assertEquals("stop", last.finishReason());
+        Assertions.assertEquals("efg", last.original().getJsonArray("choices").getJsonObject(0)
+                .getJsonObject("delta").getString("content"));
+        Assertions.assertEquals("abcdefg", stream.result().result().content());
+    }
+
+    @Test
+    @DisplayName("超过时间窗口后交出积攒的片段")
+    void testWindow() {
+        long[] now = {0};
+        List<String> received = new ArrayList<>();
+        DeltaCoalescer coalescer = new DeltaCoalescer(20, 0, message -> received.add(message.content()), () -> now[0]);
+
+        coalescer.add(chunk("a", null));
+        coalescer.add(chunk("b", null));
+        Assertions.assertTrue(received.isEmpty());
+        now[0] = 30_000_000;
+        coalescer.add(chunk("c", null));
+        Assertions.assertEquals(List.of("abc"), received);
+
+        coalescer.add(chunk("d", null));
+        coalescer.add(chunk("e", "stop"));
+        Assertions.assertEquals(List.of("abc", "de"), received);
+    }
+
+    @Test
+    @DisplayName("合并到只带用量、没有 choice 的最后一个片段时，原始 json 仍有 choices 和完整的用量")
+    void testMergeUsageTrailer() {
+        AssistantMessage merged = AssistantMessage.merge(List.of(chunk("a", "stop"), AssistantMessage.parse(Buffer.buffer("""
+                {"choices":[],"usage":{"prompt_tokens":5,"completion_tokens":7,"total_tokens":12,\
+                "prompt_tokens_details":{"cached_tokens":3},"completion_tokens_details":{"reasoning_tokens":2}}}"""))));
+
+        JsonObject original = merged.original();
+        Assertions.assertEquals("a", original.getJsonArray("choices").getJsonObject(0).getJsonObject("delta").getString("content"));
+        Assertions.assertEquals(new Usage(5, 7, 12, 2, 3), Usage.fromJson(original.getJsonObject("usage")));
+
+        AssistantMessage usageOnly = AssistantMessage.merge(List.of(
+                AssistantMessage.parse(Buffer.buffer("{\"usage\":{\"prompt_tokens\":1}}")),
+                AssistantMessage.parse(Buffer.buffer("{\"choices\":[],\"usage\":{\"prompt_tokens\":2}}"))));
+        Assertions.assertEquals(Integer.valueOf(2), usageOnly.original().getJsonObject("usage").getInteger("prompt_tokens"));
+    }
+
+    @Test
+    @DisplayName("一个事件带两个 choice 时按序号分别合并，字符数按所有 choice 计算")
+    void testMultipleChoices() {
+        List<AssistantMessage> received = new ArrayList<>();
+        DeltaCoalescer coalescer = new DeltaCoalescer(0, 6, received::add);
+
+        coalescer.add(AssistantMessage.parse(Buffer.buffer("""
+                {"choices":[{"index":0,"delta":{"content":"ab"}},{"index":1,"delta":{"content":"AB"}}]}""")));
+        Assertions.assertTrue(received.isEmpty());
+        coalescer.add(AssistantMessage.parse(Buffer.buffer("""
+                {"choices":[{"index":1,"delta":{"content":"CD"}},{"index":0,"delta":{"content":"cd"}}]}""")));
+
+        Assertions.assertEquals(1, received.size());
+        AssistantMessage merged = received.get(0);
+        Assertions.assertEquals(2, merged.choices().size());
+        Assertions.assertEquals("abcd", merged.choices().get(0).content());
+        Assertions.assertEquals("ABCD", merged.choices().get(1).content());
+    }
+
+    private static AssistantMessage chunk(String content, String finishReason) {
+        JsonObject choice = new JsonObject().put("index", 0).put("delta", new JsonObject().put("content", content));
+        if (finishReason != null) {
+            choice.put("finish_reason", finishReason);
+        }
+        return AssistantMessage.parse(new JsonObject().put("choices", new JsonArray().add(choice)).toBuffer());
+    }
+
+    @Test
+    @DisplayName("fetch 按合并后的片段计数：暂停后 fetch(1) 会继续读取直到交出一条合并的片段")
+    void testFetchCountsMergedMessages() {
+        ScriptedTransport transport = new ScriptedTransport();
+        ChatSession session = new ChatSession(new JsonObject().put("model", "test"), transport, null);
+        List<String> received = new ArrayList<>();
+        List<String> ended = new ArrayList<>();
+        ChatStream stream = session.open().addMessage("你好").coalesce(0, 3).sendStream();
+        stream.pause();
+        stream.handler(message -> received.add(message.content()));
+        stream.endHandler(v -> ended.add("end"));
+
+        stream.fetch(1);
+        for (String token : List.of("a", "b", "c", "d", "e", "f")) {
+            transport.chunk(token);
+        }
+        Assertions.assertEquals(List.of("abc"), received);
+
+        transport.finish("g");
+        Assertions.assertEquals(List.of("abc"), received);
+        stream.fetch(1);
+        Assertions.assertEquals(List.of("abc", "def"), received);
+        Assertions.assertTrue(ended.isEmpty());
+
+        stream.fetch(1);
+        Assertions.assertEquals(List.of("abc", "def", "g"), received);
+        stream.fetch(1);
+        Assertions.assertEquals(List.of("end"), ended);
+        Assertions.assertEquals("abcdefg", stream.result().result().content());
+    }
+}
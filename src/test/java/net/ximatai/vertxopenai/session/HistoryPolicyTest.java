@@ -0,0 +1,54 @@
+package net.ximatai.vertxopenai.session;
+
+import net.ximatai.vertxopenai.message.MessageRole;
+import net.ximatai.vertxopenai.message.SimpleMessage;
+import net.ximatai.vertxopenai.message.UserMessage;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class HistoryPolicyTest {
+
+    private static List<EncodedMessage> history(int turns) {
+        List<EncodedMessage> history = new ArrayList<>();
+        for (int i = 0; i < turns; i++) {
+            history.add(EncodedMessage.of(new UserMessage("question " + i)));
+            history.add(EncodedMessage.of(new SimpleMessage("answer " + i, MessageRole.ASSISTANT)));
+        }
+        return history;
+    }
+
+    @Test
+    @DisplayName("按轮数截断")
+    void testLastTurns() {
+        List<EncodedMessage> history = history(3);
+
+        Assertions.assertEquals(0, HistoryPolicy.unlimited().start(history, 0));
+        Assertions.assertEquals(2, HistoryPolicy.lastTurns(2).start(history, 0));
+        Assertions.assertEquals(0, HistoryPolicy.lastTurns(5).start(history, 0));
+        Assertions.assertEquals(6, HistoryPolicy.lastTurns(0).start(history, 0));
+    }
+
+    @Test
+    @DisplayName("按 token 预算截断，并对齐到整轮对话")
+    void testTokenBudget() {
+        List<EncodedMessage> history = history(3);
+        int turnTokens = history.get(4).tokens() + history.get(5).tokens();
+
+        Assertions.assertEquals(4, HistoryPolicy.tokenBudget(turnTokens + 10).start(history, 10));
+        // 预算只够最后一轮的回答时，不发送半轮对话
+        Assertions.assertEquals(6, HistoryPolicy.tokenBudget(history.get(5).tokens() + 10).start(history, 10));
+        Assertions.assertEquals(0, HistoryPolicy.tokenBudget(100_000).start(history, 10));
+    }
+
+    @Test
+    @DisplayName("token 估算")
+    void testEstimate() {
+        Assertions.assertEquals(0, TokenEstimator.estimate(""));
+        Assertions.assertEquals(2, TokenEstimator.estimate("你好"));
+        Assertions.assertTrue(TokenEstimator.estimate("hello world") < "hello world".length());
+    }
+}
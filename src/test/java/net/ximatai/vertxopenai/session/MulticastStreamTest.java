@@ -0,0 +1,89 @@
+package net.ximatai.vertxopenai.session;
+
+import io.vertx.core.json.JsonObject;
+import net.ximatai.vertxopenai.mock.ScriptedTransport;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class MulticastStreamTest {
+
+    private ScriptedTransport transport;
+    private MulticastStream multicast;
+
+    @BeforeEach
+    void setUp() {
+        transport = new ScriptedTransport();
+        ChatSession session = new ChatSession(new JsonObject().put("model", "test"), transport, null);
+        multicast = session.open().addMessage("你好").sendMulticast(3);
+    }
+
+    private static List<String> collect(MulticastStream.Subscriber subscriber) {
+        List<String> received = new ArrayList<>();
+        subscriber.handler(message -> received.add(message.content()));
+        return received;
+    }
+
+    @Test
+    @DisplayName("慢的订阅者丢弃被覆盖的片段，不影响快的订阅者")
+    void testDrop() {
+        List<String> fast = collect(multicast.subscribe(OverflowPolicy.DROP));
+        MulticastStream.Subscriber slow = multicast.subscribe(OverflowPolicy.DROP);
+        List<String> slowReceived = collect(slow.pause());
+
+        for (int i = 0; i < 5; i++) {
+            transport.chunk("c" + i);
+        }
+        Assertions.assertEquals(List.of("c0", "c1", "c2", "c3", "c4"), fast);
+        Assertions.assertTrue(slowReceived.isEmpty());
+
+        slow.resume();
+        Assertions.assertEquals(List.of("c2", "c3", "c4"), slowReceived);
+    }
+
+    @Test
+    @DisplayName("合并策略把被覆盖的片段合并为一条消息，晚加入的订阅者从头回放")
+    void testCoalesceAndReplay() {
+        MulticastStream.Subscriber slow = multicast.subscribe(OverflowPolicy.COALESCE);
+        List<String> slowReceived = collect(slow.pause());
+        for (int i = 0; i < 5; i++) {
+            transport.chunk("c" + i);
+        }
+        slow.fetch(2);
+        Assertions.assertEquals(List.of("c0c1", "c2"), slowReceived);
+
+        List<String> late = new ArrayList<>();
+        boolean[] ended = new boolean[1];
+        multicast.subscribe(OverflowPolicy.DROP)
+                .endHandler(v -> ended[0] = true)
+                .handler(message -> late.add(message.content()));
+        transport.finish(null);
+
+        Assertions.assertEquals(List.of("c0c1", "c2", "c3", "c4"), late.subList(0, 4));
+        Assertions.assertNull(late.get(4));
+        Assertions.assertTrue(ended[0]);
+        Assertions.assertEquals("c0c1c2c3c4", multicast.result().result().content());
+    }
+
+    @Test
+    @DisplayName("断开策略在订阅者落后超过缓冲区时以异常断开")
+    void testDisconnect() {
+        List<String> fast = collect(multicast.subscribe(OverflowPolicy.DISCONNECT));
+        List<Throwable> errors = new ArrayList<>();
+        MulticastStream.Subscriber slow = multicast.subscribe(OverflowPolicy.DISCONNECT)
+                .exceptionHandler(errors::add);
+        collect(slow.pause());
+
+        for (int i = 0; i < 4; i++) {
+            transport.chunk("c" + i);
+        }
+        Assertions.assertEquals(1, errors.size());
+        Assertions.assertInstanceOf(SlowSubscriberException.class, errors.get(0));
+        Assertions.assertEquals(1, multicast.subscribers());
+        Assertions.assertEquals(4, fast.size());
+    }
+}
@@ -0,0 +1,111 @@
+package net.ximatai.vertxopenai.session;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import net.ximatai.vertxopenai.message.IMessage;
+import net.ximatai.vertxopenai.message.SystemMessage;
+import net.ximatai.vertxopenai.message.UserMessage;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class RequestBodyTest {
+
+    private static final List<EncodedMessage> SYSTEM = EncodedMessage.of(List.of(new SystemMessage("系统消息")));
+    private static final List<EncodedMessage> HISTORY = EncodedMessage.of(List.of(new UserMessage("你好"), new UserMessage("\"引号\"\n换行")));
+
+    /**
+     * 用 JsonObject 构造的请求体，与拼接的请求体对照
+     */
+    @SafeVarargs
+    private static JsonObject expected(JsonObject config, boolean stream, List<EncodedMessage>... segments) {
+        JsonObject body = config.copy();
+        body.remove("messages");
+        body.remove("stream");
+        if (stream) {
+            body.put("stream", true);
+            if (!body.containsKey("stream_options")) {
+                body.put("stream_options", new JsonObject().put("include_usage", true));
+            }
+        } else {
+            body.remove("stream_options");
+        }
+        JsonArray messages = new JsonArray();
+        for (List<EncodedMessage> segment : segments) {
+            for (EncodedMessage message : segment) {
+                messages.add(message.message().toJson());
+            }
+        }
+        return body.put("messages", messages);
+    }
+
+    @SafeVarargs
+    private static void assertBody(JsonObject config, boolean stream, List<EncodedMessage>... segments) {
+        Buffer body = RequestBody.encode(config, stream, segments);
+        Assertions.assertEquals(expected(config, stream, segments), new JsonObject(body));
+    }
+
+    @Test
+    @DisplayName("配置为空时不多出逗号，没有消息时 messages 为空数组")
+    void testEmptyConfig() {
+        Assertions.assertEquals("{\"messages\":[]}", RequestBody.encode(new JsonObject(), false).toString());
+        Assertions.assertEquals("{\"stream\":true,\"stream_options\":{\"include_usage\":true},\"messages\":[]}",
+                RequestBody.encode(new JsonObject(), true).toString());
+        assertBody(new JsonObject(), false, SYSTEM, HISTORY);
+        assertBody(new JsonObject(), true, List.of(), HISTORY, List.of());
+    }
+
+    @Test
+    @DisplayName("流式请求默认要求返回用量，配置了 stream_options 时保留配置的值")
+    void testStreamOptions() {
+        JsonObject config = new JsonObject().put("model", "test").put("temperature", 0.5);
+        assertBody(config, true, SYSTEM, HISTORY);
+
+        JsonObject withOptions = new JsonObject().put("model", "test")
+                .put("stream_options", new JsonObject().put("include_usage", false));
+        assertBody(withOptions, true, HISTORY);
+        Assertions.assertFalse(new JsonObject(RequestBody.encode(withOptions, true, HISTORY))
+                .getJsonObject("stream_options").getBoolean("include_usage"));
+    }
+
+    @Test
+    @DisplayName("配置中的 messages、stream 由请求决定，非流式请求去掉 stream_options，传入的配置不被修改")
+    void testConfigOverride() {
+        JsonObject config = new JsonObject()
+                .put("model", "test")
+                .put("messages", new JsonArray().add(new JsonObject().put("role", "user").put("content", "旧消息")))
+                .put("stream", false)
+                .put("stream_options", new JsonObject().put("include_usage", true));
+        JsonObject before = config.copy();
+
+        assertBody(config, true, SYSTEM, HISTORY);
+        assertBody(config, false, SYSTEM, HISTORY);
+        JsonObject body = new JsonObject(RequestBody.encode(config, false, HISTORY));
+        Assertions.assertFalse(body.containsKey("stream"));
+        Assertions.assertFalse(body.containsKey("stream_options"));
+        Assertions.assertEquals(2, body.getJsonArray("messages").size());
+        Assertions.assertEquals(before, config);
+    }
+
+    @Test
+    @DisplayName("多段消息按顺序拼接，与逐条构造的 json 一致")
+    void testSegments() {
+        List<IMessage> many = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            many.add(new UserMessage("消息 " + i));
+        }
+        List<EncodedMessage> encoded = EncodedMessage.of(many);
+        JsonObject config = new JsonObject().put("model", "test").put("max_tokens", 100);
+        assertBody(config, false, SYSTEM, encoded, HISTORY);
+        assertBody(config, true, SYSTEM, encoded, HISTORY);
+
+        JsonArray messages = new JsonObject(RequestBody.encode(config, false, SYSTEM, encoded, HISTORY)).getJsonArray("messages");
+        Assertions.assertEquals(53, messages.size());
+        Assertions.assertEquals("系统消息", messages.getJsonObject(0).getString("content"));
+        Assertions.assertEquals("消息 49", messages.getJsonObject(50).getString("content"));
+    }
+}
@@ -0,0 +1,175 @@
+package net.ximatai.vertxopenai.session;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.WriteStream;
+import net.ximatai.vertxopenai.message.IMessage;
+import net.ximatai.vertxopenai.message.MessageRole;
+import net.ximatai.vertxopenai.service.ChatCall;
+import net.ximatai.vertxopenai.service.ChatTransport;
+import net.ximatai.vertxopenai.store.SessionState;
+import net.ximatai.vertxopenai.store.StoredSession;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class SessionRegistryTest {
+
+    private static final ChatTransport TRANSPORT = new ChatTransport() {
+        @Override
+        public Future<Buffer> send(ChatCall call) {
+            return Future.succeededFuture(Buffer.buffer("{\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\",\"content\":\"好的\"}}]}"));
+        }
+
+        @Override
+        public Future<Void> stream(ChatCall call, WriteStream<Buffer> sink) {
+            return Future.failedFuture("not supported");
+        }
+    };
+
+    private Vertx vertx;
+
+    @BeforeEach
+    void setUp() {
+        vertx = Vertx.vertx();
+    }
+
+    @AfterEach
+    void tearDown() {
+        vertx.close();
+    }
+
+    private static ChatSession create(String id) {
+        return new ChatSession(id, new JsonObject().put("model", "test"), TRANSPORT, null, null);
+    }
+
+    private static List<String> contents(ChatSession session) {
+        return session.getMessages().stream().map(IMessage::content).toList();
+    }
+
+    @Test
+    @DisplayName("空闲和超出数量的会话历史移到堆外，下次使用时恢复")
+    void testOffload() {
+        SessionRegistry registry = new SessionRegistry(vertx, SessionRegistryTest::create, null, new SessionRegistryOptions()
+                .setMaxHotSessions(2)
+                .setSweepInterval(3_600_000));
+        List<ChatSession> sessions = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            ChatSession session = registry.get("user-" + i).result();
+            session.setSystemMessage("系统消息");
+            session.open().addMessage("你好 " + i).send();
+            sessions.add(session);
+        }
+        registry.get("user-0");
+
+        registry.sweep();
+        Assertions.assertFalse(sessions.get(0).isOffloaded());
+        Assertions.assertTrue(sessions.get(1).isOffloaded());
+        Assertions.assertTrue(sessions.get(2).isOffloaded());
+        Assertions.assertFalse(sessions.get(3).isOffloaded());
+
+        ChatSession cold = registry.get("user-1").result();
+        cold.open().addMessage("又见面了").send();
+        Assertions.assertFalse(cold.isOffloaded());
+        Assertions.assertEquals(List.of("你好 1", "好的", "又见面了", "好的"), contents(cold));
+        registry.close();
+    }
+
+    @Test
+    @DisplayName("发送请求也会更新使用时间，选出之后又被使用过的会话不会被移到堆外")
+    void testOffloadSkipsRecentlyUsed() {
+        ChatSession session = create("user");
+        session.open().addMessage("你好").send();
+        ChatRequest request = session.open().addMessage("再见");
+        long selected = session.lastAccess();
+
+        request.send();
+        Assertions.assertTrue(session.lastAccess() - selected > 0);
+        Assertions.assertFalse(session.offload(selected));
+        Assertions.assertFalse(session.isOffloaded());
+
+        Assertions.assertTrue(session.offload(session.lastAccess()));
+        Assertions.assertTrue(session.isOffloaded());
+        Assertions.assertEquals(List.of("你好", "好的", "再见", "好的"), contents(session));
+    }
+
+    @Test
+    @DisplayName("自定义 json 的消息移到堆外再恢复后，发送的 json 不变")
+    void testOffloadKeepsCustomJson() {
+        List<JsonObject> bodies = new ArrayList<>();
+        ChatTransport transport = new ChatTransport() {
+            @Override
+            public Future<Buffer> send(ChatCall call) {
+                bodies.add(call.body().toJsonObject());
+                return TRANSPORT.send(call);
+            }
+
+            @Override
+            public Future<Void> stream(ChatCall call, WriteStream<Buffer> sink) {
+                return TRANSPORT.stream(call, sink);
+            }
+        };
+        IMessage named = new IMessage() {
+            @Override
+            public String content() {
+                return "你好";
+            }
+
+            @Override
+            public MessageRole role() {
+                return MessageRole.USER;
+            }
+
+            @Override
+            public JsonObject toJson() {
+                return IMessage.super.toJson().put("name", "alice");
+            }
+        };
+        ChatSession session = new ChatSession("user", new JsonObject().put("model", "test"), transport, null, null);
+        session.open().addMessage(named).send();
+        session.offload();
+        Assertions.assertTrue(session.isOffloaded());
+
+        session.open().addMessage("再见").send();
+        JsonObject first = bodies.get(1).getJsonArray("messages").getJsonObject(0);
+        Assertions.assertEquals("alice", first.getString("name"));
+        Assertions.assertEquals("你好", first.getString("content"));
+    }
+
+    @Test
+    @DisplayName("超出最大会话数时移出最久未使用的会话，下次获取时从存储恢复")
+    void testEvict() {
+        Map<String, List<IMessage>> stored = new HashMap<>();
+        SessionRegistry registry = new SessionRegistry(vertx, SessionRegistryTest::create, id -> {
+            List<IMessage> messages = stored.get(id);
+            if (messages == null) {
+                return Future.succeededFuture();
+            }
+            StoredSession session = new StoredSession(id, new SessionState(new JsonObject().put("model", "test"), null, null), messages);
+            return Future.succeededFuture(ChatSession.restore(session, TRANSPORT, null, null));
+        }, new SessionRegistryOptions().setMaxSessions(2).setSweepInterval(3_600_000));
+
+        ChatSession first = registry.get("a").result();
+        first.open().addMessage("第一条").send();
+        stored.put("a", new ArrayList<>(first.getMessages()));
+        registry.get("b");
+        registry.get("c");
+
+        Assertions.assertEquals(2, registry.size());
+        Assertions.assertNull(registry.getIfPresent("a"));
+        ChatSession restored = registry.get("a").result();
+        Assertions.assertNotSame(first, restored);
+        Assertions.assertEquals(List.of("第一条", "好的"), contents(restored));
+        Assertions.assertNull(registry.getIfPresent("b"));
+        registry.close();
+    }
+}
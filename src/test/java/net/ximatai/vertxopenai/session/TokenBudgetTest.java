@@ -0,0 +1,55 @@
+package net.ximatai.vertxopenai.session;
+
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonObject;
+import net.ximatai.vertxopenai.message.Usage;
+import net.ximatai.vertxopenai.mock.ScriptedTransport;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class TokenBudgetTest {
+
+    private static final String RESPONSE = """
+            {"choices":[{"index":0,"message":{"role":"assistant","content":"你好"},"finish_reason":"stop"}],
+            "usage":{"prompt_tokens":5,"completion_tokens":7,"total_tokens":12,
+            "prompt_tokens_details":{"cached_tokens":3},"completion_tokens_details":{"reasoning_tokens":2}}}""";
+
+    @Test
+    @DisplayName("会话累计用量，预算用完后请求在发出前失败")
+    void testSessionBudget() {
+        ScriptedTransport transport = ScriptedTransport.scripted(RESPONSE, RESPONSE);
+        ChatSession session = new ChatSession(new JsonObject().put("model", "test"), transport)
+                .setBudget(new TokenBudget(20));
+
+        Assertions.assertTrue(session.open().addMessage("1").send().succeeded());
+        Assertions.assertTrue(session.open().addMessage("2").temporary().send().succeeded());
+        Future<?> rejected = session.open().addMessage("3").send();
+
+        Assertions.assertInstanceOf(BudgetExceededException.class, rejected.cause());
+        Assertions.assertInstanceOf(BudgetExceededException.class, session.open().addMessage("4").sendStream().result().cause());
+        Assertions.assertEquals(2, transport.calls().size());
+        Assertions.assertEquals(new Usage(10, 14, 24, 4, 6), session.getUsage());
+        Assertions.assertEquals(24, session.getBudget().used());
+        Assertions.assertEquals(2, session.getMessages().size());
+    }
+
+    @Test
+    @DisplayName("用量同时计入上级预算，上级用完时所有下级都拒绝请求")
+    void testParentBudget() {
+        TokenBudget service = new TokenBudget(30);
+        TokenBudget first = new TokenBudget(100, service);
+        TokenBudget second = new TokenBudget(100, service);
+
+        first.record(new Usage(10, 10, 20, 0, 0));
+        Assertions.assertFalse(second.isExhausted());
+        second.record(new Usage(5, 5, 0, 0, 0));
+        Assertions.assertEquals(30, service.used());
+        Assertions.assertTrue(first.isExhausted());
+        Assertions.assertNotNull(second.exceeded());
+
+        service.reset();
+        Assertions.assertFalse(first.isExhausted());
+        Assertions.assertEquals(20, first.used());
+    }
+}
@@ -0,0 +1,148 @@
+package net.ximatai.vertxopenai.session;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import net.ximatai.vertxopenai.message.AssistantMessage;
+import net.ximatai.vertxopenai.message.IMessage;
+import net.ximatai.vertxopenai.message.MessageRole;
+import net.ximatai.vertxopenai.message.ToolCall;
+import net.ximatai.vertxopenai.message.ToolCallsMessage;
+import net.ximatai.vertxopenai.message.ToolMessage;
+import net.ximatai.vertxopenai.mock.ScriptedTransport;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ToolDispatcherTest {
+
+    private static final String TOOL_CALLS = """
+            {"choices":[{"index":0,"finish_reason":"tool_calls","message":{"role":"assistant","content":null,"tool_calls":[
+            {"id":"call_1","type":"function","function":{"name":"weather","arguments":"{\\"city\\":\\"北京\\"}"}},
+            {"id":"call_2","type":"function","function":{"name":"weather","arguments":"{\\"city\\":\\"上海\\"}"}}]}}]}
+            """;
+
+    private static final String ANSWER = """
+            {"choices":[{"index":0,"finish_reason":"stop","message":{"role":"assistant","content":"北京晴，上海雨"}}]}
+            """;
+
+    @Test
+    @DisplayName("流式返回的工具调用参数片段按序号拼接为完整调用")
+    void testStreamAssembly() {
+        String events = """
+                data: {"choices":[{"index":0,"delta":{"role":"assistant","tool_calls":[{"index":0,"id":"call_1","type":"function","function":{"name":"weather","arguments":""}}]}}]}
+
+                data: {"choices":[{"index":0,"delta":{"tool_calls":[{"index":1,"id":"call_2","type":"function","function":{"name":"time","arguments":"{\\"zone"}}]}}]}
+
+                data: {"choices":[{"index":0,"delta":{"tool_calls":[{"index":0,"function":{"arguments":"{\\"city\\":"}}]}}]}
+
+                data: {"choices":[{"index":0,"delta":{"tool_calls":[{"index":0,"function":{"arguments":"\\"北京\\"}"}},{"index":1,"function":{"arguments":"\\":\\"UTC\\"}"}}]}}]}
+
+                data: {"choices":[{"index":0,"delta":{},"finish_reason":"tool_calls"}]}
+
+                data: [DONE]
+
+                """;
+        ScriptedTransport transport = ScriptedTransport.scripted(events);
+        ChatSession session = new ChatSession(new JsonObject().put("model", "test"), transport, null);
+
+        AssistantMessage reply = session.open().addMessage("北京天气和现在时间").sendStream()
+                .handler(message -> {
+                })
+                .result().result();
+        Assertions.assertEquals(List.of(
+                new ToolCall("call_1", "function", "weather", "{\"city\":\"北京\"}"),
+                new ToolCall("call_2", "function", "time", "{\"zone\":\"UTC\"}")
+        ), reply.toolCalls());
+
+        IMessage last = session.getMessages().get(1);
+        Assertions.assertInstanceOf(ToolCallsMessage.class, last);
+        Assertions.assertEquals(2, last.toJson().getJsonArray("tool_calls").size());
+    }
+
+    @Test
+    @DisplayName("同一轮的工具调用并发执行，结果发回模型后得到最终回复，历史中保留工具调用和结果")
+    void testDispatch() {
+        ScriptedTransport transport = ScriptedTransport.scripted(TOOL_CALLS, ANSWER);
+        ChatSession session = new ChatSession(new JsonObject().put("model", "test"), transport, null);
+        List<Promise<String>> pending = new ArrayList<>();
+        ToolDispatcher tools = new ToolDispatcher().register("weather", "查询天气",
+                new JsonObject().put("type", "object"), arguments -> {
+                    Promise<String> promise = Promise.promise();
+                    pending.add(promise);
+                    return promise.future();
+                });
+
+        Future<AssistantMessage> result = session.open().addMessage("北京和上海的天气").tools(tools).send();
+        Assertions.assertEquals(2, pending.size());
+        Assertions.assertFalse(result.isComplete());
+        pending.get(1).complete("雨");
+        pending.get(0).complete("晴");
+
+        Assertions.assertEquals("北京晴，上海雨", result.result().content());
+        JsonArray definitions = transport.body(0).getJsonArray("tools");
+        Assertions.assertEquals("weather", definitions.getJsonObject(0).getJsonObject("function").getString("name"));
+
+        JsonArray sent = transport.body(1).getJsonArray("messages");
+        Assertions.assertEquals(4, sent.size());
+        Assertions.assertEquals("call_2", sent.getJsonObject(1).getJsonArray("tool_calls").getJsonObject(1).getString("id"));
+        Assertions.assertEquals("tool", sent.getJsonObject(2).getString("role"));
+        Assertions.assertEquals("call_1", sent.getJsonObject(2).getString("tool_call_id"));
+        Assertions.assertEquals("晴", sent.getJsonObject(2).getString("content"));
+        Assertions.assertEquals("雨", sent.getJsonObject(3).getString("content"));
+
+        List<IMessage> history = session.getMessages();
+        Assertions.assertEquals(5, history.size());
+        Assertions.assertEquals(MessageRole.TOOL, history.get(3).role());
+        Assertions.assertEquals("call_2", ((ToolMessage) history.get(3)).toolCallId());
+    }
+
+    @Test
+    @DisplayName("未注册的工具把错误作为结果返回给模型，不中断对话")
+    void testUnknownTool() {
+        ScriptedTransport transport = ScriptedTransport.scripted(TOOL_CALLS, ANSWER);
+        ChatSession session = new ChatSession(new JsonObject().put("model", "test"), transport, null);
+        ToolDispatcher tools = new ToolDispatcher().register("time", null, null, arguments -> Future.succeededFuture("12:00"));
+
+        AssistantMessage reply = session.open().addMessage("天气").temporary().tools(tools).send().result();
+        Assertions.assertEquals("北京晴，上海雨", reply.content());
+        JsonArray sent = transport.body(1).getJsonArray("messages");
+        Assertions.assertEquals(4, sent.size());
+        Assertions.assertTrue(sent.getJsonObject(2).getString("content").startsWith("Error: "));
+        Assertions.assertTrue(session.getMessages().isEmpty());
+    }
+
+    @Test
+    @DisplayName("流式请求同样发送工具定义，但不自动执行工具调用")
+    void testStreamSendsDefinitions() {
+        String events = """
+                data: {"choices":[{"index":0,"delta":{"role":"assistant","tool_calls":[{"index":0,"id":"call_1","type":"function","function":{"name":"weather","arguments":"{}"}}]}}]}
+
+                data: {"choices":[{"index":0,"delta":{},"finish_reason":"tool_calls"}]}
+
+                data: [DONE]
+
+                """;
+        ScriptedTransport transport = ScriptedTransport.scripted(events);
+        ChatSession session = new ChatSession(new JsonObject().put("model", "test"), transport, null);
+        List<String> called = new ArrayList<>();
+        ToolDispatcher tools = new ToolDispatcher().register("weather", "查询天气", null, arguments -> {
+            called.add("weather");
+            return Future.succeededFuture("晴");
+        });
+
+        AssistantMessage reply = session.open().addMessage("天气").tools(tools).sendStream()
+                .handler(message -> {
+                })
+                .result().result();
+        Assertions.assertEquals("weather", transport.body(0).getJsonArray("tools")
+                .getJsonObject(0).getJsonObject("function").getString("name"));
+        Assertions.assertEquals(1, reply.toolCalls().size());
+        Assertions.assertEquals(1, transport.calls().size());
+        Assertions.assertTrue(called.isEmpty());
+    }
+}
@@ -0,0 +1,262 @@
+package net.ximatai.vertxopenai.store;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.WriteStream;
+import net.ximatai.vertxopenai.message.IMessage;
+import net.ximatai.vertxopenai.message.MessageRole;
+import net.ximatai.vertxopenai.message.RawMessage;
+import net.ximatai.vertxopenai.message.SimpleMessage;
+import net.ximatai.vertxopenai.message.UserMessage;
+import net.ximatai.vertxopenai.service.ChatCall;
+import net.ximatai.vertxopenai.service.ChatTransport;
+import net.ximatai.vertxopenai.session.ChatSession;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+public class FileSessionStoreTest {
+
+    private Vertx vertx;
+    private Path directory;
+    private FileSessionStoreOptions options;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        vertx = Vertx.vertx();
+        directory = Files.createTempDirectory("session-store");
+        options = new FileSessionStoreOptions().setSegmentSize(4096);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        vertx.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private static List<String> contents(StoredSession session) {
+        return session.messages().stream().map(message -> message.role() + ":" + message.content()).toList();
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith("segment-")).sorted().toList();
+        }
+    }
+
+    @Test
+    @DisplayName("重新打开存储后按 id 恢复会话状态和消息，清空和删除同样生效")
+    void testReopen() {
+        FileSessionStore store = new FileSessionStore(vertx, directory, options);
+        store.save("a", new SessionState(new JsonObject().put("model", "test"), "你是一个翻译器", null));
+        store.append("a", List.of(new UserMessage("你好"), new SimpleMessage("Hello", MessageRole.ASSISTANT)));
+        store.save("b", new SessionState(new JsonObject().put("model", "test"), null, "摘要"));
+        store.append("b", List.of(new UserMessage("旧消息")));
+        store.clearMessages("b");
+        store.append("b", List.of(new UserMessage("新消息")));
+        store.save("c", new SessionState(new JsonObject(), null, null));
+        store.delete("c");
+        store.close();
+
+        FileSessionStore reopened = new FileSessionStore(vertx, directory, options);
+        StoredSession a = await(reopened.load("a"));
+        Assertions.assertEquals("test", a.state().config().getString("model"));
+        Assertions.assertEquals("你是一个翻译器", a.state().systemMessage());
+        Assertions.assertNull(a.state().summary());
+        Assertions.assertEquals(List.of("USER:你好", "ASSISTANT:Hello"), contents(a));
+
+        StoredSession b = await(reopened.load("b"));
+        Assertions.assertEquals("摘要", b.state().summary());
+        Assertions.assertEquals(List.of("USER:新消息"), contents(b));
+
+        Assertions.assertNull(await(reopened.load("c")));
+        reopened.close();
+    }
+
+    @Test
+    @DisplayName("自定义 json 的消息连同 json 一起保存，恢复后发送的 json 不变")
+    void testCustomJson() {
+        IMessage named = new IMessage() {
+            @Override
+            public String content() {
+                return "你好";
+            }
+
+            @Override
+            public MessageRole role() {
+                return MessageRole.USER;
+            }
+
+            @Override
+            public JsonObject toJson() {
+                return IMessage.super.toJson().put("name", "alice");
+            }
+        };
+        FileSessionStore store = new FileSessionStore(vertx, directory, options);
+        store.save("a", new SessionState(new JsonObject(), null, null));
+        store.append("a", List.of(named, new UserMessage("普通消息")));
+        store.close();
+
+        FileSessionStore reopened = new FileSessionStore(vertx, directory, options);
+        List<IMessage> messages = await(reopened.load("a")).messages();
+        Assertions.assertInstanceOf(RawMessage.class, messages.get(0));
+        Assertions.assertEquals(named.toJson(), messages.get(0).toJson());
+        Assertions.assertEquals(new UserMessage("普通消息").toJson(), messages.get(1).toJson());
+        reopened.close();
+    }
+
+    @Test
+    @DisplayName("压缩后只保留有效记录，旧分段被删除，数据在重新打开后不变")
+    void testCompact() throws IOException {
+        FileSessionStore store = new FileSessionStore(vertx, directory, options);
+        String content = "x".repeat(200);
+        for (int i = 0; i < 50; i++) {
+            store.save("s" + (i % 5), new SessionState(new JsonObject().put("round", i), null, null));
+            store.append("s" + (i % 5), List.of(new UserMessage(content + i)));
+            if (i < 40) {
+                store.clearMessages("s" + (i % 5));
+            }
+        }
+        await(store.load("s0"));
+        List<Path> before = segments();
+        Assertions.assertTrue(before.size() > 1);
+        Assertions.assertTrue(store.garbageRatio() > 0.5);
+
+        await(store.compact());
+        Assertions.assertEquals(0.0, store.garbageRatio());
+        Assertions.assertTrue(segments().stream().noneMatch(before::contains));
+        store.append("s0", List.of(new UserMessage("压缩之后")));
+        store.close();
+
+        FileSessionStore reopened = new FileSessionStore(vertx, directory, options);
+        StoredSession s0 = await(reopened.load("s0"));
+        Assertions.assertEquals(Integer.valueOf(45), s0.state().config().getInteger("round"));
+        Assertions.assertEquals(3, s0.messages().size());
+        Assertions.assertEquals("压缩之后", s0.messages().get(2).content());
+        StoredSession s4 = await(reopened.load("s4"));
+        Assertions.assertEquals(List.of("USER:" + content + 44, "USER:" + content + 49), contents(s4));
+        reopened.close();
+    }
+
+    @Test
+    @DisplayName("崩溃时写了一半的记录被丢弃，之后可以继续写入")
+    void testTornWrite() throws IOException {
+        FileSessionStore store = new FileSessionStore(vertx, directory, options);
+        store.save("a", new SessionState(new JsonObject(), null, null));
+        store.append("a", List.of(new UserMessage("完整的消息")));
+        store.close();
+
+        Path segment = segments().get(0);
+        int end;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            end = 8;
+            while (buffer.getInt(end) != 0) {
+                end += 8 + buffer.getInt(end);
+            }
+            buffer.putInt(end, 100);
+            buffer.putInt(end + 4, 12345);
+            buffer.put(end + 8, (byte) 2);
+        }
+
+        FileSessionStore reopened = new FileSessionStore(vertx, directory, options);
+        Assertions.assertEquals(List.of("USER:完整的消息"), contents(await(reopened.load("a"))));
+        reopened.append("a", List.of(new UserMessage("恢复后写入")));
+        reopened.close();
+
+        FileSessionStore again = new FileSessionStore(vertx, directory, options);
+        Assertions.assertEquals(List.of("USER:完整的消息", "USER:恢复后写入"), contents(await(again.load("a"))));
+        again.close();
+    }
+
+    @Test
+    @DisplayName("会话的状态和每一轮对话写入存储，可以按 id 恢复")
+    void testRestoreSession() {
+        ChatTransport transport = new ChatTransport() {
+            @Override
+            public Future<Buffer> send(ChatCall call) {
+                return Future.succeededFuture(Buffer.buffer("{\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\",\"content\":\"Hello\"}}]}"));
+            }
+
+            @Override
+            public Future<Void> stream(ChatCall call, WriteStream<Buffer> sink) {
+                return Future.failedFuture("not supported");
+            }
+        };
+        FileSessionStore store = new FileSessionStore(vertx, directory, options);
+        ChatSession session = new ChatSession("session-1", new JsonObject().put("model", "test"), transport, null, store);
+        session.setSystemMessage("你是一个翻译器");
+        session.open().addMessage("你好").send();
+        session.open().addMessage("临时").temporary().send();
+        store.close();
+
+        FileSessionStore reopened = new FileSessionStore(vertx, directory, options);
+        ChatSession restored = ChatSession.restore(await(reopened.load("session-1")), transport, null, reopened);
+        Assertions.assertEquals("session-1", restored.getId());
+        Assertions.assertEquals("test", restored.getConfig().getString("model"));
+        List<String> messages = restored.getMessages().stream().map(IMessage::content).toList();
+        Assertions.assertEquals(List.of("你好", "Hello"), messages);
+
+        restored.open().addMessage("再见").send();
+        Assertions.assertEquals(4, await(reopened.load("session-1")).messages().size());
+        reopened.close();
+    }
+
+    @Test
+    @DisplayName("读写和压缩按提交顺序执行，可以在操作的回调中关闭存储")
+    void testOrderedWorker() {
+        FileSessionStore store = new FileSessionStore(vertx, directory, options);
+        String content = "x".repeat(200);
+        List<Future<Void>> writes = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            writes.add(store.append("a", List.of(new UserMessage(content + i))));
+            if (i == 20) {
+                store.clearMessages("a");
+                store.save("a", new SessionState(new JsonObject(), null, null));
+                writes.add(store.compact());
+            }
+        }
+        AtomicReference<Future<Void>> afterClose = new AtomicReference<>();
+        StoredSession session = await(store.load("a").andThen(ar -> {
+            store.close();
+            afterClose.set(store.save("a", new SessionState(new JsonObject(), null, null)));
+        }));
+        Assertions.assertTrue(writes.stream().allMatch(Future::succeeded));
+        Assertions.assertEquals(9, session.messages().size());
+        Assertions.assertEquals(content + 21, session.messages().get(0).content());
+        Assertions.assertTrue(afterClose.get().failed());
+
+        FileSessionStore reopened = new FileSessionStore(vertx, directory, options);
+        Assertions.assertEquals(9, await(reopened.load("a")).messages().size());
+        reopened.close();
+    }
+}
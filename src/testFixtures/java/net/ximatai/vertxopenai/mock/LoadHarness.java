@@ -0,0 +1,173 @@
+package net.ximatai.vertxopenai.mock;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import net.ximatai.vertxopenai.message.AssistantMessage;
+import net.ximatai.vertxopenai.message.Usage;
+import net.ximatai.vertxopenai.service.IOpenService;
+import net.ximatai.vertxopenai.service.OpenServiceOptions;
+import net.ximatai.vertxopenai.session.ChatRequest;
+import net.ximatai.vertxopenai.session.ChatSession;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 压测工具：N 个会话并发、每个会话依次发送若干个请求，统计吞吐量、首 token 时间（TTFT）和总耗时的分位数
+ * <p>
+ * 默认对本地 {@link MockOpenAIServer} 压测，指定 --url 时改为压测真实接口。通过 {@code ./gradlew loadTest} 运行，例如：
+ * <pre>
+ * ./gradlew loadTest -PloadArgs="--sessions 500 --requests 20 --tps 200 --latency 50"
+ * </pre>
+ * 参数：
+ * <ul>
+ *     <li>--sessions 并发会话数，默认 100</li>
+ *     <li>--requests 每个会话的请求数，默认 10</li>
+ *     <li>--stream 是否流式请求，默认 true</li>
+ *     <li>--pool 连接池大小，默认等于会话数</li>
+ *     <li>--url、--key、--model 压测真实接口时的地址、密钥和模型</li>
+ *     <li>--latency、--tps、--chunk、--tokens、--error-rate 模拟服务的首字节延迟（毫秒）、每秒 token 数、每段 token 数、
+ *     每次回复的 token 数和错误比例，含义见 {@link MockServerOptions}</li>
+ * </ul>
+ * 请求都是临时请求，每次发送的输入相同，不受历史增长影响。
+ */
+public final class LoadHarness {
+
+    private final Map<String, String> args;
+    private final int sessions;
+    private final int requests;
+    private final boolean stream;
+    private final long[] ttft;
+    private final long[] latency;
+    private final AtomicInteger completed = new AtomicInteger();
+    private final AtomicInteger errors = new AtomicInteger();
+    private final AtomicLong outputTokens = new AtomicLong();
+
+    private LoadHarness(Map<String, String> args) {
+        this.args = args;
+        this.sessions = Integer.parseInt(args.getOrDefault("sessions", "100"));
+        this.requests = Integer.parseInt(args.getOrDefault("requests", "10"));
+        this.stream = Boolean.parseBoolean(args.getOrDefault("stream", "true"));
+        this.ttft = new long[sessions * requests];
+        this.latency = new long[sessions * requests];
+    }
+
+    public static void main(String[] argv) throws InterruptedException {
+        Map<String, String> args = new HashMap<>();
+        for (int i = 0; i + 1 < argv.length; i += 2) {
+            if (!argv[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + argv[i]);
+            }
+            args.put(argv[i].substring(2), argv[i + 1]);
+        }
+        new LoadHarness(args).run();
+    }
+
+    private void run() throws InterruptedException {
+        Vertx vertx = Vertx.vertx();
+        MockOpenAIServer mock = null;
+        String url = args.get("url");
+        if (url == null) {
+            mock = await(MockOpenAIServer.start(vertx, new MockServerOptions()
+                    .setLatency(Long.parseLong(args.getOrDefault("latency", "0")))
+                    .setTokensPerSecond(Integer.parseInt(args.getOrDefault("tps", "0")))
+                    .setChunkSize(Integer.parseInt(args.getOrDefault("chunk", "1")))
+                    .setCompletionTokens(Integer.parseInt(args.getOrDefault("tokens", String.valueOf(MockServerOptions.DEFAULT_COMPLETION_TOKENS))))
+                    .setErrorRate(Double.parseDouble(args.getOrDefault("error-rate", "0")))));
+            url = mock.url();
+        }
+        IOpenService service = IOpenService.create(vertx, args.getOrDefault("key", "mock"), url, new OpenServiceOptions()
+                .setMaxPoolSize(Integer.parseInt(args.getOrDefault("pool", String.valueOf(sessions)))));
+        JsonObject config = new JsonObject().put("model", args.getOrDefault("model", "mock"));
+
+        CountDownLatch done = new CountDownLatch(sessions);
+        long start = System.nanoTime();
+        for (int i = 0; i < sessions; i++) {
+            ChatSession session = service.connect(config);
+            vertx.runOnContext(v -> next(session, 0, done));
+        }
+        done.await();
+        long elapsed = System.nanoTime() - start;
+
+        report(elapsed);
+        service.close();
+        if (mock != null) {
+            await(mock.close());
+        }
+        vertx.close();
+    }
+
+    /**
+     * 会话内的请求依次发送，上一个完成后发送下一个
+     */
+    private void next(ChatSession session, int round, CountDownLatch done) {
+        if (round == requests) {
+            done.countDown();
+            return;
+        }
+        long start = System.nanoTime();
+        long[] first = new long[1];
+        ChatRequest request = session.open().addMessage("你好，请介绍一下你自己").temporary();
+        Future<AssistantMessage> result = stream
+                ? request.sendStream().handler(message -> {
+                    if (first[0] == 0) {
+                        first[0] = System.nanoTime();
+                    }
+                }).result()
+                : request.send();
+        result.onComplete(ar -> {
+            long end = System.nanoTime();
+            if (ar.succeeded()) {
+                int index = completed.getAndIncrement();
+                latency[index] = end - start;
+                ttft[index] = (first[0] == 0 ? end : first[0]) - start;
+                Usage usage = ar.result().usage();
+                if (usage != null) {
+                    outputTokens.addAndGet(usage.completionTokens());
+                }
+            } else {
+                errors.incrementAndGet();
+            }
+            next(session, round + 1, done);
+        });
+    }
+
+    private void report(long elapsed) {
+        int count = completed.get();
+        double seconds = elapsed / 1e9;
+        System.out.printf("sessions %d, requests %d, stream %s%n", sessions, sessions * requests, stream);
+        System.out.printf("completed %d, errors %d, elapsed %.2f s%n", count, errors.get(), seconds);
+        System.out.printf("throughput %.1f req/s, %.1f output tokens/s%n", count / seconds, outputTokens.get() / seconds);
+        System.out.println("TTFT     " + percentiles(Arrays.copyOf(ttft, count)));
+        System.out.println("latency  " + percentiles(Arrays.copyOf(latency, count)));
+    }
+
+    private static String percentiles(long[] values) {
+        if (values.length == 0) {
+            return "-";
+        }
+        Arrays.sort(values);
+        return String.format("p50 %.1f ms, p90 %.1f ms, p99 %.1f ms, max %.1f ms",
+                percentile(values, 0.5), percentile(values, 0.9), percentile(values, 0.99), values[values.length - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    private static <T> T await(Future<T> future) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        future.onComplete(ar -> latch.countDown());
+        latch.await();
+        if (future.failed()) {
+            throw new IllegalStateException(future.cause());
+        }
+        return future.result();
+    }
+}
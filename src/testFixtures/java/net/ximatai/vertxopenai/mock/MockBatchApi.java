@@ -0,0 +1,197 @@
+package net.ximatai.vertxopenai.mock;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.JsonObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 模拟的 Batch API：/files 上传和下载，/batches 创建、查询和取消
+ * <p>
+ * 创建任务时立即按非流式 chat completions 的回复生成输出文件，任务被查询 {@link #POLLS_TO_COMPLETE} 次后才变为 completed，
+ * 用于测试轮询。
+ */
+class MockBatchApi {
+
+    /**
+     * 任务变为 completed 之前需要的查询次数
+     */
+    static final int POLLS_TO_COMPLETE = 3;
+
+    private static final Pattern FILES = Pattern.compile(".*/files");
+    private static final Pattern FILE_CONTENT = Pattern.compile(".*/files/([^/]+)/content");
+    private static final Pattern BATCHES = Pattern.compile(".*/batches");
+    private static final Pattern BATCH = Pattern.compile(".*/batches/([^/]+)");
+    private static final Pattern BATCH_CANCEL = Pattern.compile(".*/batches/([^/]+)/cancel");
+
+    private final MockOpenAIServer server;
+    private final Map<String, Buffer> files = new ConcurrentHashMap<>();
+    private final Map<String, Batch> batches = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong();
+    private final AtomicLong polls = new AtomicLong();
+
+    MockBatchApi(MockOpenAIServer server) {
+        this.server = server;
+    }
+
+    /**
+     * 查询批量任务的次数
+     */
+    long polls() {
+        return polls.get();
+    }
+
+    /**
+     * 处理 Batch API 的请求
+     *
+     * @return 不是 Batch API 的请求时返回 false
+     */
+    boolean handle(HttpServerRequest request) {
+        String path = request.path();
+        HttpServerResponse response = request.response();
+        Matcher matcher;
+        if (HttpMethod.POST.equals(request.method()) && FILES.matcher(path).matches()) {
+            upload(request);
+        } else if (HttpMethod.GET.equals(request.method()) && (matcher = FILE_CONTENT.matcher(path)).matches()) {
+            Buffer content = files.get(matcher.group(1));
+            if (content == null) {
+                MockOpenAIServer.error(response, 404, "No such file: " + matcher.group(1));
+            } else {
+                response.putHeader("Content-Type", "application/jsonl").end(content);
+            }
+        } else if (HttpMethod.POST.equals(request.method()) && BATCHES.matcher(path).matches()) {
+            request.body().onSuccess(body -> create(response, body.toJsonObject()));
+        } else if (HttpMethod.GET.equals(request.method()) && (matcher = BATCH.matcher(path)).matches()) {
+            polls.incrementAndGet();
+            Batch batch = batches.get(matcher.group(1));
+            if (batch == null) {
+                MockOpenAIServer.error(response, 404, "No such batch: " + matcher.group(1));
+            } else {
+                json(response, batch.poll());
+            }
+        } else if (HttpMethod.POST.equals(request.method()) && (matcher = BATCH_CANCEL.matcher(path)).matches()) {
+            Batch batch = batches.get(matcher.group(1));
+            if (batch == null) {
+                MockOpenAIServer.error(response, 404, "No such batch: " + matcher.group(1));
+            } else {
+                json(response, batch.cancel());
+            }
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 保存 multipart 上传的文件
+     */
+    private void upload(HttpServerRequest request) {
+        Buffer content = Buffer.buffer();
+        request.setExpectMultipart(true);
+        request.uploadHandler(upload -> upload.handler(content::appendBuffer));
+        request.endHandler(v -> {
+            String id = "file-" + ids.incrementAndGet();
+            files.put(id, content);
+            json(request.response(), new JsonObject()
+                    .put("id", id)
+                    .put("object", "file")
+                    .put("bytes", content.length())
+                    .put("purpose", request.getFormAttribute("purpose")));
+        });
+    }
+
+    /**
+     * 创建任务，逐行生成输出文件
+     */
+    private void create(HttpServerResponse response, JsonObject request) {
+        Buffer input = files.get(request.getString("input_file_id", ""));
+        if (input == null) {
+            MockOpenAIServer.error(response, 400, "No such file: " + request.getString("input_file_id"));
+            return;
+        }
+        Buffer output = Buffer.buffer();
+        int total = 0;
+        for (String line : input.toString(StandardCharsets.UTF_8).split("\n")) {
+            if (line.isBlank()) {
+                continue;
+            }
+            JsonObject item = new JsonObject(line);
+            total++;
+            output.appendBuffer(new JsonObject()
+                            .put("id", "batch_req_" + total)
+                            .put("custom_id", item.getString("custom_id"))
+                            .put("response", new JsonObject()
+                                    .put("status_code", 200)
+                                    .put("body", server.completion(item.getJsonObject("body"))))
+                            .putNull("error")
+                            .toBuffer())
+                    .appendString("\n");
+        }
+        String outputId = "file-" + ids.incrementAndGet();
+        files.put(outputId, output);
+        Batch batch = new Batch("batch-" + ids.incrementAndGet(), request.getString("input_file_id"), outputId, total);
+        batches.put(batch.id, batch);
+        json(response, batch.toJson());
+    }
+
+    private static void json(HttpServerResponse response, JsonObject body) {
+        response.putHeader("Content-Type", "application/json").end(body.toBuffer());
+    }
+
+    /**
+     * 一个批量任务
+     */
+    private static final class Batch {
+        private final String id;
+        private final String inputFileId;
+        private final String outputFileId;
+        private final int total;
+        private String status = "validating";
+        private int polls;
+
+        private Batch(String id, String inputFileId, String outputFileId, int total) {
+            this.id = id;
+            this.inputFileId = inputFileId;
+            this.outputFileId = outputFileId;
+            this.total = total;
+        }
+
+        private synchronized JsonObject poll() {
+            if (!"cancelled".equals(status)) {
+                polls++;
+                status = polls >= POLLS_TO_COMPLETE ? "completed" : "in_progress";
+            }
+            return toJson();
+        }
+
+        private synchronized JsonObject cancel() {
+            if (!"completed".equals(status)) {
+                status = "cancelled";
+            }
+            return toJson();
+        }
+
+        private synchronized JsonObject toJson() {
+            boolean completed = "completed".equals(status);
+            return new JsonObject()
+                    .put("id", id)
+                    .put("object", "batch")
+                    .put("input_file_id", inputFileId)
+                    .put("status", status)
+                    .put("output_file_id", completed ? outputFileId : null)
+                    .putNull("error_file_id")
+                    .put("request_counts", new JsonObject()
+                            .put("total", total)
+                            .put("completed", completed ? total : 0)
+                            .put("failed", 0));
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package net.ximatai.vertxopenai.mock;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 本地模拟的 OpenAI 兼容服务，实现 /chat/completions 的 json 和 SSE 两种响应，用于离线测试和压测
+ * <p>
+ * 同时模拟 Batch API 的 /files 和 /batches 接口，批量任务的每一行按非流式回复生成结果。
+ * <p>
+ * 回复内容为 {@link MockServerOptions#getToken()} 重复若干次，生成速度、首字节延迟、每段大小和错误比例都可以配置。
+ * usage 中的输入 token 数按消息字符数粗略估算。
+ */
+public class MockOpenAIServer {
+
+    private static final Buffer DONE = Buffer.buffer("data: [DONE]\n\n");
+
+    private final Vertx vertx;
+    private final MockServerOptions options;
+    private final HttpServer server;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong ids = new AtomicLong();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger maxActive = new AtomicInteger();
+    private final MockBatchApi batchApi = new MockBatchApi(this);
+
+    private MockOpenAIServer(Vertx vertx, MockServerOptions options) {
+        this.vertx = Objects.requireNonNull(vertx, "Vertx cannot be null");
+        this.options = Objects.requireNonNull(options, "Options cannot be null");
+        this.server = vertx.createHttpServer().requestHandler(this::handle);
+    }
+
+    /**
+     * 启动模拟服务
+     *
+     * @param vertx   vertx
+     * @param options 配置
+     * @return 启动后的服务（异步）
+     */
+    public static Future<MockOpenAIServer> start(Vertx vertx, MockServerOptions options) {
+        MockOpenAIServer mock = new MockOpenAIServer(vertx, options);
+        return mock.server.listen(options.getPort(), "localhost").map(server -> mock);
+    }
+
+    /**
+     * 传给 {@code IOpenService.create} 的地址
+     *
+     * @return 地址
+     */
+    public String url() {
+        return "http://localhost:" + port() + "/v1/chat/completions";
+    }
+
+    /**
+     * 实际监听的端口
+     *
+     * @return 端口
+     */
+    public int port() {
+        return server.actualPort();
+    }
+
+    /**
+     * 收到的请求数，包括注入错误的请求
+     *
+     * @return 请求数
+     */
+    public long requests() {
+        return requests.get();
+    }
+
+    /**
+     * 正在处理中的 /chat/completions 请求数，客户端重置请求或关闭连接后减一
+     *
+     * @return 处理中的请求数
+     */
+    public int active() {
+        return active.get();
+    }
+
+    /**
+     * 同时处理中的 /chat/completions 请求数的最大值
+     *
+     * @return 最大并发数
+     */
+    public int maxConcurrency() {
+        return maxActive.get();
+    }
+
+    /**
+     * 查询批量任务（GET /batches/{id}）的次数
+     *
+     * @return 查询次数
+     */
+    public long batchPolls() {
+        return batchApi.polls();
+    }
+
+    /**
+     * 关闭服务
+     *
+     * @return 关闭结果（异步）
+     */
+    public Future<Void> close() {
+        return server.close();
+    }
+
+    private void handle(HttpServerRequest request) {
+        HttpServerResponse response = request.response();
+        if (batchApi.handle(request)) {
+            return;
+        }
+        if (!HttpMethod.POST.equals(request.method()) || !request.path().endsWith("/chat/completions")) {
+            error(response, 404, "Not found: " + request.path());
+            return;
+        }
+        requests.incrementAndGet();
+        track(response);
+        request.body().onSuccess(body -> {
+            JsonObject json;
+            try {
+                json = body.toJsonObject();
+            } catch (DecodeException e) {
+                error(response, 400, "Invalid json: " + e.getMessage());
+                return;
+            }
+            boolean fail = options.getErrorRate() > 0 && ThreadLocalRandom.current().nextDouble() < options.getErrorRate();
+            Reply reply = new Reply(json);
+            after(options.getLatency(), () -> {
+                if (response.closed()) {
+                    return;
+                }
+                if (fail) {
+                    error(response, options.getErrorStatus(), "Injected error");
+                } else if (json.getBoolean("stream", false)) {
+                    reply.stream(response);
+                } else {
+                    reply.complete(response);
+                }
+            });
+        });
+    }
+
+    /**
+     * 非流式回复的响应体，Batch API 用它生成每一行的结果
+     */
+    JsonObject completion(JsonObject request) {
+        return new Reply(request).body();
+    }
+
+    /**
+     * 记录同时处理中的请求数，响应结束或连接关闭时减一
+     */
+    private void track(HttpServerResponse response) {
+        maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+        AtomicBoolean done = new AtomicBoolean();
+        Runnable release = () -> {
+            if (done.compareAndSet(false, true)) {
+                active.decrementAndGet();
+            }
+        };
+        response.endHandler(v -> release.run());
+        response.closeHandler(v -> release.run());
+    }
+
+    private void after(long delay, Runnable action) {
+        if (delay > 0) {
+            vertx.setTimer(delay, id -> action.run());
+        } else {
+            action.run();
+        }
+    }
+
+    static void error(HttpServerResponse response, int status, String message) {
+        response.setStatusCode(status)
+                .putHeader("Content-Type", "application/json")
+                .end(new JsonObject()
+                        .put("error", new JsonObject()
+                                .put("message", message)
+                                .put("type", "mock_error")
+                                .put("code", status))
+                        .toBuffer());
+    }
+
+    /**
+     * 一次回复
+     */
+    private class Reply {
+
+        private final String id = "chatcmpl-mock-" + ids.incrementAndGet();
+        private final long created = System.currentTimeMillis() / 1000;
+        private final String model;
+        private final int promptTokens;
+        private final int completionTokens;
+        private final String finishReason;
+        private final boolean includeUsage;
+        /**
+         * 生成一段的时间（毫秒），不限速时为 0
+         */
+        private final double chunkMillis;
+        private long start;
+        private int sent;
+
+        Reply(JsonObject request) {
+            this.model = request.getString("model", "mock");
+            int chars = 0;
+            JsonArray messages = request.getJsonArray("messages", new JsonArray());
+            for (int i = 0; i < messages.size(); i++) {
+                String content = messages.getJsonObject(i).getString("content");
+                chars += content == null ? 0 : content.length();
+            }
+            this.promptTokens = chars / 2 + 4 * messages.size();
+            int limit = request.getInteger("max_completion_tokens", request.getInteger("max_tokens", 0));
+            this.completionTokens = limit > 0 ? Math.min(limit, options.getCompletionTokens()) : options.getCompletionTokens();
+            this.finishReason = completionTokens < options.getCompletionTokens() ? "length" : "stop";
+            JsonObject streamOptions = request.getJsonObject("stream_options");
+            this.includeUsage = streamOptions != null && streamOptions.getBoolean("include_usage", false);
+            this.chunkMillis = options.getTokensPerSecond() == 0 ? 0 : options.getChunkSize() * 1000.0 / options.getTokensPerSecond();
+        }
+
+        void complete(HttpServerResponse response) {
+            long generation = options.getTokensPerSecond() == 0 ? 0 : completionTokens * 1000L / options.getTokensPerSecond();
+            JsonObject body = body();
+            after(generation, () -> {
+                if (!response.closed()) {
+                    response.putHeader("Content-Type", "application/json").end(body.toBuffer());
+                }
+            });
+        }
+
+        JsonObject body() {
+            return new JsonObject()
+                    .put("id", id)
+                    .put("object", "chat.completion")
+                    .put("created", created)
+                    .put("model", model)
+                    .put("choices", new JsonArray().add(new JsonObject()
+                            .put("index", 0)
+                            .put("message", new JsonObject()
+                                    .put("role", "assistant")
+                                    .put("content", options.getToken().repeat(completionTokens)))
+                            .put("finish_reason", finishReason)))
+                    .put("usage", usage());
+        }
+
+        void stream(HttpServerResponse response) {
+            response.setChunked(true)
+                    .putHeader("Content-Type", "text/event-stream")
+                    .putHeader("Cache-Control", "no-cache");
+            start = System.nanoTime();
+            writeChunks(response, chunk(options.getChunkSize(), false));
+        }
+
+        /**
+         * 按生成速度写出已经到期的片段，写缓冲满时等待消费方读取
+         */
+        private void writeChunks(HttpServerResponse response, Buffer fullChunk) {
+            int chunks = (completionTokens + options.getChunkSize() - 1) / options.getChunkSize();
+            while (sent < chunks) {
+                if (response.closed()) {
+                    return;
+                }
+                long wait = (long) (sent * chunkMillis) - (System.nanoTime() - start) / 1_000_000;
+                if (wait > 0) {
+                    vertx.setTimer(wait, id -> writeChunks(response, fullChunk));
+                    return;
+                }
+                int tokens = Math.min(options.getChunkSize(), completionTokens - sent * options.getChunkSize());
+                response.write(sent > 0 && tokens == options.getChunkSize() ? fullChunk : chunk(tokens, sent == 0));
+                sent++;
+                if (response.writeQueueFull()) {
+                    response.drainHandler(v -> writeChunks(response, fullChunk));
+                    return;
+                }
+            }
+            if (!response.ended() && !response.closed()) {
+                finish(response);
+            }
+        }
+
+        private void finish(HttpServerResponse response) {
+            response.write(event(new JsonObject()
+                    .put("delta", new JsonObject())
+                    .put("finish_reason", finishReason), null));
+            if (includeUsage) {
+                response.write(event(null, usage()));
+            }
+            response.end(DONE);
+        }
+
+        /**
+         * 包含 tokens 个 token 的片段，第一段带上角色
+         */
+        private Buffer chunk(int tokens, boolean first) {
+            JsonObject delta = new JsonObject().put("content", options.getToken().repeat(tokens));
+            if (first) {
+                delta.put("role", "assistant");
+            }
+            return event(new JsonObject().put("delta", delta).put("finish_reason", null), null);
+        }
+
+        private Buffer event(JsonObject choice, JsonObject usage) {
+            JsonObject data = new JsonObject()
+                    .put("id", id)
+                    .put("object", "chat.completion.chunk")
+                    .put("created", created)
+                    .put("model", model)
+                    .put("choices", choice == null ? new JsonArray() : new JsonArray().add(choice.put("index", 0)));
+            if (usage != null) {
+                data.put("usage", usage);
+            }
+            return Buffer.buffer("data: ").appendBuffer(data.toBuffer()).appendString("\n\n");
+        }
+
+        private JsonObject usage() {
+            return new JsonObject()
+                    .put("prompt_tokens", promptTokens)
+                    .put("completion_tokens", completionTokens)
+                    .put("total_tokens", promptTokens + completionTokens);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package net.ximatai.vertxopenai.mock;
+
+/**
+ * 模拟服务配置
+ */
+public class MockServerOptions {
+
+    /**
+     * 默认每次回复的 token 数
+     */
+    public static final int DEFAULT_COMPLETION_TOKENS = 64;
+
+    private int port;
+    private long latency;
+    private int tokensPerSecond;
+    private int chunkSize = 1;
+    private int completionTokens = DEFAULT_COMPLETION_TOKENS;
+    private String token = "你好";
+    private double errorRate;
+    private int errorStatus = 500;
+
+    /**
+     * 使用默认值创建配置：随机端口、没有延迟、不限速、每段一个 token、不注入错误
+     */
+    public MockServerOptions() {
+    }
+
+    /**
+     * 获取监听端口
+     *
+     * @return 端口
+     */
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * 设置监听端口，0 表示随机端口
+     *
+     * @param port 端口
+     * @return this
+     */
+    public MockServerOptions setPort(int port) {
+        if (port < 0) {
+            throw new IllegalArgumentException("port must be >= 0");
+        }
+        this.port = port;
+        return this;
+    }
+
+    /**
+     * 获取首个字节之前的延迟（毫秒）
+     *
+     * @return 延迟
+     */
+    public long getLatency() {
+        return latency;
+    }
+
+    /**
+     * 设置收到请求后、返回首个字节之前的延迟（毫秒），模拟排队和处理输入的时间
+     *
+     * @param latency 延迟
+     * @return this
+     */
+    public MockServerOptions setLatency(long latency) {
+        if (latency < 0) {
+            throw new IllegalArgumentException("latency must be >= 0");
+        }
+        this.latency = latency;
+        return this;
+    }
+
+    /**
+     * 获取每秒生成的 token 数
+     *
+     * @return token 数
+     */
+    public int getTokensPerSecond() {
+        return tokensPerSecond;
+    }
+
+    /**
+     * 设置每秒生成的 token 数，0 表示不限速；非流式请求同样等待整个回复生成完毕才返回
+     *
+     * @param tokensPerSecond token 数
+     * @return this
+     */
+    public MockServerOptions setTokensPerSecond(int tokensPerSecond) {
+        if (tokensPerSecond < 0) {
+            throw new IllegalArgumentException("tokensPerSecond must be >= 0");
+        }
+        this.tokensPerSecond = tokensPerSecond;
+        return this;
+    }
+
+    /**
+     * 获取每个流式片段包含的 token 数
+     *
+     * @return token 数
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * 设置每个流式片段包含的 token 数
+     *
+     * @param chunkSize token 数
+     * @return this
+     */
+    public MockServerOptions setChunkSize(int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be > 0");
+        }
+        this.chunkSize = chunkSize;
+        return this;
+    }
+
+    /**
+     * 获取每次回复的 token 数
+     *
+     * @return token 数
+     */
+    public int getCompletionTokens() {
+        return completionTokens;
+    }
+
+    /**
+     * 设置每次回复的 token 数，请求中的 max_tokens 更小时以 max_tokens 为准
+     *
+     * @param completionTokens token 数
+     * @return this
+     */
+    public MockServerOptions setCompletionTokens(int completionTokens) {
+        if (completionTokens < 1) {
+            throw new IllegalArgumentException("completionTokens must be > 0");
+        }
+        this.completionTokens = completionTokens;
+        return this;
+    }
+
+    /**
+     * 获取每个 token 的文本
+     *
+     * @return 文本
+     */
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * 设置每个 token 的文本，回复内容为该文本重复 token 数次
+     *
+     * @param token 文本
+     * @return this
+     */
+    public MockServerOptions setToken(String token) {
+        if (token == null || token.isEmpty()) {
+            throw new IllegalArgumentException("token must not be empty");
+        }
+        this.token = token;
+        return this;
+    }
+
+    /**
+     * 获取错误比例
+     *
+     * @return 比例
+     */
+    public double getErrorRate() {
+        return errorRate;
+    }
+
+    /**
+     * 设置随机返回错误的请求比例，取值范围 [0, 1]
+     *
+     * @param errorRate 比例
+     * @return this
+     */
+    public MockServerOptions setErrorRate(double errorRate) {
+        if (errorRate < 0 || errorRate > 1) {
+            throw new IllegalArgumentException("errorRate must be in [0, 1]");
+        }
+        this.errorRate = errorRate;
+        return this;
+    }
+
+    /**
+     * 获取注入错误时的状态码
+     *
+     * @return 状态码
+     */
+    public int getErrorStatus() {
+        return errorStatus;
+    }
+
+    /**
+     * 设置注入错误时的状态码，比如 429 或 503
+     *
+     * @param errorStatus 状态码
+     * @return this
+     */
+    public MockServerOptions setErrorStatus(int errorStatus) {
+        if (errorStatus < 400 || errorStatus > 599) {
+            throw new IllegalArgumentException("errorStatus must be in [400, 599]");
+        }
+        this.errorStatus = errorStatus;
+        return this;
+    }
+}
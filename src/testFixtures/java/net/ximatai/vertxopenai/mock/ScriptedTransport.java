@@ -0,0 +1,215 @@
+package net.ximatai.vertxopenai.mock;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.WriteStream;
+import net.ximatai.vertxopenai.service.ChatCall;
+import net.ximatai.vertxopenai.service.ChatTransport;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * 不经过网络的传输层，用于单元测试，记录收到的每个调用
+ * <p>
+ * 两种用法：
+ * <ul>
+ *     <li>手动：{@link #ScriptedTransport()} 创建，请求一直挂起，由测试通过 {@link #sends()}、{@link #sinks()}、{@link #streams()}
+ *     完成或写入数据，流式请求也可以用 {@link #chunk(String)}、{@link #finish(String)} 写入 SSE 片段；调用取消时请求以取消原因失败</li>
+ *     <li>应答：{@link #replying(Function)} 或 {@link #scripted(String...)} 创建，立即按脚本返回，流式请求把响应体写入 sink 后结束</li>
+ * </ul>
+ */
+public class ScriptedTransport implements ChatTransport {
+
+    private final Function<ChatCall, Future<Buffer>> reply;
+    private final List<ChatCall> calls = new ArrayList<>();
+    private final List<Promise<Buffer>> sends = new ArrayList<>();
+    private final List<WriteStream<Buffer>> sinks = new ArrayList<>();
+    private final List<Promise<Void>> streams = new ArrayList<>();
+
+    /**
+     * 创建手动完成的传输层
+     */
+    public ScriptedTransport() {
+        this.reply = null;
+    }
+
+    private ScriptedTransport(Function<ChatCall, Future<Buffer>> reply) {
+        this.reply = Objects.requireNonNull(reply, "Reply cannot be null");
+    }
+
+    /**
+     * 创建按函数应答的传输层
+     *
+     * @param reply 由调用得到响应体，流式请求时为写入 sink 的 SSE 数据
+     * @return 传输层
+     */
+    public static ScriptedTransport replying(Function<ChatCall, Future<Buffer>> reply) {
+        return new ScriptedTransport(reply);
+    }
+
+    /**
+     * 创建依次返回给定响应体的传输层，用完后的请求失败
+     *
+     * @param replies 响应体，流式请求时为写入 sink 的 SSE 数据
+     * @return 传输层
+     */
+    public static ScriptedTransport scripted(String... replies) {
+        List<String> remaining = new ArrayList<>(Arrays.asList(replies));
+        return new ScriptedTransport(call -> {
+            synchronized (remaining) {
+                return remaining.isEmpty()
+                        ? Future.failedFuture("No more replies")
+                        : Future.succeededFuture(Buffer.buffer(remaining.remove(0)));
+            }
+        });
+    }
+
+    @Override
+    public Future<Buffer> send(ChatCall call) {
+        Promise<Buffer> promise = Promise.promise();
+        synchronized (this) {
+            calls.add(call);
+            sends.add(promise);
+        }
+        if (reply == null) {
+            call.onCancel(promise::tryFail);
+        } else {
+            reply.apply(call).onComplete(promise);
+        }
+        return promise.future();
+    }
+
+    @Override
+    public Future<Void> stream(ChatCall call, WriteStream<Buffer> sink) {
+        Promise<Void> promise = Promise.promise();
+        synchronized (this) {
+            calls.add(call);
+            sinks.add(sink);
+            streams.add(promise);
+        }
+        if (reply == null) {
+            call.onCancel(promise::tryFail);
+        } else {
+            reply.apply(call)
+                    .compose(sink::write)
+                    .compose(v -> sink.end())
+                    .onComplete(promise);
+        }
+        return promise.future();
+    }
+
+    /**
+     * 收到的所有调用，包括流式调用，按收到的顺序
+     *
+     * @return 调用
+     */
+    public synchronized List<ChatCall> calls() {
+        return new ArrayList<>(calls);
+    }
+
+    /**
+     * 第 i 个调用的请求体
+     *
+     * @param i 序号
+     * @return 请求体
+     */
+    public synchronized JsonObject body(int i) {
+        return new JsonObject(calls.get(i).body());
+    }
+
+    /**
+     * 非流式请求的结果，手动模式下由测试完成
+     *
+     * @return 每个非流式请求一个
+     */
+    public synchronized List<Promise<Buffer>> sends() {
+        return new ArrayList<>(sends);
+    }
+
+    /**
+     * 流式请求的响应体写入的目标
+     *
+     * @return 每个流式请求一个
+     */
+    public synchronized List<WriteStream<Buffer>> sinks() {
+        return new ArrayList<>(sinks);
+    }
+
+    /**
+     * 流式请求的结果，手动模式下由测试完成
+     *
+     * @return 每个流式请求一个
+     */
+    public synchronized List<Promise<Void>> streams() {
+        return new ArrayList<>(streams);
+    }
+
+    /**
+     * 向最近的流式请求写入一个内容片段
+     *
+     * @param content 片段内容
+     * @return this
+     */
+    public ScriptedTransport chunk(String content) {
+        lastSink().write(event(new JsonObject().put("content", content), null));
+        return this;
+    }
+
+    /**
+     * 向最近的流式请求写入带结束原因 stop 的最后一个片段和 [DONE]，结束写入并完成该请求
+     *
+     * @param content 最后一个片段的内容，为 null 时片段不带内容
+     * @return this
+     */
+    public ScriptedTransport finish(String content) {
+        WriteStream<Buffer> sink = lastSink();
+        Promise<Void> promise;
+        synchronized (this) {
+            promise = streams.get(streams.size() - 1);
+        }
+        JsonObject delta = content == null ? new JsonObject() : new JsonObject().put("content", content);
+        sink.write(event(delta, "stop").appendString("data: [DONE]\n\n"));
+        sink.end();
+        promise.tryComplete();
+        return this;
+    }
+
+    /**
+     * 只有一条 AI 回复的非流式响应体
+     *
+     * @param content 回复内容
+     * @return 响应体
+     */
+    public static Buffer completion(String content) {
+        return new JsonObject()
+                .put("choices", new JsonArray().add(new JsonObject()
+                        .put("index", 0)
+                        .put("message", new JsonObject().put("role", "assistant").put("content", content))
+                        .put("finish_reason", "stop")))
+                .toBuffer();
+    }
+
+    private synchronized WriteStream<Buffer> lastSink() {
+        if (sinks.isEmpty()) {
+            throw new IllegalStateException("No stream request");
+        }
+        return sinks.get(sinks.size() - 1);
+    }
+
+    private static Buffer event(JsonObject delta, String finishReason) {
+        JsonObject choice = new JsonObject().put("index", 0).put("delta", delta);
+        if (finishReason != null) {
+            choice.put("finish_reason", finishReason);
+        }
+        return Buffer.buffer("data: ")
+                .appendBuffer(new JsonObject().put("choices", new JsonArray().add(choice)).toBuffer())
+                .appendString("\n\n");
+    }
+}